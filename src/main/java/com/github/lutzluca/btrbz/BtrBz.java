@@ -13,7 +13,11 @@ import com.github.lutzluca.btrbz.core.config.ConfigManager;
 import com.github.lutzluca.btrbz.core.fliphelper.FlipHelper;
 import com.github.lutzluca.btrbz.core.fliphelper.FlipProductContext;
 import com.github.lutzluca.btrbz.core.fliphelper.FlipSubmissionTracker;
+import com.github.lutzluca.btrbz.core.flips.FlipScanner;
+import com.github.lutzluca.btrbz.core.ledger.TradeLedger;
 import com.github.lutzluca.btrbz.core.modules.BookmarkModule;
+import com.github.lutzluca.btrbz.core.modules.FlipsModule;
+import com.github.lutzluca.btrbz.core.modules.LedgerModule;
 import com.github.lutzluca.btrbz.core.modules.OrderBookPriceModule;
 import com.github.lutzluca.btrbz.core.modules.OrderLimitModule;
 import com.github.lutzluca.btrbz.core.modules.orderpreset.OrderPresetsModule;
@@ -21,14 +25,17 @@ import com.github.lutzluca.btrbz.core.modules.OrderValueModule;
 import com.github.lutzluca.btrbz.core.modules.PriceDiffModule;
 import com.github.lutzluca.btrbz.core.modules.TrackedOrdersListModule;
 import com.github.lutzluca.btrbz.core.orderbook.OrderBookScreenController;
+import com.github.lutzluca.btrbz.core.trackedorders.TrackedOrderJournal;
 import com.github.lutzluca.btrbz.core.trackedorders.TrackedOrderManager;
 import com.github.lutzluca.btrbz.data.BazaarData;
 import com.github.lutzluca.btrbz.data.BazaarMessageDispatcher;
 import com.github.lutzluca.btrbz.data.BazaarMessageDispatcher.BazaarMessage;
 import com.github.lutzluca.btrbz.data.BazaarPoller;
 import com.github.lutzluca.btrbz.data.ConversionEvent;
+import com.github.lutzluca.btrbz.data.MarketSnapshotStore;
 import com.github.lutzluca.btrbz.data.OrderInfoParser;
 import com.github.lutzluca.btrbz.data.OrderModels.OutstandingOrderInfo;
+import com.github.lutzluca.btrbz.data.history.PriceHistory;
 import com.github.lutzluca.btrbz.utils.GameUtils;
 import com.github.lutzluca.btrbz.utils.MessageQueue;
 import com.github.lutzluca.btrbz.utils.MessageQueue.Level;
@@ -41,6 +48,7 @@ import lombok.extern.slf4j.Slf4j;
 import net.fabricmc.api.ClientModInitializer;
 import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientLifecycleEvents;
 import net.fabricmc.fabric.api.client.message.v1.ClientReceiveMessageEvents;
+import net.fabricmc.loader.api.FabricLoader;
 import net.minecraft.ChatFormatting;
 import net.minecraft.core.Registry;
 import net.minecraft.core.component.DataComponentType;
@@ -66,6 +74,9 @@ public class BtrBz implements ClientModInitializer {
     private AlertManager alertManager;
     private OrderTooltipProvider tooltipProvider;
     private OrderProtectionManager orderProtectionManager;
+    private PriceHistory priceHistory;
+    private TradeLedger ledger;
+    private FlipScanner flipScanner;
     private boolean automaticConversionFailureNotified;
 
     public static TrackedOrderManager orderManager() {
@@ -88,6 +99,18 @@ public class BtrBz implements ClientModInitializer {
         return instance.orderProtectionManager;
     }
 
+    public static PriceHistory priceHistory() {
+        return instance.priceHistory;
+    }
+
+    public static TradeLedger ledger() {
+        return instance.ledger;
+    }
+
+    public static FlipScanner flipScanner() {
+        return instance.flipScanner;
+    }
+
     @Override
     public void onInitializeClient() {
         instance = this;
@@ -109,7 +132,21 @@ public class BtrBz implements ClientModInitializer {
         ScreenInfoHelper.registerOnSwitch(info -> this.highlightManager.clearHighlightOverride());
 
         this.orderManager = new TrackedOrderManager(BAZAAR_DATA);
-        this.orderManager.addOnOrderUpdatedListener(order -> this.tooltipProvider.clearCache());
+
+        this.ledger = new TradeLedger(
+            FabricLoader.getInstance().getConfigDir().resolve(BtrBz.MOD_ID).resolve("ledger.bin"),
+            () -> ConfigManager.get().tax
+        );
+        this.ledger.load();
+        ClientLifecycleEvents.CLIENT_STOPPING.register(client -> this.ledger.close());
+        this.orderManager.addOnOrdersChangedListener(changes -> {
+            if (!changes.updated().isEmpty()) {
+                this.tooltipProvider.clearCache();
+                return;
+            }
+            changes.removed().forEach(this.tooltipProvider::invalidate);
+        });
+        this.orderManager.addOnOrdersResetListener(this.tooltipProvider::clearCache);
         this.alertManager = new AlertManager(BAZAAR_DATA);
         new ChatFilterManager();
         this.orderProtectionManager = new OrderProtectionManager(BAZAAR_DATA);
@@ -135,6 +172,13 @@ public class BtrBz implements ClientModInitializer {
         );
         var orderPresetsModule = new OrderPresetsModule(BAZAAR_DATA, productInfoProvider);
         var orderLimitModule = new OrderLimitModule();
+        var ledgerModule = new LedgerModule(this.ledger);
+        this.flipScanner = new FlipScanner(
+            () -> ConfigManager.get().tax,
+            () -> ConfigManager.get().flips.rankings,
+            () -> ConfigManager.get().flips.topK
+        );
+        var flipsModule = new FlipsModule(BAZAAR_DATA, this.flipScanner);
         var orderValueModule = new OrderValueModule();
         var orderBookPriceModule = new OrderBookPriceModule(
             BAZAAR_DATA,
@@ -150,8 +194,10 @@ public class BtrBz implements ClientModInitializer {
             trackedOrdersListModule,
             orderPresetsModule,
             orderLimitModule,
+            ledgerModule,
             orderValueModule,
-            orderBookPriceModule
+            orderBookPriceModule,
+            flipsModule
         );
 
         this.orderManager.afterOrderSync((unfilledOrders, filledOrder) -> {
@@ -179,10 +225,36 @@ public class BtrBz implements ClientModInitializer {
             orderActions.setReopenBazaar();
         });
 
-        BAZAAR_DATA.addListener(this.alertManager::onBazaarUpdate);
-        BAZAAR_DATA.addListener(this.orderManager::onBazaarUpdate);
-
-        new BazaarPoller(BAZAAR_DATA::onUpdate);
+        BAZAAR_DATA.addUpdateHandler(this.alertManager::prepareUpdate);
+        BAZAAR_DATA.addUpdateHandler(this.orderManager::prepareUpdate);
+        BAZAAR_DATA.addUpdateHandler(this.flipScanner);
+
+        var orderJournal = new TrackedOrderJournal(FabricLoader
+            .getInstance()
+            .getConfigDir()
+            .resolve(BtrBz.MOD_ID)
+            .resolve("tracked-orders.journal"));
+        this.orderManager.restoreOrders(orderJournal);
+        ClientLifecycleEvents.CLIENT_STOPPING.register(client -> orderJournal.close());
+
+        this.priceHistory = new PriceHistory(FabricLoader
+            .getInstance()
+            .getConfigDir()
+            .resolve(BtrBz.MOD_ID)
+            .resolve("history"));
+        BAZAAR_DATA.addUpdateHandler(this.priceHistory);
+        ClientLifecycleEvents.CLIENT_STOPPING.register(client -> this.priceHistory.close());
+
+        BAZAAR_DATA.restoreSnapshot(new MarketSnapshotStore(FabricLoader
+            .getInstance()
+            .getConfigDir()
+            .resolve(BtrBz.MOD_ID)
+            .resolve("market-snapshot.bin")));
+        new BazaarPoller(
+            BAZAAR_DATA.handles(),
+            () -> ConfigManager.get().bazaarData.fetchMode,
+            BAZAAR_DATA::prepareUpdate
+        );
         var flipHelper = new FlipHelper(
             BAZAAR_DATA,
             flipProductContext,
@@ -190,7 +262,18 @@ public class BtrBz implements ClientModInitializer {
         );
 
         MESSAGE_DISPATCHER.on(BazaarMessage.OrderFlipped.class, flipHelper::handleFlipped);
+        // prices the fill from its tracked order, so it must run before the order is removed
+        MESSAGE_DISPATCHER.on(
+            BazaarMessage.OrderFilled.class, info -> this.ledger.recordFill(
+                info,
+                this.orderManager.findFilled(info).map(order -> order.pricePerUnit)
+            )
+        );
         MESSAGE_DISPATCHER.on(BazaarMessage.OrderFilled.class, orderManager::removeMatching);
+        MESSAGE_DISPATCHER.on(BazaarMessage.OrderSetup.class, this.ledger::recordSetup);
+        MESSAGE_DISPATCHER.on(BazaarMessage.InstaBuy.class, this.ledger::recordInstaBuy);
+        MESSAGE_DISPATCHER.on(BazaarMessage.InstaSell.class, this.ledger::recordInstaSell);
+        MESSAGE_DISPATCHER.on(BazaarMessage.OrderFlipped.class, this.ledger::recordFlip);
         MESSAGE_DISPATCHER.on(BazaarMessage.OrderSetup.class, orderManager::confirmOutstanding);
 
         MESSAGE_DISPATCHER.on(
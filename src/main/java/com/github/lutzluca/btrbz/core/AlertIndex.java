@@ -0,0 +1,264 @@
+package com.github.lutzluca.btrbz.core;
+
+import com.github.lutzluca.btrbz.core.AlertManager.Alert;
+import com.github.lutzluca.btrbz.core.AlertManager.AlertHit;
+import com.github.lutzluca.btrbz.core.commands.alert.PriceExpression.AlertType;
+import com.github.lutzluca.btrbz.data.MarketColumns;
+import com.github.lutzluca.btrbz.data.MarketDelta;
+import com.github.lutzluca.btrbz.data.MarketDelta.Change;
+import com.github.lutzluca.btrbz.data.OrderBookSide;
+import com.github.lutzluca.btrbz.data.ProductHandles;
+import com.github.lutzluca.btrbz.utils.Utils;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Immutable index over the configured alerts, grouped by product handle and {@link AlertType} with the thresholds of
+ * each group sorted ascending. A poll looks up the two best prices of every changed product once and finds the
+ * reached alerts of each group with a binary search, so its cost grows with the number of changed products rather
+ * than the number of alerts.
+ * <p>
+ * Dynamic alerts have no fixed threshold; their compiled expression is re-evaluated whenever their product's top of
+ * book changes, or any level of its book if the expression averages an insta price over a volume.
+ */
+final class AlertIndex {
+
+    static final AlertIndex EMPTY = new AlertIndex(List.of(), new ProductAlerts[0], Long.MAX_VALUE, 0);
+
+    private static final AlertType[] TYPES = AlertType.values();
+
+    private final List<Alert> alerts;
+    private final ProductAlerts[] products;
+    // the earliest time at which an outdated-alert reminder becomes due
+    private final long nextReminderAt;
+    // the operand stack size the largest dynamic alert expression needs
+    private final int stackSize;
+
+    private AlertIndex(List<Alert> alerts, ProductAlerts[] products, long nextReminderAt, int stackSize) {
+        this.alerts = alerts;
+        this.products = products;
+        this.nextReminderAt = nextReminderAt;
+        this.stackSize = stackSize;
+    }
+
+    static AlertIndex build(List<Alert> alerts, ProductHandles handles) {
+        var snapshot = List.copyOf(alerts);
+        var byHandle = new LinkedHashMap<Integer, List<Alert>>();
+        long nextReminderAt = Long.MAX_VALUE;
+        int stackSize = 0;
+
+        for (var alert : snapshot) {
+            byHandle.computeIfAbsent(handles.intern(alert.productId()), handle -> new ArrayList<>()).add(alert);
+            nextReminderAt = Math.min(nextReminderAt, nextReminderAt(alert));
+            if (alert.compiledExpression != null) {
+                stackSize = Math.max(stackSize, alert.compiledExpression.stackSize());
+            }
+        }
+
+        var products = byHandle
+            .entrySet()
+            .stream()
+            .map(entry -> ProductAlerts.of(entry.getKey(), entry.getValue()))
+            .toArray(ProductAlerts[]::new);
+        return new AlertIndex(snapshot, products, nextReminderAt, stackSize);
+    }
+
+    private static long nextReminderAt(Alert alert) {
+        if (alert.remindedAfter < Utils.WEEK_DURATION_MS) {
+            return alert.createdAt + Utils.WEEK_DURATION_MS;
+        }
+        if (alert.remindedAfter < Utils.MONTH_DURATION_MS) {
+            return alert.createdAt + Utils.MONTH_DURATION_MS;
+        }
+        return Long.MAX_VALUE;
+    }
+
+    List<Alert> alerts() {
+        return this.alerts;
+    }
+
+    int productCount() {
+        return this.products.length;
+    }
+
+    /**
+     * @param all {@code true} to check every product, {@code false} to only check products whose top of book changed
+     */
+    void collectPriceHits(MarketDelta delta, boolean all, List<AlertHit> hits) {
+        var columns = delta.snapshot().columns();
+        var stack = new double[this.stackSize];
+        for (var product : this.products) {
+            if (all
+                || delta.changed(product.handle, Change.TopOfBook)
+                || product.dependsOnDepth && delta.changed(product.handle, Change.Depth)) {
+                product.collectHits(columns, stack, hits);
+            }
+        }
+    }
+
+    void collectReminders(long now, List<AlertHit> hits) {
+        if (now <= this.nextReminderAt) {
+            return;
+        }
+
+        for (var alert : this.alerts) {
+            var duration = now - alert.createdAt;
+            if (duration > Utils.MONTH_DURATION_MS && alert.remindedAfter < Utils.MONTH_DURATION_MS) {
+                hits.add(new AlertHit.Outdated(alert, "over a month", Utils.MONTH_DURATION_MS, duration));
+            } else if (duration > Utils.WEEK_DURATION_MS && alert.remindedAfter < Utils.WEEK_DURATION_MS) {
+                hits.add(new AlertHit.Outdated(alert, "over a week", Utils.WEEK_DURATION_MS, duration));
+            }
+        }
+    }
+
+    private static double price(AlertType type, double buyOrder, double sellOffer) {
+        return switch (type) {
+            case BuyOrder, InstaSell -> buyOrder;
+            case SellOffer, InstaBuy -> sellOffer;
+        };
+    }
+
+    // the side instant trades of the type fill against
+    private static OrderBookSide instaBook(AlertType type, MarketColumns columns, int handle) {
+        return switch (type) {
+            case BuyOrder, InstaBuy -> columns.sellOffers(handle);
+            case SellOffer, InstaSell -> columns.buyOrders(handle);
+        };
+    }
+
+    private static boolean reached(AlertType type, double marketPrice, double threshold) {
+        return switch (type) {
+            case SellOffer, InstaSell -> marketPrice >= threshold;
+            case BuyOrder, InstaBuy -> marketPrice <= threshold;
+        };
+    }
+
+    private record ProductAlerts(
+        int handle,
+        Alert[] all,
+        ThresholdGroup[] byType,
+        Alert[] dynamic,
+        boolean dependsOnDepth
+    ) {
+
+        static ProductAlerts of(int handle, List<Alert> alerts) {
+            var byType = new ThresholdGroup[TYPES.length];
+            for (var type : TYPES) {
+                var group = alerts
+                    .stream()
+                    .filter(alert -> alert.type == type && !alert.isDynamic())
+                    // a NaN threshold is never reached by any price
+                    .filter(alert -> !Double.isNaN(alert.price))
+                    .sorted(Comparator.comparingDouble(alert -> alert.price))
+                    .toArray(Alert[]::new);
+                if (group.length > 0) {
+                    byType[type.ordinal()] = ThresholdGroup.of(group);
+                }
+            }
+            var dynamic = alerts.stream().filter(Alert::isDynamic).toArray(Alert[]::new);
+            boolean dependsOnDepth = Arrays
+                .stream(dynamic)
+                .anyMatch(alert -> alert.compiledExpression.dependsOnDepth());
+            return new ProductAlerts(handle, alerts.toArray(Alert[]::new), byType, dynamic, dependsOnDepth);
+        }
+
+        void collectHits(MarketColumns columns, double[] stack, List<AlertHit> hits) {
+            if (!columns.isPresent(this.handle)) {
+                for (var alert : this.all) {
+                    hits.add(new AlertHit.InvalidProduct(alert));
+                }
+                return;
+            }
+
+            double buyOrder = columns.bestBuyOrderPrice(this.handle);
+            double sellOffer = columns.bestSellOfferPrice(this.handle);
+            for (var type : TYPES) {
+                var group = this.byType[type.ordinal()];
+                if (group == null) {
+                    continue;
+                }
+
+                double price = price(type, buyOrder, sellOffer);
+                if (Double.isNaN(price)) {
+                    continue;
+                }
+
+                switch (type) {
+                    case SellOffer, InstaSell -> group.collect(0, group.upperBound(price), price, hits);
+                    case BuyOrder, InstaBuy -> group.collect(group.lowerBound(price), group.size(), price, hits);
+                }
+            }
+
+            for (var alert : this.dynamic) {
+                double price = price(alert.type, buyOrder, sellOffer);
+                double threshold = alert.compiledExpression.evaluate(
+                    price(alert.type.getAssociatedOrderType(), buyOrder, sellOffer),
+                    price(alert.type.getAssociatedInstaType(), buyOrder, sellOffer),
+                    instaBook(alert.type, columns, this.handle),
+                    stack
+                );
+                // comparisons with NaN are false, so missing prices never fire
+                if (reached(alert.type, price, threshold)) {
+                    hits.add(new AlertHit.PriceReached(alert, Optional.of(price)));
+                }
+            }
+        }
+    }
+
+    private record ThresholdGroup(double[] thresholds, Alert[] alerts) {
+
+        static ThresholdGroup of(Alert[] sortedAlerts) {
+            var thresholds = Arrays.stream(sortedAlerts).mapToDouble(alert -> alert.price).toArray();
+            return new ThresholdGroup(thresholds, sortedAlerts);
+        }
+
+        int size() {
+            return this.thresholds.length;
+        }
+
+        /**
+         * @return the index of the first threshold {@code >= price}
+         */
+        int lowerBound(double price) {
+            int lo = 0;
+            int hi = this.thresholds.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (this.thresholds[mid] < price) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        /**
+         * @return the index of the first threshold {@code > price}
+         */
+        int upperBound(double price) {
+            int lo = 0;
+            int hi = this.thresholds.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (this.thresholds[mid] <= price) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        void collect(int from, int to, double price, List<AlertHit> hits) {
+            var reachedPrice = Optional.of(price);
+            for (int i = from; i < to; i++) {
+                hits.add(new AlertHit.PriceReached(this.alerts[i], reachedPrice));
+            }
+        }
+    }
+}
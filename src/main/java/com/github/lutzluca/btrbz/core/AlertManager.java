@@ -1,6 +1,10 @@
 package com.github.lutzluca.btrbz.core;
 
+import com.github.lutzluca.btrbz.core.commands.alert.AlertCommandParser;
+import com.github.lutzluca.btrbz.core.commands.alert.AlertCommandParser.ParseException;
 import com.github.lutzluca.btrbz.core.commands.alert.AlertCommandParser.ResolvedAlertArgs;
+import com.github.lutzluca.btrbz.core.commands.alert.CompiledPriceExpression;
+import com.github.lutzluca.btrbz.core.commands.alert.PriceExpression;
 import com.github.lutzluca.btrbz.core.commands.alert.PriceExpression.AlertType;
 import com.github.lutzluca.btrbz.core.config.ConfigManager;
 import com.github.lutzluca.btrbz.core.config.ConfigScreen;
@@ -8,6 +12,8 @@ import com.github.lutzluca.btrbz.core.config.ConfigScreen.OptionGrouping;
 import com.github.lutzluca.btrbz.data.BazaarData;
 import com.github.lutzluca.btrbz.data.BazaarData.MarketSnapshot;
 import com.github.lutzluca.btrbz.data.IndexedProduct;
+import com.github.lutzluca.btrbz.data.MarketDelta;
+import com.github.lutzluca.btrbz.data.MarketUpdateHandler;
 import com.github.lutzluca.btrbz.data.ProductIdentity;
 import com.github.lutzluca.btrbz.utils.GsonUtils;
 import com.github.lutzluca.btrbz.utils.Notifier;
@@ -32,71 +38,90 @@ import lombok.extern.slf4j.Slf4j;
 import net.minecraft.ChatFormatting;
 import net.minecraft.network.chat.Component;
 import net.minecraft.network.chat.MutableComponent;
+import org.jetbrains.annotations.Nullable;
 
 @Slf4j
 public class AlertManager {
 
     private final BazaarData bazaarData;
+    // immutable index of the configured alerts for the bazaar worker, rebuilt on the client thread after changes
+    private volatile AlertIndex alertIndex = AlertIndex.EMPTY;
+    // confined to the bazaar worker: the last index whose alerts were all checked against the market
+    private AlertIndex evaluatedIndex = null;
 
     public AlertManager(BazaarData bazaarData) {
         this.bazaarData = bazaarData;
         ConfigManager.updateIfChanged(cfg -> cfg.alert.alerts.removeIf(Objects::isNull));
+        this.refreshAlertIndex();
     }
 
-    public void onBazaarUpdate(MarketSnapshot snapshot) {
-        var cfg = ConfigManager.get().alert;
-        if (!cfg.enabled) {
-            return;
-        }
+    private void refreshAlertIndex() {
+        this.alertIndex = AlertIndex.build(ConfigManager.get().alert.alerts, this.bazaarData.handles());
+    }
 
-        boolean changed = false;
-        var it = cfg.alerts.iterator();
-
-        while (it.hasNext()) {
-            var curr = it.next();
-            var priceResult = curr.getAssociatedPrice(snapshot);
-            if (priceResult.isFailure()) {
-                it.remove();
-                changed = true;
-                Notifier.notifyInvalidProduct(curr, this.bazaarData);
-                continue;
-            }
+    /**
+     * Finds the alerts that fire for this update on the bazaar worker. Only products whose top of book changed are
+     * re-priced; after the alerts change or alerts are re-enabled every product is priced once regardless.
+     */
+    public Runnable prepareUpdate(MarketDelta delta) {
+        if (!ConfigManager.get().alert.enabled) {
+            this.evaluatedIndex = null;
+            return MarketUpdateHandler.NOTHING;
+        }
 
-            var price = priceResult.get();
-            var reached = price.map(marketPrice -> switch (curr.type) {
-                case SellOffer, InstaSell -> marketPrice >= curr.price;
-                case BuyOrder, InstaBuy -> marketPrice <= curr.price;
-            }).orElse(false);
-
-            if (reached) {
-                it.remove();
-                changed = true;
-                Notifier.notifyPriceReached(curr, price, this.bazaarData);
-                continue;
-            }
+        var index = this.alertIndex;
+        var hits = new ArrayList<AlertHit>();
+        index.collectPriceHits(delta, index != this.evaluatedIndex, hits);
+        index.collectReminders(System.currentTimeMillis(), hits);
+        this.evaluatedIndex = index;
 
-            var now = System.currentTimeMillis();
-            var duration = now - curr.createdAt;
+        return hits.isEmpty() ? MarketUpdateHandler.NOTHING : () -> this.applyHits(hits);
+    }
 
-            if (duration > Utils.MONTH_DURATION_MS && curr.remindedAfter < Utils.MONTH_DURATION_MS) {
-                Notifier.notifyOutdatedAlert(curr, "over a month", this.bazaarData);
-                curr.remindedAfter = duration;
-                changed = true;
-            }
+    private void applyHits(List<AlertHit> hits) {
+        // alerts may have been removed on the client thread since the hits were prepared
+        var alerts = ConfigManager.get().alert.alerts;
+        boolean changed = false;
 
-            if (duration > Utils.WEEK_DURATION_MS && curr.remindedAfter < Utils.WEEK_DURATION_MS) {
-                Notifier.notifyOutdatedAlert(curr, "over a week", this.bazaarData);
-                curr.remindedAfter = duration;
-                changed = true;
-                continue;
+        for (var hit : hits) {
+            switch (hit) {
+                case AlertHit.InvalidProduct(var alert) -> {
+                    if (alerts.remove(alert)) {
+                        changed = true;
+                        Notifier.notifyInvalidProduct(alert, this.bazaarData);
+                    }
+                }
+                case AlertHit.PriceReached(var alert, var price) -> {
+                    if (alerts.remove(alert)) {
+                        changed = true;
+                        Notifier.notifyPriceReached(alert, price, this.bazaarData);
+                    }
+                }
+                case AlertHit.Outdated(var alert, var age, var threshold, var duration) -> {
+                    if (alert.remindedAfter < threshold && alerts.contains(alert)) {
+                        Notifier.notifyOutdatedAlert(alert, age, this.bazaarData);
+                        alert.remindedAfter = duration;
+                        changed = true;
+                    }
+                }
             }
         }
 
         if (changed) {
+            this.refreshAlertIndex();
             ConfigManager.save();
         }
     }
 
+    sealed interface AlertHit {
+
+        record InvalidProduct(Alert alert) implements AlertHit { }
+
+        record PriceReached(Alert alert, Optional<Double> price) implements AlertHit { }
+
+        record Outdated(Alert alert, String age, long threshold, long duration) implements AlertHit { }
+    }
+
     public boolean addAlert(ResolvedAlertArgs args) {
         return ConfigManager.updateIfChanged(cfg -> {
             var alerts = cfg.alert.alerts;
@@ -105,6 +130,7 @@ public class AlertManager {
             }
 
             alerts.add(new Alert(args));
+            this.refreshAlertIndex();
             return true;
         });
     }
@@ -123,6 +149,7 @@ public class AlertManager {
                     .withStyle(ChatFormatting.GRAY)));
             return;
         }
+        this.refreshAlertIndex();
         ConfigManager.save();
         if (removed.size() > 1) {
             Notifier.notifyPlayer(Notifier
@@ -152,15 +179,21 @@ public class AlertManager {
         public final IndexedProduct product;
         public final AlertType type;
         public final double price;
+        // set for dynamic alerts, whose threshold is re-evaluated against every market update; price then only holds
+        // the value the expression had when the alert was created
+        public final @Nullable PriceExpression expression;
+        final @Nullable CompiledPriceExpression compiledExpression;
 
-        long remindedAfter = -1;
+        volatile long remindedAfter = -1;
 
-        private Alert(ResolvedAlertArgs args) {
+        Alert(ResolvedAlertArgs args) {
             this.id = UUID.randomUUID();
             this.createdAt = args.timestamp();
             this.product = args.product();
             this.type = args.type();
             this.price = args.price();
+            this.expression = args.expression();
+            this.compiledExpression = this.expression == null ? null : this.expression.compile();
         }
 
         private Alert(
@@ -169,6 +202,7 @@ public class AlertManager {
             IndexedProduct product,
             AlertType type,
             double price,
+            @Nullable PriceExpression expression,
             long remindedAfter
         ) {
             this.id = id;
@@ -176,9 +210,15 @@ public class AlertManager {
             this.product = product;
             this.type = type;
             this.price = price;
+            this.expression = expression;
+            this.compiledExpression = expression == null ? null : expression.compile();
             this.remindedAfter = remindedAfter;
         }
 
+        public boolean isDynamic() {
+            return this.expression != null;
+        }
+
         public String productName() {
             return this.product.strippedName();
         }
@@ -209,12 +249,23 @@ public class AlertManager {
                 .append(productName)
                 .append(Component.literal(" @ ").withStyle(ChatFormatting.GRAY))
                 .append(Component
-                    .literal(Utils.formatDecimal(this.price, 1, true) + "coins")
+                    .literal(this.isDynamic()
+                        ? this.expression.format()
+                        : Utils.formatDecimal(this.price, 1, true) + "coins")
                     .withStyle(ChatFormatting.YELLOW))
                 .append(Component.literal(" (" + this.type.format() + ")").withStyle(ChatFormatting.DARK_GRAY));
         }
 
         public boolean matches(ResolvedAlertArgs args) {
+            if (this.isDynamic() || args.isDynamic()) {
+                // @formatter:off
+                return this.productId().equals(args.productId())
+                    && this.type == args.type()
+                    && this.isDynamic() && args.isDynamic()
+                    && this.expression.format().equals(args.expression().format());
+                // @formatter:on
+            }
+
             // @formatter:off
             return this.productId().equals(args.productId())
                 && this.type == args.type()
@@ -224,6 +275,8 @@ public class AlertManager {
 
         public static final class GsonAdapter implements JsonSerializer<Alert>, JsonDeserializer<Alert> {
 
+            private static final AlertCommandParser EXPRESSION_PARSER = new AlertCommandParser();
+
             @Override
             public JsonElement serialize(
                 Alert src,
@@ -236,6 +289,9 @@ public class AlertManager {
                 obj.add("product", ctx.serialize(src.product, IndexedProduct.class));
                 obj.add("type", ctx.serialize(src.type));
                 obj.addProperty("price", src.price);
+                if (src.expression != null) {
+                    obj.addProperty("expression", src.expression.format());
+                }
                 obj.addProperty("remindedAfter", src.remindedAfter);
                 return obj;
             }
@@ -256,12 +312,24 @@ public class AlertManager {
                     return null;
                 }
 
+                PriceExpression expression = null;
+                var expressionText = GsonUtils.optionalString(obj, "expression");
+                if (expressionText.isPresent()) {
+                    try {
+                        expression = EXPRESSION_PARSER.parsePriceExpression(expressionText.get());
+                    } catch (ParseException err) {
+                        log.warn("Skipping dynamic alert with invalid expression '{}'", expressionText.get(), err);
+                        return null;
+                    }
+                }
+
                 return new Alert(
                     UUID.fromString(GsonUtils.required(obj, "id", "Alert").getAsString()),
                     GsonUtils.required(obj, "createdAt", "Alert").getAsLong(),
                     product,
                     ctx.deserialize(GsonUtils.required(obj, "type", "Alert"), AlertType.class),
                     GsonUtils.required(obj, "price", "Alert").getAsDouble(),
+                    expression,
                     GsonUtils.optionalLong(obj, "remindedAfter").orElse(-1L)
                 );
             }
@@ -5,6 +5,7 @@ import com.github.lutzluca.btrbz.core.config.ConfigManager;
 import com.github.lutzluca.btrbz.core.config.ConfigScreen;
 import com.github.lutzluca.btrbz.core.config.ConfigScreen.OptionGrouping;
 import com.github.lutzluca.btrbz.data.BazaarData;
+import com.github.lutzluca.btrbz.data.FillRateEstimator.FillTimeEstimate;
 import com.github.lutzluca.btrbz.data.OrderModels.OrderStatus;
 import com.github.lutzluca.btrbz.data.OrderModels.TrackedOrder;
 import com.github.lutzluca.btrbz.data.ProductIdentity;
@@ -21,6 +22,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
 import lombok.extern.slf4j.Slf4j;
 import net.fabricmc.fabric.api.client.item.v1.ItemTooltipCallback;
@@ -37,7 +39,7 @@ public class OrderTooltipProvider {
     private final OrderTooltipCache itemCache;
 
     private static class OrderTooltipCache {
-        private final Map<@NotNull TrackedOrder, @Nullable List<Component>> cache = new HashMap<>();
+        private final Map<@NotNull TrackedOrder, @Nullable CachedTooltip> cache = new HashMap<>();
         private final String name;
 
         public OrderTooltipCache(String name) {
@@ -46,16 +48,35 @@ public class OrderTooltipProvider {
         }
 
         public List<Component> getOrCompute(@NotNull TrackedOrder order, Supplier<List<Component>> supplier) {
-            return this.cache.computeIfAbsent(order, key -> {
-                log.trace("Computing {} tooltip cache for {}", this.name, key);
-                return supplier.get();
-            });
+            var cached = this.cache.get(order);
+            if (cached != null && cached.isCurrent(order)) {
+                return cached.lines();
+            }
+
+            log.trace("Computing {} tooltip cache for {}", this.name, order);
+            var lines = supplier.get();
+            this.cache.put(order, new CachedTooltip(order.status, order.fillAmountSnapshot, lines));
+            return lines;
         }
 
         public void clear() {
             log.trace("Clearing {} tooltip cache with {} entries", this.name, this.cache.size());
             this.cache.clear();
         }
+
+        public void invalidate(Predicate<TrackedOrder> predicate) {
+            if (this.cache.keySet().removeIf(predicate)) {
+                log.trace("Invalidated {} tooltip cache entries, {} remaining", this.name, this.cache.size());
+            }
+        }
+    }
+
+    // Market-dependent lines are invalidated through bazaar deltas; order-dependent ones by comparing against the
+    // status instance and fill amount they were built from, since statuses are only replaced when they change.
+    private record CachedTooltip(OrderStatus status, int fillAmountSnapshot, List<Component> lines) {
+        boolean isCurrent(TrackedOrder order) {
+            return this.status == order.status && this.fillAmountSnapshot == order.fillAmountSnapshot;
+        }
     }
 
     public OrderTooltipProvider(BazaarData bazaarData) {
@@ -63,9 +84,10 @@ public class OrderTooltipProvider {
         this.listCache = new OrderTooltipCache("list");
         this.itemCache = new OrderTooltipCache("item");
 
-        this.bazaarData.addListener(snapshot -> {
-            this.listCache.clear();
-            this.itemCache.clear();
+        this.bazaarData.addDeltaListener(delta -> {
+            Predicate<TrackedOrder> productChanged = order -> delta.contains(order.product);
+            this.listCache.invalidate(productChanged);
+            this.itemCache.invalidate(productChanged);
         });
 
         ItemTooltipCallback.EVENT.register((stack, ctx, type, lines) -> {
@@ -112,6 +134,11 @@ public class OrderTooltipProvider {
         this.itemCache.clear();
     }
 
+    public void invalidate(TrackedOrder order) {
+        this.listCache.invalidate(order::equals);
+        this.itemCache.invalidate(order::equals);
+    }
+
     public List<Component> buildTooltipLines(TrackedOrder order, OrderListTooltipConfig cfg) {
         var product = order.product;
 
@@ -171,11 +198,9 @@ public class OrderTooltipProvider {
             if (cfg.showEstimatedTime && order.status instanceof OrderStatus.Top) {
                 int remainingVolume = order.volume - order.fillAmountSnapshot;
 
-                this.bazaarData.getEstimatedFillTimeMinutes(product, order.type, remainingVolume).ifPresent(minutes -> {
-                    var time = Component.literal(Utils.formatDuration(minutes)).withStyle(ChatFormatting.YELLOW);
-                    var line = Component.literal("Estimated fill time: ").withStyle(ChatFormatting.GRAY).append(time);
-                    lines.add(line);
-                });
+                this.bazaarData
+                    .getEstimatedFillTimeMinutes(product, order.type, order.pricePerUnit, remainingVolume)
+                    .ifPresent(estimate -> lines.add(OrderTooltipProvider.estimatedFillTimeLine(estimate)));
             }
 
             if (order.status instanceof OrderStatus.Undercut undercut) {
@@ -259,6 +284,25 @@ public class OrderTooltipProvider {
                 .withStyle(ChatFormatting.GOLD));
     }
 
+    private static Component estimatedFillTimeLine(FillTimeEstimate estimate) {
+        var line = Component
+            .literal("Estimated fill time: ")
+            .withStyle(ChatFormatting.GRAY)
+            .append(Component
+                .literal(Utils.formatDuration(estimate.typicalMinutes()))
+                .withStyle(ChatFormatting.YELLOW));
+
+        if (estimate.fastMinutes() < estimate.typicalMinutes()) {
+            var slow = Double.isInfinite(estimate.slowMinutes())
+                ? "?"
+                : Utils.formatDuration(estimate.slowMinutes());
+            line.append(Component
+                .literal(" (" + Utils.formatDuration(estimate.fastMinutes()) + " - " + slow + ")")
+                .withStyle(ChatFormatting.DARK_GRAY));
+        }
+        return line;
+    }
+
     private static List<Component> priceLines(BazaarData data, ProductIdentity product) {
         var priceInfo = data.getMarketPrices(product);
 
@@ -475,7 +519,7 @@ public class OrderTooltipProvider {
                 })
                 .description(ConfigScreen.createDescription(ConfigScreen.paragraphs(
                     ConfigScreen.text(
-                        "Estimate how long a top-position order may take to fill using its remaining volume and the product's weekly moving volume."),
+                        "Estimate how long a top-position order may take to fill from the product's fill rates observed since startup, with the range of fast to slow fill rates in brackets."),
                     ConfigScreen.note(
                         "Market changes and delayed UI updates can make this inaccurate. Treat it as a rough guide, not a countdown.")
                 )))
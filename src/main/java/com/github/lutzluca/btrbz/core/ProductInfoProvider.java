@@ -99,6 +99,10 @@ public final class ProductInfoProvider {
                     .literal(" (" + stackCount + "x)")
                     .withStyle(ChatFormatting.DARK_GRAY));
             }
+
+            if (this.bazaarData.isStale()) {
+                priceText.append(Component.literal(" (cached)").withStyle(ChatFormatting.DARK_GRAY));
+            }
         } else {
             priceText.append(Component.literal("Not Available").withStyle(ChatFormatting.GRAY));
         }
@@ -641,7 +645,11 @@ public final class ProductInfoProvider {
         ProductLookupCache() {
             log.debug("Initializing product lookup cache");
             ProductInfoProvider.this.bazaarData.addListener(products -> this.clear());
-            ProductInfoProvider.this.bazaarData.addIndexChangeListener(this::clear);
+            ProductInfoProvider.this.bazaarData.addIndexChangeListener(changes -> {
+                if (!changes.isEmpty()) {
+                    this.clear();
+                }
+            });
         }
 
         CachedProductLookup get(ItemStack stack) {
@@ -3,7 +3,9 @@ package com.github.lutzluca.btrbz.core.commands;
 import com.github.lutzluca.btrbz.core.commands.alert.AlertCommand;
 import com.github.lutzluca.btrbz.core.config.ConfigScreen;
 import com.github.lutzluca.btrbz.data.BazaarData;
+import com.mojang.brigadier.LiteralMessage;
 import com.mojang.brigadier.builder.LiteralArgumentBuilder;
+import com.mojang.brigadier.suggestion.SuggestionProvider;
 import net.fabricmc.fabric.api.client.command.v2.ClientCommands;
 import net.fabricmc.fabric.api.client.command.v2.ClientCommandRegistrationCallback;
 import net.fabricmc.fabric.api.client.command.v2.FabricClientCommandSource;
@@ -24,7 +26,27 @@ public class Commands {
             dispatcher.register(ConversionCommand.get(bazaarData));
             dispatcher.register(TrackedOrderCommand.get());
             dispatcher.register(TaxCommand.get());
+            dispatcher.register(LedgerCommand.get());
+            dispatcher.register(FlipsCommand.get());
             dispatcher.register(PresetCommand.get());
+            dispatcher.register(HistoryCommand.get(bazaarData));
         });
     }
+
+    public static SuggestionProvider<FabricClientCommandSource> productSuggestions(BazaarData bazaarData) {
+        return (ctx, builder) -> {
+            // a quoted argument is still open while it is typed
+            var remaining = builder.getRemaining().startsWith("\"")
+                ? builder.getRemaining().substring(1)
+                : builder.getRemaining();
+            bazaarData
+                .productCompletions()
+                .complete(remaining, 100)
+                .forEach(product -> builder.suggest(
+                    product.productId(),
+                    new LiteralMessage(product.strippedName())
+                ));
+            return builder.buildFuture();
+        };
+    }
 }
@@ -34,7 +34,36 @@ public final class ConversionCommand {
                 .executes(ctx -> startRefresh(bazaarData, false))
                 .then(ClientCommands
                     .literal("force")
-                    .executes(ctx -> startRefresh(bazaarData, true))));
+                    .executes(ctx -> startRefresh(bazaarData, true))))
+            .then(ClientCommands
+                .literal("export")
+                .executes(ctx -> exportIndex(bazaarData)))
+            .then(ClientCommands
+                .literal("import")
+                .executes(ctx -> importIndex(bazaarData)));
+    }
+
+    private static int exportIndex(BazaarData bazaarData) {
+        bazaarData
+            .exportConversions()
+            .onSuccess(path -> notify("Exported the Bazaar conversion index to " + path, ChatFormatting.GRAY))
+            .onFailure(err -> notify("Failed to export the conversion index: " + err.getMessage(), ChatFormatting.RED));
+        return 1;
+    }
+
+    private static int importIndex(BazaarData bazaarData) {
+        bazaarData
+            .importConversions()
+            .onSuccess(index -> notify(
+                "Imported a Bazaar conversion index with " + index.size() + " products",
+                ChatFormatting.GRAY
+            ))
+            .onFailure(err -> notify("Failed to import the conversion index: " + err.getMessage(), ChatFormatting.RED));
+        return 1;
+    }
+
+    private static void notify(String message, ChatFormatting color) {
+        Notifier.notifyPlayer(Notifier.prefix().append(Component.literal(message).withStyle(color)));
     }
 
     private static int startRefresh(BazaarData bazaarData, boolean force) {
@@ -60,6 +89,11 @@ public final class ConversionCommand {
         var message = Notifier
             .prefix()
             .append(Component.literal("Bazaar conversions").withStyle(ChatFormatting.GOLD))
+            .append(Component
+                .literal("\nIndex: " + status.readiness())
+                .withStyle(status.readiness() == ConversionStatus.Readiness.Failed
+                    ? ChatFormatting.RED
+                    : ChatFormatting.GRAY))
             .append(Component.literal("\nSource: " + status.activeLoadSource()).withStyle(ChatFormatting.GRAY))
             .append(Component.literal("\nProducts: " + counts.total()).withStyle(ChatFormatting.GRAY))
             .append(Component
@@ -78,6 +112,15 @@ public final class ConversionCommand {
                 .withStyle(ChatFormatting.GRAY))
             .append(Component
                 .literal("\nRefresh running: " + status.refreshInFlight())
+                .withStyle(ChatFormatting.GRAY))
+            .append(Component
+                .literal("\nResolution cache: %d/%d entries, %d hits, %d misses (%.0f%%)".formatted(
+                    status.resolutionCache().size(),
+                    status.resolutionCache().capacity(),
+                    status.resolutionCache().hits(),
+                    status.resolutionCache().misses(),
+                    status.resolutionCache().hitRate() * 100
+                ))
                 .withStyle(ChatFormatting.GRAY));
 
         status.lastFailure().ifPresent(failure -> message.append(Component
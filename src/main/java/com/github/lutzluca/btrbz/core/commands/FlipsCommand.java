@@ -0,0 +1,256 @@
+package com.github.lutzluca.btrbz.core.commands;
+
+import com.github.lutzluca.btrbz.BtrBz;
+import com.github.lutzluca.btrbz.core.ModuleManager;
+import com.github.lutzluca.btrbz.core.config.ConfigManager;
+import com.github.lutzluca.btrbz.core.flips.FlipRanking;
+import com.github.lutzluca.btrbz.core.flips.FlipRanking.FlipMetric;
+import com.github.lutzluca.btrbz.core.modules.FlipsModule;
+import com.github.lutzluca.btrbz.utils.Notifier;
+import com.github.lutzluca.btrbz.utils.Utils;
+import com.mojang.brigadier.arguments.IntegerArgumentType;
+import com.mojang.brigadier.arguments.LongArgumentType;
+import com.mojang.brigadier.arguments.StringArgumentType;
+import com.mojang.brigadier.builder.LiteralArgumentBuilder;
+import com.mojang.brigadier.context.CommandContext;
+import com.mojang.brigadier.suggestion.SuggestionProvider;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.function.ToIntFunction;
+import net.fabricmc.fabric.api.client.command.v2.ClientCommands;
+import net.fabricmc.fabric.api.client.command.v2.FabricClientCommandSource;
+import net.minecraft.ChatFormatting;
+import net.minecraft.network.chat.ClickEvent.RunCommand;
+import net.minecraft.network.chat.Component;
+import net.minecraft.network.chat.HoverEvent.ShowText;
+
+public class FlipsCommand {
+
+    // a ranking with one of these names would be shadowed by the subcommand
+    private static final Set<String> RESERVED_NAMES = Set.of("rankings", "define", "remove");
+
+    private static final SuggestionProvider<FabricClientCommandSource> RANKING_SUGGESTIONS = (ctx, builder) -> {
+        for (var ranking : ConfigManager.get().flips.rankings) {
+            if (ranking.name().startsWith(builder.getRemainingLowerCase())) {
+                builder.suggest(ranking.name());
+            }
+        }
+        return builder.buildFuture();
+    };
+
+    private static final SuggestionProvider<FabricClientCommandSource> METRIC_SUGGESTIONS = (ctx, builder) -> {
+        for (var metric : FlipMetric.values()) {
+            if (metric.name().toLowerCase().startsWith(builder.getRemainingLowerCase())) {
+                builder.suggest(metric.name());
+            }
+        }
+        return builder.buildFuture();
+    };
+
+    public static LiteralArgumentBuilder<FabricClientCommandSource> get() {
+        return Commands.rootCommand.then(ClientCommands
+            .literal("flips")
+            .executes(ctx -> {
+                var ranking = ConfigManager.get().flips.pinnedRanking();
+                if (ranking.isEmpty()) {
+                    Notifier.notifyPlayer(Notifier
+                        .prefix()
+                        .append(Component.literal("No flip rankings defined").withStyle(ChatFormatting.GRAY)));
+                    return 1;
+                }
+                return showRanking(ranking.get());
+            })
+
+            .then(ClientCommands.literal("rankings").executes(ctx -> {
+                var cfg = ConfigManager.get().flips;
+                var builder = Notifier
+                    .prefix()
+                    .append(Component.literal("Flip Rankings:").withStyle(ChatFormatting.GOLD));
+                for (var ranking : cfg.rankings) {
+                    boolean pinned = cfg.pinnedRanking().filter(ranking::equals).isPresent();
+                    builder
+                        .append(Component.literal("\n"))
+                        .append(Component
+                            .literal(ranking.name())
+                            .withStyle(pinned ? ChatFormatting.YELLOW : ChatFormatting.AQUA)
+                            .withStyle(style -> style
+                                .withClickEvent(new RunCommand("/btrbz flips " + ranking.name()))
+                                .withHoverEvent(new ShowText(Component.literal("Show " + ranking.name())))))
+                        .append(Component.literal(": " + ranking.metric().label()).withStyle(ChatFormatting.GRAY))
+                        .append(Component
+                            .literal(", at least " + Utils.formatCompact(ranking.minWeeklyVolume(), 1) + " items/week")
+                            .withStyle(ChatFormatting.GRAY));
+                    if (ranking.maxCompetition() > 0) {
+                        builder.append(Component
+                            .literal(", at most " + ranking.maxCompetition() + " competing orders")
+                            .withStyle(ChatFormatting.GRAY));
+                    }
+                }
+                Notifier.notifyPlayer(builder);
+                return 1;
+            }))
+
+            .then(ClientCommands.literal("define").then(ClientCommands
+                .argument("name", StringArgumentType.word())
+                .then(ClientCommands
+                    .argument("metric", StringArgumentType.word())
+                    .suggests(METRIC_SUGGESTIONS)
+                    .executes(ctx -> define(ctx, 0, 0))
+                    .then(ClientCommands
+                        .argument("minWeeklyVolume", LongArgumentType.longArg(0))
+                        .executes(ctx -> define(ctx, LongArgumentType.getLong(ctx, "minWeeklyVolume"), 0))
+                        .then(ClientCommands
+                            .argument("maxCompetition", IntegerArgumentType.integer(0))
+                            .executes(ctx -> define(
+                                ctx,
+                                LongArgumentType.getLong(ctx, "minWeeklyVolume"),
+                                IntegerArgumentType.getInteger(ctx, "maxCompetition")
+                            )))))))
+
+            .then(ClientCommands.literal("remove").then(ClientCommands
+                .argument("name", StringArgumentType.word())
+                .suggests(RANKING_SUGGESTIONS)
+                .executes(ctx -> {
+                    var name = StringArgumentType.getString(ctx, "name");
+                    boolean removed = ConfigManager.updateIfChanged(cfg -> {
+                        var rankings = new ArrayList<>(cfg.flips.rankings);
+                        if (!rankings.removeIf(ranking -> ranking.name().equals(name))) {
+                            return false;
+                        }
+                        cfg.flips.rankings = rankings;
+                        return true;
+                    });
+
+                    if (removed) {
+                        Notifier.notifyPlayer(Notifier
+                            .prefix()
+                            .append(Component.literal("Removed ranking ").withStyle(ChatFormatting.GRAY))
+                            .append(Component.literal(name).withStyle(ChatFormatting.AQUA)));
+                    } else {
+                        Notifier.notifyPlayer(Notifier
+                            .prefix()
+                            .append(Component.literal("Ranking ").withStyle(ChatFormatting.GRAY))
+                            .append(Component.literal(name).withStyle(ChatFormatting.RED))
+                            .append(Component.literal(" not found").withStyle(ChatFormatting.GRAY)));
+                    }
+                    return 1;
+                })))
+
+            .then(ClientCommands
+                .argument("ranking", StringArgumentType.word())
+                .suggests(RANKING_SUGGESTIONS)
+                .executes(ctx -> withRanking(ctx, FlipsCommand::showRanking))
+                .then(ClientCommands.literal("pin").executes(ctx -> withRanking(ctx, ranking -> {
+                    ModuleManager.getInstance().getModule(FlipsModule.class).pinRanking(ranking.name());
+                    Notifier.notifyPlayer(Notifier
+                        .prefix()
+                        .append(Component.literal("Pinned ranking ").withStyle(ChatFormatting.GRAY))
+                        .append(Component.literal(ranking.name()).withStyle(ChatFormatting.AQUA))
+                        .append(Component.literal(" to the flip overlay").withStyle(ChatFormatting.GRAY)));
+                    return 1;
+                })))));
+    }
+
+    private static int withRanking(
+        CommandContext<FabricClientCommandSource> ctx,
+        ToIntFunction<FlipRanking> action
+    ) {
+        var name = StringArgumentType.getString(ctx, "ranking");
+        var ranking = ConfigManager.get().flips.ranking(name);
+        if (ranking.isEmpty()) {
+            Notifier.notifyPlayer(Notifier
+                .prefix()
+                .append(Component.literal("Unknown ranking ").withStyle(ChatFormatting.RED))
+                .append(Component.literal(name).withStyle(ChatFormatting.GRAY)));
+            return 0;
+        }
+        return action.applyAsInt(ranking.get());
+    }
+
+    private static int define(CommandContext<FabricClientCommandSource> ctx, long minWeeklyVolume, int maxCompetition) {
+        var name = StringArgumentType.getString(ctx, "name");
+        var metricName = StringArgumentType.getString(ctx, "metric");
+        var metric = Arrays
+            .stream(FlipMetric.values())
+            .filter(value -> value.name().equalsIgnoreCase(metricName))
+            .findFirst();
+
+        if (metric.isEmpty() || RESERVED_NAMES.contains(name)) {
+            Notifier.notifyPlayer(Notifier
+                .prefix()
+                .append(Component
+                    .literal(metric.isEmpty() ? "Unknown metric " + metricName : "Reserved ranking name " + name)
+                    .withStyle(ChatFormatting.RED)));
+            return 0;
+        }
+
+        var ranking = new FlipRanking(name, metric.get(), minWeeklyVolume, maxCompetition);
+        ConfigManager.updateIfChanged(cfg -> {
+            var rankings = new ArrayList<>(cfg.flips.rankings);
+            int existing = rankings.indexOf(cfg.flips.ranking(name).orElse(null));
+            if (existing >= 0) {
+                rankings.set(existing, ranking);
+            } else {
+                rankings.add(ranking);
+            }
+            cfg.flips.rankings = rankings;
+            return true;
+        });
+
+        Notifier.notifyPlayer(Notifier
+            .prefix()
+            .append(Component.literal("Defined ranking ").withStyle(ChatFormatting.GRAY))
+            .append(Component.literal(name).withStyle(ChatFormatting.AQUA))
+            .append(Component.literal(", it is filled on the next Bazaar update").withStyle(ChatFormatting.GRAY)));
+        return 1;
+    }
+
+    private static int showRanking(FlipRanking ranking) {
+        var scan = BtrBz.flipScanner().latest();
+        var candidates = scan.ranking(ranking.name());
+        var builder = Notifier
+            .prefix()
+            .append(Component.literal("Flips by " + ranking.metric().label()).withStyle(ChatFormatting.GOLD))
+            .append(Component.literal(" (" + ranking.name() + "):").withStyle(ChatFormatting.GRAY));
+
+        if (candidates.isEmpty() || candidates.get().isEmpty()) {
+            builder
+                .append(Component.literal("\n"))
+                .append(Component
+                    .literal(candidates.isEmpty() ? "Waiting for the next Bazaar update" : "No product matches")
+                    .withStyle(ChatFormatting.GRAY));
+            Notifier.notifyPlayer(builder);
+            return 1;
+        }
+
+        var module = ModuleManager.getInstance().getModule(FlipsModule.class);
+        var list = candidates.get();
+        for (int i = 0; i < list.size(); i++) {
+            var candidate = list.get(i);
+            var productName = module.productName(candidate.productId());
+
+            var tooltip = Component.empty();
+            for (var line : FlipsModule.describe(candidate)) {
+                if (!tooltip.getSiblings().isEmpty()) {
+                    tooltip.append(Component.literal("\n"));
+                }
+                tooltip.append(line);
+            }
+
+            builder
+                .append(Component.literal("\n" + (i + 1) + ". ").withStyle(ChatFormatting.DARK_GRAY))
+                .append(Component
+                    .literal(productName)
+                    .withStyle(ChatFormatting.AQUA)
+                    .withStyle(style -> style
+                        .withClickEvent(new RunCommand("/bz " + productName))
+                        .withHoverEvent(new ShowText(tooltip))))
+                .append(Component.literal(" " + FlipsModule.formatScore(ranking.metric(), candidate))
+                    .withStyle(ChatFormatting.GREEN));
+        }
+
+        Notifier.notifyPlayer(builder);
+        return 1;
+    }
+}
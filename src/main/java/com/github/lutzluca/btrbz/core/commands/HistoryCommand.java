@@ -0,0 +1,91 @@
+package com.github.lutzluca.btrbz.core.commands;
+
+import com.github.lutzluca.btrbz.BtrBz;
+import com.github.lutzluca.btrbz.data.BazaarData;
+import com.github.lutzluca.btrbz.data.IndexedProduct;
+import com.github.lutzluca.btrbz.data.history.HistorySample;
+import com.github.lutzluca.btrbz.utils.Notifier;
+import com.github.lutzluca.btrbz.utils.Utils;
+import com.mojang.brigadier.arguments.StringArgumentType;
+import com.mojang.brigadier.builder.LiteralArgumentBuilder;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import net.fabricmc.fabric.api.client.command.v2.ClientCommands;
+import net.fabricmc.fabric.api.client.command.v2.FabricClientCommandSource;
+import net.minecraft.ChatFormatting;
+import net.minecraft.client.Minecraft;
+import net.minecraft.network.chat.Component;
+
+public final class HistoryCommand {
+
+    private static final long WINDOW_MILLIS = Duration.ofHours(24).toMillis();
+    private static final long BUCKET_MILLIS = Duration.ofHours(4).toMillis();
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm");
+
+    private HistoryCommand() { }
+
+    public static LiteralArgumentBuilder<FabricClientCommandSource> get(BazaarData bazaarData) {
+        return Commands.rootCommand.then(ClientCommands
+            .literal("history")
+            .then(ClientCommands
+                .argument("productId", StringArgumentType.string())
+                .suggests(Commands.productSuggestions(bazaarData))
+                .executes(ctx -> {
+                    var productId = StringArgumentType.getString(ctx, "productId");
+                    var name = bazaarData
+                        .resolveProductId(productId)
+                        .map(IndexedProduct::strippedName)
+                        .orElse(productId);
+
+                    long now = System.currentTimeMillis();
+                    BtrBz
+                        .priceHistory()
+                        .query(productId, now - WINDOW_MILLIS, now, BUCKET_MILLIS)
+                        .whenComplete((samples, err) -> Minecraft.getInstance().execute(() -> {
+                            if (err != null) {
+                                Notifier.notifyPlayer(Notifier
+                                    .prefix()
+                                    .append(Component
+                                        .literal("Failed to read the price history: " + err.getMessage())
+                                        .withStyle(ChatFormatting.RED)));
+                                return;
+                            }
+                            notifyHistory(name, samples);
+                        }));
+                    return 1;
+                })));
+    }
+
+    private static void notifyHistory(String name, List<HistorySample> samples) {
+        var builder = Notifier.prefix();
+        if (samples.isEmpty()) {
+            builder.append(Component
+                .literal("No price history of " + name + " in the last 24 hours")
+                .withStyle(ChatFormatting.GRAY));
+            Notifier.notifyPlayer(builder);
+            return;
+        }
+
+        builder.append(Component.literal(name + " over the last 24 hours:").withStyle(ChatFormatting.GOLD));
+        for (var sample : samples) {
+            var time = Instant.ofEpochMilli(sample.timestamp()).atZone(ZoneId.systemDefault()).format(TIME);
+            builder
+                .append(Component.literal("\n" + time + " ").withStyle(ChatFormatting.DARK_GRAY))
+                .append(Component.literal("order ").withStyle(ChatFormatting.GRAY))
+                .append(Component.literal(formatPrice(sample.buyOrderPrice())).withStyle(ChatFormatting.AQUA))
+                .append(Component.literal(" | offer ").withStyle(ChatFormatting.GRAY))
+                .append(Component.literal(formatPrice(sample.sellOfferPrice())).withStyle(ChatFormatting.AQUA))
+                .append(Component.literal(" | spread ").withStyle(ChatFormatting.GRAY))
+                .append(Component.literal(formatPrice(sample.spread())).withStyle(ChatFormatting.AQUA));
+        }
+
+        Notifier.notifyPlayer(builder);
+    }
+
+    private static String formatPrice(double price) {
+        return Double.isNaN(price) ? "-" : Utils.formatDecimal(price, 1, true);
+    }
+}
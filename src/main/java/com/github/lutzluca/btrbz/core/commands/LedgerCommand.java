@@ -0,0 +1,90 @@
+package com.github.lutzluca.btrbz.core.commands;
+
+import com.github.lutzluca.btrbz.BtrBz;
+import com.github.lutzluca.btrbz.core.ledger.TradeLedger.LedgerTotals;
+import com.github.lutzluca.btrbz.utils.Notifier;
+import com.github.lutzluca.btrbz.utils.Utils;
+import com.mojang.brigadier.builder.LiteralArgumentBuilder;
+import net.fabricmc.fabric.api.client.command.v2.ClientCommands;
+import net.fabricmc.fabric.api.client.command.v2.FabricClientCommandSource;
+import net.minecraft.ChatFormatting;
+import net.minecraft.network.chat.Component;
+import net.minecraft.network.chat.MutableComponent;
+
+public class LedgerCommand {
+
+    private static final int TOP_PRODUCTS = 5;
+
+    public static LiteralArgumentBuilder<FabricClientCommandSource> get() {
+        return Commands.rootCommand.then(ClientCommands
+            .literal("ledger")
+            .executes(ctx -> {
+                var ledger = BtrBz.ledger();
+                var flips = ledger.flips();
+                var newline = Component.literal("\n");
+
+                var builder = Notifier
+                    .prefix()
+                    .append(Component.literal("Trade Ledger:").withStyle(ChatFormatting.GOLD))
+                    .append(newline)
+                    .append(formatTotals("Today", ledger.today()))
+                    .append(newline)
+                    .append(formatTotals("All time", ledger.total()))
+                    .append(newline)
+                    .append(Component.literal("Flips: ").withStyle(ChatFormatting.GRAY))
+                    .append(Component.literal(String.valueOf(flips.flips())).withStyle(ChatFormatting.AQUA))
+                    .append(Component.literal(" | ROI ").withStyle(ChatFormatting.GRAY))
+                    .append(Component
+                        .literal(flips
+                            .returnOnInvestment()
+                            .map(roi -> Utils.formatDecimal(roi * 100, 2, false) + "%")
+                            .orElse("-"))
+                        .withStyle(ChatFormatting.AQUA));
+
+                if (ledger.unpricedFills() > 0) {
+                    builder
+                        .append(newline)
+                        .append(Component
+                            .literal(ledger.unpricedFills() + " filled orders were not tracked and are not counted")
+                            .withStyle(ChatFormatting.DARK_GRAY));
+                }
+
+                Notifier.notifyPlayer(builder);
+                return 1;
+            })
+
+            .then(ClientCommands.literal("products").executes(ctx -> {
+                var products = BtrBz.ledger().mostProfitable(TOP_PRODUCTS);
+
+                var builder = Notifier.prefix();
+                if (products.isEmpty()) {
+                    builder.append(Component.literal("No recorded trades").withStyle(ChatFormatting.GRAY));
+                    Notifier.notifyPlayer(builder);
+                    return 1;
+                }
+
+                builder.append(Component.literal("Most Profitable Products:").withStyle(ChatFormatting.GOLD));
+                for (var product : products) {
+                    builder
+                        .append(Component.literal("\n"))
+                        .append(formatTotals(product.productName(), product.totals()));
+                }
+
+                Notifier.notifyPlayer(builder);
+                return 1;
+            })));
+    }
+
+    private static MutableComponent formatTotals(String label, LedgerTotals totals) {
+        var profitColor = totals.profit() < 0 ? ChatFormatting.RED : ChatFormatting.GREEN;
+        return Component
+            .literal(label + ": ")
+            .withStyle(ChatFormatting.GRAY)
+            .append(Component.literal(Utils.formatCompact(totals.profit(), 1)).withStyle(profitColor))
+            .append(Component.literal(" profit, ").withStyle(ChatFormatting.GRAY))
+            .append(Component.literal(Utils.formatCompact(totals.tax(), 1)).withStyle(ChatFormatting.AQUA))
+            .append(Component.literal(" tax, ").withStyle(ChatFormatting.GRAY))
+            .append(Component.literal(String.valueOf(totals.trades())).withStyle(ChatFormatting.AQUA))
+            .append(Component.literal(" trades").withStyle(ChatFormatting.GRAY));
+    }
+}
@@ -6,14 +6,11 @@ import com.github.lutzluca.btrbz.data.BazaarData;
 import com.github.lutzluca.btrbz.core.commands.alert.AlertCommandParser.ResolvedAlertArgs;
 import com.github.lutzluca.btrbz.core.config.ConfigManager;
 import com.github.lutzluca.btrbz.utils.Notifier;
-import com.github.lutzluca.btrbz.utils.Utils;
-import com.mojang.brigadier.LiteralMessage;
 import com.mojang.brigadier.arguments.StringArgumentType;
 import com.mojang.brigadier.builder.LiteralArgumentBuilder;
 import com.mojang.brigadier.suggestion.SuggestionProvider;
 import io.vavr.control.Try;
 import java.util.List;
-import java.util.Locale;
 import java.util.UUID;
 import net.fabricmc.fabric.api.client.command.v2.ClientCommands;
 import net.fabricmc.fabric.api.client.command.v2.FabricClientCommandSource;
@@ -90,79 +87,59 @@ public class AlertCommand {
                 return 1;
             }))
 
-            .then(ClientCommands
-                .literal("add")
-                .then(ClientCommands
-                    .argument("productId", StringArgumentType.string())
-                    .suggests(productSuggestions(bazaarData))
-                    .then(ClientCommands
-                        .argument("type", StringArgumentType.string())
-                        .suggests(TYPE_SUGGESTIONS)
-                        .then(ClientCommands
-                            .argument("expression", StringArgumentType.greedyString())
-                            .executes(ctx -> {
-                                var productId = StringArgumentType.getString(ctx, "productId");
-                                var type = StringArgumentType.getString(ctx, "type");
-                                var expression = StringArgumentType.getString(ctx, "expression");
-                                var result = Try
-                                    .of(() -> PARSER.parse(productId, type, expression))
-                                    .flatMap(alertCmd -> alertCmd.resolve(bazaarData))
-                                    .flatMap(ResolvedAlertArgs::validate)
-                                    .onSuccess(resolved -> {
-                                        var registered = BtrBz.alertManager().addAlert(resolved);
-                                        if (registered) {
-                                            Notifier.notifyAlertRegistered(resolved, bazaarData);
-                                            return;
-                                        }
-
-                                        Notifier.notifyAlertAlreadyPresent(resolved, bazaarData);
-                                    })
-                                    .onFailure(err -> {
-                                        var msg = Notifier
-                                            .prefix()
-                                            .append(Component
-                                                .literal("Alert setup failed: ")
-                                                .withStyle(ChatFormatting.RED))
-                                            .append(Component
-                                                .literal(err.getMessage())
-                                                .withStyle(ChatFormatting.GRAY));
-
-                                        Notifier.notifyPlayer(msg);
-                                    });
-
-                                return result.isSuccess() ? 1 : -1;
-                            }))))));
-
-    }
+            .then(addCommand("add", bazaarData, false))
+            .then(addCommand("add-dynamic", bazaarData, true)));
 
-    private static SuggestionProvider<FabricClientCommandSource> productSuggestions(BazaarData bazaarData) {
-        return (ctx, builder) -> {
-            var remaining = builder.getRemainingLowerCase();
-            var normalizedRemaining = Utils.normalizeDisplayName(remaining);
-            bazaarData
-                .allProducts()
-                .stream()
-                .filter(product -> matches(product.productId(), product.strippedName(), remaining, normalizedRemaining))
-                .limit(100)
-                .forEach(product -> builder.suggest(
-                    product.productId(),
-                    new LiteralMessage(product.strippedName())
-                ));
-            return builder.buildFuture();
-        };
     }
 
-    private static boolean matches(
-        String productId,
-        String strippedName,
-        String remaining,
-        String normalizedRemaining
+    private static LiteralArgumentBuilder<FabricClientCommandSource> addCommand(
+        String literal,
+        BazaarData bazaarData,
+        boolean dynamic
     ) {
-        if (remaining.isBlank()) {
-            return true;
-        }
-
-        return productId.toLowerCase(Locale.US).contains(remaining)
-            || Utils.normalizeDisplayName(strippedName).contains(normalizedRemaining);
+        return ClientCommands
+            .literal(literal)
+            .then(ClientCommands
+                .argument("productId", StringArgumentType.string())
+                .suggests(Commands.productSuggestions(bazaarData))
+                .then(ClientCommands
+                    .argument("type", StringArgumentType.string())
+                    .suggests(TYPE_SUGGESTIONS)
+                    .then(ClientCommands
+                        .argument("expression", StringArgumentType.greedyString())
+                        .executes(ctx -> {
+                            var productId = StringArgumentType.getString(ctx, "productId");
+                            var type = StringArgumentType.getString(ctx, "type");
+                            var expression = StringArgumentType.getString(ctx, "expression");
+                            var result = Try
+                                .of(() -> PARSER.parse(productId, type, expression))
+                                .flatMap(alertCmd -> dynamic
+                                    ? alertCmd.resolveDynamic(bazaarData)
+                                    : alertCmd.resolve(bazaarData))
+                                .flatMap(ResolvedAlertArgs::validate)
+                                .onSuccess(resolved -> {
+                                    var registered = BtrBz.alertManager().addAlert(resolved);
+                                    if (registered) {
+                                        Notifier.notifyAlertRegistered(resolved, bazaarData);
+                                        return;
+                                    }
+
+                                    Notifier.notifyAlertAlreadyPresent(resolved, bazaarData);
+                                })
+                                .onFailure(err -> {
+                                    var msg = Notifier
+                                        .prefix()
+                                        .append(Component
+                                            .literal("Alert setup failed: ")
+                                            .withStyle(ChatFormatting.RED))
+                                        .append(Component
+                                            .literal(err.getMessage())
+                                            .withStyle(ChatFormatting.GRAY));
+
+                                    Notifier.notifyPlayer(msg);
+                                });
+
+                            return result.isSuccess() ? 1 : -1;
+                        }))));
     }
 }
@@ -13,6 +13,7 @@ import io.vavr.control.Try;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
+import org.jetbrains.annotations.Nullable;
 
 public class AlertCommandParser {
 
@@ -55,7 +56,10 @@ public class AlertCommandParser {
         );
     }
 
-    private PriceExpression parsePriceExpression(String expression) throws ParseException {
+    /**
+     * @param expression a lower case price expression, e.g. {@code order - 5%} or {@code insta * 0.98}
+     */
+    public PriceExpression parsePriceExpression(String expression) throws ParseException {
         Tokenizer tokenizer = new Tokenizer(expression);
 
         PriceExpression expr = this.parseAdditive(tokenizer);
@@ -83,6 +87,14 @@ public class AlertCommandParser {
                 throw new ParseException("Expected operand after '" + token + "'.");
             }
 
+            if (this.isRelativePercentage(tokenizer)) {
+                // `x - 5%` is relative to x: x * 0.95
+                double fraction = this.parsePercentage(tokenizer.next());
+                double factor = op == BinaryOperator.Add ? 1 + fraction : 1 - fraction;
+                left = new Binary(left, BinaryOperator.Multiply, new Literal(factor));
+                continue;
+            }
+
             PriceExpression right = this.parseMultiplicative(tokenizer);
             left = new Binary(left, op, right);
         }
@@ -128,6 +140,15 @@ public class AlertCommandParser {
             return expr;
         }
 
+        if (token.endsWith("%")) {
+            return new Literal(this.parsePercentage(token));
+        }
+
+        int volumeSeparator = token.indexOf('@');
+        if (volumeSeparator >= 0) {
+            return this.parseVolumeReference(token, volumeSeparator);
+        }
+
         return ReferenceType
             .fromIdentifier(token)
             .<PriceExpression>map(Reference::new)
@@ -135,6 +156,40 @@ public class AlertCommandParser {
             .getOrElseThrow(err -> new ParseException(err.getMessage()));
     }
 
+    /**
+     * Parses a reference averaged over a volume, e.g. {@code insta@5k}.
+     */
+    private PriceExpression parseVolumeReference(String token, int volumeSeparator) throws ParseException {
+        var reference = ReferenceType
+            .fromIdentifier(token.substring(0, volumeSeparator))
+            .getOrElseThrow(err -> new ParseException(err.getMessage()));
+        if (reference != ReferenceType.Insta) {
+            throw new ParseException("Only insta prices can be averaged over a volume: " + token);
+        }
+
+        double volume = this
+            .parseNumber(token.substring(volumeSeparator + 1))
+            .getOrElseThrow(err -> new ParseException("Malformed volume: " + token));
+        if (volume < 1 || volume != Math.rint(volume)) {
+            throw new ParseException("Expected a whole number of items as volume: " + token);
+        }
+
+        return new Reference(reference, (long) volume);
+    }
+
+    private boolean isRelativePercentage(Tokenizer tokenizer) {
+        var token = tokenizer.peek();
+        var following = tokenizer.peek(1);
+        return token.endsWith("%") && (following == null || !following.equals("*") && !following.equals("/"));
+    }
+
+    private double parsePercentage(String token) throws ParseException {
+        return this
+            .parseNumber(token.substring(0, token.length() - 1))
+            .map(percent -> percent / 100.0)
+            .getOrElseThrow(err -> new ParseException("Malformed percentage: " + token));
+    }
+
     private Try<Double> parseNumber(String token) {
         return Try
             .of(() -> {
@@ -157,7 +212,6 @@ public class AlertCommandParser {
                     default -> Double.parseDouble(cleaned);
                 };
             })
-            .map(val -> Math.round(val * 10.0) / 10.0)
             .recoverWith(err -> Try.failure(new ParseException("Malformed number format: " + token)));
     }
 
@@ -166,6 +220,18 @@ public class AlertCommandParser {
     ) {
 
         public Try<ResolvedAlertArgs> resolve(BazaarData data) {
+            return this.resolve(data, false);
+        }
+
+        /**
+         * Resolves an alert that keeps its expression and re-evaluates it against every market update. The price of
+         * the returned args is the value the expression currently evaluates to.
+         */
+        public Try<ResolvedAlertArgs> resolveDynamic(BazaarData data) {
+            return this.resolve(data, true);
+        }
+
+        private Try<ResolvedAlertArgs> resolve(BazaarData data, boolean dynamic) {
             return Try
                 .of(() -> data
                     .resolveProductId(this.productId)
@@ -174,19 +240,33 @@ public class AlertCommandParser {
                     )))
                 .flatMap(product -> this.expr
                     .resolve(product, this.type, data)
+                    .map(price -> Math.round(price * 10.0) / 10.0)
                     .map(price -> new ResolvedAlertArgs(
                         this.timestamp,
                         product,
                         this.type,
-                        price
+                        price,
+                        dynamic ? this.expr : null
                     )));
         }
     }
 
+    /**
+     * @param expression the expression a dynamic alert re-evaluates against every market update, {@code null} for
+     *                   alerts with a fixed price
+     */
     public record ResolvedAlertArgs(
-        long timestamp, IndexedProduct product, AlertType type, double price
+        long timestamp, IndexedProduct product, AlertType type, double price, @Nullable PriceExpression expression
     ) {
 
+        public ResolvedAlertArgs(long timestamp, IndexedProduct product, AlertType type, double price) {
+            this(timestamp, product, type, price, null);
+        }
+
+        public boolean isDynamic() {
+            return this.expression != null;
+        }
+
         public String productName() {
             return this.product.strippedName();
         }
@@ -264,7 +344,12 @@ public class AlertCommandParser {
         }
 
         public String peek() {
-            return this.hasNext() ? this.tokens.get(this.pos) : null;
+            return this.peek(0);
+        }
+
+        public String peek(int offset) {
+            int index = this.pos + offset;
+            return index < this.tokens.size() ? this.tokens.get(index) : null;
         }
 
         public String next() {
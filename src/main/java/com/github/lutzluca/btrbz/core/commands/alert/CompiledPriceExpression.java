@@ -0,0 +1,166 @@
+package com.github.lutzluca.btrbz.core.commands.alert;
+
+import com.github.lutzluca.btrbz.core.commands.alert.PriceExpression.Binary;
+import com.github.lutzluca.btrbz.core.commands.alert.PriceExpression.Literal;
+import com.github.lutzluca.btrbz.core.commands.alert.PriceExpression.Reference;
+import com.github.lutzluca.btrbz.data.OrderBookSide;
+import java.util.Arrays;
+
+/**
+ * A {@link PriceExpression} flattened into postfix form. Evaluating it walks two primitive arrays with a caller
+ * supplied operand stack, so an alert can be re-evaluated on every poll without recursing or allocating.
+ * <p>
+ * References are bound to the prices passed to {@link #evaluate(double, double, double[])}; a missing price is passed
+ * as {@link Double#NaN} and makes the whole expression evaluate to {@link Double#NaN}. Insta references averaged over
+ * a volume are priced from the order book side instant trades fill against, which is missing unless passed to
+ * {@link #evaluate(double, double, OrderBookSide, double[])}.
+ */
+public final class CompiledPriceExpression {
+
+    private static final byte PUSH_LITERAL = 0;
+    private static final byte PUSH_ORDER = 1;
+    private static final byte PUSH_INSTA = 2;
+    private static final byte ADD = 3;
+    private static final byte SUBTRACT = 4;
+    private static final byte MULTIPLY = 5;
+    private static final byte DIVIDE = 6;
+    private static final byte PUSH_INSTA_VOLUME = 7;
+
+    private final byte[] ops;
+    // operands of PUSH_LITERAL and the volumes of PUSH_INSTA_VOLUME, indexed like ops
+    private final double[] literals;
+    private final int stackSize;
+    private final boolean dependsOnDepth;
+
+    private CompiledPriceExpression(byte[] ops, double[] literals, int stackSize, boolean dependsOnDepth) {
+        this.ops = ops;
+        this.literals = literals;
+        this.stackSize = stackSize;
+        this.dependsOnDepth = dependsOnDepth;
+    }
+
+    static CompiledPriceExpression compile(PriceExpression expression) {
+        var emitter = new Emitter();
+        int stackSize = emitter.emit(expression);
+        return new CompiledPriceExpression(
+            Arrays.copyOf(emitter.ops, emitter.size),
+            Arrays.copyOf(emitter.literals, emitter.size),
+            stackSize,
+            emitter.dependsOnDepth
+        );
+    }
+
+    /**
+     * @return the size of the operand stack {@link #evaluate(double, double, double[])} needs
+     */
+    public int stackSize() {
+        return this.stackSize;
+    }
+
+    /**
+     * @return whether the expression averages an insta price over a volume, so its value changes with levels below the
+     *     best price
+     */
+    public boolean dependsOnDepth() {
+        return this.dependsOnDepth;
+    }
+
+    public double evaluate(double orderPrice, double instaPrice) {
+        return this.evaluate(orderPrice, instaPrice, new double[this.stackSize]);
+    }
+
+    /**
+     * @param stack scratch space of at least {@link #stackSize()} elements, may be shared between evaluations on the
+     *              same thread
+     */
+    public double evaluate(double orderPrice, double instaPrice, double[] stack) {
+        return this.evaluate(orderPrice, instaPrice, OrderBookSide.EMPTY, stack);
+    }
+
+    /**
+     * @param instaBook the order book side instant trades of the alert type fill against
+     */
+    public double evaluate(double orderPrice, double instaPrice, OrderBookSide instaBook, double[] stack) {
+        int top = -1;
+        for (int i = 0; i < this.ops.length; i++) {
+            switch (this.ops[i]) {
+                case PUSH_LITERAL -> stack[++top] = this.literals[i];
+                case PUSH_ORDER -> stack[++top] = orderPrice;
+                case PUSH_INSTA -> stack[++top] = instaPrice;
+                case PUSH_INSTA_VOLUME -> stack[++top] = instaBook.averagePrice((long) this.literals[i]);
+                case ADD -> {
+                    top--;
+                    stack[top] = stack[top] + stack[top + 1];
+                }
+                case SUBTRACT -> {
+                    top--;
+                    stack[top] = stack[top] - stack[top + 1];
+                }
+                case MULTIPLY -> {
+                    top--;
+                    stack[top] = stack[top] * stack[top + 1];
+                }
+                case DIVIDE -> {
+                    top--;
+                    stack[top] = stack[top] / stack[top + 1];
+                }
+                default -> throw new IllegalStateException("Unknown price expression op " + this.ops[i]);
+            }
+        }
+        return stack[0];
+    }
+
+    private static final class Emitter {
+
+        private byte[] ops = new byte[8];
+        private double[] literals = new double[8];
+        private int size = 0;
+        private boolean dependsOnDepth = false;
+
+        /**
+         * @return the stack depth needed to evaluate the expression
+         */
+        int emit(PriceExpression expression) {
+            return switch (expression) {
+                case Literal literal -> {
+                    this.append(PUSH_LITERAL, literal.value());
+                    yield 1;
+                }
+                case Reference reference when reference.volume() > 0 -> {
+                    this.append(PUSH_INSTA_VOLUME, reference.volume());
+                    this.dependsOnDepth = true;
+                    yield 1;
+                }
+                case Reference reference -> {
+                    this.append(switch (reference.reference()) {
+                        case Order -> PUSH_ORDER;
+                        case Insta -> PUSH_INSTA;
+                    }, 0);
+                    yield 1;
+                }
+                case Binary binary -> {
+                    int left = this.emit(binary.left());
+                    int right = this.emit(binary.right());
+                    this.append(switch (binary.op()) {
+                        case Add -> ADD;
+                        case Subtract -> SUBTRACT;
+                        case Multiply -> MULTIPLY;
+                        case Divide -> DIVIDE;
+                    }, 0);
+                    // the left result stays on the stack while the right operand is evaluated
+                    yield Math.max(left, right + 1);
+                }
+            };
+        }
+
+        private void append(byte op, double literal) {
+            if (this.size == this.ops.length) {
+                this.ops = Arrays.copyOf(this.ops, this.size * 2);
+                this.literals = Arrays.copyOf(this.literals, this.size * 2);
+            }
+            this.ops[this.size] = op;
+            this.literals[this.size] = literal;
+            this.size++;
+        }
+    }
+}
@@ -8,6 +8,8 @@ import com.github.lutzluca.btrbz.data.BazaarData;
 import com.github.lutzluca.btrbz.data.IndexedProduct;
 import com.github.lutzluca.btrbz.data.ProductIdentity;
 import io.vavr.control.Try;
+import java.math.BigDecimal;
+import java.util.Locale;
 
 public sealed interface PriceExpression permits Literal,
     Reference,
@@ -15,6 +17,16 @@ public sealed interface PriceExpression permits Literal,
 
     Try<Double> resolve(IndexedProduct product, AlertType type, BazaarData bazaarData);
 
+    /**
+     * @return the expression in a form {@link AlertCommandParser#parsePriceExpression(String)} parses back into an
+     *     equal expression
+     */
+    String format();
+
+    default CompiledPriceExpression compile() {
+        return CompiledPriceExpression.compile(this);
+    }
+
     enum AlertType {
         BuyOrder,
         SellOffer,
@@ -64,6 +76,22 @@ public sealed interface PriceExpression permits Literal,
         Multiply,
         Divide;
 
+        public String symbol() {
+            return switch (this) {
+                case Add -> "+";
+                case Subtract -> "-";
+                case Multiply -> "*";
+                case Divide -> "/";
+            };
+        }
+
+        private int precedence() {
+            return switch (this) {
+                case Add, Subtract -> 0;
+                case Multiply, Divide -> 1;
+            };
+        }
+
         public double apply(double left, double right) {
             return switch (this) {
                 case Add -> left + right;
@@ -94,9 +122,22 @@ public sealed interface PriceExpression permits Literal,
         public Try<Double> resolve(IndexedProduct product, AlertType type, BazaarData bazaarData) {
             return Try.success(value);
         }
+
+        @Override
+        public String format() {
+            return BigDecimal.valueOf(this.value).stripTrailingZeros().toPlainString();
+        }
     }
 
-    record Reference(ReferenceType reference) implements PriceExpression {
+    /**
+     * @param volume the volume an insta reference averages its price over by walking the order book, {@code 0} for the
+     *               best price
+     */
+    record Reference(ReferenceType reference, long volume) implements PriceExpression {
+
+        public Reference(ReferenceType reference) {
+            this(reference, 0);
+        }
 
         @Override
         public Try<Double> resolve(IndexedProduct product, AlertType type, BazaarData bazaarData) {
@@ -106,6 +147,15 @@ public sealed interface PriceExpression permits Literal,
             };
             var identity = ProductIdentity.fromIndex(product);
 
+            if (this.volume > 0) {
+                var cost = lookupType == AlertType.InstaBuy
+                    ? bazaarData.instaBuyCost(identity, this.volume)
+                    : bazaarData.instaSellCost(identity, this.volume);
+                return cost
+                    .map(instaCost -> Try.success(instaCost.averagePrice()))
+                    .orElseGet(() -> Try.failure(new IllegalStateException("The order book of " + '"' + product.strippedName() + '"' + " holds fewer than " + this.volume + " items")));
+            }
+
             var price = switch (lookupType) {
                 case BuyOrder, InstaSell -> bazaarData.highestBuyOrderPrice(identity);
                 case SellOffer, InstaBuy -> bazaarData.lowestSellOfferPrice(identity);
@@ -115,6 +165,12 @@ public sealed interface PriceExpression permits Literal,
                 .map(Try::success)
                 .orElseGet(() -> Try.failure(new IllegalStateException("The price of " + '"' + product.strippedName() + '"' + " could not be determined")));
         }
+
+        @Override
+        public String format() {
+            var name = this.reference.name().toLowerCase(Locale.US);
+            return this.volume > 0 ? name + "@" + this.volume : name;
+        }
     }
 
     record Binary(PriceExpression left, BinaryOperator op, PriceExpression right)
@@ -128,5 +184,19 @@ public sealed interface PriceExpression permits Literal,
                     .resolve(product, type, bazaarData)
                     .map(rightVal -> op.apply(leftVal, rightVal)));
         }
+
+        @Override
+        public String format() {
+            return operand(this.left, false) + " " + this.op.symbol() + " " + operand(this.right, true);
+        }
+
+        private String operand(PriceExpression operand, boolean isRight) {
+            if (operand instanceof Binary binary && (binary.op.precedence() < this.op.precedence()
+                || isRight && binary.op.precedence() == this.op.precedence())) {
+                return "(" + binary.format() + ")";
+            }
+
+            return operand.format();
+        }
     }
 }
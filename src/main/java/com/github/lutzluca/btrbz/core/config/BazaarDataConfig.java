@@ -0,0 +1,53 @@
+package com.github.lutzluca.btrbz.core.config;
+
+import com.github.lutzluca.btrbz.data.BazaarPoller.FetchMode;
+import dev.isxander.yacl3.api.Option;
+import dev.isxander.yacl3.api.OptionGroup;
+import dev.isxander.yacl3.api.controller.EnumControllerBuilder;
+import net.minecraft.network.chat.Component;
+
+public class BazaarDataConfig {
+
+    public FetchMode fetchMode = FetchMode.HypixelApi;
+
+    public Option.Builder<FetchMode> createFetchModeOption() {
+        return Option
+            .<FetchMode>createBuilder()
+            .name(Component.literal("Bazaar Fetch Mode"))
+            .description(ConfigScreen.createDescription(ConfigScreen.paragraphs(
+                ConfigScreen.text(
+                    "Choose how Bazaar replies are downloaded and decoded."),
+                ConfigScreen.text(
+                    "Hypixel API uses the official API client and converts its reply afterward. Streaming reads prices directly into BtrBz's market snapshot and allocates far less per poll."),
+                ConfigScreen.note(
+                    "Streaming is experimental. Switch back to Hypixel API if prices stop updating.")
+            )))
+            .binding(
+                FetchMode.HypixelApi,
+                () -> this.fetchMode != null ? this.fetchMode : FetchMode.HypixelApi,
+                mode -> this.fetchMode = mode
+            )
+            .controller(BazaarDataConfig::fetchModeController);
+    }
+
+    public OptionGroup createGroup() {
+        return OptionGroup
+            .createBuilder()
+            .name(Component.literal("Bazaar Data"))
+            .description(ConfigScreen.createDescription(
+                "Configure how BtrBz polls the Hypixel Bazaar API."))
+            .option(this.createFetchModeOption().build())
+            .collapsed(true)
+            .build();
+    }
+
+    private static EnumControllerBuilder<FetchMode> fetchModeController(Option<FetchMode> option) {
+        return EnumControllerBuilder
+            .create(option)
+            .enumClass(FetchMode.class)
+            .formatValue(mode -> switch (mode) {
+                case Streaming -> Component.literal("Streaming");
+                case HypixelApi -> Component.literal("Hypixel API");
+            });
+    }
+}
@@ -11,6 +11,10 @@ import com.github.lutzluca.btrbz.core.ProductInfoProvider.ProductInfoProviderCon
 import com.github.lutzluca.btrbz.core.modules.BindModule;
 import com.github.lutzluca.btrbz.core.modules.BookmarkModule;
 import com.github.lutzluca.btrbz.core.modules.BookmarkModule.BookMarkConfig;
+import com.github.lutzluca.btrbz.core.modules.FlipsModule;
+import com.github.lutzluca.btrbz.core.modules.FlipsModule.FlipsConfig;
+import com.github.lutzluca.btrbz.core.modules.LedgerModule;
+import com.github.lutzluca.btrbz.core.modules.LedgerModule.LedgerConfig;
 import com.github.lutzluca.btrbz.core.modules.OrderLimitModule;
 import com.github.lutzluca.btrbz.core.modules.OrderLimitModule.OrderLimitConfig;
 import com.github.lutzluca.btrbz.core.modules.orderpreset.OrderPresetsModule;
@@ -35,6 +39,10 @@ public class Config {
     @BindModule(OrderLimitModule.class)
     public OrderLimitConfig orderLimit = new OrderLimitConfig();
 
+    @SerialEntry
+    @BindModule(LedgerModule.class)
+    public LedgerConfig ledger = new LedgerConfig();
+
     @SerialEntry
     @BindModule(BookmarkModule.class)
     public BookMarkConfig bookmark = new BookMarkConfig();
@@ -59,6 +67,10 @@ public class Config {
     @BindModule(OrderBookPriceModule.class)
     public OrderBookPriceConfig orderBookPrice = new OrderBookPriceConfig();
 
+    @SerialEntry
+    @BindModule(FlipsModule.class)
+    public FlipsConfig flips = new FlipsConfig();
+
     @SerialEntry
     public ProductInfoProviderConfig productInfo = new ProductInfoProviderConfig();
 
@@ -94,4 +106,7 @@ public class Config {
 
     @SerialEntry
     public OrderBookConfig orderBook = new OrderBookConfig();
+
+    @SerialEntry
+    public BazaarDataConfig bazaarData = new BazaarDataConfig();
 }
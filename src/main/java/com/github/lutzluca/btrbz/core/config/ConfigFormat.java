@@ -0,0 +1,85 @@
+package com.github.lutzluca.btrbz.core.config;
+
+import com.github.lutzluca.btrbz.core.AlertManager.Alert;
+import com.github.lutzluca.btrbz.core.modules.BookmarkModule.BookmarkedItem;
+import com.github.lutzluca.btrbz.data.IndexedProduct;
+import com.github.lutzluca.btrbz.utils.Position;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import dev.isxander.yacl3.config.v2.api.ConfigClassHandler;
+import dev.isxander.yacl3.config.v2.api.serializer.GsonConfigSerializerBuilder;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Path;
+
+/**
+ * The config handler together with a way to produce the JSON its YACL serializer saves, without writing it.
+ * <p>
+ * The Gson is the one YACL sets up for the handler, taken from the builder it passes to
+ * {@link GsonConfigSerializerBuilder#appendGsonBuilder}, and fields are written under the handler's own serial names.
+ * The result is what {@link ConfigClassHandler#save()} would write and stays loadable by the handler.
+ */
+final class ConfigFormat {
+
+    private final ConfigClassHandler<Config> handler;
+
+    // the builder YACL creates its Gson from, captured while the handler is built
+    private GsonBuilder gsonBuilder;
+    private Gson gson;
+
+    ConfigFormat(Path path) {
+        this.handler = ConfigClassHandler
+            .createBuilder(Config.class)
+            .serializer(config -> GsonConfigSerializerBuilder
+                .create(config)
+                .appendGsonBuilder(this::capture)
+                .setPath(path)
+                .build())
+            .build();
+    }
+
+    ConfigClassHandler<Config> handler() {
+        return this.handler;
+    }
+
+    /**
+     * Serializes the current config instance the way the handler's serializer saves it.
+     */
+    String serialize() throws IOException {
+        var gson = this.gson();
+        var out = new StringWriter();
+        var writer = gson.newJsonWriter(out);
+        writer.beginObject();
+        for (var field : this.handler.fields()) {
+            var serial = field.serial();
+            if (serial.isEmpty()) {
+                continue;
+            }
+
+            writer.name(serial.get().serialName());
+            gson.toJson(field.access().get(), field.access().type(), writer);
+        }
+        writer.endObject();
+        writer.flush();
+        return out.toString();
+    }
+
+    private synchronized GsonBuilder capture(GsonBuilder builder) {
+        this.gsonBuilder = builder
+            .registerTypeAdapter(Alert.class, new Alert.GsonAdapter())
+            .registerTypeAdapter(BookmarkedItem.class, new BookmarkedItem.GsonAdapter())
+            .registerTypeAdapter(IndexedProduct.class, new IndexedProduct.GsonAdapter())
+            .registerTypeAdapter(Position.class, new Position.GsonAdapter());
+        return this.gsonBuilder;
+    }
+
+    private synchronized Gson gson() {
+        if (this.gson == null) {
+            if (this.gsonBuilder == null) {
+                throw new IllegalStateException("The config serializer did not configure a Gson builder");
+            }
+            this.gson = this.gsonBuilder.create();
+        }
+        return this.gson;
+    }
+}
@@ -1,12 +1,10 @@
 package com.github.lutzluca.btrbz.core.config;
 
 import com.github.lutzluca.btrbz.BtrBz;
-import com.github.lutzluca.btrbz.core.AlertManager.Alert;
-import com.github.lutzluca.btrbz.core.modules.BookmarkModule.BookmarkedItem;
-import com.github.lutzluca.btrbz.data.IndexedProduct;
-import com.github.lutzluca.btrbz.utils.Position;
 import dev.isxander.yacl3.config.v2.api.ConfigClassHandler;
-import dev.isxander.yacl3.config.v2.api.serializer.GsonConfigSerializerBuilder;
+import io.vavr.control.Try;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.function.Predicate;
 import lombok.extern.slf4j.Slf4j;
 import net.fabricmc.loader.api.FabricLoader;
@@ -14,22 +12,16 @@ import net.fabricmc.loader.api.FabricLoader;
 @Slf4j
 public final class ConfigManager {
 
-    static final ConfigClassHandler<Config> HANDLER = ConfigClassHandler
-        .createBuilder(Config.class)
-        .serializer(config -> GsonConfigSerializerBuilder
-            .create(config)
-            .appendGsonBuilder(builder -> builder
-                .registerTypeAdapter(Alert.class, new Alert.GsonAdapter())
-                .registerTypeAdapter(BookmarkedItem.class, new BookmarkedItem.GsonAdapter())
-                .registerTypeAdapter(IndexedProduct.class, new IndexedProduct.GsonAdapter())
-                .registerTypeAdapter(Position.class, new Position.GsonAdapter())
-            )
-            .setPath(FabricLoader
-                .getInstance()
-                .getConfigDir()
-                .resolve(String.format("%s.json", BtrBz.MOD_ID)))
-            .build())
-        .build();
+    private static final Path PATH = FabricLoader
+        .getInstance()
+        .getConfigDir()
+        .resolve(String.format("%s.json", BtrBz.MOD_ID));
+
+    private static final ConfigFormat FORMAT = new ConfigFormat(PATH);
+
+    static final ConfigClassHandler<Config> HANDLER = FORMAT.handler();
+
+    private static final ConfigWriter WRITER = new ConfigWriter(PATH, Duration.ofMillis(500));
 
     private ConfigManager() { }
 
@@ -40,7 +32,10 @@ public final class ConfigManager {
             log.info("Successfully loaded config");
         }
 
-        Runtime.getRuntime().addShutdownHook(new Thread(HANDLER::save));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            save();
+            WRITER.close();
+        }));
     }
 
     public static Config get() {
@@ -48,7 +43,7 @@ public final class ConfigManager {
     }
 
     /**
-     * Saves immediately only when the updater reports a state change.
+     * Saves only when the updater reports a state change.
      */
     public static boolean updateIfChanged(Predicate<Config> updater) {
         boolean changed = updater.test(HANDLER.instance());
@@ -58,8 +53,15 @@ public final class ConfigManager {
         return changed;
     }
 
+    /**
+     * Serializes the config on the calling thread and hands the result to the background writer, which coalesces
+     * saves within its window into a single write.
+     */
     public static void save() {
         log.trace("Saving config");
-        HANDLER.save();
+        Try
+            .of(FORMAT::serialize)
+            .onSuccess(WRITER::submit)
+            .onFailure(err -> log.error("Failed to serialize config", err));
     }
 }
@@ -44,6 +44,7 @@ public class ConfigScreen {
         return YetAnotherConfigLib.create(
             ConfigManager.HANDLER, (defaults, cfg, builder) -> {
                 builder.title(Component.literal(BtrBz.MOD_ID));
+                builder.save(ConfigManager::save);
                 buildCategories(builder, config);
 
                 return builder;
@@ -87,6 +88,7 @@ public class ConfigScreen {
             .group(config.flipHelper.createGroup())
             .group(config.orderPresets.createGroup())
             .group(config.orderBook.createGroup())
+            .group(config.flips.createGroup())
             .build();
 
         var safetyAndLimits = ConfigCategory
@@ -96,13 +98,23 @@ public class ConfigScreen {
                 "Prevent risky order prices and configure the daily transaction-limit display."))
             .group(config.orderProtection.createGroup())
             .group(config.orderLimit.createGroup())
+            .group(config.ledger.createGroup())
+            .build();
+
+        var bazaarData = ConfigCategory
+            .createBuilder()
+            .name(Component.literal("Bazaar Data"))
+            .tooltip(Component.literal(
+                "Configure how BtrBz fetches and keeps Bazaar market data."))
+            .group(config.bazaarData.createGroup())
             .build();
 
         builder
             .category(ordersAndNotifications)
             .category(interfaceAndOverlays)
             .category(orderWorkflow)
-            .category(safetyAndLimits);
+            .category(safetyAndLimits)
+            .category(bazaarData);
     }
 
     public static OptionDescription createDescription(String text) {
@@ -0,0 +1,100 @@
+package com.github.lutzluca.btrbz.core.config;
+
+import com.github.lutzluca.btrbz.utils.Utils;
+import io.vavr.control.Try;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Write-behind persister for the serialized config. Saves submitted within one window are coalesced into a single
+ * atomic write of the latest content, performed on a dedicated background thread.
+ */
+@Slf4j
+final class ConfigWriter {
+
+    private static final Duration FLUSH_TIMEOUT = Duration.ofSeconds(5);
+
+    private final Path path;
+    private final Duration window;
+    private final ScheduledExecutorService executor;
+    private final AtomicReference<String> pending = new AtomicReference<>();
+
+    // guarded by this
+    private ScheduledFuture<?> scheduled;
+
+    ConfigWriter(Path path, Duration window) {
+        this(path, window, Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "btrbz-config-writer");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    ConfigWriter(Path path, Duration window, ScheduledExecutorService executor) {
+        this.path = path;
+        this.window = window;
+        this.executor = executor;
+    }
+
+    /**
+     * Replaces the pending content and schedules a write at the end of the current window if none is scheduled yet.
+     */
+    void submit(String content) {
+        this.pending.set(content);
+
+        synchronized (this) {
+            if (this.scheduled != null) {
+                return;
+            }
+
+            try {
+                this.scheduled = this.executor.schedule(
+                    this::writePending,
+                    this.window.toMillis(),
+                    TimeUnit.MILLISECONDS
+                );
+            } catch (RejectedExecutionException err) {
+                log.debug("Config writer is closed, writing config on the calling thread");
+                this.writePending();
+            }
+        }
+    }
+
+    /**
+     * Writes any pending content right away and stops the background thread. Later submits are written on the
+     * calling thread.
+     */
+    void close() {
+        var flush = Try
+            .run(() -> this.executor.submit(this::writePending).get(FLUSH_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS));
+        this.executor.shutdown();
+        flush.onFailure(err -> {
+            log.warn("Failed to flush config on the writer thread, writing it on the calling thread", err);
+            this.writePending();
+        });
+    }
+
+    private void writePending() {
+        synchronized (this) {
+            this.scheduled = null;
+        }
+
+        // cleared before taking the content, so a concurrent submit either lands in this write or schedules a new one
+        var content = this.pending.getAndSet(null);
+        if (content == null) {
+            return;
+        }
+
+        Utils
+            .atomicDumpToFile(this.path, content)
+            .onSuccess(path -> log.trace("Saved config to '{}'", path))
+            .onFailure(err -> log.error("Failed to save config to '{}'", this.path, err));
+    }
+}
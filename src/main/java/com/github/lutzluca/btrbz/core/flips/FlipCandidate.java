@@ -0,0 +1,34 @@
+package com.github.lutzluca.btrbz.core.flips;
+
+/**
+ * What flipping a product yields at the current prices: buying with a buy order just above the best one and selling
+ * with a sell offer just below the best one.
+ *
+ * @param margin        the coins earned per item after tax
+ * @param spread        the best sell offer price minus the best buy order price
+ * @param weeklyVolume  the items the slower side traded over the last week, which bounds how much can be flipped
+ * @param profitPerHour the margin over the hourly volume of the slower side
+ * @param competition   the orders on the top levels of both sides
+ */
+public record FlipCandidate(
+    String productId,
+    double buyPrice,
+    double sellPrice,
+    double margin,
+    double spread,
+    long weeklyVolume,
+    double profitPerHour,
+    long competition
+) {
+
+    public double marginPercent() {
+        return this.margin / this.buyPrice * 100;
+    }
+
+    /**
+     * @return the profit per hour split evenly between the competing orders and an own one
+     */
+    public double profitShare() {
+        return this.profitPerHour / (this.competition + 1);
+    }
+}
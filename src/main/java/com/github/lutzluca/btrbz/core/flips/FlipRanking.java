@@ -0,0 +1,43 @@
+package com.github.lutzluca.btrbz.core.flips;
+
+/**
+ * A user-defined ranking of the flip scanner: the products passing the filters, ordered by the metric.
+ *
+ * @param minWeeklyVolume the items the slower side of a product has to trade in a week
+ * @param maxCompetition  the most orders the top levels of a product may hold, {@code 0} for no limit
+ */
+public record FlipRanking(String name, FlipMetric metric, long minWeeklyVolume, int maxCompetition) {
+
+    public boolean accepts(FlipCandidate candidate) {
+        return candidate.weeklyVolume() >= this.minWeeklyVolume
+            && (this.maxCompetition <= 0 || candidate.competition() <= this.maxCompetition);
+    }
+
+    public enum FlipMetric {
+        ProfitPerHour,
+        ProfitShare,
+        Margin,
+        MarginPercent,
+        Spread;
+
+        public double score(FlipCandidate candidate) {
+            return switch (this) {
+                case ProfitPerHour -> candidate.profitPerHour();
+                case ProfitShare -> candidate.profitShare();
+                case Margin -> candidate.margin();
+                case MarginPercent -> candidate.marginPercent();
+                case Spread -> candidate.spread();
+            };
+        }
+
+        public String label() {
+            return switch (this) {
+                case ProfitPerHour -> "profit/h";
+                case ProfitShare -> "profit/h per order";
+                case Margin -> "margin";
+                case MarginPercent -> "margin %";
+                case Spread -> "spread";
+            };
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.github.lutzluca.btrbz.core.flips;
+
+import com.github.lutzluca.btrbz.data.MarketColumns;
+import com.github.lutzluca.btrbz.data.MarketDelta;
+import com.github.lutzluca.btrbz.data.MarketUpdateHandler;
+import com.github.lutzluca.btrbz.data.OrderBookSide;
+import com.github.lutzluca.btrbz.utils.Utils;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+import java.util.function.DoubleSupplier;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Ranks every product of each snapshot as a flip.
+ * <p>
+ * The scan splits the product handles into ranges evaluated on a fork-join pool. Every range keeps a bounded
+ * {@link TopK} heap per ranking, and joining two ranges merges their heaps, so a scan holds at most the top-K
+ * candidates of each ranking per range and its result does not depend on how the handles were split.
+ */
+@Slf4j
+public final class FlipScanner implements MarketUpdateHandler {
+
+    static final int COMPETITION_LEVELS = 3;
+    static final double PRICE_STEP = 0.1;
+    private static final double HOURS_PER_WEEK = 7 * 24;
+    // products per leaf task, large enough that forking costs less than scanning the range
+    private static final int LEAF_SIZE = 128;
+
+    private final ForkJoinPool pool;
+    // in percent, like the configured Bazaar tax
+    private final DoubleSupplier taxRate;
+    private final Supplier<List<FlipRanking>> rankings;
+    private final IntSupplier topK;
+    private final List<Consumer<FlipScan>> listeners = new CopyOnWriteArrayList<>();
+    private volatile FlipScan latest = FlipScan.EMPTY;
+
+    public FlipScanner(DoubleSupplier taxRate, Supplier<List<FlipRanking>> rankings, IntSupplier topK) {
+        this(ForkJoinPool.commonPool(), taxRate, rankings, topK);
+    }
+
+    FlipScanner(
+        ForkJoinPool pool,
+        DoubleSupplier taxRate,
+        Supplier<List<FlipRanking>> rankings,
+        IntSupplier topK
+    ) {
+        this.pool = pool;
+        this.taxRate = taxRate;
+        this.rankings = rankings;
+        this.topK = topK;
+    }
+
+    @Override
+    public Runnable prepare(MarketDelta delta) {
+        if (delta.isEmpty()) {
+            return NOTHING;
+        }
+
+        var scan = this.scan(delta.snapshot().columns());
+        log.debug(
+            "Scanned {} products for flips in {}ms",
+            scan.products(),
+            Utils.formatDecimal(scan.scanNanos() / 1e6, 2, false)
+        );
+        return () -> {
+            this.latest = scan;
+            this.listeners.forEach(listener -> listener.accept(scan));
+        };
+    }
+
+    public FlipScan latest() {
+        return this.latest;
+    }
+
+    public void addScanListener(Consumer<FlipScan> listener) {
+        this.listeners.add(listener);
+    }
+
+    FlipScan scan(MarketColumns columns) {
+        long start = System.nanoTime();
+        var rankings = List.copyOf(this.rankings.get());
+        var task = new ScanTask(
+            columns,
+            rankings,
+            Math.max(0, this.topK.getAsInt()),
+            1 - this.taxRate.getAsDouble() / 100,
+            0,
+            columns.capacity()
+        );
+        var heaps = this.pool.invoke(task);
+
+        var results = new LinkedHashMap<String, List<FlipCandidate>>();
+        for (int i = 0; i < rankings.size(); i++) {
+            results.put(rankings.get(i).name(), heaps[i].sorted());
+        }
+        return new FlipScan(columns.lastUpdated(), columns.size(), System.nanoTime() - start, results);
+    }
+
+    /**
+     * @return the candidate for flipping the product, or {@code null} if a side is empty or the flip loses coins
+     */
+    static FlipCandidate evaluate(MarketColumns columns, int handle, double afterTax) {
+        double bestBuyOrder = columns.bestBuyOrderPrice(handle);
+        double bestSellOffer = columns.bestSellOfferPrice(handle);
+        if (Double.isNaN(bestBuyOrder) || Double.isNaN(bestSellOffer)) {
+            return null;
+        }
+
+        double buyPrice = bestBuyOrder + PRICE_STEP;
+        double sellPrice = bestSellOffer - PRICE_STEP;
+        double margin = sellPrice * afterTax - buyPrice;
+        if (!(margin > 0)) {
+            return null;
+        }
+
+        long weeklyVolume = Math.min(columns.quickBuyMovingWeek(handle), columns.quickSellMovingWeek(handle));
+        return new FlipCandidate(
+            columns.productId(handle),
+            buyPrice,
+            sellPrice,
+            margin,
+            bestSellOffer - bestBuyOrder,
+            weeklyVolume,
+            margin * weeklyVolume / HOURS_PER_WEEK,
+            topOrders(columns.buyOrders(handle)) + topOrders(columns.sellOffers(handle))
+        );
+    }
+
+    private static long topOrders(OrderBookSide side) {
+        int levels = Math.min(side.size(), COMPETITION_LEVELS);
+        return levels == 0 ? 0 : side.cumulativeOrders(levels - 1);
+    }
+
+    /**
+     * @param products the products of the scanned snapshot
+     * @param rankings the candidates of each ranking, best first, in the order the rankings are defined in
+     */
+    public record FlipScan(long lastUpdated, int products, long scanNanos, Map<String, List<FlipCandidate>> rankings) {
+
+        public static final FlipScan EMPTY = new FlipScan(-1, 0, 0, Map.of());
+
+        public Optional<List<FlipCandidate>> ranking(String name) {
+            return Optional.ofNullable(this.rankings.get(name));
+        }
+    }
+
+    private static final class ScanTask extends RecursiveTask<TopK[]> {
+
+        private final MarketColumns columns;
+        private final List<FlipRanking> rankings;
+        private final int topK;
+        private final double afterTax;
+        private final int from;
+        private final int to;
+
+        private ScanTask(
+            MarketColumns columns,
+            List<FlipRanking> rankings,
+            int topK,
+            double afterTax,
+            int from,
+            int to
+        ) {
+            this.columns = columns;
+            this.rankings = rankings;
+            this.topK = topK;
+            this.afterTax = afterTax;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected TopK[] compute() {
+            if (this.to - this.from <= LEAF_SIZE) {
+                return this.scanRange();
+            }
+
+            int mid = (this.from + this.to) >>> 1;
+            var left = this.split(this.from, mid);
+            var right = this.split(mid, this.to);
+            left.fork();
+            var heaps = right.compute();
+            var leftHeaps = left.join();
+            for (int i = 0; i < heaps.length; i++) {
+                heaps[i].addAll(leftHeaps[i]);
+            }
+            return heaps;
+        }
+
+        private ScanTask split(int from, int to) {
+            return new ScanTask(this.columns, this.rankings, this.topK, this.afterTax, from, to);
+        }
+
+        private TopK[] scanRange() {
+            var heaps = new TopK[this.rankings.size()];
+            for (int i = 0; i < heaps.length; i++) {
+                heaps[i] = new TopK(this.topK);
+            }
+
+            for (int handle = this.from; handle < this.to; handle++) {
+                if (!this.columns.isPresent(handle)) {
+                    continue;
+                }
+
+                var candidate = evaluate(this.columns, handle, this.afterTax);
+                if (candidate == null) {
+                    continue;
+                }
+
+                for (int i = 0; i < heaps.length; i++) {
+                    var ranking = this.rankings.get(i);
+                    if (ranking.accepts(candidate)) {
+                        heaps[i].offer(ranking.metric().score(candidate), candidate);
+                    }
+                }
+            }
+            return heaps;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.github.lutzluca.btrbz.core.flips;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Keeps the {@code capacity} highest scored candidates in a min-heap whose root is the worst kept one, so offering a
+ * candidate takes logarithmic time and memory stays bounded. Equal scores are ordered by product id, which makes the
+ * kept candidates independent of the order they are offered in.
+ */
+final class TopK {
+
+    private final FlipCandidate[] candidates;
+    private final double[] scores;
+    private int size = 0;
+
+    TopK(int capacity) {
+        this.candidates = new FlipCandidate[capacity];
+        this.scores = new double[capacity];
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    void offer(double score, FlipCandidate candidate) {
+        if (this.candidates.length == 0 || Double.isNaN(score)) {
+            return;
+        }
+
+        if (this.size < this.candidates.length) {
+            this.candidates[this.size] = candidate;
+            this.scores[this.size] = score;
+            this.siftUp(this.size++);
+            return;
+        }
+
+        if (!isWorse(this.scores[0], this.candidates[0], score, candidate)) {
+            return;
+        }
+        this.candidates[0] = candidate;
+        this.scores[0] = score;
+        this.siftDown(0);
+    }
+
+    void addAll(TopK other) {
+        for (int i = 0; i < other.size; i++) {
+            this.offer(other.scores[i], other.candidates[i]);
+        }
+    }
+
+    /**
+     * @return the kept candidates, best first
+     */
+    List<FlipCandidate> sorted() {
+        var order = new Integer[this.size];
+        for (int i = 0; i < this.size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> {
+            if (isWorse(this.scores[a], this.candidates[a], this.scores[b], this.candidates[b])) {
+                return 1;
+            }
+            return isWorse(this.scores[b], this.candidates[b], this.scores[a], this.candidates[a]) ? -1 : 0;
+        });
+
+        var sorted = new ArrayList<FlipCandidate>(this.size);
+        for (var index : order) {
+            sorted.add(this.candidates[index]);
+        }
+        return sorted;
+    }
+
+    private static boolean isWorse(double score, FlipCandidate candidate, double otherScore, FlipCandidate other) {
+        if (score != otherScore) {
+            return score < otherScore;
+        }
+        return candidate.productId().compareTo(other.productId()) > 0;
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!this.isWorseAt(index, parent)) {
+                return;
+            }
+            this.swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int worst = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < this.size && this.isWorseAt(left, worst)) {
+                worst = left;
+            }
+            if (right < this.size && this.isWorseAt(right, worst)) {
+                worst = right;
+            }
+            if (worst == index) {
+                return;
+            }
+            this.swap(index, worst);
+            index = worst;
+        }
+    }
+
+    private boolean isWorseAt(int index, int other) {
+        return isWorse(this.scores[index], this.candidates[index], this.scores[other], this.candidates[other]);
+    }
+
+    private void swap(int a, int b) {
+        var candidate = this.candidates[a];
+        this.candidates[a] = this.candidates[b];
+        this.candidates[b] = candidate;
+
+        double score = this.scores[a];
+        this.scores[a] = this.scores[b];
+        this.scores[b] = score;
+    }
+}
@@ -0,0 +1,33 @@
+package com.github.lutzluca.btrbz.core.ledger;
+
+/**
+ * One Bazaar transaction observed in chat.
+ *
+ * @param coins the gross coins of the transaction, the expected profit for {@link Kind#OrderFlipped}, or
+ *              {@link Double#NaN} for a filled order whose price is unknown
+ * @param tax   the tax paid on the coins of a sale, zero otherwise
+ */
+public record LedgerEntry(long timestamp, Kind kind, String productName, int volume, double coins, double tax) {
+
+    public boolean isPriced() {
+        return !Double.isNaN(this.coins);
+    }
+
+    public enum Kind {
+        BuyOrderSetup,
+        SellOfferSetup,
+        BuyOrderFilled,
+        SellOfferFilled,
+        InstaBuy,
+        InstaSell,
+        OrderFlipped;
+
+        public boolean isPurchase() {
+            return this == BuyOrderFilled || this == InstaBuy;
+        }
+
+        public boolean isSale() {
+            return this == SellOfferFilled || this == InstaSell;
+        }
+    }
+}
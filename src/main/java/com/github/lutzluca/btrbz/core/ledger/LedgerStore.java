@@ -0,0 +1,256 @@
+package com.github.lutzluca.btrbz.core.ledger;
+
+import com.github.lutzluca.btrbz.core.ledger.LedgerEntry.Kind;
+import io.vavr.control.Try;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Appends {@link LedgerEntry ledger entries} to a compact binary file.
+ * <p>
+ * The file holds a header followed by one record per entry. A record starts with its kind, whose high bit marks an
+ * unpriced fill, and the milliseconds since the previous record. Product names are written once and referenced by
+ * their index afterward. Volumes and coin amounts in tenths of a coin are stored as varints. A file cut short by a
+ * crash is truncated to its last complete record when it is loaded, so later appends stay readable. Records are
+ * encoded on the calling thread and written in order on a background thread.
+ */
+@Slf4j
+final class LedgerStore {
+
+    private static final int MAGIC = 0x42544C47;
+    private static final int VERSION = 1;
+    private static final int UNPRICED = 0x80;
+    private static final Kind[] KINDS = Kind.values();
+
+    private final Path path;
+    private final ExecutorService executor;
+    private final Map<String, Integer> productIndex = new HashMap<>();
+    private long lastTimestamp = 0;
+    private boolean headerWritten = false;
+    private boolean directoryCreated = false;
+
+    LedgerStore(Path path) {
+        this(path, Executors.newSingleThreadExecutor(runnable -> {
+            var thread = new Thread(runnable, "btrbz-ledger-writer");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    LedgerStore(Path path, ExecutorService executor) {
+        this.path = path;
+        this.executor = executor;
+    }
+
+    /**
+     * Reads every entry and prepares appending after the last one. Must be called before anything is appended.
+     */
+    Try<List<LedgerEntry>> load() {
+        this.productIndex.clear();
+        this.lastTimestamp = 0;
+        this.headerWritten = false;
+
+        return Try
+            .of(() -> this.read(ByteBuffer.wrap(Files.readAllBytes(this.path))))
+            .recover(NoSuchFileException.class, err -> List.of())
+            .onFailure(err -> this.moveAside());
+    }
+
+    // keeps an unreadable file for inspection instead of appending to it
+    private void moveAside() {
+        var target = this.path.resolveSibling(this.path.getFileName() + ".unreadable");
+        Try
+            .of(() -> Files.move(this.path, target, StandardCopyOption.REPLACE_EXISTING))
+            .onSuccess(moved -> log.warn("Moved the unreadable ledger to '{}'", moved))
+            .onFailure(err -> log.warn("Failed to move the unreadable ledger '{}' aside", this.path, err));
+    }
+
+    void append(LedgerEntry entry) {
+        var bytes = new ByteArrayOutputStream(32);
+        if (!this.headerWritten) {
+            bytes.writeBytes(ByteBuffer.allocate(8).putInt(MAGIC).putInt(VERSION).array());
+            this.headerWritten = true;
+        }
+        this.encode(bytes, entry);
+
+        if (this.executor.isShutdown()) {
+            log.debug("Dropped ledger entry {} after the ledger was closed", entry);
+            return;
+        }
+        this.executor.execute(() -> Try
+            .run(() -> this.write(bytes.toByteArray()))
+            .onFailure(err -> log.warn("Failed to append to the ledger '{}'", this.path, err)));
+    }
+
+    // runs on the writer thread only
+    private void write(byte[] bytes) throws IOException {
+        if (!this.directoryCreated) {
+            // the config folder of a fresh install does not exist until something is written to it
+            Files.createDirectories(this.path.toAbsolutePath().getParent());
+            this.directoryCreated = true;
+        }
+        Files.write(this.path, bytes, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Waits for all pending writes and stops the writer. Entries appended afterward are dropped.
+     */
+    void close() {
+        this.executor.shutdown();
+        Try
+            .of(() -> this.executor.awaitTermination(2, TimeUnit.SECONDS))
+            .filter(terminated -> terminated)
+            .onFailure(err -> log.warn("Timed out writing the ledger '{}'", this.path));
+    }
+
+    private List<LedgerEntry> read(ByteBuffer buffer) throws IOException {
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a ledger file");
+            }
+
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported ledger version " + version);
+            }
+        } catch (BufferUnderflowException err) {
+            throw new IOException("Truncated ledger header", err);
+        }
+        this.headerWritten = true;
+
+        var entries = new ArrayList<LedgerEntry>();
+        var names = new ArrayList<String>();
+        int complete = buffer.position();
+        try {
+            while (buffer.hasRemaining()) {
+                entries.add(this.decode(buffer, names));
+                complete = buffer.position();
+            }
+        } catch (BufferUnderflowException | IOException err) {
+            log.warn(
+                "Ledger '{}' ends in a damaged record, truncating it to {} entries",
+                this.path,
+                entries.size(),
+                err
+            );
+            // names and the timestamp were only advanced by complete records
+            try (var channel = FileChannel.open(this.path, StandardOpenOption.WRITE)) {
+                channel.truncate(complete);
+            }
+        }
+
+        for (int i = 0; i < names.size(); i++) {
+            this.productIndex.put(names.get(i), i);
+        }
+        return entries;
+    }
+
+    private void encode(ByteArrayOutputStream out, LedgerEntry entry) {
+        boolean priced = entry.isPriced();
+        out.write(entry.kind().ordinal() | (priced ? 0 : UNPRICED));
+        writeVarLong(out, zigzag(entry.timestamp() - this.lastTimestamp));
+        this.lastTimestamp = entry.timestamp();
+
+        var index = this.productIndex.get(entry.productName());
+        if (index != null) {
+            writeVarLong(out, index);
+        } else {
+            int next = this.productIndex.size();
+            this.productIndex.put(entry.productName(), next);
+            writeVarLong(out, next);
+            var name = entry.productName().getBytes(StandardCharsets.UTF_8);
+            writeVarLong(out, name.length);
+            out.writeBytes(name);
+        }
+
+        writeVarLong(out, entry.volume());
+        if (priced) {
+            writeVarLong(out, zigzag(Math.round(entry.coins() * 10)));
+        }
+        if (entry.kind().isSale()) {
+            writeVarLong(out, zigzag(Math.round(entry.tax() * 10)));
+        }
+    }
+
+    private LedgerEntry decode(ByteBuffer buffer, List<String> names) throws IOException {
+        int header = buffer.get() & 0xFF;
+        int kindIndex = header & ~UNPRICED;
+        if (kindIndex >= KINDS.length) {
+            throw new IOException("Unknown ledger record kind " + kindIndex);
+        }
+        var kind = KINDS[kindIndex];
+        long timestamp = this.lastTimestamp + unzigzag(readVarLong(buffer));
+
+        long index = readVarLong(buffer);
+        String productName;
+        if (index < names.size()) {
+            productName = names.get((int) index);
+        } else if (index == names.size()) {
+            long length = readVarLong(buffer);
+            if (length > buffer.remaining()) {
+                throw new IOException("Product name length " + length + " exceeds the ledger file");
+            }
+            var name = new byte[(int) length];
+            buffer.get(name);
+            productName = new String(name, StandardCharsets.UTF_8);
+        } else {
+            throw new IOException("Unknown product reference " + index + " in ledger");
+        }
+
+        int volume = (int) readVarLong(buffer);
+        double coins = (header & UNPRICED) == 0 ? unzigzag(readVarLong(buffer)) / 10.0 : Double.NaN;
+        double tax = kind.isSale() ? unzigzag(readVarLong(buffer)) / 10.0 : 0;
+
+        // only a complete record advances the state used to decode the next one
+        if (index == names.size()) {
+            names.add(productName);
+        }
+        this.lastTimestamp = timestamp;
+        return new LedgerEntry(timestamp, kind, productName, volume, coins, tax);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(ByteBuffer buffer) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in ledger");
+    }
+}
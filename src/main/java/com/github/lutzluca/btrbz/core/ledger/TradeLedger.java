@@ -0,0 +1,281 @@
+package com.github.lutzluca.btrbz.core.ledger;
+
+import com.github.lutzluca.btrbz.core.ledger.LedgerEntry.Kind;
+import com.github.lutzluca.btrbz.data.BazaarMessageDispatcher.BazaarMessage.InstaBuy;
+import com.github.lutzluca.btrbz.data.BazaarMessageDispatcher.BazaarMessage.InstaSell;
+import com.github.lutzluca.btrbz.data.BazaarMessageDispatcher.BazaarMessage.OrderFilled;
+import com.github.lutzluca.btrbz.data.BazaarMessageDispatcher.BazaarMessage.OrderFlipped;
+import com.github.lutzluca.btrbz.data.BazaarMessageDispatcher.BazaarMessage.OrderSetup;
+import com.github.lutzluca.btrbz.data.OrderModels.OrderType;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Records the Bazaar transactions observed in chat and keeps running totals per product, per UTC day and overall, so
+ * every query is a lookup instead of a scan of the history.
+ * <p>
+ * Profit is realized on sales against the average cost of the units bought before, so units sold without an observed
+ * purchase only count as earnings. Filled orders are priced by the caller since the chat message omits the price;
+ * fills without a price are recorded but left out of the totals. A flip's return is its expected profit over the
+ * average cost of the flipped units.
+ */
+@Slf4j
+public final class TradeLedger {
+
+    private final LedgerStore store;
+    private final LongSupplier clock;
+    // in percent, like the configured Bazaar tax
+    private final DoubleSupplier taxRate;
+
+    private final Map<String, ProductLedger> products = new HashMap<>();
+    private final Map<Long, Rollup> days = new HashMap<>();
+    private final Rollup total = new Rollup();
+    private int flips = 0;
+    private int costedFlips = 0;
+    private double flipProfit = 0;
+    private double flipCost = 0;
+    private int unpricedFills = 0;
+    private int entries = 0;
+
+    public TradeLedger(Path path, DoubleSupplier taxRate) {
+        this(new LedgerStore(path), System::currentTimeMillis, taxRate);
+    }
+
+    TradeLedger(LedgerStore store, LongSupplier clock, DoubleSupplier taxRate) {
+        this.store = store;
+        this.clock = clock;
+        this.taxRate = taxRate;
+    }
+
+    /**
+     * Replays the recorded history into the totals. Must be called before anything is recorded.
+     */
+    public void load() {
+        long start = System.nanoTime();
+        this.store
+            .load()
+            .onSuccess(history -> {
+                history.forEach(this::apply);
+                log.info(
+                    "Loaded {} ledger entries in {}ms",
+                    history.size(),
+                    (System.nanoTime() - start) / 1_000_000
+                );
+            })
+            .onFailure(err -> log.warn("Failed to load the ledger, starting a new one", err));
+    }
+
+    public void close() {
+        this.store.close();
+    }
+
+    public void recordSetup(OrderSetup setup) {
+        var kind = setup.type() == OrderType.Buy ? Kind.BuyOrderSetup : Kind.SellOfferSetup;
+        this.record(kind, setup.productName(), setup.volume(), setup.total(), 0);
+    }
+
+    /**
+     * @param pricePerUnit the price of the filled order, if it is known
+     */
+    public void recordFill(OrderFilled filled, Optional<Double> pricePerUnit) {
+        double coins = pricePerUnit.map(price -> price * filled.volume()).orElse(Double.NaN);
+        if (filled.type() == OrderType.Buy) {
+            this.record(Kind.BuyOrderFilled, filled.productName(), filled.volume(), coins, 0);
+            return;
+        }
+        this.record(Kind.SellOfferFilled, filled.productName(), filled.volume(), coins, this.tax(coins));
+    }
+
+    public void recordInstaBuy(InstaBuy instaBuy) {
+        this.record(Kind.InstaBuy, instaBuy.productName(), instaBuy.volume(), instaBuy.total(), 0);
+    }
+
+    public void recordInstaSell(InstaSell instaSell) {
+        double tax = this.tax(instaSell.total());
+        this.record(Kind.InstaSell, instaSell.productName(), instaSell.volume(), instaSell.total(), tax);
+    }
+
+    public void recordFlip(OrderFlipped flipped) {
+        this.record(Kind.OrderFlipped, flipped.productName(), flipped.volume(), flipped.profit(), 0);
+    }
+
+    public LedgerTotals total() {
+        return this.total.totals();
+    }
+
+    public LedgerTotals today() {
+        return this.day(LocalDate.ofEpochDay(epochDay(this.clock.getAsLong())));
+    }
+
+    public LedgerTotals day(LocalDate day) {
+        var rollup = this.days.get(day.toEpochDay());
+        return rollup != null ? rollup.totals() : LedgerTotals.EMPTY;
+    }
+
+    public Optional<LedgerTotals> product(String productName) {
+        return Optional.ofNullable(this.products.get(productName)).map(product -> product.rollup.totals());
+    }
+
+    public FlipTotals flips() {
+        return new FlipTotals(this.flips, this.costedFlips, this.flipProfit, this.flipCost);
+    }
+
+    /**
+     * @return the products with the highest realized profit, most profitable first
+     */
+    public List<ProductTotals> mostProfitable(int limit) {
+        return this.products
+            .entrySet()
+            .stream()
+            .map(entry -> new ProductTotals(entry.getKey(), entry.getValue().rollup.totals()))
+            .sorted(Comparator.comparingDouble((ProductTotals product) -> product.totals().profit()).reversed())
+            .limit(limit)
+            .toList();
+    }
+
+    /**
+     * @return the number of filled orders whose price was unknown and that are missing from the totals
+     */
+    public int unpricedFills() {
+        return this.unpricedFills;
+    }
+
+    public int size() {
+        return this.entries;
+    }
+
+    private void record(Kind kind, String productName, int volume, double coins, double tax) {
+        var entry = new LedgerEntry(
+            this.clock.getAsLong(),
+            kind,
+            productName,
+            volume,
+            roundToTenth(coins),
+            roundToTenth(tax)
+        );
+        this.apply(entry);
+        this.store.append(entry);
+        log.debug("Recorded ledger entry {}", entry);
+    }
+
+    private void apply(LedgerEntry entry) {
+        this.entries++;
+        if (!entry.isPriced()) {
+            this.unpricedFills++;
+            return;
+        }
+        // setups only move coins into escrow, they count once their order fills
+        if (entry.kind() == Kind.BuyOrderSetup || entry.kind() == Kind.SellOfferSetup) {
+            return;
+        }
+
+        var product = this.products.computeIfAbsent(entry.productName(), name -> new ProductLedger());
+        var day = this.days.computeIfAbsent(epochDay(entry.timestamp()), epochDay -> new Rollup());
+        if (entry.kind().isPurchase()) {
+            product.units += entry.volume();
+            product.cost += entry.coins();
+            for (var rollup : List.of(product.rollup, day, this.total)) {
+                rollup.purchase(entry.coins());
+            }
+            return;
+        }
+
+        long matched = Math.min(entry.volume(), product.units);
+        double cost = matched == 0 ? 0 : product.cost * matched / product.units;
+        if (entry.kind().isSale()) {
+            double earned = entry.coins() - entry.tax();
+            double profit = earned * matched / entry.volume() - cost;
+            product.units -= matched;
+            product.cost -= cost;
+            for (var rollup : List.of(product.rollup, day, this.total)) {
+                rollup.sale(earned, entry.tax(), profit);
+            }
+            return;
+        }
+
+        // the flipped units stay in the position until their sell offer fills
+        if (entry.kind() == Kind.OrderFlipped) {
+            this.flips++;
+            if (matched > 0) {
+                this.costedFlips++;
+                this.flipProfit += entry.coins() * matched / entry.volume();
+                this.flipCost += cost;
+            }
+        }
+    }
+
+    private double tax(double coins) {
+        return coins * this.taxRate.getAsDouble() / 100;
+    }
+
+    private static double roundToTenth(double coins) {
+        return Double.isNaN(coins) ? coins : Math.round(coins * 10) / 10.0;
+    }
+
+    private static long epochDay(long timestamp) {
+        return Math.floorDiv(timestamp, 86_400_000L);
+    }
+
+    /**
+     * @param spent  the coins paid for purchases
+     * @param earned the coins received for sales after tax
+     * @param profit the realized profit of the sales
+     */
+    public record LedgerTotals(double spent, double earned, double tax, double profit, int trades) {
+
+        public static final LedgerTotals EMPTY = new LedgerTotals(0, 0, 0, 0, 0);
+    }
+
+    /**
+     * @param costedFlips the flips whose units were bought while recording, which the return is computed from
+     */
+    public record FlipTotals(int flips, int costedFlips, double expectedProfit, double cost) {
+
+        public Optional<Double> returnOnInvestment() {
+            return this.cost > 0 ? Optional.of(this.expectedProfit / this.cost) : Optional.empty();
+        }
+    }
+
+    public record ProductTotals(String productName, LedgerTotals totals) { }
+
+    private static final class ProductLedger {
+
+        private final Rollup rollup = new Rollup();
+        // the units bought and not yet sold, and what they cost
+        private long units = 0;
+        private double cost = 0;
+    }
+
+    private static final class Rollup {
+
+        private double spent = 0;
+        private double earned = 0;
+        private double tax = 0;
+        private double profit = 0;
+        private int trades = 0;
+
+        void purchase(double coins) {
+            this.spent += coins;
+            this.trades++;
+        }
+
+        void sale(double earned, double tax, double profit) {
+            this.earned += earned;
+            this.tax += tax;
+            this.profit += profit;
+            this.trades++;
+        }
+
+        LedgerTotals totals() {
+            return new LedgerTotals(this.spent, this.earned, this.tax, this.profit, this.trades);
+        }
+    }
+}
@@ -9,6 +9,7 @@ import com.github.lutzluca.btrbz.core.config.ConfigScreen.OptionGrouping;
 import com.github.lutzluca.btrbz.core.modules.BookmarkModule.BookMarkConfig;
 import com.github.lutzluca.btrbz.data.IndexedProduct;
 import com.github.lutzluca.btrbz.data.BazaarData;
+import com.github.lutzluca.btrbz.data.conversions.ConversionChangeSet;
 import com.github.lutzluca.btrbz.core.trackedorders.TrackedOrderManager;
 import com.github.lutzluca.btrbz.utils.GameUtils;
 import com.github.lutzluca.btrbz.utils.GsonUtils;
@@ -104,9 +105,7 @@ public class BookmarkModule extends Module<BookMarkConfig> {
         this.updateConfigIfChanged(cfg -> cfg.bookmarkedItems.removeIf(Objects::isNull));
 
         this.rebuildOrderCache();
-        this.trackedOrderManager.addOnOrderAddedListener(order -> this.rebuildOrderCache());
-        this.trackedOrderManager.addOnOrderRemovedListener(order -> this.rebuildOrderCache());
-        this.trackedOrderManager.addOnOrderUpdatedListener(order -> this.rebuildOrderCache());
+        this.trackedOrderManager.addOnOrdersChangedListener(changes -> this.rebuildOrderCache());
         this.trackedOrderManager.addOnOrdersResetListener(this::rebuildOrderCache);
         this.bazaarData.addIndexChangeListener(this::refreshBookmarkedProducts);
 
@@ -190,12 +189,16 @@ public class BookmarkModule extends Module<BookMarkConfig> {
         return moved;
     }
 
-    private void refreshBookmarkedProducts() {
+    private void refreshBookmarkedProducts(ConversionChangeSet changes) {
         boolean changed = this.updateConfigIfChanged(cfg -> {
             boolean refreshed = false;
             var iterator = cfg.bookmarkedItems.listIterator();
             while (iterator.hasNext()) {
                 var item = iterator.next();
+                if (!changes.affects(item.product().productId())) {
+                    continue;
+                }
+
                 var refreshedProduct = this.bazaarData.refreshIndexedProduct(item.product());
                 if (refreshedProduct.equals(item.product())) {
                     continue;
@@ -0,0 +1,301 @@
+package com.github.lutzluca.btrbz.core.modules;
+
+import com.github.lutzluca.btrbz.core.ModuleManager;
+import com.github.lutzluca.btrbz.core.config.ConfigScreen;
+import com.github.lutzluca.btrbz.core.config.ConfigScreen.OptionGrouping;
+import com.github.lutzluca.btrbz.core.flips.FlipCandidate;
+import com.github.lutzluca.btrbz.core.flips.FlipRanking;
+import com.github.lutzluca.btrbz.core.flips.FlipRanking.FlipMetric;
+import com.github.lutzluca.btrbz.core.flips.FlipScanner;
+import com.github.lutzluca.btrbz.core.flips.FlipScanner.FlipScan;
+import com.github.lutzluca.btrbz.core.modules.FlipsModule.FlipsConfig;
+import com.github.lutzluca.btrbz.data.BazaarData;
+import com.github.lutzluca.btrbz.data.IndexedProduct;
+import com.github.lutzluca.btrbz.utils.GameUtils;
+import com.github.lutzluca.btrbz.utils.Position;
+import com.github.lutzluca.btrbz.utils.ScreenInfoHelper.BazaarMenuType;
+import com.github.lutzluca.btrbz.utils.ScreenInfoHelper.ScreenInfo;
+import com.github.lutzluca.btrbz.utils.Utils;
+import com.github.lutzluca.btrbz.widgets.ListWidget;
+import com.github.lutzluca.btrbz.widgets.Renderable;
+import com.github.lutzluca.btrbz.widgets.base.DraggableWidget;
+import dev.isxander.yacl3.api.Option;
+import dev.isxander.yacl3.api.OptionGroup;
+import dev.isxander.yacl3.api.controller.IntegerSliderControllerBuilder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import lombok.extern.slf4j.Slf4j;
+import net.minecraft.ChatFormatting;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.gui.GuiGraphicsExtractor;
+import net.minecraft.network.chat.Component;
+
+@Slf4j
+public class FlipsModule extends Module<FlipsConfig> {
+
+    private final BazaarData bazaarData;
+    private final FlipScanner scanner;
+    private ListWidget list;
+
+    public FlipsModule(BazaarData bazaarData, FlipScanner scanner) {
+        this.bazaarData = bazaarData;
+        this.scanner = scanner;
+    }
+
+    @Override
+    public void onLoad() {
+        this.scanner.addScanListener(this::refreshList);
+    }
+
+    @Override
+    public boolean shouldDisplay(ScreenInfo info) {
+        return this.configState.enabled && info.inMenu(BazaarMenuType.Main);
+    }
+
+    @Override
+    public Optional<DraggableWidget> createWidget(ScreenInfo info) {
+        if (this.list != null) {
+            return Optional.of(this.list);
+        }
+
+        var ranking = this.configState.pinnedRanking();
+        if (ranking.isEmpty()) {
+            return Optional.empty();
+        }
+
+        var position = Optional.ofNullable(this.configState.position).orElse(new Position(10, 100));
+        this.list = new ListWidget(position.x(), position.y(), 175, 200, "Flips: " + ranking.get().name());
+        this.list
+            .setItemHeight(14)
+            .setItemSpacing(1)
+            .setRemovable(false)
+            .setReorderable(false)
+            .setMaxVisibleItems(this.configState.maxVisibleChildren)
+            .onItemClick((self, item, idx) -> {
+                if (item instanceof FlipEntryRenderable entry) {
+                    GameUtils.runCommand("bz " + entry.productName);
+                }
+            })
+            .onDragEnd((self, pos) -> this.updateConfig(cfg -> cfg.position = pos));
+
+        this.refreshList(this.scanner.latest());
+        return Optional.of(this.list);
+    }
+
+    /**
+     * Makes the widget show another ranking the next time it is created.
+     */
+    public void pinRanking(String name) {
+        this.updateConfig(cfg -> cfg.pinnedRanking = name);
+        this.list = null;
+    }
+
+    public void updateChildrenCount() {
+        if (this.list == null) {
+            return;
+        }
+
+        this.list.setMaxVisibleItems(this.configState.maxVisibleChildren);
+    }
+
+    public String productName(String productId) {
+        return this.bazaarData.resolveProductId(productId).map(IndexedProduct::strippedName).orElse(productId);
+    }
+
+    private void refreshList(FlipScan scan) {
+        if (this.list == null) {
+            return;
+        }
+
+        // flips are only ranked on polled prices, never on the snapshot restored at startup
+        if (this.bazaarData.isStale()) {
+            this.list.setItems(List.of(new NoticeRenderable("Waiting for the first Bazaar update")));
+            return;
+        }
+
+        var ranking = this.configState.pinnedRanking();
+        var candidates = ranking.flatMap(value -> scan.ranking(value.name())).orElse(List.of());
+
+        var items = new ArrayList<Renderable>(candidates.size());
+        for (var candidate : candidates) {
+            var productName = this.productName(candidate.productId());
+            items.add(new FlipEntryRenderable(candidate, productName, ranking.get().metric()));
+        }
+        this.list.setItems(items);
+    }
+
+    public static String formatScore(FlipMetric metric, FlipCandidate candidate) {
+        double score = metric.score(candidate);
+        return switch (metric) {
+            case MarginPercent -> Utils.formatDecimal(score, 1, false) + "%";
+            case ProfitPerHour, ProfitShare -> Utils.formatCompact(score, 1) + "/h";
+            case Margin, Spread -> Utils.formatCompact(score, 1);
+        };
+    }
+
+    public static List<Component> describe(FlipCandidate candidate) {
+        return List.of(
+            Component
+                .literal("Buy at " + Utils.formatDecimal(candidate.buyPrice(), 1, true))
+                .append(", sell at " + Utils.formatDecimal(candidate.sellPrice(), 1, true))
+                .withStyle(ChatFormatting.GRAY),
+            Component
+                .literal("Margin: " + Utils.formatCompact(candidate.margin(), 1))
+                .append(" (" + Utils.formatDecimal(candidate.marginPercent(), 1, false) + "%) after tax")
+                .withStyle(ChatFormatting.GOLD),
+            Component
+                .literal("Spread: " + Utils.formatCompact(candidate.spread(), 1))
+                .withStyle(ChatFormatting.GRAY),
+            Component
+                .literal("Profit/h: " + Utils.formatCompact(candidate.profitPerHour(), 1))
+                .append(" at " + Utils.formatCompact(candidate.weeklyVolume(), 1) + " items/week")
+                .withStyle(ChatFormatting.GREEN),
+            Component
+                .literal("Competition: " + candidate.competition() + " orders on the top levels")
+                .withStyle(ChatFormatting.AQUA)
+        );
+    }
+
+    public static class FlipsConfig {
+
+        public Position position;
+
+        public boolean enabled = false;
+        public int maxVisibleChildren = 8;
+        public int topK = 10;
+        public String pinnedRanking = "profit";
+        public List<FlipRanking> rankings = new ArrayList<>(List.of(
+            new FlipRanking("profit", FlipMetric.ProfitPerHour, 100_000, 0),
+            new FlipRanking("uncontested", FlipMetric.ProfitShare, 10_000, 0),
+            new FlipRanking("margin", FlipMetric.MarginPercent, 50_000, 0)
+        ));
+
+        public Optional<FlipRanking> ranking(String name) {
+            return this.rankings.stream().filter(ranking -> ranking.name().equals(name)).findFirst();
+        }
+
+        public Optional<FlipRanking> pinnedRanking() {
+            return this.ranking(this.pinnedRanking).or(() -> Utils.getFirst(this.rankings));
+        }
+
+        public Option.Builder<Boolean> createEnabledOption() {
+            return Option
+                .<Boolean>createBuilder()
+                .name(Component.literal("Enable Flip Scanner Overlay"))
+                .description(ConfigScreen.createDescription(
+                    "Show the best flips of the pinned ranking on the main Bazaar page."))
+                .binding(false, () -> this.enabled, enabled -> this.enabled = enabled)
+                .controller(ConfigScreen::createBooleanController);
+        }
+
+        public Option.Builder<Integer> createMaxVisibleOption() {
+            return Option
+                .<Integer>createBuilder()
+                .name(Component.literal("Max Visible Flips"))
+                .description(ConfigScreen.createDescription(
+                    "Set how many flips fit in the list before it becomes scrollable."))
+                .binding(
+                    8, () -> this.maxVisibleChildren, val -> {
+                        this.maxVisibleChildren = val;
+                        ModuleManager.getInstance().getModule(FlipsModule.class).updateChildrenCount();
+                    }
+                )
+                .controller(opt -> IntegerSliderControllerBuilder.create(opt).range(5, 10).step(1));
+        }
+
+        public Option.Builder<Integer> createTopKOption() {
+            return Option
+                .<Integer>createBuilder()
+                .name(Component.literal("Flips per Ranking"))
+                .description(ConfigScreen.createDescription(
+                    "Set how many of the best flips each ranking keeps. Takes effect with the next Bazaar update."))
+                .binding(10, () -> this.topK, val -> this.topK = val)
+                .controller(opt -> IntegerSliderControllerBuilder.create(opt).range(5, 50).step(5));
+        }
+
+        public OptionGroup createGroup() {
+            var rootGroup = new OptionGrouping(this.createEnabledOption()).addOptions(
+                this.createMaxVisibleOption(),
+                this.createTopKOption()
+            );
+
+            return OptionGroup
+                .createBuilder()
+                .name(Component.literal("Flip Scanner"))
+                .description(ConfigScreen.createDescription(ConfigScreen.paragraphs(
+                    ConfigScreen.text(
+                        "Rank every Bazaar product as a flip on each update: buying 0.1 above the best buy order and selling 0.1 below the best sell offer."),
+                    ConfigScreen.note(
+                        "Profit per hour assumes you fill the whole traded volume of the slower side, so it is an upper bound shared with the competing orders."),
+                    Component
+                        .literal("List, define, and pin rankings with ")
+                        .append(ConfigScreen.command("/btrbz flips"))
+                        .append(Component.literal("."))
+                )))
+                .options(rootGroup.build())
+                .collapsed(true)
+                .build();
+        }
+    }
+
+    private static class NoticeRenderable implements Renderable {
+
+        private final String text;
+
+        private NoticeRenderable(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public void render(GuiGraphicsExtractor context, int x, int y, int w, int h, int mouseX, int mouseY, float delta, boolean hovered) {
+            var textRenderer = Minecraft.getInstance().font;
+            context.text(textRenderer, this.text, x + 4, y + (h - 8) / 2, 0xFFAAAAAA, false);
+        }
+    }
+
+    private static class FlipEntryRenderable implements Renderable {
+
+        private final FlipCandidate candidate;
+        private final String productName;
+        private final FlipMetric metric;
+
+        private FlipEntryRenderable(FlipCandidate candidate, String productName, FlipMetric metric) {
+            this.candidate = candidate;
+            this.productName = productName;
+            this.metric = metric;
+        }
+
+        @Override
+        public List<Component> getTooltip() {
+            var lines = new ArrayList<Component>();
+            lines.add(Component.literal(this.productName).withStyle(ChatFormatting.AQUA));
+            lines.addAll(describe(this.candidate));
+            return lines;
+        }
+
+        @Override
+        public void render(GuiGraphicsExtractor context, int x, int y, int w, int h, int mouseX, int mouseY, float delta, boolean hovered) {
+            var textRenderer = Minecraft.getInstance().font;
+
+            if (hovered) {
+                context.fill(x, y, x + w, y + h, 0x30FFFFFF);
+            }
+
+            int textY = y + (h - 8) / 2;
+            String scoreText = formatScore(this.metric, this.candidate);
+            int scoreX = x + w - 4 - textRenderer.width(scoreText);
+            context.text(textRenderer, scoreText, scoreX, textY, 0xFF55FF55, false);
+
+            int remainingWidth = scoreX - 6 - (x + 4);
+            String displayName = this.productName;
+            if (textRenderer.width(displayName) > remainingWidth) {
+                while (textRenderer.width(displayName + "...") > remainingWidth && !displayName.isEmpty()) {
+                    displayName = displayName.substring(0, displayName.length() - 1);
+                }
+                displayName = displayName + "...";
+            }
+            context.text(textRenderer, displayName, x + 4, textY, 0xFFE0E0E0, false);
+        }
+    }
+}
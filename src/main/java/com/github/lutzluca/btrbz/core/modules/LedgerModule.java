@@ -0,0 +1,133 @@
+package com.github.lutzluca.btrbz.core.modules;
+
+import com.github.lutzluca.btrbz.core.config.ConfigScreen;
+import com.github.lutzluca.btrbz.core.config.ConfigScreen.OptionGrouping;
+import com.github.lutzluca.btrbz.core.ledger.TradeLedger;
+import com.github.lutzluca.btrbz.utils.Position;
+import com.github.lutzluca.btrbz.utils.ScreenInfoHelper.BazaarMenuType;
+import com.github.lutzluca.btrbz.utils.ScreenInfoHelper.ScreenInfo;
+import com.github.lutzluca.btrbz.utils.Utils;
+import com.github.lutzluca.btrbz.widgets.LabelWidget;
+import com.github.lutzluca.btrbz.widgets.base.DraggableWidget;
+import dev.isxander.yacl3.api.Option;
+import dev.isxander.yacl3.api.OptionGroup;
+import java.util.List;
+import java.util.Optional;
+import lombok.extern.slf4j.Slf4j;
+import net.minecraft.ChatFormatting;
+import net.minecraft.network.chat.Component;
+
+@Slf4j
+public class LedgerModule extends Module<LedgerModule.LedgerConfig> {
+
+    private final TradeLedger ledger;
+
+    public LedgerModule(TradeLedger ledger) {
+        this.ledger = ledger;
+    }
+
+    @Override
+    public boolean shouldDisplay(ScreenInfo info) {
+        return this.configState.enabled && info.inMenu(BazaarMenuType.Main);
+    }
+
+    @Override
+    public Optional<DraggableWidget> createWidget(ScreenInfo info) {
+        var today = this.ledger.today();
+        var roi = this.ledger
+            .flips()
+            .returnOnInvestment()
+            .map(value -> Utils.formatDecimal(value * 100, 2, false) + "%")
+            .orElse("-");
+        List<Component> lines = List.of(
+            Component.literal("Today's Profit:").withStyle(ChatFormatting.GOLD),
+            Component
+                .literal(this.formatAmount(today.profit()))
+                .withStyle(today.profit() < 0 ? ChatFormatting.RED : ChatFormatting.GREEN),
+            Component
+                .literal("Tax: " + this.formatAmount(today.tax()))
+                .withStyle(ChatFormatting.GRAY),
+            Component
+                .literal("Flip ROI: " + roi)
+                .withStyle(ChatFormatting.GRAY)
+        );
+
+        var widget = new LabelWidget(0, 0, lines)
+            .setAutoSize(true)
+            .setAlignment(LabelWidget.Alignment.CENTER)
+            .onDragEnd((self, pos) -> this.updateConfig(cfg -> cfg.position = pos));
+
+        var position = Optional.ofNullable(this.configState.position)
+            .or(() -> info.getHandledScreenBounds().map(bounds -> {
+                int x = bounds.x() + bounds.width() + 10;
+                int y = bounds.y();
+                return new Position(x, y);
+            }));
+
+        if (position.isEmpty()) {
+            log.warn("Could not determine position for LedgerModule widget");
+            return Optional.empty();
+        }
+
+        widget.setPosition(position.get().x(), position.get().y());
+
+        return Optional.of(widget);
+    }
+
+    private String formatAmount(double amount) {
+        return this.configState.useCompact
+            ? Utils.formatCompact(amount, 1)
+            : Utils.formatDecimal(amount, 0, true);
+    }
+
+    public static class LedgerConfig {
+
+        public Position position;
+
+        public boolean enabled = false;
+
+        public boolean useCompact = true;
+
+        public Option.Builder<Boolean> createEnabledOption() {
+            return Option
+                .<Boolean>createBuilder()
+                .name(Component.literal("Enable Profit Overlay"))
+                .description(ConfigScreen.createDescription(
+                    "Show today's realized profit, tax paid, and flip return in the Bazaar."))
+                .binding(false, () -> this.enabled, enabled -> this.enabled = enabled)
+                .controller(ConfigScreen::createBooleanController);
+        }
+
+        public Option.Builder<Boolean> createCompactOption() {
+            return Option
+                .<Boolean>createBuilder()
+                .name(Component.literal("Use Compact Display"))
+                .description(ConfigScreen.createDescription(ConfigScreen.paragraphs(
+                    ConfigScreen.text("Abbreviate large values in the overlay."),
+                    ConfigScreen.example("1,250,000 is displayed as 1.3M.")
+                )))
+                .binding(true, () -> this.useCompact, val -> this.useCompact = val)
+                .controller(ConfigScreen::createBooleanController);
+        }
+
+        public OptionGroup createGroup() {
+            var rootGroup = new OptionGrouping(this.createEnabledOption()).addOptions(this.createCompactOption());
+
+            return OptionGroup
+                .createBuilder()
+                .name(Component.literal("Profit Overlay"))
+                .description(ConfigScreen.createDescription(ConfigScreen.paragraphs(
+                    ConfigScreen.text("Show the profit of the Bazaar trades BtrBz observed in chat."),
+                    ConfigScreen.note(
+                        "Profit is realized against the average price you bought at. Days start at 00:00 UTC."),
+                    Component
+                        .literal("See the full ledger with ")
+                        .append(ConfigScreen.command("/btrbz ledger"))
+                        .append(Component.literal("."))
+                )))
+                .options(rootGroup.build())
+                .collapsed(true)
+                .build();
+        }
+    }
+}
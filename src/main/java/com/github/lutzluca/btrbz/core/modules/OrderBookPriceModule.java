@@ -7,6 +7,7 @@ import com.github.lutzluca.btrbz.core.fliphelper.FlipSubmissionTracker;
 import com.github.lutzluca.btrbz.core.config.ConfigScreen.OptionGrouping;
 import com.github.lutzluca.btrbz.data.IndexedProduct;
 import com.github.lutzluca.btrbz.data.BazaarData;
+import com.github.lutzluca.btrbz.data.OrderBookSide;
 import com.github.lutzluca.btrbz.data.OrderModels.OrderType;
 import com.github.lutzluca.btrbz.data.ProductIdentity;
 import com.github.lutzluca.btrbz.utils.GameUtils;
@@ -151,13 +152,15 @@ public class OrderBookPriceModule extends Module<OrderBookPriceModule.OrderBookP
             return;
         }
 
-        var entries = this.currentSnapshot()
-            .map(snapshot -> snapshot.levels()
-                .stream()
-                .map(level -> (Renderable) new OrderBookEntry(level, snapshot.orderType()))
-                .toList())
-            .orElseGet(List::of);
+        var entries = new ArrayList<Renderable>();
+        this.currentSnapshot().ifPresent(snapshot -> {
+            var side = snapshot.side();
+            for (int level = 0; level < side.size(); level++) {
+                entries.add(new OrderBookEntry(side, level, snapshot.orderType()));
+            }
+        });
         this.widget.updateList(entries);
+        this.widget.setCached(this.bazaarData.isStale());
     }
 
     public Optional<OrderBookSnapshot> currentSnapshot() {
@@ -172,23 +175,11 @@ public class OrderBookPriceModule extends Module<OrderBookPriceModule.OrderBookP
 
         var identity = ProductIdentity.fromIndex(product.get());
         var orders = this.bazaarData.getOrderLists(identity);
-        var summaries = switch (orderType.get()) {
+        var side = switch (orderType.get()) {
             case Buy -> orders.buyOrders();
             case Sell -> orders.sellOffers();
         };
-
-        double accumulatedVolume = 0;
-        var levels = new ArrayList<PriceLevel>(summaries.size());
-        for (var summary : summaries) {
-            accumulatedVolume += summary.getAmount();
-            levels.add(new PriceLevel(
-                summary.getPricePerUnit(),
-                summary.getAmount(),
-                (int) summary.getOrders(),
-                accumulatedVolume
-            ));
-        }
-        return Optional.of(new OrderBookSnapshot(identity, orderType.get(), levels));
+        return Optional.of(new OrderBookSnapshot(identity, orderType.get(), side));
     }
 
     @Override
@@ -272,21 +263,13 @@ public class OrderBookPriceModule extends Module<OrderBookPriceModule.OrderBookP
         };
     }
 
+    /**
+     * @param side the levels of the order type, a read-only view into the market snapshot
+     */
     public record OrderBookSnapshot(
         ProductIdentity product,
         OrderType orderType,
-        List<PriceLevel> levels
-    ) {
-        public OrderBookSnapshot {
-            levels = List.copyOf(levels);
-        }
-    }
-
-    public record PriceLevel(
-        double pricePerUnit,
-        double volume,
-        int orders,
-        double cumulativeVolume
+        OrderBookSide side
     ) { }
 
     public static class OrderBookPriceConfig {
@@ -352,24 +335,25 @@ public class OrderBookPriceModule extends Module<OrderBookPriceModule.OrderBookP
     }
 
     private static class OrderBookEntry implements Renderable {
-        private final PriceLevel level;
+        private final double pricePerUnit;
         private final OrderType type;
         private final Component priceText;
         private final Component statsText;
         private final List<Component> tooltip;
 
-        public OrderBookEntry(PriceLevel level, OrderType type) {
-            this.level = level;
+        public OrderBookEntry(OrderBookSide side, int level, OrderType type) {
+            this.pricePerUnit = side.pricePerUnit(level);
             this.type = type;
-            this.priceText = Component.literal(Utils.formatDecimal(level.pricePerUnit(), 1, true));
+            String priceStr = Utils.formatDecimal(this.pricePerUnit, 1, true);
+            this.priceText = Component.literal(priceStr);
 
-            int orders = level.orders();
-            String volumeStr = Utils.formatDecimal(level.volume(), 0, true);
+            long orders = side.orders(level);
+            String volumeStr = Utils.formatDecimal(side.amount(level), 0, true);
             this.statsText = Component.literal("Vol: " + volumeStr + "  Ord: " + orders);
 
-            String cumulativeVolumeStr = Utils.formatDecimal(level.cumulativeVolume(), 0, true);
+            String cumulativeVolumeStr = Utils.formatDecimal(side.cumulativeAmount(level), 0, true);
             this.tooltip = List.of(
-                Component.literal("Price: " + Utils.formatDecimal(level.pricePerUnit(), 1, true)).withStyle(ChatFormatting.GOLD),
+                Component.literal("Price: " + priceStr).withStyle(ChatFormatting.GOLD),
                 Component.literal("Level Volume: " + volumeStr).withStyle(ChatFormatting.GRAY),
                 Component.literal("Orders: " + orders).withStyle(ChatFormatting.GRAY),
                 Component.literal("Cumulative Volume: " + cumulativeVolumeStr).withStyle(ChatFormatting.AQUA)
@@ -401,7 +385,7 @@ public class OrderBookPriceModule extends Module<OrderBookPriceModule.OrderBookP
         }
 
         public double getPricePerUnit() {
-            return this.level.pricePerUnit();
+            return this.pricePerUnit;
         }
 
         @Override
@@ -424,11 +408,18 @@ public class OrderBookPriceModule extends Module<OrderBookPriceModule.OrderBookP
         private static final int TITLE_COLOR = 0xFFFFFFFF;
         private static final int INSTRUCTION_TEXT_COLOR = 0xFFDDDDDD;
 
+        private static final Component TITLE = Component.literal("Order Book");
+        private static final Component CACHED_TITLE = Component
+            .literal("Order Book")
+            .append(Component.literal(" (cached)").withStyle(ChatFormatting.DARK_GRAY));
+
         private static final Component INSTRUCTION_TEXT = Component
             .literal("Click -> Undercut | Ctrl-Click -> Copy price")
             .withStyle(ChatFormatting.GOLD);
 
         private final ListWidget list;
+        // the levels come from the snapshot restored at startup until the first Bazaar poll
+        private boolean cached = false;
 
         public OrderBookPriceWidget(int defaultX, int defaultY, PriceClickHandler onClickHandler) {
             super(defaultX, defaultY, DEFAULT_WIDTH, DEFAULT_HEIGHT);
@@ -448,6 +439,10 @@ public class OrderBookPriceModule extends Module<OrderBookPriceModule.OrderBookP
             this.list.setItems(items);
         }
 
+        public void setCached(boolean cached) {
+            this.cached = cached;
+        }
+
         @Override
         protected void renderContent(GuiGraphicsExtractor graphics, int mouseX, int mouseY, float delta, RenderContext ctx) {
             this.renderHeader(graphics);
@@ -457,7 +452,8 @@ public class OrderBookPriceModule extends Module<OrderBookPriceModule.OrderBookP
 
         private void renderHeader(GuiGraphicsExtractor graphics) {
             graphics.fill(this.getX(), this.getY(), this.getX() + this.width, this.getY() + HEADER_HEIGHT, HEADER_BACKGROUND_COLOR);
-            graphics.centeredText(Minecraft.getInstance().font, "Order Book", this.getX() + this.width / 2, this.getY() + 4, TITLE_COLOR);
+            var title = this.cached ? CACHED_TITLE : TITLE;
+            graphics.centeredText(Minecraft.getInstance().font, title, this.getX() + this.width / 2, this.getY() + 4, TITLE_COLOR);
         }
 
         private void renderInstruction(GuiGraphicsExtractor graphics) {
@@ -4,6 +4,7 @@ import com.github.lutzluca.btrbz.core.config.ConfigScreen;
 import com.github.lutzluca.btrbz.core.config.ConfigScreen.OptionGrouping;
 import com.github.lutzluca.btrbz.core.modules.PriceDiffModule.PriceDiffConfig;
 import com.github.lutzluca.btrbz.data.BazaarData;
+import com.github.lutzluca.btrbz.data.OrderBookSide.CostPoint;
 import com.github.lutzluca.btrbz.data.ProductIdentity;
 import com.github.lutzluca.btrbz.utils.GameUtils;
 import com.github.lutzluca.btrbz.utils.Position;
@@ -14,6 +15,7 @@ import com.github.lutzluca.btrbz.widgets.base.DraggableWidget;
 import com.github.lutzluca.btrbz.widgets.LabelWidget;
 import dev.isxander.yacl3.api.Option;
 import dev.isxander.yacl3.api.OptionGroup;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import lombok.extern.slf4j.Slf4j;
@@ -47,15 +49,23 @@ public class PriceDiffModule extends Module<PriceDiffConfig> {
         var result = difference.get();
         double totalDiff = result.totalDifference();
 
-        List<Component> lines = List.of(
-            Component.literal(result.productName()).withStyle(ChatFormatting.AQUA),
+        var title = Component.literal(result.productName()).withStyle(ChatFormatting.AQUA);
+        if (this.bazaarData.isStale()) {
+            title.append(Component.literal(" (cached)").withStyle(ChatFormatting.DARK_GRAY));
+        }
+
+        List<Component> lines = new ArrayList<>(List.of(
+            title,
             Component
                 .literal("Per-item diff: " + Utils.formatCompact(result.perItemDifference(), 1) + " coins")
                 .withStyle(ChatFormatting.GOLD),
             Component
                 .literal("Total diff: " + Utils.formatCompact(totalDiff, 1) + " coins")
                 .withStyle(ChatFormatting.YELLOW)
-        );
+        ));
+        result.instaSell().ifPresent(instaSell -> lines.add(Component
+            .literal("Insta-sell avg: " + Utils.formatCompact(instaSell.averagePrice(), 1) + " coins")
+            .withStyle(ChatFormatting.GRAY)));
 
         var widget = new LabelWidget(0, 0, lines);
         widget.setAutoSize(true);
@@ -92,7 +102,8 @@ public class PriceDiffModule extends Module<PriceDiffConfig> {
 
         var product = this.bazaarData.resolveProduct(productStack);
         var priceDiffOpt = this.bazaarData.productSpread(product);
-        if (priceDiffOpt.isEmpty()) {
+        var sellOfferPrice = this.bazaarData.lowestSellOfferPrice(product);
+        if (priceDiffOpt.isEmpty() || sellOfferPrice.isEmpty()) {
             return Optional.empty();
         }
 
@@ -101,7 +112,9 @@ public class PriceDiffModule extends Module<PriceDiffConfig> {
             productName,
             productStack,
             priceDiffOpt.get(),
-            listedCount
+            listedCount,
+            sellOfferPrice.get(),
+            this.bazaarData.instaSellCost(product, listedCount)
         ));
     }
 
@@ -125,12 +138,17 @@ public class PriceDiffModule extends Module<PriceDiffConfig> {
         }));
     }
 
+    /**
+     * @param instaSell what instantly selling the quantity earns, empty if the buy orders hold fewer items
+     */
     public record PriceDifference(
         ProductIdentity product,
         String productName,
         ItemStack item,
         double perItemDifference,
-        int quantity
+        int quantity,
+        double sellOfferPrice,
+        Optional<CostPoint> instaSell
     ) {
         public PriceDifference {
             item = item.copy();
@@ -141,8 +159,14 @@ public class PriceDiffModule extends Module<PriceDiffConfig> {
             return this.item.copy();
         }
 
+        /**
+         * @return how much more offering the quantity at the lowest sell offer price earns than instantly selling it,
+         *     which fills lower buy orders once the best one is used up
+         */
         public double totalDifference() {
-            return this.perItemDifference * this.quantity;
+            return this.instaSell
+                .map(instaSell -> this.sellOfferPrice * this.quantity - instaSell.coins())
+                .orElse(this.perItemDifference * this.quantity);
         }
     }
 
@@ -156,7 +180,7 @@ public class PriceDiffModule extends Module<PriceDiffConfig> {
                 .<Boolean>createBuilder()
                 .name(Component.literal("Enable Price Difference Overlay"))
                 .description(ConfigScreen.createDescription(
-                    "Show the current market spread (best sell-offer price minus best buy-order price) per item and for the sellable amount in your inventory."))
+                    "Show the current market spread (best sell-offer price minus best buy-order price) per item and for the sellable amount in your inventory. The total walks the buy orders the way an insta-sell of that amount would."))
                 .binding(true, () -> this.enabled, enabled -> this.enabled = enabled)
                 .controller(ConfigScreen::createBooleanController);
         }
@@ -288,7 +288,7 @@ public class OrderPresetsModule extends Module<OrderPresetsConfig> {
     }
 
     private OrderPreset.RenderableEntry createPresetEntry(PresetState state) {
-        List<Component> tooltipLines = switch (state) {
+        List<Component> stateLines = switch (state) {
             case PresetState.Available(OrderPreset.Max _, int volume) -> List.of(Component.literal(
                 Utils.formatDecimal(volume, 0, true) + " items"
             ));
@@ -307,6 +307,11 @@ public class OrderPresetsModule extends Module<OrderPresetsConfig> {
             );
         };
 
+        List<Component> tooltipLines = new ArrayList<>(stateLines);
+        if (state instanceof PresetState.Available(_, int volume)) {
+            this.instaBuyLine(volume).ifPresent(tooltipLines::add);
+        }
+
         return new OrderPreset.RenderableEntry(
             state.preset(),
             state instanceof PresetState.Unavailable,
@@ -314,6 +319,18 @@ public class OrderPresetsModule extends Module<OrderPresetsConfig> {
         );
     }
 
+    // what buying the volume instantly instead would cost, walking the sell offers
+    private Optional<Component> instaBuyLine(int volume) {
+        return Optional
+            .ofNullable(this.getCurrentProduct())
+            .map(ProductIdentity::fromIndex)
+            .flatMap(product -> this.bazaarData.instaBuyCost(product, volume))
+            .map(cost -> Component.literal(
+                "Insta-buy: " + Utils.formatCompact(cost.coins(), 1)
+                    + " coins (avg " + Utils.formatCompact(cost.averagePrice(), 1) + ")"
+            ));
+    }
+
     private Optional<Integer> getMaxVolume(@NotNull ItemStack item) {
         return GameUtils
             .getLore(item)
@@ -1,6 +1,7 @@
 package com.github.lutzluca.btrbz.core.orderbook;
 
 import com.github.lutzluca.btrbz.data.BazaarData.OrderLists;
+import com.github.lutzluca.btrbz.data.OrderBookSide;
 import com.github.lutzluca.btrbz.utils.Utils;
 import java.util.ArrayList;
 import java.util.List;
@@ -8,7 +9,6 @@ import com.github.lutzluca.btrbz.data.OrderModels.OrderType;
 import com.github.lutzluca.btrbz.widgets.core.WidgetManager;
 import com.github.lutzluca.btrbz.widgets.ListWidget;
 import com.github.lutzluca.btrbz.widgets.Renderable;
-import net.hypixel.api.reply.skyblock.SkyBlockBazaarReply.Product.Summary;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.gui.GuiGraphicsExtractor;
 import net.minecraft.client.gui.components.Button;
@@ -85,18 +85,8 @@ public class OrderBookScreen extends Screen {
             this.onClose();
         });
 
-        List<Renderable> buyWidgets = new ArrayList<>();
-        for (var summary : this.orders.buyOrders()) {
-            buyWidgets.add(new OrderBookRenderable(summary, OrderType.Buy));
-        }
-
-        List<Renderable> sellWidgets = new ArrayList<>();
-        for (var summary : this.orders.sellOffers()) {
-            sellWidgets.add(new OrderBookRenderable(summary, OrderType.Sell));
-        }
-
-        buyOrderList.setItems(buyWidgets);
-        sellOfferList.setItems(sellWidgets);
+        buyOrderList.setItems(renderables(this.orders.buyOrders(), OrderType.Buy));
+        sellOfferList.setItems(renderables(this.orders.sellOffers(), OrderType.Sell));
 
         this.widgetManager = new WidgetManager(List.of(buyOrderList, sellOfferList));
         this.widgetManager.init();
@@ -114,6 +104,19 @@ public class OrderBookScreen extends Screen {
         );
     }
 
+    private static List<Renderable> renderables(OrderBookSide levels, OrderType type) {
+        List<Renderable> widgets = new ArrayList<>(levels.size());
+        for (int level = 0; level < levels.size(); level++) {
+            widgets.add(new OrderBookRenderable(
+                levels.pricePerUnit(level),
+                levels.amount(level),
+                levels.orders(level),
+                type
+            ));
+        }
+        return widgets;
+    }
+
     private void copyPriceToClipboard(double price) {
         Minecraft.getInstance().keyboardHandler.setClipboard(Utils.formatDecimal(price, 1, false));
     }
@@ -190,18 +193,18 @@ public class OrderBookScreen extends Screen {
     }
 
     public static class OrderBookRenderable implements Renderable {
-        private final Summary summary;
+        private final double pricePerUnit;
         private final OrderType type;
         private final Component priceText;
         private final Component amountText;
         private final Component ordersText;
 
-        public OrderBookRenderable(Summary summary, OrderType type) {
-            this.summary = summary;
+        public OrderBookRenderable(double pricePerUnit, long amount, long orders, OrderType type) {
+            this.pricePerUnit = pricePerUnit;
             this.type = type;
-            this.priceText = Component.literal(Utils.formatDecimal(summary.getPricePerUnit(), 1, true));
-            this.amountText = Component.literal(String.valueOf(summary.getAmount()));
-            this.ordersText = Component.literal("(" + summary.getOrders() + " orders)");
+            this.priceText = Component.literal(Utils.formatDecimal(pricePerUnit, 1, true));
+            this.amountText = Component.literal(String.valueOf(amount));
+            this.ordersText = Component.literal("(" + orders + " orders)");
         }
 
         @Override
@@ -231,7 +234,7 @@ public class OrderBookScreen extends Screen {
         }
 
         public double getPricePerUnit() {
-            return this.summary.getPricePerUnit();
+            return this.pricePerUnit;
         }
     }
 }
@@ -2,14 +2,21 @@ package com.github.lutzluca.btrbz.core.trackedorders;
 
 import com.github.lutzluca.btrbz.core.trackedorders.TrackedOrderGrouping.SelfUndercutMatchKey;
 import com.github.lutzluca.btrbz.data.BazaarData.MarketSnapshot;
+import com.github.lutzluca.btrbz.data.MarketDelta;
+import com.github.lutzluca.btrbz.data.MarketDelta.Change;
 import com.github.lutzluca.btrbz.data.OrderModels.OrderType;
 import com.github.lutzluca.btrbz.data.OrderModels.TrackedOrder;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiPredicate;
+import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
@@ -25,33 +32,74 @@ final class SelfUndercutDetector {
         this.state.remove(key);
     }
 
-    void removeIfLastOrder(TrackedOrder removedOrder, List<TrackedOrder> remainingOrders) {
-        var key = SelfUndercutMatchKey.from(removedOrder);
-        boolean removedLastOrder = remainingOrders.stream()
-            .noneMatch(curr -> SelfUndercutMatchKey.from(curr).equals(key));
+    /**
+     * Drops the state of every group that none of the remaining orders belongs to anymore.
+     */
+    void removeIfLastOrders(Collection<TrackedOrder> removedOrders, List<TrackedOrder> remainingOrders) {
+        var remainingKeys = remainingOrders.stream().map(SelfUndercutMatchKey::from).collect(Collectors.toSet());
+        removedOrders.stream().map(SelfUndercutMatchKey::from).distinct().forEach(key -> {
+            boolean removedLastOrder = !remainingKeys.contains(key);
+            log.debug("Removed last order for {}: {}", key, removedLastOrder);
+            if (removedLastOrder) {
+                this.state.remove(key);
+            }
+        });
+    }
+
+    List<SelfUndercutEvent> resolve(List<TrackedOrder> trackedOrders, MarketSnapshot snapshot) {
+        return this.apply(this.evaluate(trackedOrders, snapshot), trackedOrders);
+    }
+
+    /**
+     * Computes the self-undercut state of every order group without touching the detector state, so it can run
+     * off the client thread.
+     */
+    Evaluation evaluate(List<TrackedOrder> trackedOrders, MarketSnapshot snapshot) {
+        return this.evaluate(trackedOrders, snapshot, (key, orders) -> true);
+    }
 
-        log.debug(
-            "Removed last order for {}: {}",
-            removedOrder.product.bazaarProductId().orElse(removedOrder.productName),
-            removedLastOrder
+    /**
+     * Like {@link #evaluate(List, MarketSnapshot)}, but only for the groups whose product book changed in the delta
+     * and the groups whose orders changed since the last evaluation. The state of every other group is kept as is.
+     */
+    Evaluation evaluate(
+        List<TrackedOrder> trackedOrders,
+        MarketDelta delta,
+        Set<SelfUndercutMatchKey> changedGroups
+    ) {
+        return this.evaluate(
+            trackedOrders,
+            delta.snapshot(),
+            (key, orders) -> changedGroups.contains(key) || delta.changed(orders.getFirst().product, Change.Depth)
         );
-        if (removedLastOrder) {
-            this.state.remove(key);
-        }
     }
 
-    List<SelfUndercutEvent> resolve(List<TrackedOrder> trackedOrders, MarketSnapshot snapshot) {
-        var keys = trackedOrders
-            .stream()
-            .map(SelfUndercutMatchKey::from)
-            .distinct()
-            .toList();
+    private Evaluation evaluate(
+        List<TrackedOrder> trackedOrders,
+        MarketSnapshot snapshot,
+        BiPredicate<SelfUndercutMatchKey, List<TrackedOrder>> affected
+    ) {
+        var groups = new LinkedHashMap<SelfUndercutMatchKey, List<TrackedOrder>>();
+        for (var order : trackedOrders) {
+            groups.computeIfAbsent(SelfUndercutMatchKey.from(order), key -> new ArrayList<>()).add(order);
+        }
+
+        var results = new LinkedHashMap<SelfUndercutMatchKey, SelfUndercutResult>();
+        groups.forEach((key, orders) -> {
+            if (affected.test(key, orders)) {
+                results.put(key, this.computeSelfUndercutState(key, orders, snapshot));
+            }
+        });
+        return new Evaluation(groups.keySet(), results);
+    }
 
-        this.state.keySet().retainAll(keys);
+    List<SelfUndercutEvent> apply(Evaluation evaluation, List<TrackedOrder> trackedOrders) {
+        this.state.keySet().retainAll(evaluation.groups);
         var events = new ArrayList<SelfUndercutEvent>();
 
-        for (var key : keys) {
-            var result = this.computeSelfUndercutState(key, trackedOrders, snapshot);
+        for (var entry : evaluation.results.entrySet()) {
+            var key = entry.getKey();
+            var result = entry.getValue();
             var existing = this.state.get(key);
 
             if (result instanceof SelfUndercutResult.Undercut undercut) {
@@ -97,15 +145,14 @@ final class SelfUndercutDetector {
             .map(SelfUndercutKey::from);
     }
 
+    /**
+     * @param matchingOrders the non-empty group of orders belonging to the key
+     */
     private SelfUndercutResult computeSelfUndercutState(
         SelfUndercutMatchKey key,
-        List<TrackedOrder> trackedOrders,
+        List<TrackedOrder> matchingOrders,
         MarketSnapshot snapshot
     ) {
-        var matchingOrders = trackedOrders.stream()
-            .filter(order -> SelfUndercutMatchKey.from(order).equals(key))
-            .toList();
-
         Comparator<Double> bestFirst = key.type() == OrderType.Buy
             ? Comparator.reverseOrder()
             : Comparator.naturalOrder();
@@ -131,17 +178,15 @@ final class SelfUndercutDetector {
             return new SelfUndercutResult.NotUndercut();
         }
 
-        var summaries = snapshot.summariesForOrderType(product, key.type());
-        if (summaries == null || summaries.size() < 2) {
+        var levels = snapshot.summariesForOrderType(product, key.type());
+        if (levels.size() < 2) {
             return new SelfUndercutResult.NotUndercut();
         }
 
-        var topBucket = summaries.getFirst();
-        var secondBucket = summaries.get(1);
         double bestPlayerPrice = playerPrices.getFirst();
         double secondBestPlayerPrice = playerPrices.get(1);
 
-        if (Double.compare(topBucket.getPricePerUnit(), bestPlayerPrice) != 0) {
+        if (Double.compare(levels.pricePerUnit(0), bestPlayerPrice) != 0) {
             return new SelfUndercutResult.NotUndercut();
         }
 
@@ -149,17 +194,17 @@ final class SelfUndercutDetector {
             .filter(order -> Double.compare(order.pricePerUnit, bestPlayerPrice) == 0)
             .count();
 
-        if (topBucket.getOrders() != playerCountAtBest) {
+        if (levels.orders(0) != playerCountAtBest) {
             log.trace(
                 "Top bucket count mismatch for {}: API orders={}, local tracked={}",
                 product,
-                topBucket.getOrders(),
+                levels.orders(0),
                 playerCountAtBest
             );
             return new SelfUndercutResult.NotUndercut();
         }
 
-        if (Double.compare(secondBucket.getPricePerUnit(), secondBestPlayerPrice) != 0) {
+        if (Double.compare(levels.pricePerUnit(1), secondBestPlayerPrice) != 0) {
             return new SelfUndercutResult.NotUndercut();
         }
 
@@ -167,11 +212,11 @@ final class SelfUndercutDetector {
             .filter(order -> Double.compare(order.pricePerUnit, secondBestPlayerPrice) == 0)
             .count();
 
-        if (secondBucket.getOrders() != playerCountAtSecondBest) {
+        if (levels.orders(1) != playerCountAtSecondBest) {
             log.trace(
                 "Second bucket count mismatch for {}: API orders={}, local tracked={}",
                 product,
-                secondBucket.getOrders(),
+                levels.orders(1),
                 playerCountAtSecondBest
             );
             return new SelfUndercutResult.NotUndercut();
@@ -182,6 +227,22 @@ final class SelfUndercutDetector {
 
     record SelfUndercutEvent(SelfUndercutKey key, double bestPrice, double secondBestPrice) { }
 
+    static final class Evaluation {
+
+        // every group present when evaluating, only some of which may have a result
+        private final Set<SelfUndercutMatchKey> groups;
+        private final Map<SelfUndercutMatchKey, SelfUndercutResult> results;
+
+        private Evaluation(Set<SelfUndercutMatchKey> groups, Map<SelfUndercutMatchKey, SelfUndercutResult> results) {
+            this.groups = groups;
+            this.results = results;
+        }
+
+        boolean isEmpty() {
+            return this.results.isEmpty();
+        }
+    }
+
     private record SelfUndercutPricePair(double bestPrice, double secondBestPrice) { }
 
     private sealed interface SelfUndercutResult {
@@ -0,0 +1,33 @@
+package com.github.lutzluca.btrbz.core.trackedorders;
+
+import com.github.lutzluca.btrbz.data.OrderModels.TrackedOrder;
+import java.util.List;
+
+/**
+ * The tracked orders added, removed and updated by one change to the tracked orders, e.g. a sync with the orders
+ * listed in the UI.
+ */
+public record TrackedOrderChanges(List<TrackedOrder> added, List<TrackedOrder> removed, List<TrackedOrder> updated) {
+
+    public TrackedOrderChanges {
+        added = List.copyOf(added);
+        removed = List.copyOf(removed);
+        updated = List.copyOf(updated);
+    }
+
+    static TrackedOrderChanges added(TrackedOrder order) {
+        return new TrackedOrderChanges(List.of(order), List.of(), List.of());
+    }
+
+    static TrackedOrderChanges removed(TrackedOrder order) {
+        return new TrackedOrderChanges(List.of(), List.of(order), List.of());
+    }
+
+    static TrackedOrderChanges updated(List<TrackedOrder> orders) {
+        return new TrackedOrderChanges(List.of(), List.of(), orders);
+    }
+
+    public boolean isEmpty() {
+        return this.added.isEmpty() && this.removed.isEmpty() && this.updated.isEmpty();
+    }
+}
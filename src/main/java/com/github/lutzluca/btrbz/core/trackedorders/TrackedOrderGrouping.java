@@ -36,6 +36,11 @@ final class TrackedOrderGrouping {
         }
     }
 
+    /**
+     * Identifies interchangeable orders when reconciling tracked orders with the orders listed in the UI.
+     */
+    record OrderMatchKey(ProductGroupKey product, OrderType type, int volume, double pricePerUnit) { }
+
     static ProductGroupKey productKey(ProductIdentity product, String fallbackName) {
         return product
             .bazaarProductId()
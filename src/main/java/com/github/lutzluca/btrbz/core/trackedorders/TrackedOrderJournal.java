@@ -0,0 +1,279 @@
+package com.github.lutzluca.btrbz.core.trackedorders;
+
+import com.github.lutzluca.btrbz.data.OrderModels.OrderInfo.UnfilledOrderInfo;
+import com.github.lutzluca.btrbz.data.OrderModels.OrderType;
+import com.github.lutzluca.btrbz.data.OrderModels.TrackedOrder;
+import com.github.lutzluca.btrbz.data.OrderModels.TrackedOrderId;
+import com.github.lutzluca.btrbz.data.ProductIdentity;
+import com.github.lutzluca.btrbz.utils.Utils;
+import io.vavr.control.Try;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Persists the tracked orders as an append-only journal, so they are monitored again right after a restart instead
+ * of only after the next visit to the Manage Orders screen.
+ * <p>
+ * The file holds a header followed by one record per change: the full state of an added or updated order, the id of
+ * a removed order, or a reset of all orders. Replaying the records in order yields the tracked orders. A journal cut
+ * short by a crash replays up to its last complete record. Once the journal holds many more records than live orders
+ * it is compacted into one record per live order. Records are encoded on the calling thread and written in order on
+ * a background thread.
+ */
+@Slf4j
+public final class TrackedOrderJournal {
+
+    private static final int MAGIC = 0x4254534A;
+    private static final int VERSION = 1;
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+    private static final byte CLEAR = 3;
+    private static final int MIN_COMPACTION_RECORDS = 64;
+
+    private final Path path;
+    private final ExecutorService executor;
+    // the last put record of every live order, in the order the orders were first added
+    private final Map<TrackedOrderId, byte[]> live = new LinkedHashMap<>();
+    private int records = 0;
+    private boolean directoryCreated = false;
+
+    public TrackedOrderJournal(Path path) {
+        this(path, Executors.newSingleThreadExecutor(runnable -> {
+            var thread = new Thread(runnable, "btrbz-order-journal-writer");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    TrackedOrderJournal(Path path, ExecutorService executor) {
+        this.path = path;
+        this.executor = executor;
+    }
+
+    /**
+     * Replays the journal and rewrites it compacted. The returned orders replace everything the journal held before,
+     * so this must be called before any change is recorded. A journal that cannot be read is moved aside untouched and
+     * a new one is started.
+     */
+    public Try<List<TrackedOrder>> restore() {
+        var restored = Try
+            .of(this::replay)
+            .recover(NoSuchFileException.class, err -> List.of())
+            .onFailure(err -> this.moveAside());
+
+        this.live.clear();
+        for (var order : restored.getOrElse(List.of())) {
+            this.live.put(order.id(), encodeRecord(PUT, out -> writeOrder(out, order)));
+        }
+        // appends need a header in front of them, so an unreadable journal is replaced by an empty one
+        this.compact();
+        return restored;
+    }
+
+    public void put(TrackedOrder order) {
+        var record = encodeRecord(PUT, out -> writeOrder(out, order));
+        this.live.put(order.id(), record);
+        this.append(record);
+    }
+
+    public void remove(TrackedOrder order) {
+        if (this.live.remove(order.id()) != null) {
+            this.append(encodeRecord(REMOVE, out -> writeId(out, order.id())));
+        }
+    }
+
+    public void clear() {
+        this.live.clear();
+        this.append(encodeRecord(CLEAR, out -> { }));
+    }
+
+    /**
+     * Waits for all pending writes and stops the writer. Changes recorded afterward are dropped.
+     */
+    public void close() {
+        this.executor.shutdown();
+        Try
+            .of(() -> this.executor.awaitTermination(2, TimeUnit.SECONDS))
+            .filter(terminated -> terminated)
+            .onFailure(err -> log.warn("Timed out writing the tracked order journal '{}'", this.path));
+    }
+
+    /**
+     * @return the number of records in the journal, including the ones still waiting to be written
+     */
+    int size() {
+        return this.records;
+    }
+
+    private void append(byte[] record) {
+        this.records++;
+        if (this.records >= Math.max(MIN_COMPACTION_RECORDS, 4 * this.live.size())) {
+            this.compact();
+            return;
+        }
+
+        this.submit(() -> Try
+            .run(() -> this.write(record))
+            .onFailure(err -> log.warn("Failed to append to the tracked order journal '{}'", this.path, err)));
+    }
+
+    // runs on the writer thread only
+    private void write(byte[] record) throws IOException {
+        if (!this.directoryCreated) {
+            // the config folder of a fresh install does not exist until something is written to it
+            Files.createDirectories(this.path.toAbsolutePath().getParent());
+            this.directoryCreated = true;
+        }
+        Files.write(this.path, record, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    // keeps an unreadable file for inspection instead of compacting it away
+    private void moveAside() {
+        var target = this.path.resolveSibling(this.path.getFileName() + ".unreadable");
+        Try
+            .of(() -> Files.move(this.path, target, StandardCopyOption.REPLACE_EXISTING))
+            .onSuccess(moved -> log.warn("Moved the unreadable tracked order journal to '{}'", moved))
+            .onFailure(err -> log.warn(
+                "Failed to move the unreadable tracked order journal '{}' aside",
+                this.path,
+                err
+            ));
+    }
+
+    private void compact() {
+        var bytes = new ByteArrayOutputStream();
+        bytes.writeBytes(ByteBuffer.allocate(8).putInt(MAGIC).putInt(VERSION).array());
+        this.live.values().forEach(bytes::writeBytes);
+        this.records = this.live.size();
+
+        int orders = this.live.size();
+        this.submit(() -> Utils
+            .atomicDumpToFile(this.path, bytes.toByteArray())
+            .onSuccess(path -> log.trace("Compacted tracked order journal '{}' to {} orders", path, orders))
+            .onFailure(err -> log.warn("Failed to compact the tracked order journal '{}'", this.path, err)));
+    }
+
+    private void submit(Runnable write) {
+        if (this.executor.isShutdown()) {
+            log.debug("Dropped write to the closed tracked order journal '{}'", this.path);
+            return;
+        }
+        this.executor.execute(write);
+    }
+
+    private List<TrackedOrder> replay() throws IOException {
+        var in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(this.path)));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a tracked order journal");
+        }
+
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported tracked order journal version " + version);
+        }
+
+        // a re-put order keeps its position, so re-identified orders don't move to the end
+        var orders = new LinkedHashMap<UUID, TrackedOrder>();
+        int replayed = 0;
+        while (in.available() > 0) {
+            try {
+                switch (in.readByte()) {
+                    case PUT -> orders.put(readId(in), readOrder(in));
+                    case REMOVE -> orders.remove(readId(in));
+                    case CLEAR -> orders.clear();
+                    default -> throw new IOException("Unknown record type");
+                }
+                replayed++;
+            } catch (IOException err) {
+                // appends are never rewritten, so only the tail can be damaged, e.g. by a crash mid-write
+                log.warn("Tracked order journal '{}' ends in a damaged record, dropping the rest", this.path, err);
+                break;
+            }
+        }
+
+        log.debug("Replayed {} tracked order journal records into {} orders", replayed, orders.size());
+        return new ArrayList<>(orders.values());
+    }
+
+    private static byte[] encodeRecord(byte type, RecordWriter writer) {
+        var bytes = new ByteArrayOutputStream(64);
+        var out = new DataOutputStream(bytes);
+        // writing to memory cannot fail
+        Try.run(() -> {
+            out.writeByte(type);
+            writer.write(out);
+            out.flush();
+        }).get();
+        return bytes.toByteArray();
+    }
+
+    private static void writeOrder(DataOutputStream out, TrackedOrder order) throws IOException {
+        writeId(out, order.id());
+        out.writeUTF(order.product.strippedName());
+        out.writeUTF(order.product.bazaarProductId().orElse(""));
+        out.writeUTF(order.product.formattedName() != null ? order.product.formattedName() : "");
+        out.writeUTF(order.uiProductName);
+        out.writeByte(order.type.ordinal());
+        out.writeInt(order.volume);
+        out.writeDouble(order.pricePerUnit);
+        out.writeInt(order.slot);
+        out.writeInt(order.fillAmountSnapshot);
+    }
+
+    private static TrackedOrder readOrder(DataInputStream in) throws IOException {
+        var product = ProductIdentity.fromRuntime(in.readUTF(), in.readUTF(), in.readUTF());
+        var uiProductName = in.readUTF();
+        int type = in.readByte();
+        if (type < 0 || type >= OrderType.values().length) {
+            throw new IOException("Unknown order type " + type + " in tracked order journal");
+        }
+
+        int volume = in.readInt();
+        double pricePerUnit = in.readDouble();
+        int slot = in.readInt();
+        int fillAmountSnapshot = in.readInt();
+        return new TrackedOrder(new UnfilledOrderInfo(
+            product,
+            uiProductName,
+            OrderType.values()[type],
+            volume,
+            pricePerUnit,
+            fillAmountSnapshot,
+            0,
+            slot
+        ));
+    }
+
+    private static void writeId(DataOutputStream out, TrackedOrderId id) throws IOException {
+        out.writeLong(id.value().getMostSignificantBits());
+        out.writeLong(id.value().getLeastSignificantBits());
+    }
+
+    private static UUID readId(DataInputStream in) throws IOException {
+        return new UUID(in.readLong(), in.readLong());
+    }
+
+    @FunctionalInterface
+    private interface RecordWriter {
+
+        void write(DataOutputStream out) throws IOException;
+    }
+}
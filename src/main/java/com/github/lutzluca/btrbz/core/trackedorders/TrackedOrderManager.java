@@ -4,10 +4,14 @@ import com.github.lutzluca.btrbz.BtrBz;
 import com.github.lutzluca.btrbz.core.config.ConfigManager;
 import com.github.lutzluca.btrbz.core.config.ConfigScreen;
 import com.github.lutzluca.btrbz.core.config.ConfigScreen.OptionGrouping;
+import com.github.lutzluca.btrbz.core.trackedorders.TrackedOrderGrouping.SelfUndercutMatchKey;
+import com.github.lutzluca.btrbz.core.trackedorders.TrackedOrderStatusEvaluator.TrackedStatus;
 import com.github.lutzluca.btrbz.data.BazaarData;
 import com.github.lutzluca.btrbz.data.BazaarData.MarketSnapshot;
 import com.github.lutzluca.btrbz.data.BazaarMessageDispatcher.BazaarMessage.OrderFilled;
 import com.github.lutzluca.btrbz.data.BazaarMessageDispatcher.BazaarMessage.OrderSetup;
+import com.github.lutzluca.btrbz.data.MarketDelta;
+import com.github.lutzluca.btrbz.data.MarketUpdateHandler;
 import com.github.lutzluca.btrbz.data.OrderModels.OrderInfo;
 import com.github.lutzluca.btrbz.data.OrderModels.OrderInfo.FilledOrderInfo;
 import com.github.lutzluca.btrbz.data.OrderModels.OrderInfo.UnfilledOrderInfo;
@@ -18,6 +22,7 @@ import com.github.lutzluca.btrbz.data.OrderModels.TrackedOrder;
 import com.github.lutzluca.btrbz.data.OrderModels.TrackedOrderId;
 import com.github.lutzluca.btrbz.data.ProductIdentity;
 import com.github.lutzluca.btrbz.data.TimedStore;
+import com.github.lutzluca.btrbz.data.conversions.ConversionChangeSet;
 import com.github.lutzluca.btrbz.utils.Notifier;
 import com.github.lutzluca.btrbz.utils.Utils;
 import dev.isxander.yacl3.api.Option;
@@ -25,20 +30,26 @@ import dev.isxander.yacl3.api.OptionDescription;
 import dev.isxander.yacl3.api.OptionGroup;
 import dev.isxander.yacl3.api.controller.EnumControllerBuilder;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
 import net.minecraft.ChatFormatting;
 import net.minecraft.network.chat.Component;
+import org.jetbrains.annotations.Nullable;
 
 @Slf4j
 public class TrackedOrderManager {
 
     private final BazaarData bazaarData;
+    private final Supplier<OrderManagerConfig> config;
 
     private final List<TrackedOrder> trackedOrders = new ArrayList<>();
     private final List<TrackedOrder> displayOrders = new ArrayList<>();
@@ -50,24 +61,57 @@ public class TrackedOrderManager {
     private final List<Consumer<TrackedOrder>> onOrderAddedListeners = new ArrayList<>();
     private final List<Consumer<TrackedOrder>> onOrderRemovedListeners = new ArrayList<>();
     private final List<Consumer<TrackedOrder>> onOrderUpdatedListeners = new ArrayList<>();
+    private final List<Consumer<TrackedOrderChanges>> onOrdersChangedListeners = new ArrayList<>();
     private final List<Runnable> onOrdersResetListeners = new ArrayList<>();
     private BiConsumer<List<UnfilledOrderInfo>, List<FilledOrderInfo>> onSyncCompletedCallback =
         (unfilledOrders, filledOrders) -> { };
+    // copy of the tracked order list for the bazaar worker, refreshed on the client thread after changes; the orders
+    // in it are shared with the client thread, see TrackedOrder for the fields the worker may read
+    private final AtomicReference<OrdersView> ordersView = new AtomicReference<>(OrdersView.EMPTY);
+    private @Nullable TrackedOrderJournal journal;
 
     public TrackedOrderManager(BazaarData bazaarData) {
+        this(bazaarData, () -> ConfigManager.get().trackedOrders);
+    }
+
+    TrackedOrderManager(BazaarData bazaarData, Supplier<OrderManagerConfig> config) {
         this.bazaarData = bazaarData;
+        this.config = config;
         this.productUpdater = new TrackedOrderProductUpdater(bazaarData);
         this.outstandingOrderStore = new TimedStore<>(15_000L);
         this.bazaarData.addIndexChangeListener(this::refreshTrackedOrderProducts);
     }
 
-    private void refreshTrackedOrderProducts() {
-        this.trackedOrders.forEach(order ->
-            this.updateTrackedProduct(order, this.productUpdater.resolveCurrentProduct(order))
-        );
+    private void refreshTrackedOrderProducts(ConversionChangeSet changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+
+        var updated = new ArrayList<TrackedOrder>();
+        var previousGroups = new ArrayList<SelfUndercutMatchKey>();
+        for (var order : this.trackedOrders) {
+            // orders without a product id are matched by name, which any changed entry can affect
+            if (!order.product.bazaarProductId().map(changes::affects).orElse(true)) {
+                continue;
+            }
+
+            var group = SelfUndercutMatchKey.from(order);
+            if (this.updateTrackedProduct(order, this.productUpdater.resolveCurrentProduct(order))) {
+                updated.add(order);
+                previousGroups.add(group);
+            }
+        }
+
+        if (!updated.isEmpty()) {
+            this.markOrdersChanged(updated, previousGroups);
+            this.publish(TrackedOrderChanges.updated(updated));
+        }
     }
 
-    private void updateTrackedProduct(TrackedOrder order, ProductIdentity product) {
+    /**
+     * @return whether the product identity or display name of the order changed
+     */
+    private boolean updateTrackedProduct(TrackedOrder order, ProductIdentity product) {
         var mergedProduct = this.productUpdater.strongestProduct(order.product, product, order.uiProductName);
         var oldKey = TrackedOrderGrouping.productKey(order.product, order.uiProductName);
         var oldProductName = order.productName;
@@ -75,10 +119,10 @@ public class TrackedOrderManager {
         if (oldKey.equals(newKey)
             && oldProductName.equals(mergedProduct.strippedName())
             && order.product.equals(mergedProduct)) {
-            return;
+            return false;
         }
 
-        var oldSelfUndercutKey = TrackedOrderGrouping.SelfUndercutMatchKey.from(order);
+        var oldSelfUndercutKey = SelfUndercutMatchKey.from(order);
         order.applyProduct(mergedProduct);
 
         if (oldKey.equals(newKey)) {
@@ -88,25 +132,59 @@ public class TrackedOrderManager {
                 oldProductName,
                 order.productName
             );
-            this.notifyOrderUpdated(order);
-            return;
+            return true;
         }
 
         // The previous status belongs to the old grouping key; the next market poll recomputes it normally.
         order.status = new OrderStatus.Unknown();
         this.selfUndercutDetector.remove(oldSelfUndercutKey);
-        this.selfUndercutDetector.remove(TrackedOrderGrouping.SelfUndercutMatchKey.from(order));
+        this.selfUndercutDetector.remove(SelfUndercutMatchKey.from(order));
         log.debug(
             "Updated tracked order identity from {} to {} using UI product '{}'",
             oldKey,
             newKey,
             order.uiProductName
         );
-        this.notifyOrderUpdated(order);
+        return true;
     }
 
-    private void notifyOrderUpdated(TrackedOrder order) {
-        this.onOrderUpdatedListeners.forEach(listener -> listener.accept(order));
+    /**
+     * Restores the orders recorded in the journal and records every later change to them in it. Must be called before
+     * any order is tracked. Restored orders start with an unknown status, which the next market update resolves like
+     * for newly tracked orders.
+     */
+    public void restoreOrders(TrackedOrderJournal journal) {
+        var restored = journal
+            .restore()
+            .onFailure(err -> log.warn("Failed to restore tracked orders, starting without them", err))
+            .getOrElse(List.of());
+        this.journal = journal;
+        if (restored.isEmpty()) {
+            return;
+        }
+
+        this.trackedOrders.addAll(restored);
+        this.displayOrders.addAll(restored);
+        this.markOrdersChanged(restored, List.of());
+        // already journaled, only the listeners learn about them
+        this.notifyListeners(new TrackedOrderChanges(restored, List.of(), List.of()));
+        log.info("Restored {} tracked orders", restored.size());
+    }
+
+    private void publish(TrackedOrderChanges changes) {
+        if (this.journal != null) {
+            changes.removed().forEach(this.journal::remove);
+            changes.added().forEach(this.journal::put);
+            changes.updated().forEach(this.journal::put);
+        }
+        this.notifyListeners(changes);
+    }
+
+    private void notifyListeners(TrackedOrderChanges changes) {
+        this.onOrdersChangedListeners.forEach(listener -> listener.accept(changes));
+        changes.added().forEach(order -> this.onOrderAddedListeners.forEach(listener -> listener.accept(order)));
+        changes.removed().forEach(order -> this.onOrderRemovedListeners.forEach(listener -> listener.accept(order)));
+        changes.updated().forEach(order -> this.onOrderUpdatedListeners.forEach(listener -> listener.accept(order)));
     }
 
     public void addOnOrderAddedListener(Consumer<TrackedOrder> listener) {
@@ -127,6 +205,16 @@ public class TrackedOrderManager {
         this.onOrderUpdatedListeners.add(listener);
     }
 
+    /**
+     * Add a listener receiving every change to the tracked orders as one batch, e.g. all orders added, removed and
+     * updated by a sync. The per-order listeners are called after it for each order of the batch.
+     * <p>
+     * <b>Note:</b> Like the per-order listeners, this listener is NOT called by {@link #resetTrackedOrders()}.
+     */
+    public void addOnOrdersChangedListener(Consumer<TrackedOrderChanges> listener) {
+        this.onOrdersChangedListeners.add(listener);
+    }
+
     public void addOnOrdersResetListener(Runnable listener) {
         this.onOrdersResetListeners.add(listener);
     }
@@ -137,61 +225,122 @@ public class TrackedOrderManager {
 
     public void syncOrders(List<OrderInfo> parsedOrders) {
         log.debug("Syncing orders with parsed order from the UI: {}", parsedOrders);
-        var toRemove = new ArrayList<TrackedOrder>();
-        var remaining = new ArrayList<>(parsedOrders);
-
         var filledOrders = new ArrayList<FilledOrderInfo>();
         var unfilledOrders = new ArrayList<UnfilledOrderInfo>();
-        for (var order : remaining) {
+        for (var order : parsedOrders) {
             switch (order) {
                 case FilledOrderInfo filled -> filledOrders.add(filled);
                 case UnfilledOrderInfo unfilled -> unfilledOrders.add(unfilled);
             }
         }
 
-        var unfilledCopy = new ArrayList<>(unfilledOrders);
-
-        for (var tracked : this.trackedOrders) {
-            var match = unfilledCopy.stream().filter(tracked::matches).findFirst();
-
-            match.ifPresentOrElse(
-                info -> {
-                    unfilledCopy.remove(info);
-                    this.updateTrackedProduct(tracked, info.product());
-                    tracked.slot = info.slotIdx();
-                    tracked.fillAmountSnapshot = info.filledAmountSnapshot();
-                }, () -> toRemove.add(tracked)
-            );
-        }
+        var reconciliation = TrackedOrderReconciler.reconcile(this.trackedOrders, unfilledOrders);
+        var updated = new ArrayList<TrackedOrder>();
+        var previousGroups = new ArrayList<SelfUndercutMatchKey>();
+        var moved = new ArrayList<TrackedOrder>();
+        reconciliation.matched().forEach((tracked, info) -> {
+            var group = SelfUndercutMatchKey.from(tracked);
+            if (this.updateTrackedProduct(tracked, info.product())) {
+                updated.add(tracked);
+                previousGroups.add(group);
+            } else if (tracked.slot != info.slotIdx() || tracked.fillAmountSnapshot != info.filledAmountSnapshot()) {
+                moved.add(tracked);
+            }
+            tracked.slot = info.slotIdx();
+            tracked.fillAmountSnapshot = info.filledAmountSnapshot();
+        });
 
         log.debug(
             "Tracked orders: {}, toRemove: {}, toAdd: {}",
             this.trackedOrders,
-            toRemove,
-            unfilledOrders
+            reconciliation.unmatched(),
+            reconciliation.unclaimed()
         );
 
-        toRemove.forEach(this::removeTrackedOrder);
-        unfilledCopy
-            .stream()
-            .map(TrackedOrder::new)
-            .forEach(this::addTrackedOrder);
+        var removed = reconciliation.unmatched();
+        this.removeAll(removed);
+        var added = reconciliation.unclaimed().stream().map(TrackedOrder::new).toList();
+        this.trackedOrders.addAll(added);
+        this.displayOrders.addAll(added);
+
+        var changes = new TrackedOrderChanges(added, removed, updated);
+        if (!changes.isEmpty()) {
+            removed.stream().map(SelfUndercutMatchKey::from).forEach(previousGroups::add);
+            var changedOrders = new ArrayList<>(added);
+            changedOrders.addAll(updated);
+            this.markOrdersChanged(changedOrders, previousGroups);
+            this.publish(changes);
+        }
+        if (this.journal != null) {
+            // slot and fill snapshot changes are not published, but a restored order should carry them
+            moved.forEach(this.journal::put);
+        }
 
         this.onSyncCompletedCallback.accept(unfilledOrders, filledOrders);
     }
 
     private void removeTrackedOrder(TrackedOrder order) {
-        if (this.trackedOrders.remove(order)) {
-            this.displayOrders.remove(order);
-            this.selfUndercutDetector.removeIfLastOrder(order, this.trackedOrders);
-            this.onOrderRemovedListeners.forEach(listener -> listener.accept(order));
+        if (this.trackedOrders.contains(order)) {
+            this.removeAll(List.of(order));
+            this.markOrdersChanged(List.of(), List.of(SelfUndercutMatchKey.from(order)));
+            this.publish(TrackedOrderChanges.removed(order));
+        }
+    }
+
+    private void removeAll(List<TrackedOrder> orders) {
+        if (orders.isEmpty()) {
+            return;
         }
+
+        var removed = new HashSet<>(orders);
+        this.trackedOrders.removeIf(removed::contains);
+        this.displayOrders.removeIf(removed::contains);
+        this.selfUndercutDetector.removeIfLastOrders(orders, this.trackedOrders);
+    }
+
+    /**
+     * Publishes the current orders to the bazaar worker, so the next poll re-evaluates the changed orders and the
+     * self-undercut groups they and the given previous groups belong to, even if their products did not move.
+     */
+    private void markOrdersChanged(List<TrackedOrder> changedOrders, List<SelfUndercutMatchKey> previousGroups) {
+        var orders = List.copyOf(this.trackedOrders);
+        this.ordersView.updateAndGet(view -> view.changed(orders, changedOrders, previousGroups));
     }
 
-    public void onBazaarUpdate(MarketSnapshot snapshot) {
-        var statusUpdates = this.statusEvaluator
-            .computeStatusUpdates(this.trackedOrders, snapshot)
+    /**
+     * Computes order statuses and self-undercut states on the bazaar worker from a copy of the tracked order list,
+     * re-evaluating only the orders and groups whose product moved or that changed since the last poll. The returned
+     * task applies them and sends the notifications on the client thread.
+     * <p>
+     * The orders are not copied. The worker only reads their final fields and the volatile product and product name,
+     * which the client thread may replace while an evaluation runs; the returned task drops the statuses computed for
+     * a replaced product.
+     */
+    public Runnable prepareUpdate(MarketDelta delta) {
+        var view = this.ordersView.getAndUpdate(OrdersView::evaluated);
+        var statuses = this.statusEvaluator.computeStatuses(view.orders(), delta, view.changedOrders());
+        var selfUndercuts = this.selfUndercutDetector.evaluate(view.orders(), delta, view.changedGroups());
+        if (statuses.isEmpty() && selfUndercuts.isEmpty()) {
+            return MarketUpdateHandler.NOTHING;
+        }
+
+        var snapshot = delta.snapshot();
+        return () -> this.applyUpdate(snapshot, statuses, selfUndercuts);
+    }
+
+    private void applyUpdate(
+        MarketSnapshot snapshot,
+        List<TrackedStatus> statuses,
+        SelfUndercutDetector.Evaluation selfUndercuts
+    ) {
+        // orders removed or re-identified after the statuses were computed are skipped, they are re-evaluated on the
+        // next poll because every such change marks the orders as changed
+        var currentStatuses = statuses
+            .stream()
+            .filter(status -> status.product().equals(status.order().product))
+            .filter(status -> this.trackedOrders.contains(status.order()))
             .toList();
+        var statusUpdates = this.statusEvaluator.statusUpdates(currentStatuses).toList();
 
         statusUpdates.forEach(update -> update.order().status = update.curr());
 
@@ -200,7 +349,7 @@ public class TrackedOrderManager {
             .toList();
 
         this.sendNotifications(notificationUpdates, snapshot);
-        this.resolveSelfUndercutStates(snapshot);
+        this.resolveSelfUndercutStates(selfUndercuts);
     }
 
     // Known limitation: transitions that only change `GroupStatus` without changing the underlying
@@ -211,7 +360,7 @@ public class TrackedOrderManager {
     // `GroupStatus` across polls), which adds meaningful complexity for a low-value scenario.
     // Accepted as a known limitation (for now).
     private void sendNotifications(List<StatusUpdate> statusUpdates, MarketSnapshot snapshot) {
-        var cfg = ConfigManager.get().trackedOrders;
+        var cfg = this.config.get();
         if(!cfg.enabled) {
             return;
         }
@@ -244,7 +393,7 @@ public class TrackedOrderManager {
         List<StatusUpdate> updates,
         MarketSnapshot snapshot
     ) {
-        var cfg = ConfigManager.get().trackedOrders;
+        var cfg = this.config.get();
         
         if(!cfg.groupOrders) {
             updates.stream()
@@ -275,7 +424,7 @@ public class TrackedOrderManager {
     }
 
     private boolean shouldNotify(StatusUpdate update) {
-        var cfg = ConfigManager.get().trackedOrders;
+        var cfg = this.config.get();
 
         return cfg.enabled && switch (update.curr()) {
             case OrderStatus.Top _ -> {
@@ -300,6 +449,10 @@ public class TrackedOrderManager {
         this.trackedOrders.clear();
         this.displayOrders.clear();
         this.selfUndercutDetector.clear();
+        this.markOrdersChanged(List.of(), List.of());
+        if (this.journal != null) {
+            this.journal.clear();
+        }
 
         log.info("Reset tracked orders (removed {})", removedSize);
         this.onOrdersResetListeners.forEach(Runnable::run);
@@ -334,8 +487,43 @@ public class TrackedOrderManager {
 
     public void addTrackedOrder(TrackedOrder order) {
         this.trackedOrders.add(order);
+        this.markOrdersChanged(List.of(order), List.of());
         this.displayOrders.add(order);
-        this.onOrderAddedListeners.forEach(listener -> listener.accept(order));
+        this.publish(TrackedOrderChanges.added(order));
+    }
+
+    /**
+     * The tracked orders as seen by the bazaar worker, together with the orders and self-undercut groups that changed
+     * since the worker last evaluated them. Both are swapped in one step, so an evaluation never sees orders without
+     * their changes.
+     */
+    private record OrdersView(
+        List<TrackedOrder> orders,
+        Set<TrackedOrder> changedOrders,
+        Set<SelfUndercutMatchKey> changedGroups
+    ) {
+
+        static final OrdersView EMPTY = new OrdersView(List.of(), Set.of(), Set.of());
+
+        OrdersView changed(
+            List<TrackedOrder> orders,
+            List<TrackedOrder> changedOrders,
+            List<SelfUndercutMatchKey> previousGroups
+        ) {
+            var current = new HashSet<>(orders);
+            var allChangedOrders = new HashSet<>(this.changedOrders);
+            allChangedOrders.addAll(changedOrders);
+            allChangedOrders.retainAll(current);
+
+            var allChangedGroups = new HashSet<>(this.changedGroups);
+            allChangedGroups.addAll(previousGroups);
+            changedOrders.forEach(order -> allChangedGroups.add(SelfUndercutMatchKey.from(order)));
+            return new OrdersView(orders, allChangedOrders, allChangedGroups);
+        }
+
+        OrdersView evaluated() {
+            return new OrdersView(this.orders, Set.of(), Set.of());
+        }
     }
 
     public record TrackedOrderSnapshot(
@@ -367,10 +555,22 @@ public class TrackedOrderManager {
     }
 
     public void removeMatching(OrderFilled info) {
+        this.findFilled(info).ifPresentOrElse(
+            this::removeTrackedOrder, () -> Notifier.notifyChatCommand(
+                "No matching tracked order found for filled order message. Resync orders",
+                "managebazaarorders"
+            )
+        );
+    }
+
+    /**
+     * @return the tracked order the filled order message most likely refers to, preferring the best priced one
+     */
+    public Optional<TrackedOrder> findFilled(OrderFilled info) {
         var orderingFactor = info.type() == OrderType.Buy ? -1 : 1;
 
         // noinspection SimplifyStreamApiCallChains
-        this.trackedOrders
+        return this.trackedOrders
             .stream()
             .filter(order -> Utils
                 .normalizeDisplayName(order.uiProductName)
@@ -378,13 +578,7 @@ public class TrackedOrderManager {
                 && order.type == info.type()
                 && order.volume == info.volume())
             .sorted((t1, t2) -> orderingFactor * Double.compare(t1.pricePerUnit, t2.pricePerUnit))
-            .findFirst()
-            .ifPresentOrElse(
-                this::removeTrackedOrder, () -> Notifier.notifyChatCommand(
-                    "No matching tracked order found for filled order message. Resync orders",
-                    "managebazaarorders"
-                )
-            );
+            .findFirst();
     }
 
     public void addOutstandingOrder(OutstandingOrderInfo info) {
@@ -412,9 +606,9 @@ public class TrackedOrderManager {
             );
     }
 
-    private void resolveSelfUndercutStates(MarketSnapshot snapshot) {
-        var cfg = ConfigManager.get().trackedOrders;
-        var events = this.selfUndercutDetector.resolve(this.trackedOrders, snapshot);
+    private void resolveSelfUndercutStates(SelfUndercutDetector.Evaluation selfUndercuts) {
+        var cfg = this.config.get();
+        var events = this.selfUndercutDetector.apply(selfUndercuts, this.trackedOrders);
         if (!cfg.enabled || !cfg.notifySelfUndercut) {
             return;
         }
@@ -0,0 +1,139 @@
+package com.github.lutzluca.btrbz.core.trackedorders;
+
+import com.github.lutzluca.btrbz.core.trackedorders.TrackedOrderGrouping.MarketProductKey;
+import com.github.lutzluca.btrbz.core.trackedorders.TrackedOrderGrouping.NameProductKey;
+import com.github.lutzluca.btrbz.core.trackedorders.TrackedOrderGrouping.OrderMatchKey;
+import com.github.lutzluca.btrbz.data.OrderModels.OrderInfo.UnfilledOrderInfo;
+import com.github.lutzluca.btrbz.data.OrderModels.OrderType;
+import com.github.lutzluca.btrbz.data.OrderModels.TrackedOrder;
+import com.github.lutzluca.btrbz.utils.Utils;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Matches tracked orders against the unfilled orders parsed from the UI in linear time.
+ * <p>
+ * The result is the same as pairing every tracked order, in order, with the first unclaimed parsed order it
+ * {@link TrackedOrder#matches matches}. Two orders match by Bazaar product id when both have one and by normalized UI
+ * name otherwise, so parsed orders are indexed under both keys and a tracked order takes the earlier of the two
+ * candidates. Duplicate orders queue up under the same key in UI order.
+ */
+final class TrackedOrderReconciler {
+
+    private TrackedOrderReconciler() { }
+
+    static Reconciliation reconcile(List<TrackedOrder> trackedOrders, List<UnfilledOrderInfo> parsedOrders) {
+        var byMarketId = new HashMap<OrderMatchKey, ArrayDeque<Candidate>>();
+        var byNameWithId = new HashMap<OrderMatchKey, ArrayDeque<Candidate>>();
+        var byNameWithoutId = new HashMap<OrderMatchKey, ArrayDeque<Candidate>>();
+
+        var candidates = new ArrayList<Candidate>(parsedOrders.size());
+        for (var info : parsedOrders) {
+            var candidate = new Candidate(info, candidates.size());
+            candidates.add(candidate);
+
+            var nameKey = nameKey(info.uiProductName(), info.type(), info.volume(), info.pricePerUnit());
+            var productId = info.product().bazaarProductId();
+            if (productId.isPresent()) {
+                var idKey = new OrderMatchKey(
+                    new MarketProductKey(productId.get()),
+                    info.type(),
+                    info.volume(),
+                    info.pricePerUnit()
+                );
+                enqueue(byMarketId, idKey, candidate);
+                enqueue(byNameWithId, nameKey, candidate);
+            } else {
+                enqueue(byNameWithoutId, nameKey, candidate);
+            }
+        }
+
+        var matched = new LinkedHashMap<TrackedOrder, UnfilledOrderInfo>();
+        var unmatched = new ArrayList<TrackedOrder>();
+        for (var tracked : trackedOrders) {
+            var nameKey = nameKey(tracked.uiProductName, tracked.type, tracked.volume, tracked.pricePerUnit);
+            var productId = tracked.product.bazaarProductId();
+            var byId = productId.isPresent()
+                ? head(byMarketId, new OrderMatchKey(
+                    new MarketProductKey(productId.get()),
+                    tracked.type,
+                    tracked.volume,
+                    tracked.pricePerUnit
+                ))
+                : head(byNameWithId, nameKey);
+            var byName = head(byNameWithoutId, nameKey);
+
+            var match = byId == null || (byName != null && byName.index < byId.index) ? byName : byId;
+            if (match == null) {
+                unmatched.add(tracked);
+                continue;
+            }
+            match.claimed = true;
+            matched.put(tracked, match.info);
+        }
+
+        var unclaimed = candidates
+            .stream()
+            .filter(candidate -> !candidate.claimed)
+            .map(candidate -> candidate.info)
+            .toList();
+        return new Reconciliation(matched, unmatched, unclaimed);
+    }
+
+    private static OrderMatchKey nameKey(String uiProductName, OrderType type, int volume, double pricePerUnit) {
+        return new OrderMatchKey(
+            new NameProductKey(Utils.normalizeDisplayName(uiProductName)),
+            type,
+            volume,
+            pricePerUnit
+        );
+    }
+
+    private static void enqueue(
+        Map<OrderMatchKey, ArrayDeque<Candidate>> index,
+        OrderMatchKey key,
+        Candidate candidate
+    ) {
+        index.computeIfAbsent(key, ignored -> new ArrayDeque<>()).addLast(candidate);
+    }
+
+    // claimed candidates are dropped lazily since orders with an id are queued under two keys
+    private static @Nullable Candidate head(Map<OrderMatchKey, ArrayDeque<Candidate>> index, OrderMatchKey key) {
+        var queue = index.get(key);
+        if (queue == null) {
+            return null;
+        }
+        while (!queue.isEmpty() && queue.peekFirst().claimed) {
+            queue.removeFirst();
+        }
+        return queue.peekFirst();
+    }
+
+    /**
+     * @param matched   the parsed order each still listed tracked order was paired with, in tracked order
+     * @param unmatched the tracked orders no longer listed in the UI
+     * @param unclaimed the parsed orders not paired with any tracked order, in UI order
+     */
+    record Reconciliation(
+        Map<TrackedOrder, UnfilledOrderInfo> matched,
+        List<TrackedOrder> unmatched,
+        List<UnfilledOrderInfo> unclaimed
+    ) { }
+
+    private static final class Candidate {
+
+        private final UnfilledOrderInfo info;
+        private final int index;
+        private boolean claimed = false;
+
+        private Candidate(UnfilledOrderInfo info, int index) {
+            this.info = info;
+            this.index = index;
+        }
+    }
+}
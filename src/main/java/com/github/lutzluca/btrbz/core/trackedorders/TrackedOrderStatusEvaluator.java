@@ -1,29 +1,63 @@
 package com.github.lutzluca.btrbz.core.trackedorders;
 
 import com.github.lutzluca.btrbz.data.BazaarData.MarketSnapshot;
+import com.github.lutzluca.btrbz.data.MarketDelta;
+import com.github.lutzluca.btrbz.data.MarketDelta.Change;
+import com.github.lutzluca.btrbz.data.OrderBookSide;
 import com.github.lutzluca.btrbz.data.OrderModels.OrderStatus;
 import com.github.lutzluca.btrbz.data.OrderModels.OrderStatus.Matched;
 import com.github.lutzluca.btrbz.data.OrderModels.OrderStatus.Top;
 import com.github.lutzluca.btrbz.data.OrderModels.OrderStatus.Undercut;
 import com.github.lutzluca.btrbz.data.OrderModels.TrackedOrder;
-import com.github.lutzluca.btrbz.utils.Utils;
+import com.github.lutzluca.btrbz.data.ProductIdentity;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import lombok.extern.slf4j.Slf4j;
-import net.hypixel.api.reply.skyblock.SkyBlockBazaarReply.Product.Summary;
 import org.jetbrains.annotations.Nullable;
 
 @Slf4j
 final class TrackedOrderStatusEvaluator {
 
     Stream<StatusUpdate> computeStatusUpdates(List<TrackedOrder> trackedOrders, MarketSnapshot snapshot) {
+        return this.statusUpdates(this.computeStatuses(trackedOrders, snapshot));
+    }
+
+    /**
+     * Derives the market status of every order from the snapshot alone, without reading the orders' current status,
+     * so it can run off the client thread.
+     */
+    List<TrackedStatus> computeStatuses(List<TrackedOrder> trackedOrders, MarketSnapshot snapshot) {
         return trackedOrders
             .stream()
             .map(order -> this.getTrackedStatus(order, snapshot))
             .flatMap(Optional::stream)
+            .toList();
+    }
+
+    /**
+     * Like {@link #computeStatuses(List, MarketSnapshot)}, but only for the orders whose product's best level changed
+     * in the delta and the orders that changed since the last evaluation. The status of every other order is the
+     * same as the last time it was computed.
+     */
+    List<TrackedStatus> computeStatuses(
+        List<TrackedOrder> trackedOrders,
+        MarketDelta delta,
+        Set<TrackedOrder> changed
+    ) {
+        var affected = trackedOrders
+            .stream()
+            .filter(order -> changed.contains(order) || delta.changed(order.product, Change.TopOfBook))
+            .toList();
+        return affected.isEmpty() ? List.of() : this.computeStatuses(affected, delta.snapshot());
+    }
+
+    Stream<StatusUpdate> statusUpdates(List<TrackedStatus> statuses) {
+        return statuses
+            .stream()
             .filter(trackedStatus -> this.hasStatusChanged(
                 trackedStatus.order().status,
                 trackedStatus.status()
@@ -108,23 +142,24 @@ final class TrackedOrderStatusEvaluator {
     }
 
     private Optional<TrackedStatus> getTrackedStatus(TrackedOrder order, MarketSnapshot snapshot) {
-        if (order.product.bazaarProductId().isEmpty()) {
+        var product = order.product;
+        if (product.bazaarProductId().isEmpty()) {
             log.warn("Tracked order product has no market id: '{}'", order.productName);
             return Optional.empty();
         }
 
-        if (!snapshot.contains(order.product)) {
-            log.warn("No product found for tracked order product {}", order.product);
+        if (!snapshot.contains(product)) {
+            log.warn("No product found for tracked order product {}", product);
             return Optional.empty();
         }
 
-        var status = this.getStatus(order, snapshot.summariesForOrderType(order.product, order.type));
+        var status = this.getStatus(order, snapshot.summariesForOrderType(product, order.type));
         if (status.isEmpty()) {
-            log.debug("Unable to determine curr for product {}", order.product);
+            log.debug("Unable to determine curr for product {}", product);
             return Optional.empty();
         }
 
-        return Optional.of(new TrackedStatus(order, status.get()));
+        return Optional.of(new TrackedStatus(order, product, status.get()));
     }
 
     private int countOrdersAtBestPrice(GroupKey key, MarketSnapshot snapshot) {
@@ -133,37 +168,35 @@ final class TrackedOrderStatusEvaluator {
             return -1;
         }
 
-        var lists = snapshot.getOrderLists(key.product());
-        var relevantSummaries = switch (key.type()) {
-            case Buy -> lists.buyOrders();
-            case Sell -> lists.sellOffers();
-        };
+        var levels = snapshot.summariesForOrderType(key.product(), key.type());
+        for (int level = 0; level < levels.size(); level++) {
+            if (Double.compare(levels.pricePerUnit(level), key.pricePerUnit()) == 0) {
+                return (int) levels.orders(level);
+            }
+        }
 
-        return relevantSummaries
-            .stream()
-            .filter(summary -> Double.compare(summary.getPricePerUnit(), key.pricePerUnit()) == 0)
-            .findFirst()
-            .map(summary -> (int) summary.getOrders())
-            .orElse(-1);
+        return -1;
     }
 
-    private Optional<OrderStatus> getStatus(TrackedOrder order, List<Summary> summaries) {
-        return Utils.getFirst(summaries).map(summary -> {
-            double bestPrice = summary.getPricePerUnit();
-            if (Double.compare(order.pricePerUnit, bestPrice) == 0) {
-                return summary.getOrders() > 1
-                    ? new Matched()
-                    : new Top();
-            }
+    private Optional<OrderStatus> getStatus(TrackedOrder order, OrderBookSide levels) {
+        if (levels.isEmpty()) {
+            return Optional.empty();
+        }
+
+        double bestPrice = levels.pricePerUnit(0);
+        if (Double.compare(order.pricePerUnit, bestPrice) == 0) {
+            return Optional.of(levels.orders(0) > 1
+                ? new Matched()
+                : new Top());
+        }
 
-            return switch (order.type) {
-                case Buy -> order.pricePerUnit > bestPrice
-                    ? new Top()
-                    : new Undercut(bestPrice - order.pricePerUnit);
-                case Sell -> order.pricePerUnit < bestPrice
-                    ? new Top()
-                    : new Undercut(order.pricePerUnit - bestPrice);
-            };
+        return Optional.of(switch (order.type) {
+            case Buy -> order.pricePerUnit > bestPrice
+                ? new Top()
+                : new Undercut(bestPrice - order.pricePerUnit);
+            case Sell -> order.pricePerUnit < bestPrice
+                ? new Top()
+                : new Undercut(order.pricePerUnit - bestPrice);
         });
     }
 
@@ -177,5 +210,8 @@ final class TrackedOrderStatusEvaluator {
             && Double.compare(previousUndercut.amount, currentUndercut.amount) != 0;
     }
 
-    private record TrackedStatus(TrackedOrder order, OrderStatus status) { }
+    /**
+     * @param product the product the status was computed for; the order's product may change before it is applied
+     */
+    record TrackedStatus(TrackedOrder order, ProductIdentity product, OrderStatus status) { }
 }
@@ -1,32 +1,50 @@
 package com.github.lutzluca.btrbz.data;
 
+import com.github.lutzluca.btrbz.data.FillRateEstimator.FillTimeEstimate;
+import com.github.lutzluca.btrbz.data.OrderBookSide.CostPoint;
 import com.github.lutzluca.btrbz.data.OrderModels.OrderType;
+import com.github.lutzluca.btrbz.data.conversions.ConversionChangeSet;
+import com.github.lutzluca.btrbz.data.conversions.ConversionIndex;
 import com.github.lutzluca.btrbz.data.conversions.ConversionIndexService;
 import com.github.lutzluca.btrbz.data.conversions.ConversionStatus;
+import com.github.lutzluca.btrbz.data.conversions.ProductCompletions;
 import com.github.lutzluca.btrbz.utils.Utils;
 import io.vavr.control.Try;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Consumer;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
 import net.hypixel.api.reply.skyblock.SkyBlockBazaarReply.Product;
-import net.hypixel.api.reply.skyblock.SkyBlockBazaarReply.Product.Summary;
 import net.minecraft.world.item.ItemStack;
 import org.jetbrains.annotations.Nullable;
 
 @Slf4j
 public class BazaarData {
 
+    // restored prices are marked as cached wherever they are shown, this only drops snapshots too old to be of any use
+    private static final long MAX_RESTORED_AGE_MS = Duration.ofHours(6).toMillis();
+
     private final List<Consumer<MarketSnapshot>> listeners = new ArrayList<>();
+    private final List<Consumer<MarketDelta>> deltaListeners = new ArrayList<>();
+    private final List<MarketUpdateHandler> updateHandlers = new CopyOnWriteArrayList<>();
     private final ConversionIndexService conversionIndexService;
-    private Map<String, Product> lastProducts = Collections.emptyMap();
+    private final ProductHandles handles = new ProductHandles();
+    private final FillRateEstimator fillRates = new FillRateEstimator();
+    // written on the client thread, read from any thread
+    private volatile MarketSnapshot snapshot = new MarketSnapshot(MarketColumns.empty(this.handles), false);
+    // confined to the thread preparing updates; deltas are computed against the last prepared snapshot so that
+    // updates prepared back to back still chain even if the first has not been published yet
+    private MarketSnapshot preparedSnapshot = this.snapshot;
+    private volatile @Nullable MarketSnapshotStore snapshotStore;
 
     public BazaarData() {
         this(new ConversionIndexService());
@@ -34,20 +52,15 @@ public class BazaarData {
 
     public BazaarData(ConversionIndexService conversionIndexService) {
         this.conversionIndexService = conversionIndexService;
-    }
-
-    public static Optional<Double> firstSummaryPrice(List<Summary> summaries) {
-        if (summaries == null || summaries.isEmpty()) {
-            return Optional.empty();
-        }
-
-        return Try.of(summaries::getFirst).map(Summary::getPricePerUnit).toJavaOptional();
+        this.updateHandlers.add(this.fillRates);
     }
 
     public void loadConversions() {
         log.info("Loading bazaar conversion index");
-        this.conversionIndexService.loadConversionIndex();
-        this.conversionIndexService.refreshConversionIndex(false);
+        // the refresh reuses entries of the loaded index, so it only starts once that was applied
+        this.conversionIndexService
+            .loadConversionIndex()
+            .thenRun(() -> this.conversionIndexService.refreshConversionIndex(false));
     }
 
     public boolean refreshConversions(boolean manual) {
@@ -58,6 +71,14 @@ public class BazaarData {
         return this.conversionIndexService.refreshConversionIndex(manual, force);
     }
 
+    public Try<Path> exportConversions() {
+        return this.conversionIndexService.exportConversionIndex();
+    }
+
+    public Try<ConversionIndex> importConversions() {
+        return this.conversionIndexService.importConversionIndex();
+    }
+
     public ConversionStatus getConversionStatus() {
         return this.conversionIndexService.status();
     }
@@ -74,6 +95,10 @@ public class BazaarData {
         return this.conversionIndexService.allProducts();
     }
 
+    public ProductCompletions productCompletions() {
+        return this.conversionIndexService.productCompletions();
+    }
+
     public IndexedProduct refreshIndexedProduct(IndexedProduct product) {
         // Keep stale display metadata if the active conversion index no longer contains this id.
         return this.resolveProductId(product.productId()).orElse(product);
@@ -103,11 +128,11 @@ public class BazaarData {
         return this.conversionIndexService.resolveProductName(displayName);
     }
 
-    public void addIndexChangeListener(Runnable listener) {
+    public void addIndexChangeListener(Consumer<ConversionChangeSet> listener) {
         this.conversionIndexService.addIndexChangeListener(listener);
     }
 
-    public void removeIndexChangeListener(Runnable listener) {
+    public void removeIndexChangeListener(Consumer<ConversionChangeSet> listener) {
         this.conversionIndexService.removeIndexChangeListener(listener);
     }
 
@@ -116,16 +141,115 @@ public class BazaarData {
     }
 
     public void onUpdate(Map<String, Product> products) {
-        this.lastProducts = Collections.unmodifiableMap(new LinkedHashMap<>(
-            products == null ? Map.of() : products
-        ));
-        var snapshot = this.currentSnapshot();
+        this.onUpdate(MarketColumns.fromProducts(this.handles, products, System.currentTimeMillis()));
+    }
+
+    public void onUpdate(MarketColumns columns) {
+        this.prepareUpdate(columns).run();
+    }
+
+    /**
+     * Runs the preparation phase of an update on the calling thread.
+     *
+     * @return the publishing phase, to be run on the client thread; publishes the snapshot, notifies the
+     *     listeners and applies what the {@link MarketUpdateHandler}s prepared
+     */
+    public Runnable prepareUpdate(MarketColumns columns) {
+        var previous = this.preparedSnapshot;
+        var snapshot = new MarketSnapshot(columns, false);
+        this.preparedSnapshot = snapshot;
 
-        for (var listener : this.listeners) {
-            Try.run(() -> listener.accept(snapshot)).onFailure(err -> log.error(
+        var delta = MarketDelta.between(previous, snapshot);
+        log.trace("Bazaar update changed {} of {} products", delta.size(), snapshot.size());
+
+        var prepared = new ArrayList<Runnable>(this.updateHandlers.size());
+        for (var handler : this.updateHandlers) {
+            Try.of(() -> handler.prepare(delta)).onSuccess(prepared::add).onFailure(err -> log.error(
+                "Bazaar update handler '{}' failed while preparing {} changed products",
+                handler.getClass().getName(),
+                delta.size(),
+                err
+            ));
+        }
+
+        var store = this.snapshotStore;
+        if (store != null) {
+            store.save(columns);
+        }
+
+        return () -> {
+            this.snapshot = snapshot;
+            this.notifyListeners(this.listeners, snapshot, snapshot.size());
+            this.notifyListeners(this.deltaListeners, delta, delta.size());
+            for (var task : prepared) {
+                Try.run(task::run).onFailure(err -> log.error(
+                    "Applying a prepared bazaar update for {} changed products failed",
+                    delta.size(),
+                    err
+                ));
+            }
+        };
+    }
+
+    /**
+     * Publishes the snapshot persisted in the store as a stale snapshot and persists every later update to it.
+     * Update handlers and delta listeners are not run for the restored snapshot, and the first polled update is still
+     * reported as a change of every listed product. A snapshot older than six hours is not restored.
+     */
+    public void restoreSnapshot(MarketSnapshotStore store) {
+        this.restoreSnapshot(store, System.currentTimeMillis());
+    }
+
+    void restoreSnapshot(MarketSnapshotStore store, long now) {
+        this.snapshotStore = store;
+
+        long start = System.nanoTime();
+        store.load(this.handles).onSuccess(columns -> {
+            // a poll that was published first is newer than anything on disk
+            if (this.snapshot.size() > 0) {
+                return;
+            }
+
+            long age = now - columns.lastUpdated();
+            if (age > MAX_RESTORED_AGE_MS) {
+                log.info(
+                    "Not restoring market snapshot from {}, it is {}s old",
+                    Utils.formatUtcTimestampMillis(columns.lastUpdated()),
+                    age / 1000
+                );
+                return;
+            }
+
+            this.snapshot = new MarketSnapshot(columns, true);
+            log.info(
+                "Restored market snapshot of {} products from {} in {}ms",
+                columns.size(),
+                Utils.formatUtcTimestampMillis(columns.lastUpdated()),
+                (System.nanoTime() - start) / 1_000_000
+            );
+            this.notifyListeners(this.listeners, this.snapshot, columns.size());
+        }).onFailure(err -> {
+            if (err instanceof NoSuchFileException) {
+                log.debug("No market snapshot to restore");
+            } else {
+                log.warn("Failed to restore market snapshot", err);
+            }
+        });
+    }
+
+    /**
+     * @return whether the current prices were restored from disk and not yet replaced by a poll
+     */
+    public boolean isStale() {
+        return this.currentSnapshot().isStale();
+    }
+
+    private <T> void notifyListeners(List<Consumer<T>> listeners, T update, int productCount) {
+        for (var listener : listeners) {
+            Try.run(() -> listener.accept(update)).onFailure(err -> log.error(
                 "Bazaar update listener '{}' failed while processing {} products",
                 listener.getClass().getName(),
-                snapshot.size(),
+                productCount,
                 err
             ));
         }
@@ -148,8 +272,50 @@ public class BazaarData {
         }
     }
 
+    /**
+     * Registers a listener that only receives the products that changed since the previous update.
+     * The first update after startup reports every listed product as changed.
+     */
+    public void addDeltaListener(Consumer<MarketDelta> listener) {
+        this.deltaListeners.add(listener);
+        log.trace(
+            "Inserting delta listener for onBazaarUpdate currently, delta listeners registered: {}",
+            this.deltaListeners.size()
+        );
+    }
+
+    public void removeDeltaListener(Consumer<MarketDelta> listener) {
+        if (this.deltaListeners.remove(listener)) {
+            log.trace(
+                "Removing delta listener for onBazaarUpdate currently, delta listeners registered: {}",
+                this.deltaListeners.size()
+            );
+        }
+    }
+
+    public void addUpdateHandler(MarketUpdateHandler handler) {
+        this.updateHandlers.add(handler);
+        log.trace(
+            "Inserting update handler for onBazaarUpdate currently, update handlers registered: {}",
+            this.updateHandlers.size()
+        );
+    }
+
+    public void removeUpdateHandler(MarketUpdateHandler handler) {
+        if (this.updateHandlers.remove(handler)) {
+            log.trace(
+                "Removing update handler for onBazaarUpdate currently, update handlers registered: {}",
+                this.updateHandlers.size()
+            );
+        }
+    }
+
+    public ProductHandles handles() {
+        return this.handles;
+    }
+
     private MarketSnapshot currentSnapshot() {
-        return new MarketSnapshot(this.lastProducts);
+        return this.snapshot;
     }
 
     public Optional<Double> lowestSellOfferPrice(ProductIdentity product) {
@@ -176,6 +342,34 @@ public class BazaarData {
         return this.currentSnapshot().getOrderLists(product);
     }
 
+    /**
+     * @return the coins instantly buying the volume costs, taking the sell offers from the lowest price upward, or
+     *     empty if fewer items are offered
+     */
+    public Optional<CostPoint> instaBuyCost(ProductIdentity product, long volume) {
+        return instaCost(this.currentSnapshot().summariesForOrderType(product, OrderType.Sell), volume);
+    }
+
+    /**
+     * @return the coins instantly selling the volume earns before tax, filling the buy orders from the highest price
+     *     downward, or empty if fewer items are ordered
+     */
+    public Optional<CostPoint> instaSellCost(ProductIdentity product, long volume) {
+        return instaCost(this.currentSnapshot().summariesForOrderType(product, OrderType.Buy), volume);
+    }
+
+    /**
+     * @return the most items the coins buy instantly, limited by the items currently offered
+     */
+    public long instaBuyVolume(ProductIdentity product, double coins) {
+        return this.currentSnapshot().summariesForOrderType(product, OrderType.Sell).volumeFor(coins);
+    }
+
+    private static Optional<CostPoint> instaCost(OrderBookSide side, long volume) {
+        double coins = side.coinsFor(volume);
+        return volume <= 0 || Double.isNaN(coins) ? Optional.empty() : Optional.of(new CostPoint(volume, coins));
+    }
+
     public Optional<OrderQueueInfo> calculateQueuePosition(
         ProductIdentity product, OrderType orderType,
         double pricePerUnit
@@ -187,49 +381,48 @@ public class BazaarData {
         ProductIdentity product, OrderType orderType,
         double pricePerUnit, boolean includeAtPrice
     ) {
-        var summaries = this.currentSnapshot().summariesForOrderType(product, orderType);
-        if (summaries == null || summaries.isEmpty()) {
+        var levels = this.currentSnapshot().summariesForOrderType(product, orderType);
+        int levelsAhead = levels.levelsAhead(pricePerUnit, includeAtPrice);
+        if (levelsAhead == 0) {
             return Optional.empty();
         }
 
-        var queueInfo = new OrderQueueInfo(0, 0);
-        for (var summary : summaries) {
-            boolean isSamePrice = summary.getPricePerUnit() == pricePerUnit;
-            boolean isBetter = switch (orderType) {
-                case Sell -> summary.getPricePerUnit() < pricePerUnit;
-                case Buy -> summary.getPricePerUnit() > pricePerUnit;
-            };
-
-            if (!isBetter && !(isSamePrice && includeAtPrice)) {
-                break;
-            }
-            queueInfo.ordersAhead += (int) summary.getOrders();
-            queueInfo.itemsAhead += (int) summary.getAmount();
-        }
-
-        return queueInfo.ordersAhead > 0 ? Optional.of(queueInfo) : Optional.empty();
+        return Optional.of(new OrderQueueInfo(
+            (int) levels.cumulativeOrders(levelsAhead - 1),
+            (int) levels.cumulativeAmount(levelsAhead - 1)
+        ));
     }
 
-    public Optional<Double> getEstimatedFillTimeMinutes(
+    /**
+     * Estimates how long an order at the given price takes to fill from the fill rates observed since startup, counting
+     * the volume queued at better prices. Until the product's rate was observed, the weekly average is used.
+     */
+    public Optional<FillTimeEstimate> getEstimatedFillTimeMinutes(
         ProductIdentity product,
         OrderType orderType,
+        double pricePerUnit,
         int remainingVolume
     ) {
         if (remainingVolume <= 0) {
-            return Optional.of(0.0);
+            return Optional.of(FillTimeEstimate.IMMEDIATE);
         }
 
-        var qs = this.currentSnapshot()
-            .rawProduct(product)
-            .map(Product::getQuickStatus)
-            .orElse(null);
-        if (qs == null) {
+        var snapshot = this.currentSnapshot();
+        int handle = snapshot.handle(product);
+        if (handle == ProductHandles.ABSENT) {
             return Optional.empty();
         }
 
+        long volume = remainingVolume
+            + snapshot.summariesForOrderType(handle, orderType).amountAhead(pricePerUnit, false);
+        var estimate = this.fillRates.estimate(handle, orderType, volume, snapshot.columns.lastUpdated());
+        if (estimate.isPresent()) {
+            return estimate;
+        }
+
         long movingWeek = switch (orderType) {
-            case Sell -> qs.getBuyMovingWeek();
-            case Buy -> qs.getSellMovingWeek();
+            case Sell -> snapshot.columns.quickBuyMovingWeek(handle);
+            case Buy -> snapshot.columns.quickSellMovingWeek(handle);
         };
 
         if (movingWeek <= 0) {
@@ -239,7 +432,8 @@ public class BazaarData {
         double hourlyRate = movingWeek / 168.0;
         double minutesRate = hourlyRate / 60.0;
 
-        return Optional.of(remainingVolume / minutesRate);
+        double minutes = volume / minutesRate;
+        return Optional.of(new FillTimeEstimate(minutes, minutes, minutes));
     }
 
     @ToString
@@ -254,72 +448,113 @@ public class BazaarData {
         Optional<@Nullable Double> lowestSellOfferPrice
     ) { }
 
-    public record OrderLists(List<Summary> buyOrders, List<Summary> sellOffers) {
+    public record OrderLists(OrderBookSide buyOrders, OrderBookSide sellOffers) {
         public static OrderLists empty() {
-            return new OrderLists(List.of(), List.of());
+            return new OrderLists(OrderBookSide.EMPTY, OrderBookSide.EMPTY);
         }
     }
 
     public static final class MarketSnapshot {
 
-        private final Map<String, Product> products;
+        private final MarketColumns columns;
+        private final boolean stale;
+
+        private MarketSnapshot(MarketColumns columns, boolean stale) {
+            this.columns = columns;
+            this.stale = stale;
+        }
 
-        private MarketSnapshot(Map<String, Product> products) {
-            this.products = products;
+        public MarketColumns columns() {
+            return this.columns;
+        }
+
+        public boolean isStale() {
+            return this.stale;
         }
 
         public int size() {
-            return this.products.size();
+            return this.columns.size();
+        }
+
+        /**
+         * @return the handle of the product in this snapshot or {@link ProductHandles#ABSENT} if it is not listed
+         */
+        public int handle(ProductIdentity product) {
+            var productId = product.bazaarProductId();
+            return productId.isPresent() ? this.columns.handle(productId.get()) : ProductHandles.ABSENT;
         }
 
         public boolean contains(ProductIdentity product) {
-            return this.rawProduct(product).isPresent();
+            return this.handle(product) != ProductHandles.ABSENT;
         }
 
         public Optional<Double> lowestSellOfferPrice(ProductIdentity product) {
-            return this.rawProduct(product)
-                .flatMap(prod -> firstSummaryPrice(prod.getBuySummary()));
+            return optionalPrice(this.lowestSellOfferPrice(this.handle(product)));
         }
 
         public Optional<Double> highestBuyOrderPrice(ProductIdentity product) {
-            return this.rawProduct(product)
-                .flatMap(prod -> firstSummaryPrice(prod.getSellSummary()));
+            return optionalPrice(this.highestBuyOrderPrice(this.handle(product)));
+        }
+
+        /**
+         * @return the lowest sell offer price or {@link Double#NaN} if the product is absent or has no sell offers
+         */
+        public double lowestSellOfferPrice(int handle) {
+            return handle == ProductHandles.ABSENT ? Double.NaN : this.columns.bestSellOfferPrice(handle);
+        }
+
+        /**
+         * @return the highest buy order price or {@link Double#NaN} if the product is absent or has no buy orders
+         */
+        public double highestBuyOrderPrice(int handle) {
+            return handle == ProductHandles.ABSENT ? Double.NaN : this.columns.bestBuyOrderPrice(handle);
         }
 
         public MarketPrices getMarketPrices(ProductIdentity product) {
+            int handle = this.handle(product);
             return new MarketPrices(
-                this.highestBuyOrderPrice(product),
-                this.lowestSellOfferPrice(product)
+                optionalPrice(this.highestBuyOrderPrice(handle)),
+                optionalPrice(this.lowestSellOfferPrice(handle))
             );
         }
 
         public Optional<Double> productSpread(ProductIdentity product) {
-            return Utils.zipOptionals(
-                this.lowestSellOfferPrice(product),
-                this.highestBuyOrderPrice(product)
-            ).map(pair -> pair.getLeft() - pair.getRight());
+            return optionalPrice(this.productSpread(this.handle(product)));
+        }
+
+        /**
+         * @return sell offer minus buy order price or {@link Double#NaN} if either side is missing
+         */
+        public double productSpread(int handle) {
+            return this.lowestSellOfferPrice(handle) - this.highestBuyOrderPrice(handle);
         }
 
         public OrderLists getOrderLists(ProductIdentity product) {
-            // Hypixel summary names are action-based: sell_summary is actual buy orders, buy_summary is actual sell offers.
-            return this.rawProduct(product)
-                .map(prod -> new OrderLists(
-                    Optional.ofNullable(prod.getSellSummary()).orElse(List.of()),
-                    Optional.ofNullable(prod.getBuySummary()).orElse(List.of())
-                ))
-                .orElse(OrderLists.empty());
+            int handle = this.handle(product);
+            if (handle == ProductHandles.ABSENT) {
+                return OrderLists.empty();
+            }
+
+            return new OrderLists(this.columns.buyOrders(handle), this.columns.sellOffers(handle));
         }
 
-        public List<Summary> summariesForOrderType(ProductIdentity product, OrderType orderType) {
-            var lists = this.getOrderLists(product);
+        public OrderBookSide summariesForOrderType(ProductIdentity product, OrderType orderType) {
+            return this.summariesForOrderType(this.handle(product), orderType);
+        }
+
+        public OrderBookSide summariesForOrderType(int handle, OrderType orderType) {
+            if (handle == ProductHandles.ABSENT) {
+                return OrderBookSide.EMPTY;
+            }
+
             return switch (orderType) {
-                case Buy -> lists.buyOrders();
-                case Sell -> lists.sellOffers();
+                case Buy -> this.columns.buyOrders(handle);
+                case Sell -> this.columns.sellOffers(handle);
             };
         }
 
-        private Optional<Product> rawProduct(ProductIdentity product) {
-            return product.bazaarProductId().map(this.products::get);
+        private static Optional<Double> optionalPrice(double price) {
+            return Double.isNaN(price) ? Optional.empty() : Optional.of(price);
         }
     }
 
@@ -329,19 +564,21 @@ public class BazaarData {
         private IndexedProduct product;
         private final BazaarData data;
         private final Consumer<MarketSnapshot> updater;
-        private final Runnable indexUpdater;
-        @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
-        @Getter
-        private Optional<Product> bazaarProduct;
+        private final Consumer<ConversionChangeSet> indexUpdater;
+        private MarketSnapshot snapshot;
+        private int handle = ProductHandles.ABSENT;
         private boolean listenerRegistered = false;
 
         public TrackedProduct(BazaarData data, IndexedProduct product) {
             this.data = data;
             this.product = product;
-            this.bazaarProduct = Optional.empty();
 
-            this.updater = snapshot -> this.bazaarProduct = snapshot.rawProduct(ProductIdentity.fromIndex(this.product));
-            this.indexUpdater = this::refreshProduct;
+            this.updater = this::updateSnapshot;
+            this.indexUpdater = changes -> {
+                if (changes.affects(this.product.productId())) {
+                    this.refreshProduct();
+                }
+            };
         }
 
         public String getProductName() {
@@ -363,21 +600,18 @@ public class BazaarData {
         public Optional<Double> getSellOfferPrice() {
             this.ensureInitialized();
 
-            return this.bazaarProduct.flatMap(
-                prod -> Utils.getFirst(prod.getBuySummary()).map(Summary::getPricePerUnit)
-            );
+            return MarketSnapshot.optionalPrice(this.snapshot.lowestSellOfferPrice(this.handle));
         }
 
         public Optional<Double> getBuyOrderPrice() {
             this.ensureInitialized();
 
-            return this.bazaarProduct.flatMap(
-                prod -> Utils.getFirst(prod.getSellSummary()).map(Summary::getPricePerUnit)
-            );
+            return MarketSnapshot.optionalPrice(this.snapshot.highestBuyOrderPrice(this.handle));
         }
 
         public void destroy() {
-            this.bazaarProduct = Optional.empty();
+            this.snapshot = null;
+            this.handle = ProductHandles.ABSENT;
             this.data.removeListener(this.updater);
             this.data.removeIndexChangeListener(this.indexUpdater);
             this.listenerRegistered = false;
@@ -385,7 +619,12 @@ public class BazaarData {
 
         private void refreshProduct() {
             this.product = this.data.refreshIndexedProduct(this.product);
-            this.bazaarProduct = this.data.currentSnapshot().rawProduct(ProductIdentity.fromIndex(this.product));
+            this.updateSnapshot(this.data.currentSnapshot());
+        }
+
+        private void updateSnapshot(MarketSnapshot snapshot) {
+            this.snapshot = snapshot;
+            this.handle = snapshot.handle(ProductIdentity.fromIndex(this.product));
         }
     }
 }
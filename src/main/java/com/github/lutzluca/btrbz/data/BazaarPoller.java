@@ -1,22 +1,31 @@
 package com.github.lutzluca.btrbz.data;
 
+import com.github.lutzluca.btrbz.data.BazaarReplyDecoder.DecodedReply;
 import com.github.lutzluca.btrbz.mixin.SkyBlockBazaarReplyAccessor;
 import com.github.lutzluca.btrbz.utils.Utils;
 import io.vavr.control.Try;
-import java.util.Map;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
-import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
 import lombok.extern.slf4j.Slf4j;
 import net.hypixel.api.HypixelAPI;
 import net.hypixel.api.apache.ApacheHttpClient;
 import net.hypixel.api.reply.skyblock.SkyBlockBazaarReply;
-import net.hypixel.api.reply.skyblock.SkyBlockBazaarReply.Product;
 import net.minecraft.client.Minecraft;
 import org.jetbrains.annotations.NotNull;
 
@@ -29,20 +38,18 @@ import org.jetbrains.annotations.NotNull;
 @Slf4j
 public class BazaarPoller {
 
-    /*
-     * maybe on unchanged data use exponential backoff, starting at 100ms, doubling each time up a
-     * max as unchanged data should indicate that the bz has not been updated and should update soon
-     * (this should be the case most of the time, else the API is unable to respond with updated
-     * data). But this is good enough for "now".
-     */
-
     public static final HypixelAPI API = new HypixelAPI(new ApacheHttpClient(getApiKey()));
-    private static final long BAZAAR_UPDATE_TIME_MS = 20_000;
-    private static final long UNCHANGED_DATA_BACKOFF_MS = 250;
-    private static final long ERROR_BACKOFF_MS = 500;
-    private static final int MAX_UNCHANGED_RETRIES = 5;
-
-    private final Consumer<Map<String, Product>> onReply;
+    private static final URI BAZAAR_URI = URI.create("https://api.hypixel.net/v2/skyblock/bazaar");
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(15);
+    private static final HttpClient HTTP_CLIENT = HttpClient
+        .newBuilder()
+        .connectTimeout(Duration.ofSeconds(10))
+        .followRedirects(HttpClient.Redirect.NORMAL)
+        .build();
+
+    private final ProductHandles handles;
+    private final Supplier<FetchMode> fetchMode;
+    private final Function<MarketColumns, Runnable> prepareUpdate;
 
     private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
         Thread thread = new Thread(r, "bazaar-poller");
@@ -50,11 +57,18 @@ public class BazaarPoller {
         return thread;
     });
 
+    private final PollScheduler pollScheduler = new PollScheduler();
+
     private long lastKnownUpdateTime = -1;
-    private int unchangedDataRetries = 0;
 
-    public BazaarPoller(@NotNull Consumer<Map<String, Product>> onReply) {
-        this.onReply = Objects.requireNonNull(onReply);
+    public BazaarPoller(
+        @NotNull ProductHandles handles,
+        @NotNull Supplier<FetchMode> fetchMode,
+        @NotNull Function<MarketColumns, Runnable> prepareUpdate
+    ) {
+        this.handles = Objects.requireNonNull(handles);
+        this.fetchMode = Objects.requireNonNull(fetchMode);
+        this.prepareUpdate = Objects.requireNonNull(prepareUpdate);
         this.scheduleFetch(0, "Initial fetch");
     }
 
@@ -71,6 +85,78 @@ public class BazaarPoller {
     }
 
     private void fetchBazaarData() {
+        var mode = Optional.ofNullable(this.fetchMode.get()).orElse(FetchMode.HypixelApi);
+        this.pollScheduler.onRequestSent();
+        switch (mode) {
+            case Streaming -> this.fetchStreaming();
+            case HypixelApi -> this.fetchFromHypixelApi();
+        }
+    }
+
+    private void fetchStreaming() {
+        var request = HttpRequest
+            .newBuilder(BAZAAR_URI)
+            .timeout(REQUEST_TIMEOUT)
+            .header("Accept", "application/json")
+            .header("Accept-Encoding", "gzip")
+            .GET()
+            .build();
+
+        // @formatter:off
+        HTTP_CLIENT.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream())
+           .whenCompleteAsync(
+               (response, throwable) -> {
+                   if (throwable != null) {
+                       this.handleFetchError(throwable);
+                       return;
+                   }
+
+                   Try.of(() -> this.decodeResponse(response))
+                      .onSuccess(this::processDecodedReply)
+                      .onFailure(this::handleFetchError);
+               },
+               this.scheduler
+           );
+        // @formatter:on
+    }
+
+    private DecodedReply decodeResponse(HttpResponse<InputStream> response) throws IOException {
+        try (var body = response.body()) {
+            if (response.statusCode() != 200) {
+                throw new IOException("Bazaar request failed: HTTP " + response.statusCode());
+            }
+
+            boolean gzip = response
+                .headers()
+                .firstValue("Content-Encoding")
+                .filter("gzip"::equalsIgnoreCase)
+                .isPresent();
+            var stream = gzip ? new GZIPInputStream(body) : body;
+            return BazaarReplyDecoder.decode(
+                new InputStreamReader(stream, StandardCharsets.UTF_8),
+                this.handles,
+                this.lastKnownUpdateTime
+            );
+        }
+    }
+
+    private void processDecodedReply(DecodedReply reply) {
+        if (!reply.success()) {
+            this.handleFetchError(new IllegalStateException(
+                "Bazaar reply unsuccessful" + (reply.cause() != null ? ": " + reply.cause() : "")
+            ));
+            return;
+        }
+
+        if (reply.lastUpdated() != this.lastKnownUpdateTime && reply.columns() == null) {
+            this.handleFetchError(new IllegalStateException("Bazaar reply contained no products"));
+            return;
+        }
+
+        this.processUpdate(reply.lastUpdated(), reply::columns);
+    }
+
+    private void fetchFromHypixelApi() {
         // @formatter:off
         API.getSkyBlockBazaar()
            .whenCompleteAsync(
@@ -100,76 +186,70 @@ public class BazaarPoller {
     private void processBazaarReply(SkyBlockBazaarReply reply) {
         Try.of(() -> (SkyBlockBazaarReplyAccessor) reply).onSuccess((accessor) -> {
             long currentUpdateTime = accessor.getLastUpdated();
-            boolean changed = currentUpdateTime != this.lastKnownUpdateTime;
-
-            if (changed) {
-                this.handleChangedData(currentUpdateTime, reply.getProducts());
-            } else {
-                this.handleUnchangedData();
-            }
-
-            this.lastKnownUpdateTime = currentUpdateTime;
-            log.trace(
-                "Bazaar data fetched successfully - Data {}, Last Updated: {}",
-                changed ? "changed" : "unchanged",
-                Utils.formatUtcTimestampMillis(currentUpdateTime)
+            this.processUpdate(
+                currentUpdateTime,
+                () -> MarketColumns.fromProducts(this.handles, reply.getProducts(), currentUpdateTime)
             );
         }).onFailure(err -> {
             log.warn("Reply does not implement expected accessor.", err);
             this.scheduleFetch(
-                ERROR_BACKOFF_MS,
+                this.pollScheduler.onError(),
                 "Error recovery - SkyBlockBazaarReplyAccessor cast failed"
             );
         });
     }
 
-    private void handleChangedData(long currentUpdateTime, Map<String, Product> products) {
-        this.unchangedDataRetries = 0;
+    private void processUpdate(long currentUpdateTime, Supplier<MarketColumns> columns) {
+        boolean changed = currentUpdateTime != this.lastKnownUpdateTime;
+
+        if (changed) {
+            this.handleChangedData(currentUpdateTime, columns.get());
+        } else {
+            this.handleUnchangedData();
+        }
 
+        this.lastKnownUpdateTime = currentUpdateTime;
+        log.trace(
+            "Bazaar data fetched successfully - Data {}, Last Updated: {}",
+            changed ? "changed" : "unchanged",
+            Utils.formatUtcTimestampMillis(currentUpdateTime)
+        );
+    }
+
+    private void handleChangedData(long currentUpdateTime, MarketColumns columns) {
         if (this.lastKnownUpdateTime != -1) {
             long diffMs = currentUpdateTime - this.lastKnownUpdateTime;
             log.trace("Bazaar data updated after {}s", diffMs / 1000.0);
         }
 
-        Minecraft.getInstance().execute(() -> onReply.accept(products));
+        // the heavy part of the update runs here on the poller thread, the client thread only publishes the results
+        Try
+            .of(() -> this.prepareUpdate.apply(columns))
+            .onSuccess(publish -> Minecraft.getInstance().execute(publish))
+            .onFailure(err -> log.error("Failed to prepare bazaar update", err));
 
-        long jitter = ThreadLocalRandom.current().nextLong(200, 400);
-        this.scheduleFetch(BAZAAR_UPDATE_TIME_MS + jitter, "Regular interval fetch");
+        long delay = this.pollScheduler.onChanged(currentUpdateTime);
+        this.scheduleFetch(delay, String.format("Predicted next update in %dms", delay));
     }
 
     private void handleUnchangedData() {
-        this.unchangedDataRetries++;
-
-        if (this.unchangedDataRetries <= MAX_UNCHANGED_RETRIES) {
-            log.debug(
-                "Data unchanged (attempt {}/{}), retrying in {}ms",
-                this.unchangedDataRetries,
-                MAX_UNCHANGED_RETRIES,
-                UNCHANGED_DATA_BACKOFF_MS
-            );
-
-            this.scheduleFetch(
-                UNCHANGED_DATA_BACKOFF_MS,
-                String.format("Unchanged data retry #%d", this.unchangedDataRetries)
-            );
-        } else {
-            log.warn(
-                "Bazaar data has been unchanged for {} consecutive attempts. Reverting to normal polling interval. This may indicate an API issue.",
-                MAX_UNCHANGED_RETRIES
-            );
-
-            this.unchangedDataRetries = 0;
-            long jitter = ThreadLocalRandom.current().nextLong(200, 400);
-            this.scheduleFetch(BAZAAR_UPDATE_TIME_MS + jitter, "Post-unchanged-limit normal fetch");
-        }
+        long delay = this.pollScheduler.onUnchanged();
+        log.debug("Data unchanged, retrying in {}ms", delay);
+        this.scheduleFetch(delay, "Unchanged data retry");
     }
 
     private void handleFetchError(Throwable throwable) {
+        long delay = this.pollScheduler.onError();
         log.warn(
             "Error occurred while fetching bazaar data. Retrying in {}ms. {}",
-            ERROR_BACKOFF_MS,
+            delay,
             throwable.getMessage()
         );
-        this.scheduleFetch(ERROR_BACKOFF_MS, "Error recovery: API fetch error");
+        this.scheduleFetch(delay, "Error recovery: API fetch error");
+    }
+
+    public enum FetchMode {
+        Streaming,
+        HypixelApi
     }
 }
@@ -0,0 +1,178 @@
+package com.github.lutzluca.btrbz.data;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.IOException;
+import java.io.Reader;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Stream-decodes a {@code /v2/skyblock/bazaar} reply straight into {@link MarketColumns}.
+ * No JSON tree or Hypixel reply objects are built; every number is written into the column builder as it is read.
+ */
+public final class BazaarReplyDecoder {
+
+    private BazaarReplyDecoder() { }
+
+    /**
+     * @param knownLastUpdated when the reply reports this {@code lastUpdated} before its products, the products are
+     *                         skipped and {@link DecodedReply#columns()} is {@code null}
+     */
+    public static DecodedReply decode(
+        Reader reader,
+        ProductHandles handles,
+        long knownLastUpdated
+    ) throws IOException {
+        boolean success = false;
+        long lastUpdated = -1;
+        String cause = null;
+        MarketColumns.Builder builder = null;
+
+        try (var json = new JsonReader(reader)) {
+            json.beginObject();
+            while (json.hasNext()) {
+                switch (json.nextName()) {
+                    case "success" -> success = json.nextBoolean();
+                    case "cause" -> cause = nextNullableString(json);
+                    case "lastUpdated" -> lastUpdated = json.nextLong();
+                    case "products" -> {
+                        if (lastUpdated != -1 && lastUpdated == knownLastUpdated) {
+                            json.skipValue();
+                        } else {
+                            builder = MarketColumns.builder(handles);
+                            decodeProducts(json, builder);
+                        }
+                    }
+                    default -> json.skipValue();
+                }
+            }
+            json.endObject();
+        }
+
+        var columns = builder == null ? null : builder.lastUpdated(lastUpdated).build();
+        return new DecodedReply(success, lastUpdated, cause, columns);
+    }
+
+    private static void decodeProducts(JsonReader json, MarketColumns.Builder builder) throws IOException {
+        json.beginObject();
+        while (json.hasNext()) {
+            var productId = json.nextName();
+            if (json.peek() != JsonToken.BEGIN_OBJECT) {
+                json.skipValue();
+                continue;
+            }
+
+            builder.product(productId);
+            decodeProduct(json, builder);
+        }
+        json.endObject();
+    }
+
+    private static void decodeProduct(JsonReader json, MarketColumns.Builder builder) throws IOException {
+        json.beginObject();
+        while (json.hasNext()) {
+            // Hypixel summary names are action-based: sell_summary is actual buy orders, buy_summary is actual sell offers.
+            switch (json.nextName()) {
+                case "sell_summary" -> decodeLevels(json, builder, true);
+                case "buy_summary" -> decodeLevels(json, builder, false);
+                case "quick_status" -> decodeQuickStatus(json, builder);
+                default -> json.skipValue();
+            }
+        }
+        json.endObject();
+    }
+
+    private static void decodeLevels(
+        JsonReader json,
+        MarketColumns.Builder builder,
+        boolean buyOrders
+    ) throws IOException {
+        if (json.peek() != JsonToken.BEGIN_ARRAY) {
+            json.skipValue();
+            return;
+        }
+
+        json.beginArray();
+        while (json.hasNext()) {
+            if (json.peek() != JsonToken.BEGIN_OBJECT) {
+                json.skipValue();
+                continue;
+            }
+
+            double pricePerUnit = 0;
+            long amount = 0;
+            long orders = 0;
+
+            json.beginObject();
+            while (json.hasNext()) {
+                switch (json.nextName()) {
+                    case "pricePerUnit" -> pricePerUnit = json.nextDouble();
+                    case "amount" -> amount = json.nextLong();
+                    case "orders" -> orders = json.nextLong();
+                    default -> json.skipValue();
+                }
+            }
+            json.endObject();
+
+            if (buyOrders) {
+                builder.buyOrderLevel(pricePerUnit, amount, orders);
+            } else {
+                builder.sellOfferLevel(pricePerUnit, amount, orders);
+            }
+        }
+        json.endArray();
+    }
+
+    private static void decodeQuickStatus(JsonReader json, MarketColumns.Builder builder) throws IOException {
+        if (json.peek() != JsonToken.BEGIN_OBJECT) {
+            json.skipValue();
+            return;
+        }
+
+        double buyPrice = 0;
+        long buyVolume = 0;
+        long buyMovingWeek = 0;
+        long buyOrders = 0;
+        double sellPrice = 0;
+        long sellVolume = 0;
+        long sellMovingWeek = 0;
+        long sellOrders = 0;
+
+        json.beginObject();
+        while (json.hasNext()) {
+            switch (json.nextName()) {
+                case "buyPrice" -> buyPrice = json.nextDouble();
+                case "buyVolume" -> buyVolume = json.nextLong();
+                case "buyMovingWeek" -> buyMovingWeek = json.nextLong();
+                case "buyOrders" -> buyOrders = json.nextLong();
+                case "sellPrice" -> sellPrice = json.nextDouble();
+                case "sellVolume" -> sellVolume = json.nextLong();
+                case "sellMovingWeek" -> sellMovingWeek = json.nextLong();
+                case "sellOrders" -> sellOrders = json.nextLong();
+                default -> json.skipValue();
+            }
+        }
+        json.endObject();
+
+        builder.quickBuy(buyPrice, buyVolume, buyMovingWeek, buyOrders);
+        builder.quickSell(sellPrice, sellVolume, sellMovingWeek, sellOrders);
+    }
+
+    private static @Nullable String nextNullableString(JsonReader json) throws IOException {
+        if (json.peek() == JsonToken.NULL) {
+            json.nextNull();
+            return null;
+        }
+        return json.nextString();
+    }
+
+    /**
+     * @param columns {@code null} when the products were skipped because the reply was unchanged
+     */
+    public record DecodedReply(
+        boolean success,
+        long lastUpdated,
+        @Nullable String cause,
+        @Nullable MarketColumns columns
+    ) { }
+}
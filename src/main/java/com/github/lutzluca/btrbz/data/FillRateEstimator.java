@@ -0,0 +1,241 @@
+package com.github.lutzluca.btrbz.data;
+
+import com.github.lutzluca.btrbz.data.OrderModels.OrderType;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Estimates how fast the orders of a product fill from the changes observed between Bazaar updates.
+ * <p>
+ * Orders are filled by instant trades, and the quick status moving week is their rolling 7 day total. The volume traded
+ * since the moving week last moved is therefore its change plus the volume that left the window in the meantime,
+ * assumed to have left at the weekly average rate. While the moving week does not move, nothing was traded. A drop of
+ * the best level's amount at an unchanged price is taken as a lower bound. Every listed product is observed with each
+ * update, whether it changed or not, so the time a product sits unchanged counts as time without trades. The traded
+ * volume is accumulated into {@link #BUCKET_MILLIS} buckets, the last {@link #BUCKETS} of which make up the recent
+ * fill rates of a side. Moving averages per UTC hour scale the weekly average to the time of day, which is blended in
+ * as a prior so thin products with few observations fall back to it. Every side of every product keeps a fixed amount
+ * of state.
+ * <p>
+ * Updates are recorded on the thread preparing them, estimates may be requested from any thread.
+ */
+public final class FillRateEstimator implements MarketUpdateHandler {
+
+    static final long BUCKET_MILLIS = 5 * 60_000L;
+    static final int BUCKETS = 72;
+    private static final double WEEK_MINUTES = 7 * 24 * 60;
+    // longer gaps between updates, e.g. while offline, restart the observation instead of being spread over the gap
+    private static final long MAX_GAP_MILLIS = 15 * 60_000L;
+    // how many buckets the weekly average weighs when it is blended with the recent rates
+    private static final double PRIOR_BUCKETS = 12;
+    private static final double HOURLY_SMOOTHING = 0.2;
+
+    // filled by insta buys and insta sells respectively, indexed by product handle
+    private SideRates[] sellOffers = new SideRates[0];
+    private SideRates[] buyOrders = new SideRates[0];
+
+    @Override
+    public Runnable prepare(MarketDelta delta) {
+        var columns = delta.snapshot().columns();
+        long timestamp = columns.lastUpdated();
+        if (timestamp <= 0) {
+            return NOTHING;
+        }
+
+        synchronized (this) {
+            if (this.sellOffers.length < columns.capacity()) {
+                this.sellOffers = Arrays.copyOf(this.sellOffers, columns.capacity());
+                this.buyOrders = Arrays.copyOf(this.buyOrders, columns.capacity());
+            }
+
+            for (int i = 0; i < delta.size(); i++) {
+                int handle = delta.handle(i);
+                if (!columns.isPresent(handle)) {
+                    this.sellOffers[handle] = null;
+                    this.buyOrders[handle] = null;
+                }
+            }
+
+            for (int handle = 0; handle < columns.capacity(); handle++) {
+                if (!columns.isPresent(handle)) {
+                    continue;
+                }
+
+                sideRates(this.sellOffers, handle).observe(
+                    timestamp,
+                    columns.quickBuyMovingWeek(handle),
+                    columns.sellOffers(handle)
+                );
+                sideRates(this.buyOrders, handle).observe(
+                    timestamp,
+                    columns.quickSellMovingWeek(handle),
+                    columns.buyOrders(handle)
+                );
+            }
+        }
+        return NOTHING;
+    }
+
+    /**
+     * @param volume the volume that has to be traded until the order is filled, including the volume ahead of it
+     * @param now    the time the estimate is for, which selects the time of day
+     * @return how long filling the volume is expected to take, or empty if the product was not observed or is not
+     *     traded at all
+     */
+    public synchronized Optional<FillTimeEstimate> estimate(int handle, OrderType type, long volume, long now) {
+        var sides = type == OrderType.Sell ? this.sellOffers : this.buyOrders;
+        if (handle < 0 || handle >= sides.length || sides[handle] == null) {
+            return Optional.empty();
+        }
+        return sides[handle].estimate(volume, now);
+    }
+
+    private static SideRates sideRates(SideRates[] sides, int handle) {
+        var side = sides[handle];
+        if (side == null) {
+            side = new SideRates();
+            sides[handle] = side;
+        }
+        return side;
+    }
+
+    private static int hourOfDay(long timestamp) {
+        return (int) Math.floorMod(timestamp / 3_600_000L, 24L);
+    }
+
+    /**
+     * The time until an order fills at a fast, typical and slow fill rate, being the upper quartile, median and lower
+     * quartile of the recent rates blended with the weekly prior. The slow estimate is only infinite if both the lower
+     * quartile and the prior are zero.
+     */
+    public record FillTimeEstimate(double fastMinutes, double typicalMinutes, double slowMinutes) {
+
+        public static final FillTimeEstimate IMMEDIATE = new FillTimeEstimate(0, 0, 0);
+    }
+
+    private static final class SideRates {
+
+        // items per minute of the completed buckets, a ring buffer
+        private final double[] rates = new double[BUCKETS];
+        private final double[] hourlyRates = new double[24];
+        private int rateCount = 0;
+        private int nextRate = 0;
+        private double pendingVolume = 0;
+        private long pendingMillis = 0;
+
+        private long lastTimestamp = -1;
+        private long lastMovingWeek = 0;
+        private long movingWeekTimestamp = -1;
+        private double lastTopPrice = Double.NaN;
+        private long lastTopAmount = 0;
+
+        SideRates() {
+            Arrays.fill(this.hourlyRates, Double.NaN);
+        }
+
+        void observe(long timestamp, long movingWeek, OrderBookSide book) {
+            long elapsed = timestamp - this.lastTimestamp;
+            if (this.lastTimestamp >= 0 && elapsed <= 0) {
+                return;
+            }
+
+            double topPrice = book.isEmpty() ? Double.NaN : book.pricePerUnit(0);
+            long topAmount = book.isEmpty() ? 0 : book.amount(0);
+            if (this.lastTimestamp >= 0 && elapsed <= MAX_GAP_MILLIS) {
+                double traded = 0;
+                if (movingWeek != this.lastMovingWeek) {
+                    // the window may move in steps, so what left it since the last step is credited at once
+                    long windowMillis = timestamp - this.movingWeekTimestamp;
+                    double expired = this.lastMovingWeek * (windowMillis / 60_000.0) / WEEK_MINUTES;
+                    traded = Math.max(0, movingWeek - this.lastMovingWeek + expired);
+                    this.movingWeekTimestamp = timestamp;
+                }
+                if (topPrice == this.lastTopPrice && topAmount < this.lastTopAmount) {
+                    traded = Math.max(traded, this.lastTopAmount - topAmount);
+                }
+
+                this.pendingVolume += traded;
+                this.pendingMillis += elapsed;
+                if (this.pendingMillis >= BUCKET_MILLIS) {
+                    this.completeBucket(timestamp);
+                }
+            } else {
+                this.pendingVolume = 0;
+                this.pendingMillis = 0;
+                this.movingWeekTimestamp = timestamp;
+            }
+
+            this.lastTimestamp = timestamp;
+            this.lastMovingWeek = movingWeek;
+            this.lastTopPrice = topPrice;
+            this.lastTopAmount = topAmount;
+        }
+
+        private void completeBucket(long timestamp) {
+            double rate = this.pendingVolume / (this.pendingMillis / 60_000.0);
+            this.pendingVolume = 0;
+            this.pendingMillis = 0;
+
+            this.rates[this.nextRate] = rate;
+            this.nextRate = (this.nextRate + 1) % BUCKETS;
+            this.rateCount = Math.min(this.rateCount + 1, BUCKETS);
+
+            int hour = hourOfDay(timestamp);
+            double hourly = this.hourlyRates[hour];
+            this.hourlyRates[hour] = Double.isNaN(hourly)
+                ? rate
+                : hourly + HOURLY_SMOOTHING * (rate - hourly);
+        }
+
+        Optional<FillTimeEstimate> estimate(long volume, long now) {
+            if (volume <= 0) {
+                return Optional.of(FillTimeEstimate.IMMEDIATE);
+            }
+
+            double prior = this.lastMovingWeek / WEEK_MINUTES * this.timeOfDayFactor(hourOfDay(now));
+            var recent = Arrays.copyOf(this.rates, this.rateCount);
+            Arrays.sort(recent);
+
+            double typical = this.minutes(volume, prior, recent, 0.5);
+            if (Double.isInfinite(typical)) {
+                return Optional.empty();
+            }
+            return Optional.of(new FillTimeEstimate(
+                this.minutes(volume, prior, recent, 0.75),
+                typical,
+                this.minutes(volume, prior, recent, 0.25)
+            ));
+        }
+
+        private double minutes(long volume, double prior, double[] recent, double quantile) {
+            double observed = recent.length == 0 ? 0 : quantile(recent, quantile);
+            double rate = (recent.length * observed + PRIOR_BUCKETS * prior) / (recent.length + PRIOR_BUCKETS);
+            return rate > 0 ? volume / rate : Double.POSITIVE_INFINITY;
+        }
+
+        // how much busier this hour of the day was than the average observed hour
+        private double timeOfDayFactor(int hour) {
+            double hourly = this.hourlyRates[hour];
+            if (Double.isNaN(hourly)) {
+                return 1;
+            }
+
+            double sum = 0;
+            int hours = 0;
+            for (double rate : this.hourlyRates) {
+                if (!Double.isNaN(rate)) {
+                    sum += rate;
+                    hours++;
+                }
+            }
+            return sum > 0 ? Math.max(0.25, Math.min(hourly / (sum / hours), 4)) : 1;
+        }
+
+        private static double quantile(double[] sorted, double quantile) {
+            double position = quantile * (sorted.length - 1);
+            int lower = (int) position;
+            int upper = Math.min(lower + 1, sorted.length - 1);
+            return sorted[lower] + (position - lower) * (sorted[upper] - sorted[lower]);
+        }
+    }
+}
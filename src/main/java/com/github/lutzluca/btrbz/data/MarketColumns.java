@@ -0,0 +1,485 @@
+package com.github.lutzluca.btrbz.data;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import net.hypixel.api.reply.skyblock.SkyBlockBazaarReply.Product;
+import net.hypixel.api.reply.skyblock.SkyBlockBazaarReply.Product.Summary;
+
+/**
+ * Column-oriented storage for a single Bazaar poll.
+ * Every per-product array is indexed by a {@link ProductHandles} handle; the order book levels of all products are
+ * flattened into shared primitive arrays per side. Instances are immutable once built.
+ */
+public final class MarketColumns {
+
+    private final ProductHandles handles;
+    private final long lastUpdated;
+    private final int productCount;
+    private final boolean[] present;
+
+    // quick status keeps Hypixel's action-based naming: buyPrice is the insta-buy price, sellPrice the insta-sell price
+    private final double[] quickBuyPrice;
+    private final double[] quickSellPrice;
+    private final long[] quickBuyVolume;
+    private final long[] quickSellVolume;
+    private final long[] quickBuyMovingWeek;
+    private final long[] quickSellMovingWeek;
+    private final long[] quickBuyOrders;
+    private final long[] quickSellOrders;
+
+    private final BookColumns buyOrders;
+    private final BookColumns sellOffers;
+
+    private MarketColumns(Builder builder) {
+        int capacity = builder.capacity();
+
+        this.handles = builder.handles;
+        this.lastUpdated = builder.lastUpdated;
+        this.productCount = builder.productCount;
+        this.present = Arrays.copyOf(builder.present, capacity);
+        this.quickBuyPrice = Arrays.copyOf(builder.quickBuyPrice, capacity);
+        this.quickSellPrice = Arrays.copyOf(builder.quickSellPrice, capacity);
+        this.quickBuyVolume = Arrays.copyOf(builder.quickBuyVolume, capacity);
+        this.quickSellVolume = Arrays.copyOf(builder.quickSellVolume, capacity);
+        this.quickBuyMovingWeek = Arrays.copyOf(builder.quickBuyMovingWeek, capacity);
+        this.quickSellMovingWeek = Arrays.copyOf(builder.quickSellMovingWeek, capacity);
+        this.quickBuyOrders = Arrays.copyOf(builder.quickBuyOrders, capacity);
+        this.quickSellOrders = Arrays.copyOf(builder.quickSellOrders, capacity);
+        this.buyOrders = builder.buyOrders.build(capacity, true);
+        this.sellOffers = builder.sellOffers.build(capacity, false);
+    }
+
+    public static MarketColumns empty(ProductHandles handles) {
+        return new Builder(handles).build();
+    }
+
+    public static Builder builder(ProductHandles handles) {
+        return new Builder(handles);
+    }
+
+    public static MarketColumns fromProducts(ProductHandles handles, Map<String, Product> products, long lastUpdated) {
+        var builder = new Builder(handles).lastUpdated(lastUpdated);
+        if (products == null) {
+            return builder.build();
+        }
+
+        products.forEach((productId, product) -> {
+            if (productId == null || product == null) {
+                return;
+            }
+
+            builder.product(productId);
+            var qs = product.getQuickStatus();
+            if (qs != null) {
+                builder.quickBuy(qs.getBuyPrice(), qs.getBuyVolume(), qs.getBuyMovingWeek(), qs.getBuyOrders());
+                builder.quickSell(qs.getSellPrice(), qs.getSellVolume(), qs.getSellMovingWeek(), qs.getSellOrders());
+            }
+
+            // Hypixel summary names are action-based: sell_summary is actual buy orders, buy_summary is actual sell offers.
+            appendLevels(product.getSellSummary(), builder.buyOrders);
+            appendLevels(product.getBuySummary(), builder.sellOffers);
+        });
+        return builder.build();
+    }
+
+    private static void appendLevels(List<Summary> summaries, BookBuilder book) {
+        if (summaries == null) {
+            return;
+        }
+
+        for (var summary : summaries) {
+            if (summary != null) {
+                book.level(summary.getPricePerUnit(), summary.getAmount(), summary.getOrders());
+            }
+        }
+    }
+
+    public ProductHandles handles() {
+        return this.handles;
+    }
+
+    public long lastUpdated() {
+        return this.lastUpdated;
+    }
+
+    public int size() {
+        return this.productCount;
+    }
+
+    public int capacity() {
+        return this.present.length;
+    }
+
+    /**
+     * @return the handle of the product if it is part of this poll, {@link ProductHandles#ABSENT} otherwise
+     */
+    public int handle(String productId) {
+        int handle = this.handles.lookup(productId);
+        return this.isPresent(handle) ? handle : ProductHandles.ABSENT;
+    }
+
+    public boolean isPresent(int handle) {
+        return handle >= 0 && handle < this.present.length && this.present[handle];
+    }
+
+    public String productId(int handle) {
+        return this.handles.productId(handle);
+    }
+
+    /**
+     * @return the highest buy order price or {@link Double#NaN} if there are no buy orders
+     */
+    public double bestBuyOrderPrice(int handle) {
+        return this.buyOrders.best[handle];
+    }
+
+    /**
+     * @return the lowest sell offer price or {@link Double#NaN} if there are no sell offers
+     */
+    public double bestSellOfferPrice(int handle) {
+        return this.sellOffers.best[handle];
+    }
+
+    public OrderBookSide buyOrders(int handle) {
+        return this.buyOrders.view(handle);
+    }
+
+    public OrderBookSide sellOffers(int handle) {
+        return this.sellOffers.view(handle);
+    }
+
+    public double quickBuyPrice(int handle) {
+        return this.quickBuyPrice[handle];
+    }
+
+    public double quickSellPrice(int handle) {
+        return this.quickSellPrice[handle];
+    }
+
+    public long quickBuyVolume(int handle) {
+        return this.quickBuyVolume[handle];
+    }
+
+    public long quickSellVolume(int handle) {
+        return this.quickSellVolume[handle];
+    }
+
+    public long quickBuyMovingWeek(int handle) {
+        return this.quickBuyMovingWeek[handle];
+    }
+
+    public long quickSellMovingWeek(int handle) {
+        return this.quickSellMovingWeek[handle];
+    }
+
+    public long quickBuyOrders(int handle) {
+        return this.quickBuyOrders[handle];
+    }
+
+    public long quickSellOrders(int handle) {
+        return this.quickSellOrders[handle];
+    }
+
+    boolean quickStatusEquals(MarketColumns other, int handle) {
+        // @formatter:off
+        return Double.compare(this.quickBuyPrice[handle], other.quickBuyPrice[handle]) == 0
+            && Double.compare(this.quickSellPrice[handle], other.quickSellPrice[handle]) == 0
+            && this.quickBuyVolume[handle] == other.quickBuyVolume[handle]
+            && this.quickSellVolume[handle] == other.quickSellVolume[handle]
+            && this.quickBuyMovingWeek[handle] == other.quickBuyMovingWeek[handle]
+            && this.quickSellMovingWeek[handle] == other.quickSellMovingWeek[handle]
+            && this.quickBuyOrders[handle] == other.quickBuyOrders[handle]
+            && this.quickSellOrders[handle] == other.quickSellOrders[handle];
+        // @formatter:on
+    }
+
+    boolean topOfBookEquals(MarketColumns other, int handle) {
+        return this.buyOrders.levelsEqual(other.buyOrders, handle, 1)
+            && this.sellOffers.levelsEqual(other.sellOffers, handle, 1);
+    }
+
+    boolean booksEqual(MarketColumns other, int handle) {
+        return this.buyOrders.levelsEqual(other.buyOrders, handle, Integer.MAX_VALUE)
+            && this.sellOffers.levelsEqual(other.sellOffers, handle, Integer.MAX_VALUE);
+    }
+
+    static final class BookColumns {
+
+        private final double[] prices;
+        private final long[] amounts;
+        private final long[] orders;
+        private final long[] cumulativeAmounts;
+        private final long[] cumulativeOrders;
+        private final double[] cumulativeCoins;
+        private final int[] start;
+        private final int[] length;
+        private final boolean descending;
+        private final double[] best;
+        private final OrderBookSide[] views;
+
+        private BookColumns(
+            double[] prices,
+            long[] amounts,
+            long[] orders,
+            int[] start,
+            int[] length,
+            boolean descending
+        ) {
+            this.prices = prices;
+            this.amounts = amounts;
+            this.orders = orders;
+            this.cumulativeAmounts = new long[prices.length];
+            this.cumulativeOrders = new long[prices.length];
+            this.cumulativeCoins = new double[prices.length];
+            this.start = start;
+            this.length = length;
+            this.descending = descending;
+            this.best = new double[start.length];
+            this.views = new OrderBookSide[start.length];
+
+            for (int handle = 0; handle < start.length; handle++) {
+                this.best[handle] = length[handle] > 0 ? prices[start[handle]] : Double.NaN;
+
+                long cumulativeAmount = 0;
+                long cumulativeOrders = 0;
+                double cumulativeCoins = 0;
+                for (int level = start[handle]; level < start[handle] + length[handle]; level++) {
+                    cumulativeAmount += amounts[level];
+                    cumulativeOrders += orders[level];
+                    cumulativeCoins += prices[level] * amounts[level];
+                    this.cumulativeAmounts[level] = cumulativeAmount;
+                    this.cumulativeOrders[level] = cumulativeOrders;
+                    this.cumulativeCoins[level] = cumulativeCoins;
+                }
+            }
+        }
+
+        /**
+         * Compares the first {@code maxLevels} levels of a product on this side against the same side of another
+         * snapshot. Sides of different lengths are only equal if both are cut off by {@code maxLevels}.
+         */
+        boolean levelsEqual(BookColumns other, int handle, int maxLevels) {
+            int length = Math.min(this.length[handle], maxLevels);
+            if (length != Math.min(other.length[handle], maxLevels)) {
+                return false;
+            }
+
+            int start = this.start[handle];
+            int otherStart = other.start[handle];
+            for (int level = 0; level < length; level++) {
+                // @formatter:off
+                if (Double.compare(this.prices[start + level], other.prices[otherStart + level]) != 0
+                    || this.amounts[start + level] != other.amounts[otherStart + level]
+                    || this.orders[start + level] != other.orders[otherStart + level]) {
+                    return false;
+                }
+                // @formatter:on
+            }
+            return true;
+        }
+
+        OrderBookSide view(int handle) {
+            if (handle < 0 || handle >= this.length.length || this.length[handle] == 0) {
+                return OrderBookSide.EMPTY;
+            }
+
+            // racy single-check: views are immutable, so a duplicate instance on a concurrent first access is harmless
+            var view = this.views[handle];
+            if (view == null) {
+                view = new OrderBookSide(
+                    this.prices,
+                    this.amounts,
+                    this.orders,
+                    this.cumulativeAmounts,
+                    this.cumulativeOrders,
+                    this.cumulativeCoins,
+                    this.start[handle],
+                    this.length[handle],
+                    this.descending
+                );
+                this.views[handle] = view;
+            }
+            return view;
+        }
+    }
+
+    static final class BookBuilder {
+
+        private double[] prices = new double[1024];
+        private long[] amounts = new long[1024];
+        private long[] orders = new long[1024];
+        private int levelCount = 0;
+        private int[] start;
+        private int[] length;
+        private int current = ProductHandles.ABSENT;
+
+        private BookBuilder(int capacity) {
+            this.start = new int[capacity];
+            this.length = new int[capacity];
+        }
+
+        private void begin(int handle) {
+            this.ensureProductCapacity(handle + 1);
+            this.current = handle;
+            this.start[handle] = this.levelCount;
+            this.length[handle] = 0;
+        }
+
+        void level(double pricePerUnit, long amount, long orderCount) {
+            if (this.current == ProductHandles.ABSENT) {
+                throw new IllegalStateException("No product started before adding an order book level");
+            }
+
+            if (this.levelCount == this.prices.length) {
+                int grown = this.prices.length * 2;
+                this.prices = Arrays.copyOf(this.prices, grown);
+                this.amounts = Arrays.copyOf(this.amounts, grown);
+                this.orders = Arrays.copyOf(this.orders, grown);
+            }
+
+            this.prices[this.levelCount] = pricePerUnit;
+            this.amounts[this.levelCount] = amount;
+            this.orders[this.levelCount] = orderCount;
+            this.levelCount++;
+            this.length[this.current]++;
+        }
+
+        private void ensureProductCapacity(int capacity) {
+            if (capacity > this.start.length) {
+                int grown = Math.max(capacity, this.start.length * 2);
+                this.start = Arrays.copyOf(this.start, grown);
+                this.length = Arrays.copyOf(this.length, grown);
+            }
+        }
+
+        private BookColumns build(int capacity, boolean descending) {
+            this.ensureProductCapacity(capacity);
+            return new BookColumns(
+                Arrays.copyOf(this.prices, this.levelCount),
+                Arrays.copyOf(this.amounts, this.levelCount),
+                Arrays.copyOf(this.orders, this.levelCount),
+                Arrays.copyOf(this.start, capacity),
+                Arrays.copyOf(this.length, capacity),
+                descending
+            );
+        }
+    }
+
+    public static final class Builder {
+
+        private final ProductHandles handles;
+        private final BookBuilder buyOrders;
+        private final BookBuilder sellOffers;
+        private long lastUpdated = -1;
+        private int productCount = 0;
+        private int current = ProductHandles.ABSENT;
+
+        private boolean[] present;
+        private double[] quickBuyPrice;
+        private double[] quickSellPrice;
+        private long[] quickBuyVolume;
+        private long[] quickSellVolume;
+        private long[] quickBuyMovingWeek;
+        private long[] quickSellMovingWeek;
+        private long[] quickBuyOrders;
+        private long[] quickSellOrders;
+
+        private Builder(ProductHandles handles) {
+            int capacity = Math.max(16, handles.size());
+
+            this.handles = handles;
+            this.buyOrders = new BookBuilder(capacity);
+            this.sellOffers = new BookBuilder(capacity);
+            this.present = new boolean[capacity];
+            this.quickBuyPrice = new double[capacity];
+            this.quickSellPrice = new double[capacity];
+            this.quickBuyVolume = new long[capacity];
+            this.quickSellVolume = new long[capacity];
+            this.quickBuyMovingWeek = new long[capacity];
+            this.quickSellMovingWeek = new long[capacity];
+            this.quickBuyOrders = new long[capacity];
+            this.quickSellOrders = new long[capacity];
+        }
+
+        public Builder lastUpdated(long lastUpdated) {
+            this.lastUpdated = lastUpdated;
+            return this;
+        }
+
+        /**
+         * Starts a new product. Quick status and order book levels added afterward belong to this product until the
+         * next call.
+         */
+        public int product(String productId) {
+            int handle = this.handles.intern(productId);
+            this.ensureCapacity(handle + 1);
+            if (this.present[handle]) {
+                throw new IllegalStateException("Product '" + productId + "' was added twice to the same snapshot");
+            }
+
+            this.present[handle] = true;
+            this.productCount++;
+            this.current = handle;
+            this.buyOrders.begin(handle);
+            this.sellOffers.begin(handle);
+            return handle;
+        }
+
+        public void quickBuy(double price, long volume, long movingWeek, long orders) {
+            int handle = this.requireProduct();
+            this.quickBuyPrice[handle] = price;
+            this.quickBuyVolume[handle] = volume;
+            this.quickBuyMovingWeek[handle] = movingWeek;
+            this.quickBuyOrders[handle] = orders;
+        }
+
+        public void quickSell(double price, long volume, long movingWeek, long orders) {
+            int handle = this.requireProduct();
+            this.quickSellPrice[handle] = price;
+            this.quickSellVolume[handle] = volume;
+            this.quickSellMovingWeek[handle] = movingWeek;
+            this.quickSellOrders[handle] = orders;
+        }
+
+        public void buyOrderLevel(double pricePerUnit, long amount, long orders) {
+            this.buyOrders.level(pricePerUnit, amount, orders);
+        }
+
+        public void sellOfferLevel(double pricePerUnit, long amount, long orders) {
+            this.sellOffers.level(pricePerUnit, amount, orders);
+        }
+
+        public MarketColumns build() {
+            return new MarketColumns(this);
+        }
+
+        private int capacity() {
+            return Math.max(this.handles.size(), this.present.length);
+        }
+
+        private int requireProduct() {
+            if (this.current == ProductHandles.ABSENT) {
+                throw new IllegalStateException("No product started before adding quick status");
+            }
+            return this.current;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity <= this.present.length) {
+                return;
+            }
+
+            int grown = Math.max(capacity, this.present.length * 2);
+            this.present = Arrays.copyOf(this.present, grown);
+            this.quickBuyPrice = Arrays.copyOf(this.quickBuyPrice, grown);
+            this.quickSellPrice = Arrays.copyOf(this.quickSellPrice, grown);
+            this.quickBuyVolume = Arrays.copyOf(this.quickBuyVolume, grown);
+            this.quickSellVolume = Arrays.copyOf(this.quickSellVolume, grown);
+            this.quickBuyMovingWeek = Arrays.copyOf(this.quickBuyMovingWeek, grown);
+            this.quickSellMovingWeek = Arrays.copyOf(this.quickSellMovingWeek, grown);
+            this.quickBuyOrders = Arrays.copyOf(this.quickBuyOrders, grown);
+            this.quickSellOrders = Arrays.copyOf(this.quickSellOrders, grown);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.github.lutzluca.btrbz.data;
+
+import com.github.lutzluca.btrbz.data.BazaarData.MarketSnapshot;
+import java.util.Arrays;
+
+/**
+ * The products that changed between two consecutive market snapshots.
+ * <p>
+ * Products that were listed in one snapshot but not the other count as changed in every {@link Change}. Products that
+ * are identical in both snapshots are not part of the delta at all.
+ */
+public final class MarketDelta {
+
+    private final MarketSnapshot previous;
+    private final MarketSnapshot snapshot;
+    private final int[] changedHandles;
+    private final byte[] changes;
+
+    private MarketDelta(MarketSnapshot previous, MarketSnapshot snapshot, int[] changedHandles, byte[] changes) {
+        this.previous = previous;
+        this.snapshot = snapshot;
+        this.changedHandles = changedHandles;
+        this.changes = changes;
+    }
+
+    static MarketDelta between(MarketSnapshot previous, MarketSnapshot snapshot) {
+        var before = previous.columns();
+        var after = snapshot.columns();
+        int capacity = Math.max(before.capacity(), after.capacity());
+
+        var changes = new byte[capacity];
+        var changedHandles = new int[capacity];
+        int changedCount = 0;
+
+        for (int handle = 0; handle < capacity; handle++) {
+            int mask = changeMask(before, after, handle);
+            if (mask != 0) {
+                changes[handle] = (byte) mask;
+                changedHandles[changedCount++] = handle;
+            }
+        }
+
+        return new MarketDelta(previous, snapshot, Arrays.copyOf(changedHandles, changedCount), changes);
+    }
+
+    private static int changeMask(MarketColumns before, MarketColumns after, int handle) {
+        boolean wasPresent = before.isPresent(handle);
+        boolean isPresent = after.isPresent(handle);
+        if (wasPresent != isPresent) {
+            return Change.ALL;
+        }
+        if (!isPresent) {
+            return 0;
+        }
+
+        int mask = 0;
+        if (!after.topOfBookEquals(before, handle)) {
+            mask |= Change.TopOfBook.mask() | Change.Depth.mask();
+        } else if (!after.booksEqual(before, handle)) {
+            mask |= Change.Depth.mask();
+        }
+        if (!after.quickStatusEquals(before, handle)) {
+            mask |= Change.QuickStatus.mask();
+        }
+        return mask;
+    }
+
+    public MarketSnapshot previous() {
+        return this.previous;
+    }
+
+    public MarketSnapshot snapshot() {
+        return this.snapshot;
+    }
+
+    public int size() {
+        return this.changedHandles.length;
+    }
+
+    public boolean isEmpty() {
+        return this.changedHandles.length == 0;
+    }
+
+    /**
+     * @param index position in this delta, {@code 0 <= index < size()}
+     * @return the handle of the changed product, valid for {@link #snapshot()} unless the product was delisted
+     */
+    public int handle(int index) {
+        return this.changedHandles[index];
+    }
+
+    public boolean contains(int handle) {
+        return handle >= 0 && handle < this.changes.length && this.changes[handle] != 0;
+    }
+
+    public boolean contains(ProductIdentity product) {
+        return this.contains(this.lookup(product));
+    }
+
+    public boolean changed(int handle, Change change) {
+        return this.contains(handle) && (this.changes[handle] & change.mask()) != 0;
+    }
+
+    public boolean changed(ProductIdentity product, Change change) {
+        return this.changed(this.lookup(product), change);
+    }
+
+    private int lookup(ProductIdentity product) {
+        // look up through the shared handles so products that were just delisted still resolve
+        var productId = product.bazaarProductId();
+        return productId.isPresent()
+            ? this.snapshot.columns().handles().lookup(productId.get())
+            : ProductHandles.ABSENT;
+    }
+
+    public enum Change {
+        /**
+         * The product was added to or removed from the bazaar.
+         */
+        Listing,
+        /**
+         * The best level of either side changed in price, amount or order count.
+         */
+        TopOfBook,
+        /**
+         * Any level of either side changed, including the best one.
+         */
+        Depth,
+        QuickStatus;
+
+        private static final int ALL = (1 << values().length) - 1;
+
+        int mask() {
+            return 1 << this.ordinal();
+        }
+    }
+}
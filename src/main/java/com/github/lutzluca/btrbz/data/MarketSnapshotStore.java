@@ -0,0 +1,200 @@
+package com.github.lutzluca.btrbz.data;
+
+import com.github.lutzluca.btrbz.utils.Utils;
+import io.vavr.control.Try;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Persists the last {@link MarketColumns} in a compact binary file, so prices are available right after a restart
+ * instead of only after the first poll.
+ * <p>
+ * The file holds a header followed by one record per listed product: its id, the quick status and both order book
+ * sides. Prices are stored as raw doubles, while volumes and order counts are stored as unsigned varints since they
+ * are small for most levels. Writes are encoded and flushed on a background thread; a newer snapshot replaces one
+ * that is still waiting to be written.
+ */
+@Slf4j
+public final class MarketSnapshotStore {
+
+    private static final int MAGIC = 0x42545A53;
+    private static final int VERSION = 1;
+    // a mapping keeps the file open on Windows, which would make the next atomic replace fail
+    private static final boolean MAP_FILES = !System
+        .getProperty("os.name", "")
+        .toLowerCase(Locale.ROOT)
+        .startsWith("windows");
+
+    private final Path path;
+    private final Executor executor;
+    private final AtomicReference<MarketColumns> pending = new AtomicReference<>();
+
+    public MarketSnapshotStore(Path path) {
+        this(path, Executors.newSingleThreadExecutor(runnable -> {
+            var thread = new Thread(runnable, "btrbz-market-snapshot-writer");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    MarketSnapshotStore(Path path, Executor executor) {
+        this.path = path;
+        this.executor = executor;
+    }
+
+    public Try<MarketColumns> load(ProductHandles handles) {
+        return Try.of(() -> decode(this.read(), handles));
+    }
+
+    private ByteBuffer read() throws IOException {
+        if (!MAP_FILES) {
+            return ByteBuffer.wrap(Files.readAllBytes(this.path));
+        }
+
+        // the mapping stays valid after the channel is closed
+        try (var channel = FileChannel.open(this.path, StandardOpenOption.READ)) {
+            return channel.map(MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    /**
+     * Schedules the columns to be written. Only the latest columns are written if several are submitted before the
+     * writer gets to them.
+     */
+    public void save(MarketColumns columns) {
+        if (this.pending.getAndSet(columns) == null) {
+            this.executor.execute(this::writePending);
+        }
+    }
+
+    private void writePending() {
+        var columns = this.pending.getAndSet(null);
+        if (columns == null) {
+            return;
+        }
+
+        Try
+            .of(() -> encode(columns))
+            .flatMap(bytes -> Utils.atomicDumpToFile(this.path, bytes))
+            .onSuccess(path -> log.trace("Saved market snapshot with {} products to '{}'", columns.size(), path))
+            .onFailure(err -> log.warn("Failed to save market snapshot to '{}'", this.path, err));
+    }
+
+    static byte[] encode(MarketColumns columns) throws IOException {
+        var bytes = new ByteArrayOutputStream(64 * 1024);
+        var out = new DataOutputStream(bytes);
+
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(columns.lastUpdated());
+        out.writeInt(columns.size());
+
+        for (int handle = 0; handle < columns.capacity(); handle++) {
+            if (!columns.isPresent(handle)) {
+                continue;
+            }
+
+            var productId = columns.productId(handle).getBytes(StandardCharsets.UTF_8);
+            writeVarLong(out, productId.length);
+            out.write(productId);
+
+            out.writeDouble(columns.quickBuyPrice(handle));
+            writeVarLong(out, columns.quickBuyVolume(handle));
+            writeVarLong(out, columns.quickBuyMovingWeek(handle));
+            writeVarLong(out, columns.quickBuyOrders(handle));
+            out.writeDouble(columns.quickSellPrice(handle));
+            writeVarLong(out, columns.quickSellVolume(handle));
+            writeVarLong(out, columns.quickSellMovingWeek(handle));
+            writeVarLong(out, columns.quickSellOrders(handle));
+
+            writeSide(out, columns.buyOrders(handle));
+            writeSide(out, columns.sellOffers(handle));
+        }
+
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    static MarketColumns decode(ByteBuffer buffer, ProductHandles handles) throws IOException {
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a market snapshot file");
+            }
+
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported market snapshot version " + version);
+            }
+
+            var builder = MarketColumns.builder(handles).lastUpdated(buffer.getLong());
+            int productCount = buffer.getInt();
+            for (int i = 0; i < productCount; i++) {
+                long idLength = readVarLong(buffer);
+                if (idLength > buffer.remaining()) {
+                    throw new IOException("Product id length " + idLength + " exceeds the market snapshot file");
+                }
+                var productId = new byte[(int) idLength];
+                buffer.get(productId);
+                builder.product(new String(productId, StandardCharsets.UTF_8));
+
+                builder.quickBuy(buffer.getDouble(), readVarLong(buffer), readVarLong(buffer), readVarLong(buffer));
+                builder.quickSell(buffer.getDouble(), readVarLong(buffer), readVarLong(buffer), readVarLong(buffer));
+
+                int buyOrders = (int) readVarLong(buffer);
+                for (int level = 0; level < buyOrders; level++) {
+                    builder.buyOrderLevel(buffer.getDouble(), readVarLong(buffer), readVarLong(buffer));
+                }
+                int sellOffers = (int) readVarLong(buffer);
+                for (int level = 0; level < sellOffers; level++) {
+                    builder.sellOfferLevel(buffer.getDouble(), readVarLong(buffer), readVarLong(buffer));
+                }
+            }
+            return builder.build();
+        } catch (BufferUnderflowException | IllegalStateException err) {
+            throw new IOException("Corrupted market snapshot file", err);
+        }
+    }
+
+    private static void writeSide(DataOutputStream out, OrderBookSide side) throws IOException {
+        writeVarLong(out, side.size());
+        for (int level = 0; level < side.size(); level++) {
+            out.writeDouble(side.pricePerUnit(level));
+            writeVarLong(out, side.amount(level));
+            writeVarLong(out, side.orders(level));
+        }
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(ByteBuffer buffer) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in market snapshot file");
+    }
+}
@@ -0,0 +1,17 @@
+package com.github.lutzluca.btrbz.data;
+
+/**
+ * A bazaar update consumer split into a preparation phase and a publishing phase.
+ * <p>
+ * {@link #prepare(MarketDelta)} runs on the bazaar worker thread before the snapshot is published. It may only read
+ * the delta, its snapshots and immutable copies of its own state. The returned task runs on the client thread right
+ * after the snapshot is published and should only apply the prepared results, revalidating anything that may have
+ * changed in the meantime.
+ */
+@FunctionalInterface
+public interface MarketUpdateHandler {
+
+    Runnable NOTHING = () -> { };
+
+    Runnable prepare(MarketDelta delta);
+}
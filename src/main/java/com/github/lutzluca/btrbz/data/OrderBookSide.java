@@ -0,0 +1,249 @@
+package com.github.lutzluca.btrbz.data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read-only view over one side of a product's order book inside a {@link MarketColumns} snapshot.
+ * Level 0 is always the best price of the side. The depth queries read running totals computed once per snapshot and
+ * binary search the prices, so they take logarithmic time and allocate nothing. The same holds for the cost of an
+ * instant trade, which takes the volume off the side level by level starting at the best price.
+ */
+public final class OrderBookSide {
+
+    public static final OrderBookSide EMPTY = new OrderBookSide(
+        new double[0],
+        new long[0],
+        new long[0],
+        new long[0],
+        new long[0],
+        new double[0],
+        0,
+        0,
+        false
+    );
+
+    private final double[] prices;
+    private final long[] amounts;
+    private final long[] orders;
+    // the totals of the levels from the best one up to and including each level
+    private final long[] cumulativeAmounts;
+    private final long[] cumulativeOrders;
+    private final double[] cumulativeCoins;
+    private final int offset;
+    private final int size;
+    // buy orders list their best, highest price first, sell offers their lowest
+    private final boolean descending;
+
+    OrderBookSide(
+        double[] prices,
+        long[] amounts,
+        long[] orders,
+        long[] cumulativeAmounts,
+        long[] cumulativeOrders,
+        double[] cumulativeCoins,
+        int offset,
+        int size,
+        boolean descending
+    ) {
+        this.prices = prices;
+        this.amounts = amounts;
+        this.orders = orders;
+        this.cumulativeAmounts = cumulativeAmounts;
+        this.cumulativeOrders = cumulativeOrders;
+        this.cumulativeCoins = cumulativeCoins;
+        this.offset = offset;
+        this.size = size;
+        this.descending = descending;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    public double pricePerUnit(int level) {
+        return this.prices[this.index(level)];
+    }
+
+    public long amount(int level) {
+        return this.amounts[this.index(level)];
+    }
+
+    public long orders(int level) {
+        return this.orders[this.index(level)];
+    }
+
+    /**
+     * @return the items of all levels from the best one up to and including {@code level}
+     */
+    public long cumulativeAmount(int level) {
+        return this.cumulativeAmounts[this.index(level)];
+    }
+
+    /**
+     * @return the orders of all levels from the best one up to and including {@code level}
+     */
+    public long cumulativeOrders(int level) {
+        return this.cumulativeOrders[this.index(level)];
+    }
+
+    /**
+     * @return the coins all levels from the best one up to and including {@code level} are worth
+     */
+    public double cumulativeCoins(int level) {
+        return this.cumulativeCoins[this.index(level)];
+    }
+
+    /**
+     * @return the items of all levels of the side
+     */
+    public long totalAmount() {
+        return this.size == 0 ? 0 : this.cumulativeAmounts[this.offset + this.size - 1];
+    }
+
+    /**
+     * @return the coins exchanged for instantly trading the volume against this side, or {@link Double#NaN} if the
+     *     side holds fewer items
+     */
+    public double coinsFor(long volume) {
+        if (volume <= 0) {
+            return 0;
+        }
+        if (volume > this.totalAmount()) {
+            return Double.NaN;
+        }
+
+        // the first level whose running total covers the volume, which is only partially taken
+        int low = 0;
+        int high = this.size - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (this.cumulativeAmounts[this.offset + mid] < volume) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        long amountBefore = low == 0 ? 0 : this.cumulativeAmounts[this.offset + low - 1];
+        double coinsBefore = low == 0 ? 0 : this.cumulativeCoins[this.offset + low - 1];
+        return coinsBefore + (volume - amountBefore) * this.prices[this.offset + low];
+    }
+
+    /**
+     * @return the average price per unit of instantly trading the volume against this side, or {@link Double#NaN} if
+     *     the side holds fewer items
+     */
+    public double averagePrice(long volume) {
+        return volume <= 0 ? Double.NaN : this.coinsFor(volume) / volume;
+    }
+
+    /**
+     * The inverse of {@link #coinsFor(long)}.
+     *
+     * @return the most items instantly trading at most the given coins against this side takes, limited by the items
+     *     the side holds
+     */
+    public long volumeFor(double coins) {
+        if (!(coins > 0) || this.size == 0) {
+            return 0;
+        }
+
+        // the first level the coins do not fully pay for
+        int low = 0;
+        int high = this.size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (this.cumulativeCoins[this.offset + mid] <= coins) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        if (low == this.size) {
+            return this.totalAmount();
+        }
+
+        long amountBefore = low == 0 ? 0 : this.cumulativeAmounts[this.offset + low - 1];
+        double coinsBefore = low == 0 ? 0 : this.cumulativeCoins[this.offset + low - 1];
+        long partial = (long) ((coins - coinsBefore) / this.prices[this.offset + low]);
+        return amountBefore + Math.min(partial, this.amounts[this.offset + low]);
+    }
+
+    /**
+     * The cost of instant trades is linear in the volume within a level, so the curve is given by its value at the end
+     * of every level.
+     *
+     * @return the volume and coins of trading the side up to and including each level, best level first
+     */
+    public List<CostPoint> costCurve() {
+        var curve = new ArrayList<CostPoint>(this.size);
+        for (int level = 0; level < this.size; level++) {
+            curve.add(new CostPoint(this.cumulativeAmount(level), this.cumulativeCoins(level)));
+        }
+        return curve;
+    }
+
+    /**
+     * @param includeAtPrice whether a level at exactly the price counts as ahead
+     * @return the number of levels priced better than the price, which are the first ones of the side
+     */
+    public int levelsAhead(double pricePerUnit, boolean includeAtPrice) {
+        int low = 0;
+        int high = this.size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (this.isAhead(this.prices[this.offset + mid], pricePerUnit, includeAtPrice)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return the items queued ahead of an order at the price
+     */
+    public long amountAhead(double pricePerUnit, boolean includeAtPrice) {
+        int levels = this.levelsAhead(pricePerUnit, includeAtPrice);
+        return levels == 0 ? 0 : this.cumulativeAmount(levels - 1);
+    }
+
+    /**
+     * @return the orders queued ahead of an order at the price
+     */
+    public long ordersAhead(double pricePerUnit, boolean includeAtPrice) {
+        int levels = this.levelsAhead(pricePerUnit, includeAtPrice);
+        return levels == 0 ? 0 : this.cumulativeOrders(levels - 1);
+    }
+
+    private boolean isAhead(double levelPrice, double pricePerUnit, boolean includeAtPrice) {
+        if (levelPrice == pricePerUnit) {
+            return includeAtPrice;
+        }
+        return this.descending ? levelPrice > pricePerUnit : levelPrice < pricePerUnit;
+    }
+
+    /**
+     * @param volume the items instantly traded
+     * @param coins  the coins exchanged for them
+     */
+    public record CostPoint(long volume, double coins) {
+
+        public double averagePrice() {
+            return this.coins / this.volume;
+        }
+    }
+
+    private int index(int level) {
+        if (level < 0 || level >= this.size) {
+            throw new IndexOutOfBoundsException("Level " + level + " out of bounds for book side of size " + this.size);
+        }
+        return this.offset + level;
+    }
+}
@@ -195,8 +195,10 @@ public final class OrderModels {
     public static class TrackedOrder {
 
         private final TrackedOrderId id = TrackedOrderId.create();
-        public ProductIdentity product;
-        public String productName;
+        // the bazaar worker reads the product, the product name and the final fields while the client thread may
+        // re-identify the order; every other field is only accessed on the client thread
+        public volatile ProductIdentity product;
+        public volatile String productName;
         public final String uiProductName;
         public final OrderType type;
 
@@ -0,0 +1,187 @@
+package com.github.lutzluca.btrbz.data;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.LongSupplier;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Decides when {@link BazaarPoller} sends its next request.
+ * <p>
+ * The scheduler learns the publish cadence from the {@code lastUpdated} values the API reports and how long after a
+ * publish a request has to be sent before the API serves the new data. Both are measured as differences between
+ * server timestamps and the local clock, so clock skew between the two cancels out. Requests are placed just after
+ * the predicted publish; when they are early the unchanged replies back off exponentially for a few retries before
+ * the scheduler falls back to waiting a whole period, so a stalled API is not polled every few seconds.
+ */
+@Slf4j
+final class PollScheduler {
+
+    private static final long DEFAULT_PERIOD_MS = 20_000;
+    private static final long ERROR_BACKOFF_MS = 500;
+    private static final int HISTORY_SIZE = 16;
+    private static final long MIN_PERIOD_MS = 2_000;
+    private static final long MAX_PERIOD_MS = 120_000;
+    private static final long UNCHANGED_BACKOFF_MIN_MS = 100;
+    private static final int MAX_UNCHANGED_RETRIES = 5;
+    // the longest unchanged backoff plus the time a reply takes; an update first seen within this long of an
+    // unchanged request became visible in between
+    private static final long TIGHT_WINDOW_MS = 2_000;
+    private static final long PROBE_LEAD_MS = 50;
+    private static final long INITIAL_PROBE_STEP_MS = 250;
+    private static final long MIN_DELAY_MS = 50;
+
+    private final LongSupplier clock;
+
+    // server lastUpdated values of the most recent updates, oldest first once full
+    private final long[] updates = new long[HISTORY_SIZE];
+    private int updateCount = 0;
+
+    // local send time minus server lastUpdated for requests that were the first to observe an update within
+    // TIGHT_WINDOW_MS of an unchanged reply; the smallest one is the earliest a request has been known to return fresh data
+    private final long[] sendOffsets = new long[HISTORY_SIZE];
+    private int sendOffsetCount = 0;
+    private int sendOffsetNext = 0;
+
+    private long lastUpdated = -1;
+    private long requestSentAt = -1;
+    private long previousSentAt = -1;
+    private boolean previousUnchanged = false;
+    private int unchangedStreak = 0;
+    private int unchangedRetries = 0;
+    private boolean stallReported = false;
+    private long untightOffset = Long.MAX_VALUE;
+    private long probeStep = INITIAL_PROBE_STEP_MS;
+
+    PollScheduler() {
+        this(System::currentTimeMillis);
+    }
+
+    PollScheduler(LongSupplier clock) {
+        this.clock = Objects.requireNonNull(clock, "PollScheduler clock must not be null");
+    }
+
+    void onRequestSent() {
+        this.previousSentAt = this.requestSentAt;
+        this.requestSentAt = this.clock.getAsLong();
+    }
+
+    /**
+     * @return the delay in milliseconds until the next request should be sent
+     */
+    long onChanged(long lastUpdated) {
+        long sendOffset = this.requestSentAt - lastUpdated;
+        boolean tight = this.requestSentAt - this.previousSentAt <= TIGHT_WINDOW_MS;
+        if (this.previousUnchanged && this.lastUpdated != -1 && tight) {
+            this.recordSendOffset(sendOffset);
+        } else {
+            if (this.previousUnchanged) {
+                // the short retries after the predicted publish all missed the update, so what was learnt no longer
+                // places requests right; start over from this reply
+                this.resetSendOffset();
+            }
+            // the update may have been visible long before this request, so the offset is only an upper bound;
+            // probe earlier with a growing step until an unchanged reply pins it down
+            this.untightOffset = Math.min(this.untightOffset, sendOffset) - this.probeStep;
+            this.probeStep = Math.min(this.probeStep * 2, this.period() / 2);
+        }
+
+        this.recordUpdate(lastUpdated);
+        this.lastUpdated = lastUpdated;
+        this.previousUnchanged = false;
+        this.unchangedStreak = 0;
+        this.unchangedRetries = 0;
+        this.stallReported = false;
+
+        long nextSendAt = lastUpdated + this.period() + this.sendOffset();
+        return this.clampDelay(nextSendAt - this.clock.getAsLong());
+    }
+
+    long onUnchanged() {
+        this.previousUnchanged = true;
+        this.unchangedStreak++;
+
+        long delay;
+        if (this.unchangedRetries < MAX_UNCHANGED_RETRIES) {
+            delay = UNCHANGED_BACKOFF_MIN_MS << this.unchangedRetries;
+            this.unchangedRetries++;
+        } else {
+            // the update is late rather than not yet visible; start over with short retries after a full period
+            delay = this.period();
+            this.unchangedRetries = 0;
+        }
+
+        if (!this.stallReported && this.lastUpdated != -1) {
+            long overdue = this.requestSentAt - (this.lastUpdated + this.period() + this.sendOffset());
+            if (overdue > 2 * this.period()) {
+                this.stallReported = true;
+                log.warn(
+                    "Bazaar data has been unchanged for {} consecutive attempts ({}ms past the expected update). This may indicate an API issue.",
+                    this.unchangedStreak,
+                    overdue
+                );
+            }
+        }
+        return delay;
+    }
+
+    long onError() {
+        // an error says nothing about whether the data changed, so the next changed reply is not a tight sample
+        this.previousUnchanged = false;
+        return ERROR_BACKOFF_MS;
+    }
+
+    long period() {
+        if (this.updateCount < 2) {
+            return DEFAULT_PERIOD_MS;
+        }
+
+        int count = this.updateCount - 1;
+        var diffs = new long[count];
+        for (int i = 0; i < count; i++) {
+            diffs[i] = this.updates[i + 1] - this.updates[i];
+        }
+        Arrays.sort(diffs);
+
+        // missed updates show up as multiples of the period; the median ignores them as long as they are rare
+        long median = diffs[count / 2];
+        return Math.max(MIN_PERIOD_MS, Math.min(median, MAX_PERIOD_MS));
+    }
+
+    long sendOffset() {
+        if (this.sendOffsetCount > 0) {
+            long earliest = Long.MAX_VALUE;
+            for (int i = 0; i < this.sendOffsetCount; i++) {
+                earliest = Math.min(earliest, this.sendOffsets[i]);
+            }
+            return earliest - PROBE_LEAD_MS;
+        }
+
+        return this.untightOffset == Long.MAX_VALUE ? 0 : this.untightOffset;
+    }
+
+    private void recordSendOffset(long sendOffset) {
+        this.sendOffsets[this.sendOffsetNext] = sendOffset;
+        this.sendOffsetNext = (this.sendOffsetNext + 1) % HISTORY_SIZE;
+        this.sendOffsetCount = Math.min(this.sendOffsetCount + 1, HISTORY_SIZE);
+    }
+
+    private void resetSendOffset() {
+        this.sendOffsetCount = 0;
+        this.sendOffsetNext = 0;
+        this.untightOffset = Long.MAX_VALUE;
+        this.probeStep = INITIAL_PROBE_STEP_MS;
+    }
+
+    private void recordUpdate(long lastUpdated) {
+        if (this.updateCount == HISTORY_SIZE) {
+            System.arraycopy(this.updates, 1, this.updates, 0, HISTORY_SIZE - 1);
+            this.updateCount--;
+        }
+        this.updates[this.updateCount++] = lastUpdated;
+    }
+
+    private long clampDelay(long delay) {
+        return Math.max(MIN_DELAY_MS, Math.min(delay, 2 * this.period()));
+    }
+}
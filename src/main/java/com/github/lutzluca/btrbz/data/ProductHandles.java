@@ -0,0 +1,51 @@
+package com.github.lutzluca.btrbz.data;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns Bazaar product ids to dense int handles.
+ * Handles are never reused, so a handle refers to the same product in every snapshot built from the same instance.
+ */
+public final class ProductHandles {
+
+    public static final int ABSENT = -1;
+
+    private final Map<String, Integer> handles = new ConcurrentHashMap<>();
+    private volatile String[] productIds = new String[64];
+    private volatile int size = 0;
+
+    public int lookup(String productId) {
+        var handle = this.handles.get(productId);
+        return handle == null ? ABSENT : handle;
+    }
+
+    public synchronized int intern(String productId) {
+        var existing = this.handles.get(productId);
+        if (existing != null) {
+            return existing;
+        }
+
+        int handle = this.size;
+        var ids = this.productIds;
+        if (handle == ids.length) {
+            ids = Arrays.copyOf(ids, ids.length * 2);
+        }
+        ids[handle] = productId;
+
+        // publish the id before the handle so readers never observe a handle without its id
+        this.productIds = ids;
+        this.size = handle + 1;
+        this.handles.put(productId, handle);
+        return handle;
+    }
+
+    public String productId(int handle) {
+        return this.productIds[handle];
+    }
+
+    public int size() {
+        return this.size;
+    }
+}
@@ -0,0 +1,50 @@
+package com.github.lutzluca.btrbz.data.conversions;
+
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * The products whose conversion entry was added, removed or changed when a new index was applied. Name based lookups
+ * can change with any entry, so listeners that resolve by name should only check {@link #isEmpty()}.
+ */
+public record ConversionChangeSet(Set<String> productIds) {
+
+    public static final ConversionChangeSet NONE = new ConversionChangeSet(Set.of());
+
+    public ConversionChangeSet {
+        productIds = Set.copyOf(productIds);
+    }
+
+    public static ConversionChangeSet between(ConversionIndex previous, ConversionIndex next) {
+        if (previous.isEmpty()) {
+            // the first index of a session, which should not need to build the maps of a mapped index
+            return next.isEmpty() ? NONE : new ConversionChangeSet(Set.copyOf(next.productIds()));
+        }
+
+        var changed = new HashSet<String>();
+        previous.products().forEach((productId, entry) -> {
+            if (!Objects.equals(entry, next.products().get(productId))) {
+                changed.add(productId);
+            }
+        });
+        next.products().keySet().forEach(productId -> {
+            if (!previous.products().containsKey(productId)) {
+                changed.add(productId);
+            }
+        });
+        return changed.isEmpty() ? NONE : new ConversionChangeSet(changed);
+    }
+
+    public boolean affects(String productId) {
+        return this.productIds.contains(productId);
+    }
+
+    public boolean isEmpty() {
+        return this.productIds.isEmpty();
+    }
+
+    public int size() {
+        return this.productIds.size();
+    }
+}
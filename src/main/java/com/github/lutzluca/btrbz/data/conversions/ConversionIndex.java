@@ -11,6 +11,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
 public final class ConversionIndex {
 
@@ -22,16 +24,22 @@ public final class ConversionIndex {
         Instant.EPOCH.toString(),
         null,
         Map.of(),
-        Set.of()
+        Set.of(),
+        Map.of()
     );
 
     private final int schemaVersion;
     private final int builderVersion;
     private final String generatedAt;
     private final String neuCommit;
-    private final Map<String, ConversionProductEntry> products;
     private final Set<String> missingProductIds;
-    private final Map<String, List<IndexedProduct>> normalizedNameIndex;
+    // the file an index read from disk is backed by, which answers lookups by id and name; its maps are only built
+    // once they are asked for
+    private final ConversionIndexFile.MappedIndex mapped;
+    private volatile Map<String, ConversionProductEntry> products;
+    private volatile Map<String, String> sourceHashes;
+    private volatile Map<String, List<IndexedProduct>> normalizedNameIndex;
+    private volatile ProductCompletions completions;
 
     public ConversionIndex(
         int schemaVersion,
@@ -59,6 +67,21 @@ public final class ConversionIndex {
         String neuCommit,
         Map<String, ConversionProductEntry> products,
         Set<String> missingProductIds
+    ) {
+        this(schemaVersion, builderVersion, generatedAt, neuCommit, products, missingProductIds, Map.of());
+    }
+
+    /**
+     * @param sourceHashes the git blob hash of the NEU item file each product was read from, by product id
+     */
+    public ConversionIndex(
+        int schemaVersion,
+        int builderVersion,
+        String generatedAt,
+        String neuCommit,
+        Map<String, ConversionProductEntry> products,
+        Set<String> missingProductIds,
+        Map<String, String> sourceHashes
     ) {
         if (schemaVersion != SCHEMA_VERSION) {
             throw new IllegalArgumentException("Unsupported conversion index schema version: " + schemaVersion);
@@ -73,13 +96,35 @@ public final class ConversionIndex {
             ? Instant.now().toString()
             : generatedAt;
         this.neuCommit = neuCommit == null || neuCommit.isBlank() ? null : neuCommit;
+        this.mapped = null;
         this.products = Collections.unmodifiableMap(new LinkedHashMap<>(
             products == null ? Map.of() : products
         ));
-        this.missingProductIds = Set.copyOf(
+        // sorted so that a persisted index only differs where its content does
+        this.missingProductIds = Collections.unmodifiableSortedSet(new TreeSet<>(
             missingProductIds == null ? Set.of() : missingProductIds
-        );
-        this.normalizedNameIndex = buildNameIndex(this.products);
+        ));
+        this.sourceHashes = Collections.unmodifiableSortedMap(new TreeMap<>(
+            sourceHashes == null ? Map.of() : sourceHashes
+        ));
+    }
+
+    ConversionIndex(ConversionIndexFile.MappedIndex mapped) {
+        if (mapped.schemaVersion() != SCHEMA_VERSION) {
+            throw new IllegalArgumentException(
+                "Unsupported conversion index schema version: " + mapped.schemaVersion()
+            );
+        }
+        if (mapped.builderVersion() < 0) {
+            throw new IllegalArgumentException("builderVersion must not be negative");
+        }
+
+        this.schemaVersion = mapped.schemaVersion();
+        this.builderVersion = mapped.builderVersion();
+        this.generatedAt = mapped.generatedAt() == null ? Instant.EPOCH.toString() : mapped.generatedAt();
+        this.neuCommit = mapped.neuCommit();
+        this.mapped = mapped;
+        this.missingProductIds = mapped.missingProductIds();
     }
 
     public static ConversionIndex empty() {
@@ -103,33 +148,63 @@ public final class ConversionIndex {
     }
 
     public Map<String, ConversionProductEntry> products() {
-        return this.products;
+        var products = this.products;
+        return products != null ? products : this.materializeProducts();
+    }
+
+    /**
+     * @return the ids of all products, without building the product map of an index read from disk
+     */
+    public List<String> productIds() {
+        var products = this.products;
+        return products != null ? List.copyOf(products.keySet()) : this.mapped.productIds();
     }
 
     public Set<String> missingProductIds() {
         return this.missingProductIds;
     }
 
+    public Map<String, String> sourceHashes() {
+        var sourceHashes = this.sourceHashes;
+        return sourceHashes != null ? sourceHashes : this.materializeSourceHashes();
+    }
+
     public boolean isComplete() {
         return this.missingProductIds.isEmpty();
     }
 
     public int size() {
-        return this.products.size();
+        return this.mapped != null ? this.mapped.size() : this.products.size();
     }
 
     public boolean isEmpty() {
-        return this.products.isEmpty();
+        return this.size() == 0;
     }
 
     public Optional<IndexedProduct> product(String productId) {
+        if (this.mapped != null) {
+            int record = this.mapped.find(productId);
+            return record < 0
+                ? Optional.empty()
+                : Optional.of(toIndexedProduct(productId, this.mapped.entry(record)));
+        }
+
         return Optional
             .ofNullable(this.products.get(productId))
             .map(entry -> toIndexedProduct(productId, entry));
     }
 
     public List<IndexedProduct> allProducts() {
-        return this.products
+        var products = this.products;
+        if (products == null) {
+            var all = new ArrayList<IndexedProduct>(this.mapped.size());
+            for (int record = 0; record < this.mapped.size(); record++) {
+                all.add(new IndexedProduct(this.mapped.productId(record), this.mapped.formattedName(record)));
+            }
+            return Collections.unmodifiableList(all);
+        }
+
+        return products
             .entrySet()
             .stream()
             .map(entry -> toIndexedProduct(entry.getKey(), entry.getValue()))
@@ -137,28 +212,42 @@ public final class ConversionIndex {
     }
 
     public Optional<IndexedProduct> uniqueProductByName(String displayName) {
-        var normalized = Utils.normalizeDisplayName(displayName);
-        if (normalized.isEmpty()) {
-            return Optional.empty();
-        }
-
-        var matches = this.normalizedNameIndex.get(normalized);
-        return matches != null && matches.size() == 1
-            ? Optional.of(matches.getFirst())
-            : Optional.empty();
+        var matches = this.productsByName(displayName, 2);
+        return matches.size() == 1 ? Optional.of(matches.getFirst()) : Optional.empty();
     }
 
     public boolean hasAmbiguousName(String displayName) {
-        var normalized = Utils.normalizeDisplayName(displayName);
-        if (normalized.isEmpty()) {
-            return false;
-        }
+        return this.productsByName(displayName, 2).size() > 1;
+    }
+
+    /**
+     * @return the prefix search over the products, built on first use
+     */
+    public ProductCompletions completions() {
+        var completions = this.completions;
+        return completions != null ? completions : this.buildCompletions();
+    }
 
-        var matches = this.normalizedNameIndex.get(normalized);
-        return matches != null && matches.size() > 1;
+    /**
+     * Builds the prefix search and, for an index held in memory, the name index up front, so that the first lookups
+     * on the client thread do not have to. An index read from disk answers name lookups from its file and does not
+     * build its product map here. Meant to run on the thread loading the index, before it is applied.
+     *
+     * @return this index
+     */
+    ConversionIndex buildLookups() {
+        if (this.mapped == null) {
+            this.nameIndex();
+        }
+        this.completions();
+        return this;
     }
 
     public ConversionSourceCounts sourceCounts() {
+        if (this.mapped != null) {
+            return this.mapped.sourceCounts();
+        }
+
         var neu = 0;
         var derived = 0;
 
@@ -172,6 +261,60 @@ public final class ConversionIndex {
         return new ConversionSourceCounts(neu, derived);
     }
 
+    private synchronized Map<String, ConversionProductEntry> materializeProducts() {
+        if (this.products == null) {
+            this.products = Collections.unmodifiableMap(this.mapped.products());
+        }
+        return this.products;
+    }
+
+    private synchronized Map<String, String> materializeSourceHashes() {
+        if (this.sourceHashes == null) {
+            this.sourceHashes = Collections.unmodifiableSortedMap(new TreeMap<>(this.mapped.sourceHashes()));
+        }
+        return this.sourceHashes;
+    }
+
+    /**
+     * @return the products with the display name, at most {@code limit} of them
+     */
+    private List<IndexedProduct> productsByName(String displayName, int limit) {
+        var normalized = Utils.normalizeDisplayName(displayName);
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+
+        if (this.mapped != null) {
+            return this.mapped
+                .findByName(normalized, limit)
+                .stream()
+                .map(record -> toIndexedProduct(this.mapped.productId(record), this.mapped.entry(record)))
+                .toList();
+        }
+
+        var matches = this.nameIndex().getOrDefault(normalized, List.of());
+        return matches.size() > limit ? matches.subList(0, limit) : matches;
+    }
+
+    private Map<String, List<IndexedProduct>> nameIndex() {
+        var nameIndex = this.normalizedNameIndex;
+        return nameIndex != null ? nameIndex : this.buildNameIndex();
+    }
+
+    private synchronized Map<String, List<IndexedProduct>> buildNameIndex() {
+        if (this.normalizedNameIndex == null) {
+            this.normalizedNameIndex = buildNameIndex(this.products());
+        }
+        return this.normalizedNameIndex;
+    }
+
+    private synchronized ProductCompletions buildCompletions() {
+        if (this.completions == null) {
+            this.completions = ProductCompletions.of(this.allProducts());
+        }
+        return this.completions;
+    }
+
     private static Map<String, List<IndexedProduct>> buildNameIndex(
         Map<String, ConversionProductEntry> products
     ) {
@@ -0,0 +1,427 @@
+package com.github.lutzluca.btrbz.data.conversions;
+
+import com.github.lutzluca.btrbz.utils.Utils;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Binary on-disk format of the {@link ConversionIndex}.
+ * <p>
+ * The file holds a header, one fixed-width record per product sorted by product id, the missing product ids, a name
+ * table and a string table the others refer to by number. The name table pairs the normalized name of every product
+ * with its record, sorted by that name. A product is found by a binary search over the records or the name table, so a
+ * mapped file serves lookups by id and by name without decoding the rest of the index first. The name table depends on
+ * {@link Utils#normalizeDisplayName}, so changing that normalization needs a new {@link #VERSION}.
+ */
+final class ConversionIndexFile {
+
+    private static final int MAGIC = 0x42545A43;
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 10 * Integer.BYTES;
+    // product id, formatted name, source kind, NEU id, source hash
+    private static final int RECORD_BYTES = 5 * Integer.BYTES;
+    // normalized name, record
+    private static final int NAME_BYTES = 2 * Integer.BYTES;
+    private static final int NO_STRING = -1;
+    private static final int SOURCE_NEU = 0;
+    private static final int SOURCE_DERIVED = 1;
+    // a mapping keeps the file open on Windows, which would make the next atomic replace fail
+    private static final boolean MAP_FILES = !System
+        .getProperty("os.name", "")
+        .toLowerCase(Locale.ROOT)
+        .startsWith("windows");
+
+    private ConversionIndexFile() { }
+
+    static ConversionIndex read(Path path) throws IOException {
+        var mapped = decode(readBuffer(path));
+        if (mapped.size() == 0) {
+            throw new IOException("Conversion index contains no products");
+        }
+
+        try {
+            return new ConversionIndex(mapped);
+        } catch (IllegalArgumentException err) {
+            throw new IOException("Invalid conversion index", err);
+        }
+    }
+
+    private static ByteBuffer readBuffer(Path path) throws IOException {
+        if (!MAP_FILES) {
+            return ByteBuffer.wrap(Files.readAllBytes(path));
+        }
+
+        // the mapping stays valid after the channel is closed
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return channel.map(MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    static byte[] encode(ConversionIndex index) throws IOException {
+        var strings = new LinkedHashMap<String, Integer>();
+        var products = new TreeMap<>(index.products());
+        var missing = new TreeSet<>(index.missingProductIds());
+
+        var records = new int[products.size() * 5];
+        int record = 0;
+        for (var product : products.entrySet()) {
+            var entry = product.getValue();
+            records[record++] = intern(strings, product.getKey());
+            records[record++] = intern(strings, entry.formattedName());
+            switch (entry.source()) {
+                case ProductNameSource.Neu neu -> {
+                    records[record++] = SOURCE_NEU;
+                    records[record++] = intern(strings, neu.neuId());
+                }
+                case ProductNameSource.Derived _ -> {
+                    records[record++] = SOURCE_DERIVED;
+                    records[record++] = NO_STRING;
+                }
+            }
+            records[record++] = intern(strings, index.sourceHashes().get(product.getKey()));
+        }
+        int generatedAt = intern(strings, index.generatedAt());
+        int neuCommit = intern(strings, index.neuCommit().orElse(null));
+        var missingRefs = missing.stream().mapToInt(productId -> intern(strings, productId)).toArray();
+
+        var names = new ArrayList<NameEntry>(products.size());
+        int nameRecord = 0;
+        for (var entry : products.values()) {
+            var normalized = Utils.normalizeDisplayName(entry.strippedName());
+            if (!normalized.isEmpty()) {
+                names.add(new NameEntry(normalized, nameRecord));
+            }
+            nameRecord++;
+        }
+        names.sort(Comparator.comparing(NameEntry::normalized).thenComparingInt(NameEntry::record));
+        var nameRefs = new int[names.size() * 2];
+        for (int name = 0; name < names.size(); name++) {
+            nameRefs[2 * name] = intern(strings, names.get(name).normalized());
+            nameRefs[2 * name + 1] = names.get(name).record();
+        }
+
+        var bytes = new ByteArrayOutputStream(64 * 1024);
+        var out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(index.schemaVersion());
+        out.writeInt(index.builderVersion());
+        out.writeInt(generatedAt);
+        out.writeInt(neuCommit);
+        out.writeInt(products.size());
+        out.writeInt(missingRefs.length);
+        out.writeInt(names.size());
+        out.writeInt(strings.size());
+
+        for (int value : records) {
+            out.writeInt(value);
+        }
+        for (int ref : missingRefs) {
+            out.writeInt(ref);
+        }
+        for (int value : nameRefs) {
+            out.writeInt(value);
+        }
+
+        var encoded = new ArrayList<byte[]>(strings.size());
+        int offset = 0;
+        out.writeInt(offset);
+        for (var value : strings.keySet()) {
+            var utf8 = value.getBytes(StandardCharsets.UTF_8);
+            encoded.add(utf8);
+            offset += utf8.length;
+            out.writeInt(offset);
+        }
+        for (var utf8 : encoded) {
+            out.write(utf8);
+        }
+
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static int intern(Map<String, Integer> strings, String value) {
+        if (value == null) {
+            return NO_STRING;
+        }
+        return strings.computeIfAbsent(value, ignored -> strings.size());
+    }
+
+    static MappedIndex decode(ByteBuffer buffer) throws IOException {
+        try {
+            if (buffer.getInt(0) != MAGIC) {
+                throw new IOException("Not a conversion index file");
+            }
+
+            int version = buffer.getInt(4);
+            if (version != VERSION) {
+                throw new IOException("Unsupported conversion index file version " + version);
+            }
+
+            return new MappedIndex(buffer);
+        } catch (IndexOutOfBoundsException | BufferUnderflowException err) {
+            throw new IOException("Corrupted conversion index file", err);
+        }
+    }
+
+    /**
+     * Read-only view of an encoded index. All reads use absolute positions, so it can be shared between threads.
+     */
+    static final class MappedIndex {
+
+        private final ByteBuffer buffer;
+        private final int schemaVersion;
+        private final int builderVersion;
+        private final String generatedAt;
+        private final String neuCommit;
+        private final int productCount;
+        private final int missingCount;
+        private final int nameCount;
+        private final int stringCount;
+        private final int recordsStart;
+        private final int missingStart;
+        private final int namesStart;
+        private final int offsetsStart;
+        private final int stringsStart;
+
+        private MappedIndex(ByteBuffer buffer) throws IOException {
+            this.buffer = buffer;
+            this.schemaVersion = buffer.getInt(8);
+            this.builderVersion = buffer.getInt(12);
+            this.productCount = buffer.getInt(24);
+            this.missingCount = buffer.getInt(28);
+            this.nameCount = buffer.getInt(32);
+            this.stringCount = buffer.getInt(36);
+            if (this.productCount < 0 || this.missingCount < 0 || this.nameCount < 0 || this.stringCount < 0) {
+                throw new IOException("Corrupted conversion index file header");
+            }
+
+            this.recordsStart = HEADER_BYTES;
+            this.missingStart = Math.addExact(this.recordsStart, Math.multiplyExact(this.productCount, RECORD_BYTES));
+            this.namesStart = Math.addExact(this.missingStart, Math.multiplyExact(this.missingCount, Integer.BYTES));
+            this.offsetsStart = Math.addExact(this.namesStart, Math.multiplyExact(this.nameCount, NAME_BYTES));
+            this.stringsStart = Math.addExact(
+                this.offsetsStart,
+                Math.multiplyExact(this.stringCount + 1, Integer.BYTES)
+            );
+            if (this.stringsStart > buffer.limit()) {
+                throw new IOException("Conversion index file is truncated");
+            }
+
+            int previous = 0;
+            for (int i = 0; i <= this.stringCount; i++) {
+                int offset = buffer.getInt(this.offsetsStart + i * Integer.BYTES);
+                if (offset < previous || this.stringsStart + (long) offset > buffer.limit()) {
+                    throw new IOException("Corrupted conversion index string table");
+                }
+                previous = offset;
+            }
+
+            // lookups read product ids and names without further checks, only the NEU id of derived names and the
+            // source hash may be absent
+            for (int record = 0; record < this.productCount; record++) {
+                int source = this.field(record, 2);
+                if (source != SOURCE_NEU && source != SOURCE_DERIVED) {
+                    throw new IOException("Conversion index record has an unknown name source " + source);
+                }
+                this.checkString(this.field(record, 0), false);
+                this.checkString(this.field(record, 1), false);
+                this.checkString(this.field(record, 3), source == SOURCE_DERIVED);
+                this.checkString(this.field(record, 4), true);
+            }
+            for (int i = 0; i < this.missingCount; i++) {
+                this.checkString(buffer.getInt(this.missingStart + i * Integer.BYTES), false);
+            }
+            // an unsorted table only makes name lookups miss, so the order is not checked
+            for (int name = 0; name < this.nameCount; name++) {
+                this.checkString(this.nameField(name, 0), false);
+                int record = this.nameField(name, 1);
+                if (record < 0 || record >= this.productCount) {
+                    throw new IOException("Conversion index name table refers to a missing record");
+                }
+            }
+
+            this.generatedAt = this.string(this.checkString(buffer.getInt(16), true));
+            this.neuCommit = this.string(this.checkString(buffer.getInt(20), true));
+        }
+
+        int schemaVersion() {
+            return this.schemaVersion;
+        }
+
+        int builderVersion() {
+            return this.builderVersion;
+        }
+
+        String generatedAt() {
+            return this.generatedAt;
+        }
+
+        String neuCommit() {
+            return this.neuCommit;
+        }
+
+        int size() {
+            return this.productCount;
+        }
+
+        String productId(int record) {
+            return this.string(this.field(record, 0));
+        }
+
+        ConversionProductEntry entry(int record) {
+            var source = this.field(record, 2) == SOURCE_NEU
+                ? new ProductNameSource.Neu(this.string(this.field(record, 3)))
+                : new ProductNameSource.Derived();
+            return new ConversionProductEntry(this.string(this.field(record, 1)), source);
+        }
+
+        String formattedName(int record) {
+            return this.string(this.field(record, 1));
+        }
+
+        String sourceHash(int record) {
+            return this.string(this.field(record, 4));
+        }
+
+        /**
+         * @return the records of the products with the normalized name, at most {@code limit} of them
+         */
+        List<Integer> findByName(String normalized, int limit) {
+            int low = 0;
+            int high = this.nameCount;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (this.string(this.nameField(mid, 0)).compareTo(normalized) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+
+            var records = new ArrayList<Integer>(limit);
+            for (int name = low; name < this.nameCount && records.size() < limit; name++) {
+                if (!this.string(this.nameField(name, 0)).equals(normalized)) {
+                    break;
+                }
+                records.add(this.nameField(name, 1));
+            }
+            return records;
+        }
+
+        /**
+         * @return the record of the product, {@code -1} if the index does not contain it
+         */
+        int find(String productId) {
+            int low = 0;
+            int high = this.productCount - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int cmp = this.productId(mid).compareTo(productId);
+                if (cmp < 0) {
+                    low = mid + 1;
+                } else if (cmp > 0) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -1;
+        }
+
+        List<String> productIds() {
+            var productIds = new ArrayList<String>(this.productCount);
+            for (int record = 0; record < this.productCount; record++) {
+                productIds.add(this.productId(record));
+            }
+            return productIds;
+        }
+
+        Set<String> missingProductIds() {
+            var missing = new TreeSet<String>();
+            for (int i = 0; i < this.missingCount; i++) {
+                missing.add(this.string(this.buffer.getInt(this.missingStart + i * Integer.BYTES)));
+            }
+            return Collections.unmodifiableSortedSet(missing);
+        }
+
+        ConversionSourceCounts sourceCounts() {
+            int neu = 0;
+            for (int record = 0; record < this.productCount; record++) {
+                if (this.field(record, 2) == SOURCE_NEU) {
+                    neu++;
+                }
+            }
+            return new ConversionSourceCounts(neu, this.productCount - neu);
+        }
+
+        Map<String, ConversionProductEntry> products() {
+            var products = new LinkedHashMap<String, ConversionProductEntry>(this.productCount * 2);
+            for (int record = 0; record < this.productCount; record++) {
+                products.put(this.productId(record), this.entry(record));
+            }
+            return products;
+        }
+
+        Map<String, String> sourceHashes() {
+            var hashes = new HashMap<String, String>();
+            for (int record = 0; record < this.productCount; record++) {
+                var hash = this.sourceHash(record);
+                if (hash != null) {
+                    hashes.put(this.productId(record), hash);
+                }
+            }
+            return hashes;
+        }
+
+        private int checkString(int ref, boolean optional) throws IOException {
+            boolean absent = optional && ref == NO_STRING;
+            if (!absent && (ref < 0 || ref >= this.stringCount)) {
+                throw new IOException("Conversion index refers to a missing string");
+            }
+            return ref;
+        }
+
+        private int field(int record, int field) {
+            return this.buffer.getInt(this.recordsStart + record * RECORD_BYTES + field * Integer.BYTES);
+        }
+
+        private int nameField(int name, int field) {
+            return this.buffer.getInt(this.namesStart + name * NAME_BYTES + field * Integer.BYTES);
+        }
+
+        private String string(int ref) {
+            if (ref == NO_STRING) {
+                return null;
+            }
+
+            int start = this.buffer.getInt(this.offsetsStart + ref * Integer.BYTES);
+            int end = this.buffer.getInt(this.offsetsStart + (ref + 1) * Integer.BYTES);
+            var utf8 = new byte[end - start];
+            this.buffer.get(this.stringsStart + start, utf8);
+            return new String(utf8, StandardCharsets.UTF_8);
+        }
+    }
+
+    private record NameEntry(String normalized, int record) { }
+}
@@ -3,33 +3,37 @@ package com.github.lutzluca.btrbz.data.conversions;
 import com.github.lutzluca.btrbz.data.ConversionEvent;
 import com.github.lutzluca.btrbz.data.ProductIdentity;
 import com.github.lutzluca.btrbz.data.IndexedProduct;
+import com.github.lutzluca.btrbz.utils.GameUtils;
 import com.github.lutzluca.btrbz.utils.Utils;
 import io.vavr.control.Try;
+import java.nio.file.Path;
 import java.time.Instant;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
-import java.util.WeakHashMap;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 import lombok.extern.slf4j.Slf4j;
 import net.minecraft.client.Minecraft;
+import net.minecraft.world.item.Item;
 import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.item.Items;
 import org.jetbrains.annotations.Nullable;
 
 @Slf4j
 public final class ConversionIndexService {
 
     private final ProductResolver resolver;
-    private final List<Runnable> indexChangeListeners = new ArrayList<>();
+    private final List<Consumer<ConversionChangeSet>> indexChangeListeners = new ArrayList<>();
     private final List<Consumer<ConversionEvent>> conversionEventListeners = new ArrayList<>();
     private final AtomicBoolean refreshInFlight = new AtomicBoolean(false);
-    private final Map<ItemStack, Map<String, ProductIdentity>> resolvedStackCache = new WeakHashMap<>();
+    private final ResolutionCache<StackFingerprint> resolvedStackCache = new ResolutionCache<>(
+        ResolutionCache.DEFAULT_CAPACITY
+    );
 
     private volatile ConversionIndex currentIndex;
+    private volatile ConversionStatus.Readiness readiness;
     private volatile ConversionStatus.IndexLoadSource activeLoadSource;
     private volatile long indexRevision;
     private volatile Optional<String> lastSuccessfulRefreshAt = Optional.empty();
@@ -38,30 +42,95 @@ public final class ConversionIndexService {
     private record RemoteRefreshResult(
         ConversionIndex index,
         boolean changed,
+        ConversionChangeSet changes,
         Optional<ConversionRefreshException> persistFailure
     ) { }
 
-    public ConversionIndexService() {
-        this(ConversionIndex.empty(), ConversionStatus.IndexLoadSource.Unavailable);
+    /**
+     * The parts of a stack the resolver reads. Container refreshes send new stack instances with the same content,
+     * so they share one cache entry. Enchanted books also key on their enchantment, and on their lore when a generic
+     * "Enchanted Book" name sends the resolver to it.
+     */
+    private record StackFingerprint(
+        Item item,
+        @Nullable String customDataId,
+        String displayName,
+        @Nullable String formattedName,
+        @Nullable String enchantmentId,
+        List<String> lore
+    ) {
+
+        static StackFingerprint of(ItemStack stack, String displayName, @Nullable String formattedName) {
+            var item = stack.getItem();
+            String enchantmentId = null;
+            List<String> lore = List.of();
+            if (item == Items.ENCHANTED_BOOK) {
+                enchantmentId = ProductResolver.enchantedBookIdFromCustomData(stack).orElse(null);
+                if (enchantmentId == null && ProductResolver.isGenericBookName(displayName)) {
+                    lore = GameUtils.getLore(stack);
+                }
+            }
+
+            return new StackFingerprint(
+                item,
+                Utils.customDataId(stack).orElse(null),
+                displayName,
+                formattedName,
+                enchantmentId,
+                lore
+            );
+        }
     }
 
-    public ConversionIndexService(ConversionIndex initialIndex) {
-        this(initialIndex, ConversionStatus.IndexLoadSource.Unavailable);
+    public ConversionIndexService() {
+        this(ConversionIndex.empty());
     }
 
-    private ConversionIndexService(ConversionIndex initialIndex, ConversionStatus.IndexLoadSource source) {
+    public ConversionIndexService(ConversionIndex initialIndex) {
         this.currentIndex = ConversionIndex.empty();
         this.activeLoadSource = ConversionStatus.IndexLoadSource.Unavailable;
+        this.readiness = ConversionStatus.Readiness.NotLoaded;
         this.resolver = new ProductResolver(this);
-        this.applyIndex(initialIndex, source);
+        this.applyIndex(initialIndex, ConversionStatus.IndexLoadSource.Unavailable);
     }
 
-    public void loadConversionIndex() {
-        var result = ConversionLoader.loadSync();
+    /**
+     * Loads the cached or bundled index on a background thread and applies it on the client thread, which notifies
+     * the index change listeners. Until then products resolve to runtime identities.
+     *
+     * @return completes on the client thread once the index was applied or failed to load
+     */
+    public CompletableFuture<Void> loadConversionIndex() {
+        if (!this.isReady()) {
+            this.readiness = ConversionStatus.Readiness.Loading;
+        }
+
+        var applied = new CompletableFuture<Void>();
+        CompletableFuture
+            .supplyAsync(ConversionLoader::loadSync)
+            .thenAccept(result -> Minecraft.getInstance().execute(() -> {
+                try {
+                    this.applyLoadResult(result);
+                } finally {
+                    applied.complete(null);
+                }
+            }));
+        return applied;
+    }
+
+    public boolean isReady() {
+        return this.readiness == ConversionStatus.Readiness.Ready;
+    }
+
+    private void applyLoadResult(Try<ConversionLoader.LoadResult> result) {
         if (result.isSuccess()) {
             var loadResult = result.get();
-            this.applyIndex(loadResult.index(), loadResult.source());
-            this.lastFailure = Optional.empty();
+            if (this.currentIndex.isEmpty()) {
+                this.applyIndex(loadResult.index(), loadResult.source());
+                this.lastFailure = Optional.empty();
+            } else {
+                log.debug("Skipping the loaded conversion index, a newer one was applied while it loaded");
+            }
             return;
         }
 
@@ -70,7 +139,9 @@ public final class ConversionIndexService {
                 result.getCause().getMessage(),
                 result.getCause());
         this.lastFailure = Optional.of(failure);
-        this.applyIndex(ConversionIndex.empty(), ConversionStatus.IndexLoadSource.Unavailable);
+        if (!this.isReady()) {
+            this.readiness = ConversionStatus.Readiness.Failed;
+        }
         log.error("Failed to load any Bazaar conversion index", result.getCause());
         this.emitConversionEvent(new ConversionEvent(
                 ConversionEvent.Kind.LoadFailure,
@@ -109,13 +180,34 @@ public final class ConversionIndexService {
         return true;
     }
 
+    /**
+     * Writes the active index as JSON next to the local cache.
+     */
+    public Try<Path> exportConversionIndex() {
+        return ConversionLoader.exportJson(this.currentIndex);
+    }
+
+    /**
+     * Applies the JSON index next to the local cache and stores it as the new local cache.
+     */
+    public Try<ConversionIndex> importConversionIndex() {
+        return ConversionLoader.importJson().peek(index -> {
+            this.applyIndex(index, ConversionStatus.IndexLoadSource.JsonImport);
+            ConversionLoader
+                .persistIndex(index)
+                .onFailure(err -> log.warn("Imported conversion index but failed to persist local cache", err));
+        });
+    }
+
     public ConversionStatus status() {
         return ConversionStatus.from(
+                this.readiness,
                 this.activeLoadSource,
                 this.currentIndex,
                 this.lastSuccessfulRefreshAt,
                 this.lastFailure,
-                this.refreshInFlight.get());
+                this.refreshInFlight.get(),
+                this.resolvedStackCache.stats());
     }
 
     public ConversionIndex currentIndex() {
@@ -133,6 +225,10 @@ public final class ConversionIndexService {
         return this.currentIndex.allProducts();
     }
 
+    public ProductCompletions productCompletions() {
+        return this.currentIndex.completions();
+    }
+
     public ProductIdentity resolveProduct(ItemStack stack) {
         return this.resolveProduct(stack, stack.getHoverName().getString());
     }
@@ -151,35 +247,23 @@ public final class ConversionIndexService {
         @Nullable String formattedNameEvidence
     ) {
         var revision = this.indexRevision;
-        var evidenceKey = Utils.cleanDisplayName(displayNameEvidence)
-            + "|"
-            + Optional.ofNullable(formattedNameEvidence).orElse("");
-        // ItemStack identity is stable for current call sites. If reused stacks start mutating
-        // custom data or lore in place, key this cache by an identity fingerprint instead.
-        synchronized (this.resolvedStackCache) {
-            var cached = this.resolvedStackCache
-                    .getOrDefault(stack, Map.of())
-                    .get(evidenceKey);
-            if (cached != null && revision == this.indexRevision) {
-                return cached;
-            }
+        var displayName = Utils.cleanDisplayName(displayNameEvidence);
+        var fingerprint = StackFingerprint.of(stack, displayName, formattedNameEvidence);
+        var cached = this.resolvedStackCache.get(fingerprint, revision);
+        if (cached != null) {
+            return cached;
         }
 
-        var resolved = this.resolver.resolveProduct(
-            stack,
-            Utils.cleanDisplayName(displayNameEvidence),
-            formattedNameEvidence
-        );
-        synchronized (this.resolvedStackCache) {
-            if (revision == this.indexRevision) {
-                this.resolvedStackCache
-                        .computeIfAbsent(stack, ignored -> new HashMap<>())
-                        .put(evidenceKey, resolved);
-            }
-        }
+        var resolved = this.resolver.resolveProduct(stack, displayName, formattedNameEvidence);
+        // a resolution against an index that was replaced meanwhile is stored under a revision no lookup asks for
+        this.resolvedStackCache.put(fingerprint, revision, resolved);
         return resolved;
     }
 
+    public ConversionStatus.CacheStats resolutionCacheStats() {
+        return this.resolvedStackCache.stats();
+    }
+
     public ProductIdentity resolveProduct(@Nullable String rawProductId, String displayName) {
         return this.resolver.resolveProduct(rawProductId, displayName);
     }
@@ -188,11 +272,14 @@ public final class ConversionIndexService {
         return this.resolver.resolveProductName(displayName);
     }
 
-    public void addIndexChangeListener(Runnable listener) {
+    /**
+     * @param listener called with the products whose entry changed whenever a new index is applied
+     */
+    public void addIndexChangeListener(Consumer<ConversionChangeSet> listener) {
         this.indexChangeListeners.add(listener);
     }
 
-    public void removeIndexChangeListener(Runnable listener) {
+    public void removeIndexChangeListener(Consumer<ConversionChangeSet> listener) {
         this.indexChangeListeners.remove(listener);
     }
 
@@ -203,7 +290,7 @@ public final class ConversionIndexService {
     private RemoteRefreshResult prepareRemoteRefresh(boolean allowPartial) throws ConversionRefreshException {
         var build = RemoteNeuConversionIndexBuilder.build(this.currentIndex, allowPartial);
         if (!build.changed()) {
-            return new RemoteRefreshResult(build.index(), false, Optional.empty());
+            return new RemoteRefreshResult(build.index(), false, build.changes(), Optional.empty());
         }
 
         var persistResult = ConversionLoader.persistIndex(build.index());
@@ -216,14 +303,14 @@ public final class ConversionIndexService {
             ))
             .toJavaOptional();
 
-        return new RemoteRefreshResult(build.index(), true, persistFailure);
+        return new RemoteRefreshResult(build.index(), true, build.changes(), persistFailure);
     }
 
     private void applyRemoteRefresh(RemoteRefreshResult result, boolean manual) {
         this.lastSuccessfulRefreshAt = Optional.of(Instant.now().toString());
         this.lastFailure = result.persistFailure();
         if (result.changed()) {
-            this.applyIndex(result.index(), ConversionStatus.IndexLoadSource.RemoteRefresh);
+            this.applyIndex(result.index(), ConversionStatus.IndexLoadSource.RemoteRefresh, result.changes());
         } else {
             log.debug("Remote conversion refresh unchanged; keeping active conversion index");
         }
@@ -246,20 +333,29 @@ public final class ConversionIndexService {
     }
 
     private void applyIndex(ConversionIndex index, ConversionStatus.IndexLoadSource source) {
+        this.applyIndex(index, source, ConversionChangeSet.between(this.currentIndex, index));
+    }
+
+    private void applyIndex(
+        ConversionIndex index,
+        ConversionStatus.IndexLoadSource source,
+        ConversionChangeSet changes
+    ) {
         this.currentIndex = index;
         this.activeLoadSource = source;
+        if (!index.isEmpty()) {
+            this.readiness = ConversionStatus.Readiness.Ready;
+        }
         this.clearResolvedStackCache();
         this.logIndexSummary(source, index);
-        this.notifyIndexChanged();
+        log.debug("Conversion index changed {} products", changes.size());
+        this.notifyIndexChanged(changes);
     }
 
     private void clearResolvedStackCache() {
-        synchronized (this.resolvedStackCache) {
-            var size = this.resolvedStackCache.size();
-            this.resolvedStackCache.clear();
-            this.indexRevision++;
-            log.trace("Cleared product identity cache with {} mappings", size);
-        }
+        this.indexRevision++;
+        var size = this.resolvedStackCache.clear();
+        log.trace("Cleared product identity cache with {} mappings", size);
     }
 
     private void logIndexSummary(ConversionStatus.IndexLoadSource source, ConversionIndex index) {
@@ -301,8 +397,8 @@ public final class ConversionIndexService {
                 failure.shortMessage()));
     }
 
-    private void notifyIndexChanged() {
-        List.copyOf(this.indexChangeListeners).forEach(listener -> Try.run(listener::run)
+    private void notifyIndexChanged(ConversionChangeSet changes) {
+        List.copyOf(this.indexChangeListeners).forEach(listener -> Try.run(() -> listener.accept(changes))
                 .onFailure(err -> log.error("Conversion index listener failed", err)));
     }
 
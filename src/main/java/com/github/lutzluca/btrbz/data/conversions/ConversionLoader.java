@@ -26,6 +26,10 @@ import net.fabricmc.loader.api.FabricLoader;
 import net.minecraft.client.Minecraft;
 import net.minecraft.resources.Identifier;
 
+/**
+ * Reads and writes the conversion index. The local cache is the binary {@link ConversionIndexFile}; JSON is kept for
+ * the bundled seed, caches written by older versions and the export and import commands.
+ */
 @Slf4j
 final class ConversionLoader {
 
@@ -49,7 +53,8 @@ final class ConversionLoader {
         String generatedAt,
         String neuCommit,
         Map<String, ConversionProductEntry> products,
-        Set<String> missingProductIds
+        Set<String> missingProductIds,
+        Map<String, String> sourceHashes
     ) {
 
         static IndexSnapshot fromIndex(ConversionIndex index) {
@@ -59,7 +64,8 @@ final class ConversionLoader {
                 index.generatedAt(),
                 index.neuCommit().orElse(null),
                 index.products(),
-                index.missingProductIds()
+                index.missingProductIds(),
+                index.sourceHashes()
             );
         }
 
@@ -78,7 +84,8 @@ final class ConversionLoader {
                     this.generatedAt,
                     this.neuCommit,
                     this.products,
-                    this.missingProductIds
+                    this.missingProductIds,
+                    this.sourceHashes
                 );
             } catch (IllegalArgumentException err) {
                 throw new IOException("Invalid conversion index", err);
@@ -93,26 +100,54 @@ final class ConversionLoader {
                 log.warn("Local conversion index unavailable: {}", err.getMessage());
                 return loadFromBundledSeed()
                     .map(index -> new LoadResult(index, ConversionStatus.IndexLoadSource.BundledSeed));
-            });
+            })
+            // the prefix search is otherwise built on first use, which would be the client thread
+            .peek(result -> result.index().buildLookups());
     }
 
     static Try<Path> persistIndex(ConversionIndex index) {
+        return Try
+            .of(() -> ConversionIndexFile.encode(index))
+            .flatMap(bytes -> Utils.atomicDumpToFile(localIndexPath(), bytes));
+    }
+
+    static Try<Path> exportJson(ConversionIndex index) {
         var snapshot = IndexSnapshot.fromIndex(index);
-        return Utils.atomicDumpToFile(localIndexPath(), GSON.toJson(snapshot));
+        return Utils.atomicDumpToFile(jsonIndexPath(), GSON.toJson(snapshot));
+    }
+
+    static Try<ConversionIndex> importJson() {
+        return readJson(jsonIndexPath());
     }
 
     private static Try<ConversionIndex> loadFromLocalCache() {
         return Try
-            .of(() -> Files.readString(localIndexPath(), StandardCharsets.UTF_8))
+            .of(() -> ConversionIndexFile.read(localIndexPath()))
+            .recoverWith(err -> {
+                log.debug("Binary conversion index unavailable, trying the JSON cache: {}", err.getMessage());
+                return readJson(jsonIndexPath()).peek(index -> persistIndex(index).onFailure(persistErr -> log.warn(
+                    "Failed to convert the JSON conversion index cache: {}",
+                    persistErr.getMessage()
+                )));
+            });
+    }
+
+    private static Try<ConversionIndex> readJson(Path path) {
+        return Try
+            .of(() -> Files.readString(path, StandardCharsets.UTF_8))
             .flatMap(ConversionLoader::parseIndex);
     }
 
     private static Path localIndexPath() {
-        return FabricLoader
-            .getInstance()
-            .getConfigDir()
-            .resolve(BtrBz.MOD_ID)
-            .resolve("conversion-index.json");
+        return configDir().resolve("conversion-index.bin");
+    }
+
+    static Path jsonIndexPath() {
+        return configDir().resolve("conversion-index.json");
+    }
+
+    private static Path configDir() {
+        return FabricLoader.getInstance().getConfigDir().resolve(BtrBz.MOD_ID);
     }
 
     private static Try<ConversionIndex> loadFromBundledSeed() {
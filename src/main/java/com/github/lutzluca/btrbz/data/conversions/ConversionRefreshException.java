@@ -27,6 +27,7 @@ public class ConversionRefreshException extends Exception {
         LoadBundledSeed,
         HypixelBazaar,
         NeuCommit,
+        NeuTree,
         NeuZip,
         Parse,
         Validate,
@@ -3,6 +3,7 @@ package com.github.lutzluca.btrbz.data.conversions;
 import java.util.Optional;
 
 public record ConversionStatus(
+    Readiness readiness,
     IndexLoadSource activeLoadSource,
     ConversionSourceCounts sourceCounts,
     int missingProductCount,
@@ -10,24 +11,47 @@ public record ConversionStatus(
     String generatedAt,
     Optional<String> lastSuccessfulRefreshAt,
     Optional<ConversionRefreshException> lastFailure,
-    boolean refreshInFlight
+    boolean refreshInFlight,
+    CacheStats resolutionCache
 ) {
 
     public enum IndexLoadSource {
         LocalCache,
         BundledSeed,
         RemoteRefresh,
+        JsonImport,
         Unavailable
     }
 
+    /**
+     * Whether the cached or bundled index was loaded. Products are resolved to runtime identities until it is.
+     */
+    public enum Readiness {
+        NotLoaded,
+        Loading,
+        Ready,
+        Failed
+    }
+
+    public record CacheStats(long hits, long misses, int size, int capacity) {
+
+        public double hitRate() {
+            long lookups = this.hits + this.misses;
+            return lookups == 0 ? 0 : (double) this.hits / lookups;
+        }
+    }
+
     static ConversionStatus from(
+        Readiness readiness,
         IndexLoadSource source,
         ConversionIndex index,
         Optional<String> lastSuccessfulRefreshAt,
         Optional<ConversionRefreshException> lastFailure,
-        boolean refreshInFlight
+        boolean refreshInFlight,
+        CacheStats resolutionCache
     ) {
         return new ConversionStatus(
+            readiness,
             source,
             index.sourceCounts(),
             index.missingProductIds().size(),
@@ -35,7 +59,8 @@ public record ConversionStatus(
             index.generatedAt(),
             lastSuccessfulRefreshAt,
             lastFailure,
-            refreshInFlight
+            refreshInFlight,
+            resolutionCache
         );
     }
 }
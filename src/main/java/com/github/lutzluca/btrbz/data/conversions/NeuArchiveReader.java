@@ -0,0 +1,257 @@
+package com.github.lutzluca.btrbz.data.conversions;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipInputStream;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Reads the NEU repo archive while it is downloaded. The entries of the zip stream are read one after another and only
+ * the Bazaar stock list and the item files Bazaar products can resolve to are kept. Item JSON is parsed on a bounded
+ * worker pool as the entries arrive; once its queue is full the reading thread parses the next item itself, so a slow
+ * parse throttles the download instead of buffering the archive.
+ * <p>
+ * Which items a product resolves to through the stock list is only known once the list was read. GitHub archives
+ * list {@code constants/} before {@code items/}, so this is the normal case; items read before the list are parsed
+ * regardless and only their display name is kept.
+ */
+@Slf4j
+final class NeuArchiveReader {
+
+    private static final Gson GSON = new Gson();
+    static final String STOCKS_ENTRY = "constants/bazaarstocks.json";
+    static final String ITEMS_DIRECTORY = "items/";
+    private static final String ITEM_SUFFIX = ".json";
+    static final int PARSE_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+    private static final int QUEUED_ITEMS = 64;
+
+    private final Set<String> productIds;
+    private final Set<String> itemIds;
+    private final ItemNameParser parser;
+    private final Map<String, String> itemHashes = new ConcurrentHashMap<>();
+    private final Map<String, Optional<String>> itemNames = new ConcurrentHashMap<>();
+    private final List<Future<?>> pending = new ArrayList<>();
+    private Map<String, String> stockIds;
+    private Set<String> stockItemIds;
+    private int skippedItems = 0;
+
+    /**
+     * @param itemIds the NEU ids the products resolve to without the stock list
+     */
+    private NeuArchiveReader(Set<String> productIds, Set<String> itemIds, ItemNameParser parser) {
+        this.productIds = productIds;
+        this.itemIds = itemIds;
+        this.parser = parser;
+    }
+
+    /**
+     * @param itemIds the NEU ids the products resolve to without the stock list, i.e. their own ids and aliases
+     */
+    static NeuArchive read(InputStream archive, Set<String> productIds, Set<String> itemIds, ItemNameParser parser)
+        throws IOException {
+        return new NeuArchiveReader(productIds, itemIds, parser).read(archive);
+    }
+
+    private NeuArchive read(InputStream archive) throws IOException {
+        var threadIds = new AtomicInteger();
+        var workers = new ThreadPoolExecutor(
+            PARSE_THREADS,
+            PARSE_THREADS,
+            0,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(QUEUED_ITEMS),
+            runnable -> {
+                var thread = new Thread(runnable, "btrbz-neu-parser-" + threadIds.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.CallerRunsPolicy()
+        );
+
+        try (var zip = new ZipInputStream(archive, StandardCharsets.UTF_8)) {
+            for (var entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                if (entry.isDirectory()) {
+                    continue;
+                }
+
+                var name = entry.getName();
+                if (name.endsWith(STOCKS_ENTRY)) {
+                    this.readStocks(zip);
+                    continue;
+                }
+
+                var neuId = itemId(name);
+                if (neuId == null) {
+                    continue;
+                }
+                if (!this.isWanted(neuId)) {
+                    this.skippedItems++;
+                    continue;
+                }
+
+                var content = zip.readAllBytes();
+                this.pending.add(workers.submit(() -> {
+                    this.itemNames.put(neuId, parseItem(this.parser, neuId, content));
+                    this.itemHashes.put(neuId, gitBlobHash(content));
+                    return null;
+                }));
+            }
+
+            for (var task : this.pending) {
+                task.get();
+            }
+        } catch (ExecutionException err) {
+            var cause = err.getCause();
+            throw cause instanceof IOException io ? io : new IOException(cause.getMessage(), cause);
+        } catch (InterruptedException err) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while parsing NEU items", err);
+        } finally {
+            workers.shutdownNow();
+        }
+
+        if (this.stockIds == null) {
+            throw new IOException("NEU zip did not contain " + STOCKS_ENTRY);
+        }
+
+        log.debug("Read {} NEU items, skipped {} unrelated ones", this.itemNames.size(), this.skippedItems);
+        return new NeuArchive(this.stockIds, Map.copyOf(this.itemHashes), Map.copyOf(this.itemNames));
+    }
+
+    private void readStocks(InputStream zip) throws IOException {
+        // the zip stream is closed once the archive was read, not after this entry
+        this.stockIds = parseStocks(zip.readAllBytes());
+        this.stockItemIds = new HashSet<>();
+        this.stockIds.forEach((productId, neuId) -> {
+            if (this.productIds.contains(productId)) {
+                this.stockItemIds.add(neuId);
+            }
+        });
+    }
+
+    /**
+     * @return the NEU ids of the Bazaar stocks, by Bazaar product id
+     */
+    static Map<String, String> parseStocks(byte[] content) throws IOException {
+        var reader = new InputStreamReader(new ByteArrayInputStream(content), StandardCharsets.UTF_8);
+        List<BazaarStock> stocks;
+        try {
+            stocks = GSON.fromJson(reader, new TypeToken<List<BazaarStock>>() { }.getType());
+        } catch (JsonParseException err) {
+            throw new IOException("Invalid " + STOCKS_ENTRY + ": " + err.getMessage(), err);
+        }
+
+        var stockIds = new HashMap<String, String>();
+        for (var stock : stocks == null ? List.<BazaarStock>of() : stocks) {
+            if (stock.stock != null && stock.id != null) {
+                stockIds.put(stock.stock, stock.id);
+            }
+        }
+        return stockIds;
+    }
+
+    private boolean isWanted(String neuId) {
+        return this.stockItemIds == null || this.itemIds.contains(neuId) || this.stockItemIds.contains(neuId);
+    }
+
+    static Optional<String> parseItem(ItemNameParser parser, String neuId, byte[] content) throws IOException {
+        try (Reader reader = new InputStreamReader(new ByteArrayInputStream(content), StandardCharsets.UTF_8)) {
+            return parser.parse(reader);
+        } catch (JsonParseException | IllegalStateException | UnsupportedOperationException err) {
+            throw new IOException("Invalid NEU item " + neuId + ": " + err.getMessage(), err);
+        }
+    }
+
+    /**
+     * @return the hash git stores the content under, as listed in the tree of a commit
+     */
+    static String gitBlobHash(byte[] content) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-1");
+            digest.update(("blob " + content.length + "\0").getBytes(StandardCharsets.US_ASCII));
+            return HexFormat.of().formatHex(digest.digest(content));
+        } catch (NoSuchAlgorithmException err) {
+            throw new IllegalStateException("SHA-1 is not available", err);
+        }
+    }
+
+    /**
+     * Takes repo paths like {@code items/ID.json} as well as zip entries, which GitHub nests in one directory named
+     * after the repo and commit.
+     *
+     * @return the NEU id of an item file directly inside the top-level {@code items/} directory, {@code null} for other
+     *     entries
+     */
+    static String itemId(String entryName) {
+        if (!entryName.endsWith(ITEM_SUFFIX)) {
+            return null;
+        }
+
+        int directory = 0;
+        if (!entryName.startsWith(ITEMS_DIRECTORY)) {
+            directory = entryName.indexOf('/') + 1;
+            if (directory == 0 || !entryName.startsWith(ITEMS_DIRECTORY, directory)) {
+                return null;
+            }
+        }
+
+        int start = directory + ITEMS_DIRECTORY.length();
+        var neuId = entryName.substring(start, entryName.length() - ITEM_SUFFIX.length());
+        return neuId.isEmpty() || neuId.indexOf('/') >= 0 ? null : neuId;
+    }
+
+    @FunctionalInterface
+    interface ItemNameParser {
+
+        Optional<String> parse(Reader itemJson) throws IOException;
+    }
+
+    /**
+     * @param stockIds   the NEU ids of the Bazaar stocks, by Bazaar product id
+     * @param itemHashes the git blob hashes of the known items by NEU id
+     * @param itemNames  the formatted names of the read items by NEU id, empty if the item has none
+     */
+    record NeuArchive(
+        Map<String, String> stockIds,
+        Map<String, String> itemHashes,
+        Map<String, Optional<String>> itemNames
+    ) {
+
+        boolean hasItem(String neuId) {
+            return this.itemHashes.containsKey(neuId);
+        }
+
+        Optional<String> itemName(String neuId) {
+            return this.itemNames.getOrDefault(neuId, Optional.empty());
+        }
+    }
+
+    private static final class BazaarStock {
+        String stock;
+        String id;
+    }
+}
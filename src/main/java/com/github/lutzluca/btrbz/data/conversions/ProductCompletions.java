@@ -0,0 +1,274 @@
+package com.github.lutzluca.btrbz.data.conversions;
+
+import com.github.lutzluca.btrbz.data.IndexedProduct;
+import com.github.lutzluca.btrbz.utils.Utils;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.IntStream;
+
+/**
+ * Prefix search over the names and ids of the products of one {@link ConversionIndex}.
+ * <p>
+ * Every word start of a normalized name or lower-case id is a key. Keys are kept as packed positions into those
+ * strings, sorted by the text that follows them, which makes this the flattened leaf order of a trie over all word
+ * suffixes: the keys starting with a prefix form one range that two binary searches find. Input that starts in the
+ * middle of a word is matched by a scan over the names and ids, only if no word starts with it, as suggestions are
+ * asked for on every typed character and nearly every input is the start of some word.
+ */
+public final class ProductCompletions {
+
+    private static final int KIND_NAME = 0;
+    private static final int KIND_ID = 1;
+    private static final byte RANK_EXACT = 0;
+    private static final byte RANK_NAME_PREFIX = 1;
+    private static final byte RANK_ID_PREFIX = 2;
+    private static final byte RANK_WORD_PREFIX = 3;
+    private static final byte RANK_SUBSTRING = 4;
+    private static final byte UNMATCHED = Byte.MAX_VALUE;
+
+    private final IndexedProduct[] products;
+    private final String[] names;
+    private final String[] ids;
+    // product << 33 | kind << 32 | start of the word
+    private final long[] keys;
+    // the products by name length and then name, the order matches of one rank are listed in
+    private final int[] byLength;
+
+    private ProductCompletions(IndexedProduct[] products, String[] names, String[] ids, long[] keys) {
+        this.products = products;
+        this.names = names;
+        this.ids = ids;
+        this.keys = keys;
+        this.byLength = IntStream
+            .range(0, products.length)
+            .boxed()
+            .sorted(Comparator
+                .comparingInt((Integer product) -> names[product].length())
+                .thenComparing(product -> names[product])
+                .thenComparingInt(product -> product))
+            .mapToInt(Integer::intValue)
+            .toArray();
+    }
+
+    static ProductCompletions of(Collection<IndexedProduct> indexed) {
+        var products = indexed
+            .stream()
+            .sorted(Comparator.comparing(IndexedProduct::productId))
+            .toArray(IndexedProduct[]::new);
+        var names = new String[products.length];
+        var ids = new String[products.length];
+        var words = new ArrayList<Word>(products.length * 4);
+        for (int product = 0; product < products.length; product++) {
+            names[product] = Utils.normalizeDisplayName(products[product].strippedName());
+            ids[product] = products[product].productId().toLowerCase(Locale.ROOT);
+            addWordStarts(words, product, KIND_NAME, names[product]);
+            addWordStarts(words, product, KIND_ID, ids[product]);
+        }
+
+        // the suffixes only exist while sorting, the index keeps their positions
+        words.sort(Comparator.comparing(Word::suffix).thenComparingLong(Word::key));
+        var keys = new long[words.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = words.get(i).key();
+        }
+        return new ProductCompletions(products, names, ids, keys);
+    }
+
+    private static void addWordStarts(List<Word> words, int product, int kind, String text) {
+        for (int start = 0; start < text.length(); start++) {
+            boolean wordStart = start == 0 || !Character.isLetterOrDigit(text.charAt(start - 1));
+            if (wordStart && Character.isLetterOrDigit(text.charAt(start))) {
+                words.add(new Word(text.substring(start), (long) product << 33 | (long) kind << 32 | start));
+            }
+        }
+    }
+
+    public int size() {
+        return this.products.length;
+    }
+
+    /**
+     * @return the products whose name starts with the prefix, by name
+     */
+    public List<IndexedProduct> withNamePrefix(String prefix, int limit) {
+        var normalized = Utils.normalizeDisplayName(prefix);
+        var matches = new ArrayList<IndexedProduct>();
+        int end = this.upperBound(normalized);
+        for (int i = this.lowerBound(normalized); i < end && matches.size() < limit; i++) {
+            long key = this.keys[i];
+            if (kind(key) == KIND_NAME && start(key) == 0) {
+                matches.add(this.products[product(key)]);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * @return the products with a word of their name starting with the prefix, by the matched text
+     */
+    public List<IndexedProduct> withWordPrefix(String prefix, int limit) {
+        var normalized = Utils.normalizeDisplayName(prefix);
+        var matches = new LinkedHashSet<IndexedProduct>();
+        int end = this.upperBound(normalized);
+        for (int i = this.lowerBound(normalized); i < end && matches.size() < limit; i++) {
+            long key = this.keys[i];
+            if (kind(key) == KIND_NAME) {
+                matches.add(this.products[product(key)]);
+            }
+        }
+        return List.copyOf(matches);
+    }
+
+    /**
+     * Completes a product name or id. Exact matches come first, then name prefixes, id prefixes, products with a
+     * later word of their name or id matching, within each group shorter names first. Only if nothing matched that
+     * way are products whose name or id contains the input anywhere listed instead.
+     */
+    public List<IndexedProduct> complete(String query, int limit) {
+        var name = Utils.normalizeDisplayName(query);
+        if (name.isEmpty()) {
+            return this.withNamePrefix("", limit);
+        }
+
+        var ranks = new byte[this.products.length];
+        Arrays.fill(ranks, UNMATCHED);
+        int matched = this.collect(name, ranks);
+        var id = query.trim().toLowerCase(Locale.ROOT).replace(' ', '_');
+        if (!id.equals(name)) {
+            matched += this.collect(id, ranks);
+        }
+        if (matched == 0) {
+            matched = this.collectSubstrings(name, id, ranks);
+        }
+
+        // rank in the high bits, so sorting the packed values orders by rank and then name length
+        var matches = new long[matched];
+        int next = 0;
+        for (int position = 0; position < this.byLength.length; position++) {
+            int rank = ranks[this.byLength[position]];
+            if (rank != UNMATCHED) {
+                matches[next++] = (long) rank << 32 | position;
+            }
+        }
+        Arrays.sort(matches);
+
+        var completions = new ArrayList<IndexedProduct>(Math.min(limit, matches.length));
+        for (int i = 0; i < matches.length && i < limit; i++) {
+            completions.add(this.products[this.byLength[(int) matches[i]]]);
+        }
+        return completions;
+    }
+
+    /**
+     * @return the number of products matched for the first time
+     */
+    private int collect(String prefix, byte[] ranks) {
+        int matched = 0;
+        int end = this.upperBound(prefix);
+        for (int i = this.lowerBound(prefix); i < end; i++) {
+            long key = this.keys[i];
+            byte rank;
+            if (start(key) != 0) {
+                rank = RANK_WORD_PREFIX;
+            } else if (this.text(key).length() == prefix.length()) {
+                rank = RANK_EXACT;
+            } else {
+                rank = kind(key) == KIND_NAME ? RANK_NAME_PREFIX : RANK_ID_PREFIX;
+            }
+
+            int product = product(key);
+            if (ranks[product] == UNMATCHED) {
+                matched++;
+            }
+            ranks[product] = (byte) Math.min(ranks[product], rank);
+        }
+        return matched;
+    }
+
+    /**
+     * @return the number of products matched for the first time
+     */
+    private int collectSubstrings(String name, String id, byte[] ranks) {
+        int matched = 0;
+        for (int product = 0; product < this.products.length; product++) {
+            if (ranks[product] == UNMATCHED && (this.names[product].contains(name) || this.ids[product].contains(id))) {
+                ranks[product] = RANK_SUBSTRING;
+                matched++;
+            }
+        }
+        return matched;
+    }
+
+    /**
+     * @return the first key whose text does not sort before the prefix
+     */
+    private int lowerBound(String prefix) {
+        int low = 0;
+        int high = this.keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (this.comparePrefix(this.keys[mid], prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return the first key whose text sorts after every text starting with the prefix
+     */
+    private int upperBound(String prefix) {
+        int low = 0;
+        int high = this.keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (this.comparePrefix(this.keys[mid], prefix) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return {@code 0} if the text of the key starts with the prefix, otherwise the order of the two
+     */
+    private int comparePrefix(long key, String prefix) {
+        var text = this.text(key);
+        int start = start(key);
+        int length = Math.min(text.length() - start, prefix.length());
+        for (int i = 0; i < length; i++) {
+            int cmp = Character.compare(text.charAt(start + i), prefix.charAt(i));
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return text.length() - start < prefix.length() ? -1 : 0;
+    }
+
+    private String text(long key) {
+        return kind(key) == KIND_NAME ? this.names[product(key)] : this.ids[product(key)];
+    }
+
+    private static int product(long key) {
+        return (int) (key >>> 33);
+    }
+
+    private static int kind(long key) {
+        return (int) (key >>> 32) & 1;
+    }
+
+    private static int start(long key) {
+        return (int) key;
+    }
+
+    private record Word(String suffix, long key) { }
+}
@@ -44,6 +44,10 @@ final class ProductResolver {
     ) {
         var displayName = Utils.cleanDisplayName(displayNameEvidence);
         var rawProductId = Utils.customDataId(stack).orElse(null);
+        if (!this.service.isReady()) {
+            return this.runtime(displayName, this.isEnchantedBook(stack) ? null : rawProductId, formattedNameEvidence);
+        }
+
         if (isPossibleShardStack(rawProductId, displayName)) {
             return this.resolveShardIdentity(displayName, formattedNameEvidence, rawProductId);
         }
@@ -76,6 +80,10 @@ final class ProductResolver {
 
     ProductIdentity resolveProduct(String rawProductId, String displayName) {
         var cleanedName = Utils.cleanDisplayName(displayName);
+        if (!this.service.isReady()) {
+            return this.runtime(cleanedName, rawProductId, null);
+        }
+
         if (rawProductId != null && !rawProductId.isBlank()) {
             var product = this.resolveKnownProductId(rawProductId, cleanedName);
             if (product.isPresent()) {
@@ -101,6 +109,10 @@ final class ProductResolver {
 
     ProductIdentity resolveProductName(String displayName) {
         var cleanedName = Utils.cleanDisplayName(displayName);
+        if (!this.service.isReady()) {
+            return ProductIdentity.fromName(cleanedName);
+        }
+
         var index = this.service.currentIndex();
         var product = index.uniqueProductByName(cleanedName);
         if (product.isPresent()) {
@@ -126,12 +138,12 @@ final class ProductResolver {
         String displayName,
         @Nullable String formattedNameEvidence
     ) {
-        return this.resolveEnchantedBookFromCustomData(stack)
+        return enchantedBookIdFromCustomData(stack)
             .map(id -> this.derivedProductIdentity(id, displayName, formattedNameEvidence, "custom data"))
             .or(() -> this.resolveEnchantedBookDisplayName(displayName, formattedNameEvidence));
     }
 
-    private Optional<String> resolveEnchantedBookFromCustomData(ItemStack stack) {
+    static Optional<String> enchantedBookIdFromCustomData(ItemStack stack) {
         return Optional
             .ofNullable(stack.get(DataComponents.CUSTOM_DATA))
             .map(CustomData::copyTag)
@@ -169,7 +181,7 @@ final class ProductResolver {
         String displayName,
         @Nullable String formattedNameEvidence
     ) {
-        if (!"Enchanted Book".equals(displayName)) {
+        if (!isGenericBookName(displayName)) {
             return this.runtime(displayName, null, formattedNameEvidence);
         }
 
@@ -186,6 +198,13 @@ final class ProductResolver {
             : this.runtime(displayName, null, formattedNameEvidence);
     }
 
+    /**
+     * @return whether the lore of an enchanted book with this name is read to find its enchantment
+     */
+    static boolean isGenericBookName(String displayName) {
+        return "Enchanted Book".equals(displayName);
+    }
+
     private boolean isEnchantedBook(ItemStack stack) {
         return stack.getItem() == Items.ENCHANTED_BOOK;
     }
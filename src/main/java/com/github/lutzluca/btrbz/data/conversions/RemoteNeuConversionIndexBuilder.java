@@ -1,32 +1,37 @@
 package com.github.lutzluca.btrbz.data.conversions;
 
+import com.github.lutzluca.btrbz.data.conversions.NeuArchiveReader.NeuArchive;
+import com.github.lutzluca.btrbz.utils.GsonUtils;
 import com.github.lutzluca.btrbz.utils.Utils;
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
-import com.google.gson.reflect.TypeToken;
+import com.google.gson.JsonParseException;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.TreeSet;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
@@ -46,11 +51,21 @@ final class RemoteNeuConversionIndexBuilder {
         .build();
 
     private static final URI HYPIXEL_BAZAAR_URI = URI.create("https://api.hypixel.net/v2/skyblock/bazaar");
-    private static final URI NEU_COMMIT_URI = URI.create(
-        "https://api.github.com/repos/NotEnoughUpdates/NotEnoughUpdates-REPO/commits/master"
+    // beyond this many changed item files one streamed archive is cheaper than fetching each file
+    private static final int MAX_PATCHED_ITEMS = 250;
+    private static final int PATCH_CONCURRENCY = 8;
+    private static final int RESOLVE_LEAF_SIZE = 64;
+    private static final ForkJoinPool RESOLVE_POOL = new ForkJoinPool(
+        NeuArchiveReader.PARSE_THREADS,
+        pool -> {
+            var thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("btrbz-neu-resolver-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        },
+        null,
+        false
     );
-    private static final String NEU_ZIP_URL =
-        "https://github.com/NotEnoughUpdates/NotEnoughUpdates-REPO/archive/%s.zip";
 
     // Bazaar still exposes a few legacy product ids whose NEU item json uses a different id
     // Direct NEU item files are checked first, so these aliases only cover known mismatches
@@ -72,7 +87,52 @@ final class RemoteNeuConversionIndexBuilder {
 
     private RemoteNeuConversionIndexBuilder() { }
 
-    record BuildResult(ConversionIndex index, boolean changed) { }
+    /**
+     * @param changes the products whose entry differs from the current index
+     */
+    record BuildResult(ConversionIndex index, boolean changed, ConversionChangeSet changes) { }
+
+    /**
+     * @param sourceHashes the git blob hash of the NEU item file each product was read from
+     */
+    record NeuEntries(Map<String, ConversionProductEntry> products, Map<String, String> sourceHashes) { }
+
+    /**
+     * @param entry      {@code null} if the product could not be named
+     * @param sourceHash {@code null} if the product was not named after an item file
+     */
+    record ResolvedProduct(ConversionProductEntry entry, String sourceHash) { }
+
+    @FunctionalInterface
+    private interface KeyMapper<T> {
+
+        T apply(String key) throws IOException;
+    }
+
+    /**
+     * Where the NEU repo is read from. The URLs are format strings taking the commit and, for files, the path.
+     */
+    record NeuRepository(URI commitUri, String treeUrl, String fileUrl, String zipUrl) {
+
+        static final NeuRepository GITHUB = new NeuRepository(
+            URI.create("https://api.github.com/repos/NotEnoughUpdates/NotEnoughUpdates-REPO/commits/master"),
+            "https://api.github.com/repos/NotEnoughUpdates/NotEnoughUpdates-REPO/git/trees/%s?recursive=1",
+            "https://raw.githubusercontent.com/NotEnoughUpdates/NotEnoughUpdates-REPO/%s/%s",
+            "https://github.com/NotEnoughUpdates/NotEnoughUpdates-REPO/archive/%s.zip"
+        );
+
+        URI treeUri(String commit) {
+            return URI.create(String.format(this.treeUrl, commit));
+        }
+
+        URI fileUri(String commit, String path) {
+            return URI.create(String.format(this.fileUrl, commit, path));
+        }
+
+        URI zipUri(String commit) {
+            return URI.create(String.format(this.zipUrl, commit));
+        }
+    }
 
     static BuildResult build(ConversionIndex current) throws ConversionRefreshException {
         return build(current, false);
@@ -80,19 +140,20 @@ final class RemoteNeuConversionIndexBuilder {
 
     static BuildResult build(ConversionIndex current, boolean allowPartial) throws ConversionRefreshException {
         var productIds = fetchBazaarProductIds();
-        var neuCommit = fetchNeuCommit();
+        var neuCommit = fetchNeuCommit(NeuRepository.GITHUB);
         var canReuseEntries = shouldReuseNeuEntries(current, neuCommit, productIds);
         if (canReuseEntries && current.products().keySet().equals(productIds)) {
             log.debug(
                 "NEU commit and Bazaar product list unchanged; keeping current conversion index with {} products",
                 current.size()
             );
-            return new BuildResult(current, false);
+            return new BuildResult(current, false, ConversionChangeSet.NONE);
         }
 
-        var products = canReuseEntries
+        var entries = canReuseEntries
             ? reusableEntries(current, productIds)
-            : fetchNeuEntries(neuCommit, productIds);
+            : fetchChangedEntries(current, neuCommit, productIds, NeuRepository.GITHUB);
+        var products = entries.products();
 
         var missingProductIds = validateCompleteIndex(productIds, products, allowPartial);
         var carriedForwardCount = carryForwardMissingEntries(current, products, missingProductIds);
@@ -109,7 +170,8 @@ final class RemoteNeuConversionIndexBuilder {
             Instant.now().toString(),
             neuCommit,
             products,
-            missingProductIds
+            missingProductIds,
+            entries.sourceHashes()
         );
         var counts = index.sourceCounts();
         log.info(
@@ -120,7 +182,8 @@ final class RemoteNeuConversionIndexBuilder {
             index.missingProductIds().size(),
             neuCommit
         );
-        return new BuildResult(index, true);
+        var changes = ConversionChangeSet.between(current == null ? ConversionIndex.empty() : current, index);
+        return new BuildResult(index, true, changes);
     }
 
     static boolean shouldReuseNeuEntries(
@@ -175,9 +238,9 @@ final class RemoteNeuConversionIndexBuilder {
         }
     }
 
-    private static String fetchNeuCommit() throws ConversionRefreshException {
+    private static String fetchNeuCommit(NeuRepository repo) throws ConversionRefreshException {
         try {
-            var body = fetchString(NEU_COMMIT_URI, ConversionRefreshException.Phase.NeuCommit);
+            var body = fetchString(repo.commitUri(), ConversionRefreshException.Phase.NeuCommit);
             var root = GSON.fromJson(body, JsonObject.class);
             if (root == null || !root.has("sha")) {
                 throw new IOException("Invalid NEU commit response");
@@ -188,101 +251,308 @@ final class RemoteNeuConversionIndexBuilder {
         }
     }
 
-    private static Map<String, ConversionProductEntry> reusableEntries(
-        ConversionIndex current,
-        Set<String> productIds
-    ) {
+    private static NeuEntries reusableEntries(ConversionIndex current, Set<String> productIds) {
         var entries = new LinkedHashMap<String, ConversionProductEntry>();
-        new TreeSet<>(productIds).forEach(productId -> entries.put(productId, current.products().get(productId)));
+        var hashes = new HashMap<String, String>();
+        for (var productId : new TreeSet<>(productIds)) {
+            entries.put(productId, current.products().get(productId));
+            var hash = current.sourceHashes().get(productId);
+            if (hash != null) {
+                hashes.put(productId, hash);
+            }
+        }
         log.debug("NEU commit unchanged; reusing {} conversion entries", entries.size());
-        return entries;
+        return new NeuEntries(entries, hashes);
+    }
+
+    private static NeuEntries fetchChangedEntries(
+        ConversionIndex current,
+        String commit,
+        Set<String> productIds,
+        NeuRepository repo
+    ) throws ConversionRefreshException {
+        if (current != null && !current.sourceHashes().isEmpty()) {
+            try {
+                var patched = patchEntries(current, commit, productIds, repo);
+                if (patched.isPresent()) {
+                    return patched.get();
+                }
+            } catch (IOException | JsonParseException | IllegalStateException err) {
+                log.warn("Incremental NEU refresh failed, reading the whole archive instead: {}", err.getMessage());
+            }
+        }
+
+        return fetchNeuEntries(repo.zipUri(commit), productIds);
+    }
+
+    /**
+     * Fetches only the item files whose hash in the tree of the commit differs from the one the current entry was
+     * read from, and keeps every other entry of the current index.
+     *
+     * @return empty if the tree listing is truncated or too many items changed to fetch them one by one
+     */
+    static Optional<NeuEntries> patchEntries(
+        ConversionIndex current,
+        String commit,
+        Set<String> productIds,
+        NeuRepository repo
+    ) throws IOException {
+        return patchEntries(current, commit, productIds, repo, RESOLVE_POOL);
+    }
+
+    static Optional<NeuEntries> patchEntries(
+        ConversionIndex current,
+        String commit,
+        Set<String> productIds,
+        NeuRepository repo,
+        ForkJoinPool pool
+    ) throws IOException {
+        var itemHashes = fetchItemHashes(repo.treeUri(commit));
+        if (itemHashes.isEmpty()) {
+            log.debug("NEU tree listing of {} is truncated", commit);
+            return Optional.empty();
+        }
+
+        var stockIds = NeuArchiveReader.parseStocks(fetchBytes(repo.fileUri(commit, NeuArchiveReader.STOCKS_ENTRY)));
+        var listing = new NeuArchive(stockIds, itemHashes.get(), Map.of());
+
+        var changedProducts = new TreeSet<String>();
+        var changedItems = new TreeSet<String>();
+        for (var productId : productIds) {
+            var neuId = sourceItemId(listing, productId);
+            var hash = neuId == null ? null : listing.itemHashes().get(neuId);
+            if (isUnchanged(current, productId, neuId, hash)) {
+                continue;
+            }
+
+            changedProducts.add(productId);
+            if (neuId != null) {
+                changedItems.add(neuId);
+            }
+        }
+
+        if (changedItems.size() > MAX_PATCHED_ITEMS) {
+            log.debug("{} NEU items changed in {}, too many to fetch one by one", changedItems.size(), commit);
+            return Optional.empty();
+        }
+
+        var itemContents = fetchItemContents(repo, commit, changedItems);
+        var itemIds = List.copyOf(changedItems);
+        var names = mapInOrder(pool, itemIds, neuId -> NeuArchiveReader.parseItem(
+            RemoteNeuConversionIndexBuilder::readNeuFormattedName,
+            neuId,
+            itemContents.get(neuId)
+        ));
+        var itemNames = new HashMap<String, Optional<String>>();
+        for (int i = 0; i < itemIds.size(); i++) {
+            itemNames.put(itemIds.get(i), names.get(i));
+        }
+
+        var archive = new NeuArchive(stockIds, listing.itemHashes(), itemNames);
+        var changedIds = List.copyOf(changedProducts);
+        var resolved = mapInOrder(pool, changedIds, productId -> resolveProduct(archive, productId));
+        var resolvedById = new HashMap<String, ResolvedProduct>();
+        for (int i = 0; i < changedIds.size(); i++) {
+            resolvedById.put(changedIds.get(i), resolved.get(i));
+        }
+
+        var products = new LinkedHashMap<String, ConversionProductEntry>();
+        var hashes = new HashMap<String, String>();
+        for (var productId : new TreeSet<>(productIds)) {
+            var product = resolvedById.containsKey(productId)
+                ? resolvedById.get(productId)
+                : new ResolvedProduct(current.products().get(productId), current.sourceHashes().get(productId));
+            if (product.entry() == null) {
+                continue;
+            }
+
+            products.put(productId, product.entry());
+            if (product.sourceHash() != null) {
+                hashes.put(productId, product.sourceHash());
+            }
+        }
+
+        log.debug(
+            "Patched {} of {} conversion entries from NEU commit {} ({} item files fetched)",
+            changedProducts.size(),
+            productIds.size(),
+            commit,
+            changedItems.size()
+        );
+        return Optional.of(new NeuEntries(products, hashes));
     }
 
-    private static Map<String, ConversionProductEntry> fetchNeuEntries(String commit, Set<String> productIds)
+    /**
+     * An entry is kept if its product still resolves to the same item file with the same content. Derived entries
+     * only depend on the product id, so for them the same content under another path is enough.
+     */
+    private static boolean isUnchanged(ConversionIndex current, String productId, String neuId, String hash) {
+        var entry = current.products().get(productId);
+        if (entry == null || current.missingProductIds().contains(productId)) {
+            return false;
+        }
+        if (!Objects.equals(hash, current.sourceHashes().get(productId))) {
+            return false;
+        }
+
+        return switch (entry.source()) {
+            case ProductNameSource.Neu neu -> neu.neuId().equals(neuId);
+            case ProductNameSource.Derived _ -> true;
+        };
+    }
+
+    /**
+     * @return the git blob hashes of the item files by NEU id, empty if the listing is truncated
+     */
+    private static Optional<Map<String, String>> fetchItemHashes(URI treeUri) throws IOException {
+        var root = GSON.fromJson(fetchString(treeUri, ConversionRefreshException.Phase.NeuTree), JsonObject.class);
+        if (root == null || !root.has("tree") || !root.get("tree").isJsonArray()) {
+            throw new IOException("Invalid NEU tree response");
+        }
+        if (root.has("truncated") && root.get("truncated").getAsBoolean()) {
+            return Optional.empty();
+        }
+
+        var hashes = new HashMap<String, String>();
+        for (var element : root.getAsJsonArray("tree")) {
+            var node = element.getAsJsonObject();
+            var path = GsonUtils.optionalString(node, "path").orElse("");
+            var neuId = NeuArchiveReader.itemId(path);
+            if (neuId != null && path.startsWith(NeuArchiveReader.ITEMS_DIRECTORY)) {
+                GsonUtils.optionalString(node, "sha").ifPresent(sha -> hashes.put(neuId, sha));
+            }
+        }
+        return Optional.of(hashes);
+    }
+
+    private static Map<String, byte[]> fetchItemContents(
+        NeuRepository repo,
+        String commit,
+        Set<String> neuIds
+    ) throws IOException {
+        var contents = new HashMap<String, byte[]>();
+        var remaining = List.copyOf(neuIds);
+        for (int start = 0; start < remaining.size(); start += PATCH_CONCURRENCY) {
+            var batch = remaining.subList(start, Math.min(start + PATCH_CONCURRENCY, remaining.size()));
+            var responses = new ArrayList<CompletableFuture<HttpResponse<byte[]>>>(batch.size());
+            for (var neuId : batch) {
+                var uri = itemUri(repo, commit, neuId);
+                responses.add(HTTP_CLIENT.sendAsync(baseRequest(uri).GET().build(), BodyHandlers.ofByteArray()));
+            }
+
+            for (int i = 0; i < batch.size(); i++) {
+                var neuId = batch.get(i);
+                contents.put(neuId, awaitBody(itemUri(repo, commit, neuId), responses.get(i)));
+            }
+        }
+        return contents;
+    }
+
+    private static URI itemUri(NeuRepository repo, String commit, String neuId) {
+        return repo.fileUri(commit, NeuArchiveReader.ITEMS_DIRECTORY + neuId + ".json");
+    }
+
+    static NeuEntries fetchNeuEntries(URI zipUri, Set<String> productIds) throws ConversionRefreshException {
+        return fetchNeuEntries(zipUri, productIds, RESOLVE_POOL);
+    }
+
+    static NeuEntries fetchNeuEntries(URI zipUri, Set<String> productIds, ForkJoinPool pool)
         throws ConversionRefreshException {
-        Path zipPath;
+        var archive = downloadArchive(zipUri, productIds);
+        var sortedIds = List.copyOf(new TreeSet<>(productIds));
+        List<ResolvedProduct> resolved;
         try {
-            zipPath = Files.createTempFile("btrbz-neu-", ".zip");
+            resolved = mapInOrder(pool, sortedIds, productId -> resolveProduct(archive, productId));
         } catch (IOException err) {
-            throw new ConversionRefreshException(
-                ConversionRefreshException.Phase.NeuZip,
-                "Failed to create temporary NEU zip file",
-                err
-            );
+            throw new ConversionRefreshException(ConversionRefreshException.Phase.NeuZip, err.getMessage(), err);
         }
+        return neuEntries(zipUri, sortedIds, resolved);
+    }
 
+    static NeuArchive downloadArchive(URI zipUri, Set<String> productIds) throws ConversionRefreshException {
         try {
-            var req = baseRequest(URI.create(String.format(NEU_ZIP_URL, commit)))
+            var req = baseRequest(zipUri)
                 .timeout(ZIP_REQUEST_TIMEOUT)
                 .setHeader("Accept", "application/zip, application/octet-stream")
                 .GET()
                 .build();
-            var resp = HTTP_CLIENT.send(req, HttpResponse.BodyHandlers.ofFile(zipPath));
-            if (resp.statusCode() != 200) {
-                throw new IOException("Failed to download NEU zip: HTTP " + resp.statusCode());
-            }
-
-            try (var zip = new ZipFile(zipPath.toFile(), StandardCharsets.UTF_8)) {
-                var entriesBySuffix = indexZipEntries(zip);
-                var stockEntry = entriesBySuffix.get("constants/bazaarstocks.json");
-                if (stockEntry == null) {
-                    throw new IOException("NEU zip did not contain constants/bazaarstocks.json");
-                }
-
-                var stocks = readBazaarStocks(zip, stockEntry);
-                var stockIds = new HashMap<String, String>();
-                for (var stock : stocks) {
-                    if (stock.stock != null && stock.id != null) {
-                        stockIds.put(stock.stock, stock.id);
-                    }
+            var resp = HTTP_CLIENT.send(req, BodyHandlers.ofInputStream());
+            try (var body = resp.body()) {
+                if (resp.statusCode() != 200) {
+                    throw new IOException("Failed to download NEU zip: HTTP " + resp.statusCode());
                 }
 
-                var productEntries = new LinkedHashMap<String, ConversionProductEntry>();
-                var derivedFallbackExamples = new ArrayList<String>();
-                var staticAliasCount = 0;
-                for (var productId : new TreeSet<>(productIds)) {
-                    var productEntry = resolveEntry(zip, entriesBySuffix, stockIds, productId);
-                    if (productEntry.isEmpty()) {
-                        continue;
-                    }
-
-                    productEntries.put(productId, productEntry.get());
-
-                    if (productEntry.get().source() instanceof ProductNameSource.Derived
-                        && derivedFallbackExamples.size() < LOG_SAMPLE_LIMIT) {
-                        derivedFallbackExamples.add("%s -> %s".formatted(productId, productEntry.get().strippedName()));
-                    }
-                    if (STATIC_NEU_ALIASES.containsKey(productId)) {
-                        staticAliasCount++;
-                    }
-                }
-
-                log.debug(
-                    "Read {} Bazaar conversion entries from NEU commit {} (staticAliases={})",
-                    productEntries.size(),
-                    commit,
-                    staticAliasCount
+                return NeuArchiveReader.read(
+                    body,
+                    productIds,
+                    itemIds(productIds),
+                    RemoteNeuConversionIndexBuilder::readNeuFormattedName
                 );
-                if (!derivedFallbackExamples.isEmpty()) {
-                    log.info(
-                        "Derived Bazaar conversion names used during refresh; sample: {}",
-                        derivedFallbackExamples
-                    );
-                }
-                return productEntries;
             }
         } catch (IOException err) {
             throw new ConversionRefreshException(ConversionRefreshException.Phase.NeuZip, err.getMessage(), err);
         } catch (InterruptedException err) {
             Thread.currentThread().interrupt();
             throw new ConversionRefreshException(ConversionRefreshException.Phase.NeuZip, err.getMessage(), err);
-        } finally {
-            try {
-                Files.deleteIfExists(zipPath);
-            } catch (IOException err) {
-                log.warn("Failed to delete temporary NEU zip {}", zipPath, err);
+        }
+    }
+
+    /**
+     * @param resolved the products in the order of {@code sortedIds}
+     */
+    static NeuEntries neuEntries(URI zipUri, List<String> sortedIds, List<ResolvedProduct> resolved) {
+        var productEntries = new LinkedHashMap<String, ConversionProductEntry>();
+        var sourceHashes = new HashMap<String, String>();
+        var derivedFallbackExamples = new ArrayList<String>();
+        var staticAliasCount = 0;
+        for (int i = 0; i < sortedIds.size(); i++) {
+            var productId = sortedIds.get(i);
+            var product = resolved.get(i);
+            if (product.entry() == null) {
+                continue;
+            }
+
+            productEntries.put(productId, product.entry());
+            if (product.sourceHash() != null) {
+                sourceHashes.put(productId, product.sourceHash());
+            }
+
+            if (product.entry().source() instanceof ProductNameSource.Derived
+                && derivedFallbackExamples.size() < LOG_SAMPLE_LIMIT) {
+                derivedFallbackExamples.add("%s -> %s".formatted(productId, product.entry().strippedName()));
             }
+            if (STATIC_NEU_ALIASES.containsKey(productId)) {
+                staticAliasCount++;
+            }
+        }
+
+        log.debug(
+            "Read {} Bazaar conversion entries from {} (staticAliases={})",
+            productEntries.size(),
+            zipUri,
+            staticAliasCount
+        );
+        if (!derivedFallbackExamples.isEmpty()) {
+            log.info(
+                "Derived Bazaar conversion names used during refresh; sample: {}",
+                derivedFallbackExamples
+            );
         }
+        return new NeuEntries(productEntries, sourceHashes);
+    }
+
+    /**
+     * @return the NEU item ids the products resolve to without consulting the Bazaar stock list
+     */
+    private static Set<String> itemIds(Set<String> productIds) {
+        var itemIds = new HashSet<>(productIds);
+        for (var productId : productIds) {
+            var aliasNeuId = STATIC_NEU_ALIASES.get(productId);
+            if (aliasNeuId != null) {
+                itemIds.add(aliasNeuId);
+            }
+        }
+        return itemIds;
     }
 
     static Set<String> validateCompleteIndex(
@@ -312,52 +582,60 @@ final class RemoteNeuConversionIndexBuilder {
         );
     }
 
-    private static Optional<ConversionProductEntry> resolveEntry(
-        ZipFile zip,
-        Map<String, ZipEntry> entriesBySuffix,
-        Map<String, String> stockIds,
-        String productId
-    ) throws IOException {
-        var directItem = entriesBySuffix.get("items/" + productId + ".json");
-        if (directItem != null) {
-            return entryFromItem(zip, directItem, productId)
-                .or(() -> derivedEnchantmentEntry(productId));
+    static ResolvedProduct resolveProduct(NeuArchive archive, String productId) {
+        var entry = resolveEntry(archive, productId);
+        if (entry.isEmpty()) {
+            return new ResolvedProduct(null, null);
         }
 
-        var stockNeuId = stockIds.get(productId);
-        if (stockNeuId != null && !stockNeuId.isBlank()) {
-            return entryFromNeuId(zip, entriesBySuffix, productId, stockNeuId);
-        }
+        var neuId = sourceItemId(archive, productId);
+        return new ResolvedProduct(entry.get(), neuId == null ? null : archive.itemHashes().get(neuId));
+    }
 
-        var aliasNeuId = STATIC_NEU_ALIASES.get(productId);
-        if (aliasNeuId != null) {
-            return entryFromNeuId(zip, entriesBySuffix, productId, aliasNeuId);
+    /**
+     * Applies the mapper to every key on the pool. The results are in key order, so they do not depend on how the
+     * keys were split between the workers.
+     */
+    private static <T> List<T> mapInOrder(ForkJoinPool pool, List<String> keys, KeyMapper<T> mapper)
+        throws IOException {
+        var results = new Object[keys.size()];
+        try {
+            pool.invoke(new MapTask<>(keys, mapper, results, 0, keys.size()));
+        } catch (UncheckedIOException err) {
+            throw err.getCause();
         }
 
-        return derivedEnchantmentEntry(productId);
+        @SuppressWarnings("unchecked")
+        var mapped = (List<T>) Arrays.asList(results);
+        return mapped;
     }
 
-    private static Optional<ConversionProductEntry> entryFromNeuId(
-        ZipFile zip,
-        Map<String, ZipEntry> entriesBySuffix,
-        String productId,
-        String neuId
-    ) throws IOException {
-        var itemEntry = entriesBySuffix.get("items/" + neuId + ".json");
-        if (itemEntry == null) {
+    private static Optional<ConversionProductEntry> resolveEntry(NeuArchive archive, String productId) {
+        var neuId = sourceItemId(archive, productId);
+        if (neuId == null) {
             return derivedEnchantmentEntry(productId);
         }
 
-        return entryFromItem(zip, itemEntry, neuId)
+        return entryFromItem(archive, neuId)
             .or(() -> derivedEnchantmentEntry(productId));
     }
 
-    private static Optional<ConversionProductEntry> entryFromItem(
-        ZipFile zip,
-        ZipEntry itemEntry,
-        String neuId
-    ) throws IOException {
-        return readNeuFormattedName(zip, itemEntry)
+    /**
+     * @return the NEU id of the item file the product is named after, {@code null} if there is none
+     */
+    private static String sourceItemId(NeuArchive archive, String productId) {
+        if (archive.hasItem(productId)) {
+            return productId;
+        }
+
+        var stockNeuId = archive.stockIds().get(productId);
+        var neuId = stockNeuId != null && !stockNeuId.isBlank() ? stockNeuId : STATIC_NEU_ALIASES.get(productId);
+        return neuId != null && archive.hasItem(neuId) ? neuId : null;
+    }
+
+    private static Optional<ConversionProductEntry> entryFromItem(NeuArchive archive, String neuId) {
+        return archive
+            .itemName(neuId)
             .map(formattedName -> new ConversionProductEntry(
                 formattedName,
                 new ProductNameSource.Neu(neuId)
@@ -401,60 +679,34 @@ final class RemoteNeuConversionIndexBuilder {
         return Optional.of(name + " " + formattedLevel);
     }
 
-    private static Map<String, ZipEntry> indexZipEntries(ZipFile zip) {
-        var entries = new HashMap<String, ZipEntry>();
-        zip.stream().forEach(entry -> {
-            var name = entry.getName();
-            var constantsIdx = name.indexOf("constants/");
-            if (constantsIdx >= 0) {
-                entries.put(name.substring(constantsIdx), entry);
-                return;
-            }
-
-            var itemIdx = name.indexOf("items/");
-            if (itemIdx >= 0) {
-                entries.put(name.substring(itemIdx), entry);
-            }
-        });
-        return entries;
-    }
-
-    private static List<BazaarStock> readBazaarStocks(ZipFile zip, ZipEntry entry) throws IOException {
-        try (Reader reader = new InputStreamReader(zip.getInputStream(entry), StandardCharsets.UTF_8)) {
-            return GSON.fromJson(reader, new TypeToken<List<BazaarStock>>() { }.getType());
+    static Optional<String> readNeuFormattedName(Reader reader) {
+        var item = GSON.fromJson(reader, JsonObject.class);
+        if (item == null) {
+            return Optional.empty();
         }
-    }
 
-    private static Optional<String> readNeuFormattedName(ZipFile zip, ZipEntry entry) throws IOException {
-        try (Reader reader = new InputStreamReader(zip.getInputStream(entry), StandardCharsets.UTF_8)) {
-            var item = GSON.fromJson(reader, JsonObject.class);
-            if (item == null) {
-                return Optional.empty();
-            }
+        var displayName = item.has("displayname")
+            ? item.get("displayname").getAsString()
+            : "";
 
-            var displayName = item.has("displayname")
-                ? item.get("displayname").getAsString()
-                : "";
-
-            if (!Utils.cleanDisplayName(displayName).equals("Enchanted Book")) {
-                return Optional.of(displayName).filter(name -> !Utils.cleanDisplayName(name).isBlank());
-            }
+        if (!Utils.cleanDisplayName(displayName).equals("Enchanted Book")) {
+            return Optional.of(displayName).filter(name -> !Utils.cleanDisplayName(name).isBlank());
+        }
 
-            if (!item.has("lore") || !item.get("lore").isJsonArray()) {
-                return Optional.empty();
-            }
+        if (!item.has("lore") || !item.get("lore").isJsonArray()) {
+            return Optional.empty();
+        }
 
-            for (var lineElement : item.getAsJsonArray("lore")) {
-                var rawLine = lineElement.getAsString();
-                var stripped = Utils.cleanDisplayName(rawLine);
-                if (stripped.isBlank() || stripped.equals("Combinable in Anvil")) {
-                    continue;
-                }
-                return Optional.of(formatEnchantedBookName(displayName, rawLine));
+        for (var lineElement : item.getAsJsonArray("lore")) {
+            var rawLine = lineElement.getAsString();
+            var stripped = Utils.cleanDisplayName(rawLine);
+            if (stripped.isBlank() || stripped.equals("Combinable in Anvil")) {
+                continue;
             }
-
-            return Optional.empty();
+            return Optional.of(formatEnchantedBookName(displayName, rawLine));
         }
+
+        return Optional.empty();
     }
 
     static String formatEnchantedBookName(String genericBookName, String rawLoreName) {
@@ -506,7 +758,7 @@ final class RemoteNeuConversionIndexBuilder {
     private static String fetchString(URI uri, ConversionRefreshException.Phase phase) throws IOException {
         try {
             var req = baseRequest(uri).GET().build();
-            var resp = HTTP_CLIENT.send(req, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+            var resp = HTTP_CLIENT.send(req, BodyHandlers.ofString(StandardCharsets.UTF_8));
             if (resp.statusCode() != 200) {
                 throw new IOException("Request failed for " + uri + ": HTTP " + resp.statusCode());
             }
@@ -519,6 +771,62 @@ final class RemoteNeuConversionIndexBuilder {
         }
     }
 
+    private static final class MapTask<T> extends RecursiveAction {
+
+        private final List<String> keys;
+        private final KeyMapper<T> mapper;
+        private final Object[] results;
+        private final int from;
+        private final int to;
+
+        private MapTask(List<String> keys, KeyMapper<T> mapper, Object[] results, int from, int to) {
+            this.keys = keys;
+            this.mapper = mapper;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from <= RESOLVE_LEAF_SIZE) {
+                for (int i = this.from; i < this.to; i++) {
+                    try {
+                        this.results[i] = this.mapper.apply(this.keys.get(i));
+                    } catch (IOException err) {
+                        throw new UncheckedIOException(err);
+                    }
+                }
+                return;
+            }
+
+            int mid = (this.from + this.to) >>> 1;
+            invokeAll(
+                new MapTask<>(this.keys, this.mapper, this.results, this.from, mid),
+                new MapTask<>(this.keys, this.mapper, this.results, mid, this.to)
+            );
+        }
+    }
+
+    private static byte[] fetchBytes(URI uri) throws IOException {
+        return awaitBody(uri, HTTP_CLIENT.sendAsync(baseRequest(uri).GET().build(), BodyHandlers.ofByteArray()));
+    }
+
+    private static byte[] awaitBody(URI uri, CompletableFuture<HttpResponse<byte[]>> response) throws IOException {
+        try {
+            var resp = response.get();
+            if (resp.statusCode() != 200) {
+                throw new IOException("Request failed for " + uri + ": HTTP " + resp.statusCode());
+            }
+            return resp.body();
+        } catch (ExecutionException err) {
+            throw new IOException("Request failed for " + uri + ": " + err.getCause().getMessage(), err.getCause());
+        } catch (InterruptedException err) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while fetching " + uri, err);
+        }
+    }
+
     private static HttpRequest.Builder baseRequest(URI uri) {
         return HttpRequest
             .newBuilder(uri)
@@ -526,9 +834,4 @@ final class RemoteNeuConversionIndexBuilder {
             .header("Accept", "application/json")
             .header("User-Agent", "BtrBz conversion-index updater");
     }
-
-    private static final class BazaarStock {
-        String stock;
-        String id;
-    }
 }
@@ -0,0 +1,66 @@
+package com.github.lutzluca.btrbz.data.conversions;
+
+import com.github.lutzluca.btrbz.data.ProductIdentity;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of product resolutions. Entries remember the index revision they were resolved against and count
+ * as misses once a newer index was applied.
+ */
+final class ResolutionCache<K> {
+
+    static final int DEFAULT_CAPACITY = 4_096;
+
+    private final int capacity;
+    private final LinkedHashMap<K, Entry> entries;
+    private long hits = 0;
+    private long misses = 0;
+
+    ResolutionCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry> eldest) {
+                return this.size() > ResolutionCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * @return the cached resolution, {@code null} if there is none for this revision
+     */
+    synchronized ProductIdentity get(K key, long revision) {
+        var entry = this.entries.get(key);
+        if (entry == null || entry.revision != revision) {
+            this.misses++;
+            return null;
+        }
+
+        this.hits++;
+        return entry.identity;
+    }
+
+    synchronized void put(K key, long revision, ProductIdentity identity) {
+        this.entries.put(key, new Entry(revision, identity));
+    }
+
+    /**
+     * @return the number of dropped entries
+     */
+    synchronized int clear() {
+        int size = this.entries.size();
+        this.entries.clear();
+        return size;
+    }
+
+    synchronized ConversionStatus.CacheStats stats() {
+        return new ConversionStatus.CacheStats(this.hits, this.misses, this.entries.size(), this.capacity);
+    }
+
+    private record Entry(long revision, ProductIdentity identity) { }
+}
@@ -0,0 +1,44 @@
+package com.github.lutzluca.btrbz.data.history;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reads back bits written by {@link BitOutput} from a buffer without copying it.
+ */
+final class BitInput {
+
+    private final ByteBuffer buffer;
+    private final int offset;
+    private long position = 0;
+
+    /**
+     * @param offset absolute index of the first byte of the bit stream in the buffer
+     */
+    BitInput(ByteBuffer buffer, int offset) {
+        this.buffer = buffer;
+        this.offset = offset;
+    }
+
+    boolean readBit() {
+        int index = this.offset + (int) (this.position >>> 3);
+        int shift = 7 - (int) (this.position & 7);
+        this.position++;
+        return ((this.buffer.get(index) >>> shift) & 1) != 0;
+    }
+
+    long readBits(int bits) {
+        long value = 0;
+        while (bits > 0) {
+            int index = this.offset + (int) (this.position >>> 3);
+            int available = 8 - (int) (this.position & 7);
+            int take = Math.min(available, bits);
+            int current = this.buffer.get(index) & 0xFF;
+            int chunk = (current >>> (available - take)) & ((1 << take) - 1);
+
+            value = (value << take) | chunk;
+            this.position += take;
+            bits -= take;
+        }
+        return value;
+    }
+}
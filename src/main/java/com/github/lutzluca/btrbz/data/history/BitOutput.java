@@ -0,0 +1,61 @@
+package com.github.lutzluca.btrbz.data.history;
+
+import java.util.Arrays;
+
+/**
+ * Growable big-endian bit buffer the series encoder appends to.
+ */
+final class BitOutput {
+
+    private long[] words = new long[8];
+    private long bitLength = 0;
+
+    long bitLength() {
+        return this.bitLength;
+    }
+
+    void writeBit(boolean bit) {
+        this.writeBits(bit ? 1 : 0, 1);
+    }
+
+    /**
+     * Appends the lowest {@code bits} bits of the value, most significant first.
+     */
+    void writeBits(long value, int bits) {
+        if (bits == 0) {
+            return;
+        }
+        if (bits < 64) {
+            value &= (1L << bits) - 1;
+        }
+
+        this.ensureCapacity(this.bitLength + bits);
+        int word = (int) (this.bitLength >>> 6);
+        int used = (int) (this.bitLength & 63);
+        int free = 64 - used;
+
+        if (bits <= free) {
+            this.words[word] |= value << (free - bits);
+        } else {
+            int overflow = bits - free;
+            this.words[word] |= value >>> overflow;
+            this.words[word + 1] |= value << (64 - overflow);
+        }
+        this.bitLength += bits;
+    }
+
+    byte[] toByteArray() {
+        var bytes = new byte[(int) ((this.bitLength + 7) >>> 3)];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) (this.words[i >>> 3] >>> (56 - ((i & 7) << 3)));
+        }
+        return bytes;
+    }
+
+    private void ensureCapacity(long bits) {
+        int required = (int) ((bits + 63) >>> 6);
+        if (required > this.words.length) {
+            this.words = Arrays.copyOf(this.words, Math.max(required, this.words.length * 2));
+        }
+    }
+}
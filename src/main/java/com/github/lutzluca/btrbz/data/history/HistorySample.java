@@ -0,0 +1,42 @@
+package com.github.lutzluca.btrbz.data.history;
+
+/**
+ * The top of book and quick status of a product at one Bazaar update. Missing prices are {@link Double#NaN}. Quick
+ * status prices are recorded to the hundredth of a coin.
+ *
+ * @param timestamp the Bazaar {@code lastUpdated} time of the update in epoch millis
+ */
+public record HistorySample(
+    long timestamp,
+    double buyOrderPrice,
+    double sellOfferPrice,
+    double quickBuyPrice,
+    double quickSellPrice,
+    long quickBuyMovingWeek,
+    long quickSellMovingWeek
+) {
+
+    /**
+     * @return sell offer minus buy order price or {@link Double#NaN} if either side is missing
+     */
+    public double spread() {
+        return this.sellOfferPrice - this.buyOrderPrice;
+    }
+
+    boolean sameValues(HistorySample other) {
+        // @formatter:off
+        return this.samePrices(other)
+            && this.quickBuyMovingWeek == other.quickBuyMovingWeek
+            && this.quickSellMovingWeek == other.quickSellMovingWeek;
+        // @formatter:on
+    }
+
+    boolean samePrices(HistorySample other) {
+        // @formatter:off
+        return Double.compare(this.buyOrderPrice, other.buyOrderPrice) == 0
+            && Double.compare(this.sellOfferPrice, other.sellOfferPrice) == 0
+            && Double.compare(this.quickBuyPrice, other.quickBuyPrice) == 0
+            && Double.compare(this.quickSellPrice, other.quickSellPrice) == 0;
+        // @formatter:on
+    }
+}
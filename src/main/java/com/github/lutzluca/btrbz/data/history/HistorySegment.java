@@ -0,0 +1,383 @@
+package com.github.lutzluca.btrbz.data.history;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * One day of price history in an append-only, memory-mapped file.
+ * <p>
+ * The file starts with a header holding the committed length, followed by records: a product record assigns the
+ * next product index to an id, a timeline record holds the timestamps of the next updates, and a block record holds
+ * the encoded samples of one product together with the time range they cover. Samples refer to their update by its
+ * index in the timeline, which is written before the first block referring to it. A record only becomes visible once
+ * the committed length in the header is advanced past it, so a write interrupted by a crash is ignored on the next
+ * open. The timeline and block index are rebuilt by scanning the records on open; the scan stops at the first record
+ * that does not fit within the committed length, which is then cut back to the records before it.
+ */
+@Slf4j
+final class HistorySegment implements AutoCloseable {
+
+    private static final int MAGIC = 0x42544853;
+    private static final int VERSION = 3;
+    private static final int HEADER_SIZE = 16;
+    private static final int END_OFFSET = 8;
+    private static final int GROWTH = 1 << 20;
+    private static final byte PRODUCT_RECORD = 1;
+    private static final byte BLOCK_RECORD = 2;
+    private static final byte TIMELINE_RECORD = 3;
+    // type, index of the first update, update count
+    private static final int TIMELINE_HEADER_SIZE = 1 + 4 + 4;
+    // type, product index, sample count, first and last timestamp, byte length
+    private static final int BLOCK_HEADER_SIZE = 1 + 4 + 4 + 8 + 8 + 4;
+
+    private final LocalDate day;
+    private final @Nullable FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int end;
+
+    private final List<String> productIds = new ArrayList<>();
+    private final Map<String, Integer> productIndices = new HashMap<>();
+    private final Map<String, List<BlockRef>> blocks = new HashMap<>();
+    private long[] timeline = new long[256];
+    private int updates = 0;
+    private int writtenUpdates = 0;
+
+    private HistorySegment(LocalDate day, @Nullable FileChannel channel, MappedByteBuffer buffer) {
+        this.day = day;
+        this.channel = channel;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Opens an existing segment for appending or creates a new one.
+     */
+    static HistorySegment openWritable(Path path, LocalDate day) throws IOException {
+        var channel = FileChannel.open(
+            path,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE
+        );
+        try {
+            long size = channel.size();
+            var segment = new HistorySegment(
+                day,
+                channel,
+                channel.map(MapMode.READ_WRITE, 0, Math.max(size, GROWTH))
+            );
+            if (size == 0) {
+                segment.buffer.putInt(0, MAGIC);
+                segment.buffer.putInt(4, VERSION);
+                segment.commit(HEADER_SIZE);
+            } else {
+                segment.scan();
+            }
+            return segment;
+        } catch (IOException | RuntimeException err) {
+            channel.close();
+            throw err;
+        }
+    }
+
+    static HistorySegment openReadOnly(Path path, LocalDate day) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            var segment = new HistorySegment(day, null, channel.map(MapMode.READ_ONLY, 0, channel.size()));
+            segment.scan();
+            return segment;
+        }
+    }
+
+    LocalDate day() {
+        return this.day;
+    }
+
+    /**
+     * @return the number of bytes holding committed records, including the header
+     */
+    int size() {
+        return this.end;
+    }
+
+    /**
+     * Adds an update to the timeline. It is written with the next block or {@link #writeTimeline()}.
+     *
+     * @return the index of the update, the same as the last one if the timestamp did not change
+     */
+    int addUpdate(long timestamp) {
+        if (this.updates > 0 && this.timeline[this.updates - 1] == timestamp) {
+            return this.updates - 1;
+        }
+        return this.pushUpdate(timestamp);
+    }
+
+    long timestamp(int update) {
+        return this.timeline[update];
+    }
+
+    /**
+     * Writes the updates added since the last write, so blocks stored elsewhere can refer to them.
+     */
+    void writeTimeline() throws IOException {
+        this.checkWritable();
+        int count = this.updates - this.writtenUpdates;
+        if (count == 0) {
+            return;
+        }
+
+        int position = this.end;
+        this.ensureCapacity(position + TIMELINE_HEADER_SIZE + count * Long.BYTES);
+        this.buffer.put(position, TIMELINE_RECORD);
+        this.buffer.putInt(position + 1, this.writtenUpdates);
+        this.buffer.putInt(position + 5, count);
+        for (int i = 0; i < count; i++) {
+            long timestamp = this.timeline[this.writtenUpdates + i];
+            this.buffer.putLong(position + TIMELINE_HEADER_SIZE + i * Long.BYTES, timestamp);
+        }
+        this.writtenUpdates = this.updates;
+        this.commit(position + TIMELINE_HEADER_SIZE + count * Long.BYTES);
+    }
+
+    void append(String productId, SeriesCodec.Encoder encoder) throws IOException {
+        this.append(
+            productId,
+            encoder.count(),
+            encoder.first().timestamp(),
+            encoder.last().timestamp(),
+            encoder.toByteArray()
+        );
+    }
+
+    /**
+     * Appends an encoded block whose updates are part of the written timeline.
+     */
+    void append(String productId, int count, long firstTimestamp, long lastTimestamp, byte[] bytes) throws IOException {
+        this.writeTimeline();
+
+        int position = this.end;
+        var index = this.productIndices.get(productId);
+        if (index == null) {
+            var id = productId.getBytes(StandardCharsets.UTF_8);
+            this.ensureCapacity(position + 3 + id.length);
+            this.buffer.put(position, PRODUCT_RECORD);
+            this.buffer.putShort(position + 1, (short) id.length);
+            this.buffer.put(position + 3, id);
+            position += 3 + id.length;
+            index = this.addProduct(productId);
+            this.commit(position);
+        }
+
+        this.ensureCapacity(position + BLOCK_HEADER_SIZE + bytes.length);
+        this.buffer.put(position, BLOCK_RECORD);
+        this.buffer.putInt(position + 1, index);
+        this.buffer.putInt(position + 5, count);
+        this.buffer.putLong(position + 9, firstTimestamp);
+        this.buffer.putLong(position + 17, lastTimestamp);
+        this.buffer.putInt(position + 25, bytes.length);
+        this.buffer.put(position + BLOCK_HEADER_SIZE, bytes);
+        this.addBlock(productId, new BlockRef(position + BLOCK_HEADER_SIZE, count, firstTimestamp, lastTimestamp));
+
+        this.commit(position + BLOCK_HEADER_SIZE + bytes.length);
+    }
+
+    /**
+     * @return the timestamp of the last stored sample of the product or {@link Long#MIN_VALUE} if there is none
+     */
+    long lastTimestamp(String productId) {
+        var refs = this.blocks.get(productId);
+        return refs == null ? Long.MIN_VALUE : refs.getLast().lastTimestamp;
+    }
+
+    /**
+     * Passes the samples of the product within {@code [from, to]} to the consumer in time order.
+     */
+    void collect(String productId, long from, long to, Consumer<HistorySample> consumer) {
+        var refs = this.blocks.get(productId);
+        if (refs == null) {
+            return;
+        }
+
+        for (var ref : refs) {
+            if (ref.lastTimestamp < from || ref.firstTimestamp > to) {
+                continue;
+            }
+
+            var decoder = new SeriesCodec.Decoder(this.buffer, ref.offset, ref.count, this::timestamp);
+            while (decoder.hasNext()) {
+                var sample = decoder.next();
+                if (sample.timestamp() > to) {
+                    break;
+                }
+                if (sample.timestamp() >= from) {
+                    consumer.accept(sample);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (this.channel != null) {
+            this.buffer.force();
+            this.channel.close();
+        }
+    }
+
+    private void scan() throws IOException {
+        if (this.buffer.capacity() < HEADER_SIZE || this.buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a price history segment");
+        }
+        int version = this.buffer.getInt(4);
+        if (version != VERSION) {
+            throw new IOException("Unsupported price history segment version " + version);
+        }
+
+        int committed = this.buffer.getInt(END_OFFSET);
+        if (committed < HEADER_SIZE || committed > this.buffer.capacity()) {
+            throw new IOException("Corrupted price history segment length " + committed);
+        }
+
+        int position = HEADER_SIZE;
+        while (position < committed) {
+            int next = this.scanRecord(position, committed);
+            if (next < 0) {
+                break;
+            }
+            position = next;
+        }
+
+        if (position < committed) {
+            log.warn(
+                "Price history segment of {} ends in a damaged record, keeping the first {} of {} bytes",
+                this.day,
+                position,
+                committed
+            );
+            if (this.channel != null) {
+                this.commit(position);
+            }
+        }
+        this.end = position;
+        this.writtenUpdates = this.updates;
+    }
+
+    /**
+     * Reads the record at the position, a record extending past the committed length is damaged and not read.
+     *
+     * @return the position after the record or -1 if it does not fit
+     */
+    private int scanRecord(int position, int committed) throws IOException {
+        byte type = this.buffer.get(position);
+        if (type == PRODUCT_RECORD) {
+            if (position + 3 > committed) {
+                return -1;
+            }
+            int length = this.buffer.getShort(position + 1) & 0xFFFF;
+            if (length > committed - position - 3) {
+                return -1;
+            }
+            var id = new byte[length];
+            this.buffer.get(position + 3, id);
+            this.addProduct(new String(id, StandardCharsets.UTF_8));
+            return position + 3 + length;
+        }
+
+        if (type == BLOCK_RECORD) {
+            if (position + BLOCK_HEADER_SIZE > committed) {
+                return -1;
+            }
+            int length = this.buffer.getInt(position + 25);
+            if (length < 0 || length > committed - position - BLOCK_HEADER_SIZE) {
+                return -1;
+            }
+            int index = this.buffer.getInt(position + 1);
+            if (index < 0 || index >= this.productIds.size()) {
+                throw new IOException("Block record references unknown product " + index);
+            }
+            this.addBlock(this.productIds.get(index), new BlockRef(
+                position + BLOCK_HEADER_SIZE,
+                this.buffer.getInt(position + 5),
+                this.buffer.getLong(position + 9),
+                this.buffer.getLong(position + 17)
+            ));
+            return position + BLOCK_HEADER_SIZE + length;
+        }
+
+        if (type == TIMELINE_RECORD) {
+            if (position + TIMELINE_HEADER_SIZE > committed) {
+                return -1;
+            }
+            int first = this.buffer.getInt(position + 1);
+            int count = this.buffer.getInt(position + 5);
+            if (first != this.updates || count <= 0) {
+                throw new IOException("Timeline record at " + position + " does not continue the timeline");
+            }
+            if (count > (committed - position - TIMELINE_HEADER_SIZE) / Long.BYTES) {
+                return -1;
+            }
+            for (int i = 0; i < count; i++) {
+                this.pushUpdate(this.buffer.getLong(position + TIMELINE_HEADER_SIZE + i * Long.BYTES));
+            }
+            return position + TIMELINE_HEADER_SIZE + count * Long.BYTES;
+        }
+
+        throw new IOException("Unknown price history record type " + type + " at " + position);
+    }
+
+    private void checkWritable() {
+        if (this.channel == null) {
+            throw new IllegalStateException("History segment of " + this.day + " is read-only");
+        }
+    }
+
+    private int pushUpdate(long timestamp) {
+        if (this.updates == this.timeline.length) {
+            this.timeline = Arrays.copyOf(this.timeline, this.timeline.length * 2);
+        }
+        this.timeline[this.updates] = timestamp;
+        return this.updates++;
+    }
+
+    private int addProduct(String productId) {
+        int index = this.productIds.size();
+        this.productIds.add(productId);
+        this.productIndices.put(productId, index);
+        return index;
+    }
+
+    private void addBlock(String productId, BlockRef ref) {
+        this.blocks.computeIfAbsent(productId, id -> new ArrayList<>()).add(ref);
+    }
+
+    private void commit(int end) {
+        this.buffer.putInt(END_OFFSET, end);
+        this.end = end;
+    }
+
+    private void ensureCapacity(int capacity) throws IOException {
+        if (capacity <= this.buffer.capacity()) {
+            return;
+        }
+
+        int grown = (capacity / GROWTH + 1) * GROWTH;
+        this.buffer = this.channel.map(MapMode.READ_WRITE, 0, grown);
+    }
+
+    /**
+     * @param offset absolute offset of the encoded samples
+     */
+    private record BlockRef(int offset, int count, long firstTimestamp, long lastTimestamp) { }
+}
@@ -0,0 +1,506 @@
+package com.github.lutzluca.btrbz.data.history;
+
+import com.github.lutzluca.btrbz.data.MarketColumns;
+import com.github.lutzluca.btrbz.data.MarketDelta;
+import com.github.lutzluca.btrbz.data.MarketDelta.Change;
+import com.github.lutzluca.btrbz.data.MarketUpdateHandler;
+import com.github.lutzluca.btrbz.data.ProductHandles;
+import com.github.lutzluca.btrbz.utils.Utils;
+import io.vavr.control.Try;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Append-only history of the top of book and quick status of every product, fed by each Bazaar update.
+ * <p>
+ * A sample is recorded whenever the prices of a product changed. Quick status prices are rounded to the hundredth of a
+ * coin first, see {@link SeriesCodec}. A change of only the moving-week volumes is held back until
+ * {@link #VOLUME_INTERVAL_MILLIS} passed since the last sample of the product, as these rolling sums move with almost
+ * every update and would otherwise add a sample per product to nearly every update. The volumes of the history
+ * therefore have a resolution of five minutes unless the prices changed as well. Samples are buffered in an open block per product and encoded with {@link SeriesCodec} as
+ * they arrive; a block is appended to the segment of the current UTC day once it is full, when the day rolls over or
+ * when the history is closed. Every {@link #CHECKPOINT_INTERVAL_MILLIS} the open blocks are written to a checkpoint
+ * file, which is appended to its segment when the history is opened again, so a crash loses only the last few
+ * minutes. Segments older than {@link #RETENTION_DAYS} days are deleted when the history is opened.
+ * <p>
+ * Changed samples are picked on the thread preparing an update. Encoding, segment writes and queries run in order on
+ * a background thread, which alone touches the segments, so neither the update nor a query waits on the other.
+ */
+@Slf4j
+public final class PriceHistory implements MarketUpdateHandler {
+
+    static final int BLOCK_SAMPLES = 180;
+    static final int RETENTION_DAYS = 7;
+    static final long VOLUME_INTERVAL_MILLIS = 5 * 60 * 1000L;
+    static final long CHECKPOINT_INTERVAL_MILLIS = 2 * 60 * 1000L;
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String CHECKPOINT_FILE = "open-blocks.bin";
+    private static final int CHECKPOINT_MAGIC = 0x4254484F;
+    private static final int CHECKPOINT_VERSION = 1;
+
+    private final Path directory;
+    private final ExecutorService executor;
+    // confined to the thread preparing updates, the last recorded sample per product to skip updates that did not
+    // touch recorded fields
+    private final Map<String, HistorySample> lastSamples = new HashMap<>();
+    // confined to the thread preparing updates, products whose volume change is held back
+    private final Set<String> heldBackVolumes = new HashSet<>();
+
+    // confined to the executor
+    private final TreeMap<LocalDate, HistorySegment> segments = new TreeMap<>();
+    private final Map<String, SeriesCodec.Encoder> openBlocks = new HashMap<>();
+    private @Nullable HistorySegment current;
+    private long lastCheckpoint = 0;
+    private boolean opened = false;
+
+    public PriceHistory(Path directory) {
+        this(directory, Executors.newSingleThreadExecutor(runnable -> {
+            var thread = new Thread(runnable, "btrbz-history-writer");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    PriceHistory(Path directory, ExecutorService executor) {
+        this.directory = directory;
+        this.executor = executor;
+    }
+
+    @Override
+    public Runnable prepare(MarketDelta delta) {
+        var columns = delta.snapshot().columns();
+        long timestamp = columns.lastUpdated();
+        if (timestamp <= 0 || delta.isEmpty()) {
+            return NOTHING;
+        }
+
+        var samples = this.changedSamples(delta, columns, timestamp);
+        if (samples.isEmpty()) {
+            return NOTHING;
+        }
+        if (this.executor.isShutdown()) {
+            log.debug("Dropped price history of {} products after the history was closed", samples.size());
+            return NOTHING;
+        }
+
+        this.executor.execute(() -> {
+            this.ensureOpened();
+            Try.run(() -> this.record(samples, timestamp)).onFailure(err -> log.warn(
+                "Failed to record price history of {} changed products",
+                samples.size(),
+                err
+            ));
+        });
+        return NOTHING;
+    }
+
+    /**
+     * Returns the samples of a product within {@code [from, to]} in time order.
+     *
+     * @param bucketMillis the width of the downsampling buckets starting at {@code from}; each non-empty bucket is
+     *                     reduced to its last sample, stamped with the bucket start. {@code 0} returns every sample.
+     * @return the samples, completed on the history thread once every update prepared before the query is recorded
+     */
+    public CompletableFuture<List<HistorySample>> query(String productId, long from, long to, long bucketMillis) {
+        if (this.executor.isShutdown()) {
+            return CompletableFuture.failedFuture(new IllegalStateException("The price history is closed"));
+        }
+        return CompletableFuture.supplyAsync(() -> this.collect(productId, from, to, bucketMillis), this.executor);
+    }
+
+    private List<HistorySample> collect(String productId, long from, long to, long bucketMillis) {
+        var samples = new ArrayList<HistorySample>();
+        if (from > to) {
+            return samples;
+        }
+        this.ensureOpened();
+
+        var downsampler = new Downsampler(samples, from, bucketMillis);
+        for (var segment : this.segments.subMap(day(from), true, day(to), true).values()) {
+            segment.collect(productId, from, to, downsampler::accept);
+        }
+
+        var open = this.openBlocks.get(productId);
+        if (open != null) {
+            var decoder = new SeriesCodec.Decoder(
+                ByteBuffer.wrap(open.toByteArray()),
+                0,
+                open.count(),
+                this.current::timestamp
+            );
+            while (decoder.hasNext()) {
+                var sample = decoder.next();
+                if (sample.timestamp() > to) {
+                    break;
+                }
+                if (sample.timestamp() >= from) {
+                    downsampler.accept(sample);
+                }
+            }
+        }
+
+        downsampler.finish();
+        return samples;
+    }
+
+    /**
+     * Waits for pending updates, appends all open blocks and closes the segments. Later updates are dropped and
+     * queries fail.
+     */
+    public void close() {
+        if (this.executor.isShutdown()) {
+            return;
+        }
+
+        this.executor.execute(this::closeSegments);
+        this.executor.shutdown();
+        Try
+            .of(() -> this.executor.awaitTermination(2, TimeUnit.SECONDS))
+            .filter(terminated -> terminated)
+            .onFailure(err -> log.warn("Timed out closing the price history in '{}'", this.directory));
+    }
+
+    /**
+     * @return the committed size of all open segments in bytes
+     */
+    long sizeOnDisk() {
+        return CompletableFuture
+            .supplyAsync(() -> this.segments.values().stream().mapToLong(HistorySegment::size).sum(), this.executor)
+            .join();
+    }
+
+    private Map<String, HistorySample> changedSamples(MarketDelta delta, MarketColumns columns, long timestamp) {
+        var samples = new HashMap<String, HistorySample>();
+        for (int i = 0; i < delta.size(); i++) {
+            int handle = delta.handle(i);
+            if (delta.changed(handle, Change.TopOfBook) || delta.changed(handle, Change.QuickStatus)) {
+                this.pickSample(columns, handle, timestamp, samples);
+            }
+        }
+
+        // a held back volume change is recorded once it is due, even if the product did not change again
+        for (var productId : List.copyOf(this.heldBackVolumes)) {
+            int handle = columns.handle(productId);
+            if (handle == ProductHandles.ABSENT) {
+                this.heldBackVolumes.remove(productId);
+                continue;
+            }
+            this.pickSample(columns, handle, timestamp, samples);
+        }
+        return samples;
+    }
+
+    private void pickSample(MarketColumns columns, int handle, long timestamp, Map<String, HistorySample> samples) {
+        if (!columns.isPresent(handle)) {
+            return;
+        }
+
+        var productId = columns.productId(handle);
+        var sample = new HistorySample(
+            timestamp,
+            columns.bestBuyOrderPrice(handle),
+            columns.bestSellOfferPrice(handle),
+            SeriesCodec.roundQuickPrice(columns.quickBuyPrice(handle)),
+            SeriesCodec.roundQuickPrice(columns.quickSellPrice(handle)),
+            columns.quickBuyMovingWeek(handle),
+            columns.quickSellMovingWeek(handle)
+        );
+
+        var last = this.lastSamples.get(productId);
+        if (last != null) {
+            if (last.timestamp() >= timestamp) {
+                return;
+            }
+            if (last.sameValues(sample)) {
+                this.heldBackVolumes.remove(productId);
+                return;
+            }
+            if (last.samePrices(sample) && timestamp - last.timestamp() < VOLUME_INTERVAL_MILLIS) {
+                this.heldBackVolumes.add(productId);
+                return;
+            }
+        }
+
+        this.heldBackVolumes.remove(productId);
+        this.lastSamples.put(productId, sample);
+        samples.put(productId, sample);
+    }
+
+    private void record(Map<String, HistorySample> samples, long timestamp) throws IOException {
+        var day = day(timestamp);
+        if (this.current == null || !this.current.day().equals(day)) {
+            this.rollOver(day);
+        }
+
+        int update = this.current.addUpdate(timestamp);
+        for (var entry : samples.entrySet()) {
+            var productId = entry.getKey();
+            var block = this.openBlocks.computeIfAbsent(productId, id -> new SeriesCodec.Encoder());
+            block.append(entry.getValue(), update);
+            if (block.count() >= BLOCK_SAMPLES) {
+                this.openBlocks.remove(productId);
+                this.current.append(productId, block);
+            }
+        }
+
+        if (timestamp - this.lastCheckpoint >= CHECKPOINT_INTERVAL_MILLIS) {
+            this.lastCheckpoint = timestamp;
+            this.writeCheckpoint();
+        }
+    }
+
+    /**
+     * Writes the open blocks of the current segment to the checkpoint file, after the timeline they refer to.
+     */
+    private void writeCheckpoint() {
+        var bytes = new ByteArrayOutputStream();
+        var out = new DataOutputStream(bytes);
+        Try
+            .run(() -> {
+                this.current.writeTimeline();
+                out.writeInt(CHECKPOINT_MAGIC);
+                out.writeInt(CHECKPOINT_VERSION);
+                out.writeLong(this.current.day().toEpochDay());
+                out.writeInt(this.openBlocks.size());
+                for (var entry : this.openBlocks.entrySet()) {
+                    var block = entry.getValue();
+                    var encoded = block.toByteArray();
+                    out.writeUTF(entry.getKey());
+                    out.writeInt(block.count());
+                    out.writeLong(block.first().timestamp());
+                    out.writeLong(block.last().timestamp());
+                    out.writeInt(encoded.length);
+                    out.write(encoded);
+                }
+                out.flush();
+            })
+            .flatMap(ignored -> Utils.atomicDumpToFile(this.checkpointPath(), bytes.toByteArray()))
+            .onSuccess(path -> log.trace("Checkpointed {} open price history blocks", this.openBlocks.size()))
+            .onFailure(err -> log.warn("Failed to checkpoint the open price history blocks", err));
+    }
+
+    /**
+     * Appends the blocks of a checkpoint left behind by a crash to their segment.
+     */
+    private void restoreCheckpoint(LocalDate oldest) {
+        var path = this.checkpointPath();
+        if (!Files.exists(path)) {
+            return;
+        }
+
+        Try
+            .run(() -> {
+                var in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(path)));
+                if (in.readInt() != CHECKPOINT_MAGIC || in.readInt() != CHECKPOINT_VERSION) {
+                    throw new IOException("Not a price history checkpoint");
+                }
+
+                var day = LocalDate.ofEpochDay(in.readLong());
+                if (day.isBefore(oldest)) {
+                    return;
+                }
+
+                int blocks = in.readInt();
+                try (var segment = HistorySegment.openWritable(this.segmentPath(day), day)) {
+                    for (int i = 0; i < blocks; i++) {
+                        var productId = in.readUTF();
+                        int count = in.readInt();
+                        long first = in.readLong();
+                        long last = in.readLong();
+                        var encoded = new byte[in.readInt()];
+                        in.readFully(encoded);
+                        // a block filled up after the checkpoint already holds these samples
+                        if (segment.lastTimestamp(productId) < first) {
+                            segment.append(productId, count, first, last, encoded);
+                        }
+                    }
+                }
+                log.debug("Restored {} open price history blocks of {} from the checkpoint", blocks, day);
+            })
+            .onFailure(err -> log.warn("Failed to restore the price history checkpoint '{}'", path, err));
+        this.deleteCheckpoint();
+    }
+
+    private void deleteCheckpoint() {
+        Try
+            .run(() -> Files.deleteIfExists(this.checkpointPath()))
+            .onFailure(err -> log.warn("Failed to delete the price history checkpoint", err));
+    }
+
+    private Path checkpointPath() {
+        return this.directory.resolve(CHECKPOINT_FILE);
+    }
+
+    private Path segmentPath(LocalDate day) {
+        return this.directory.resolve(day + SEGMENT_SUFFIX);
+    }
+
+    private void closeSegments() {
+        if (!this.opened) {
+            return;
+        }
+
+        this.sealOpenBlocks();
+        for (var segment : this.segments.values()) {
+            Try.run(segment::close).onFailure(err -> log.warn("Failed to close history segment", err));
+        }
+        this.segments.clear();
+        this.current = null;
+    }
+
+    private void rollOver(LocalDate day) throws IOException {
+        this.sealOpenBlocks();
+
+        var path = this.segmentPath(day);
+        var segment = Try
+            .of(() -> HistorySegment.openWritable(path, day))
+            .recoverWith(err -> {
+                log.warn("Discarding unreadable price history segment '{}'", path, err);
+                return Try.of(() -> {
+                    Files.deleteIfExists(path);
+                    return HistorySegment.openWritable(path, day);
+                });
+            })
+            .get();
+
+        var previous = this.segments.put(day, segment);
+        if (previous != null) {
+            previous.close();
+        }
+        this.current = segment;
+    }
+
+    private void sealOpenBlocks() {
+        if (this.current == null) {
+            this.openBlocks.clear();
+            return;
+        }
+
+        for (var entry : this.openBlocks.entrySet()) {
+            var productId = entry.getKey();
+            Try
+                .run(() -> this.current.append(productId, entry.getValue()))
+                .onFailure(err -> log.warn("Failed to append price history of '{}'", productId, err));
+        }
+        this.openBlocks.clear();
+        this.deleteCheckpoint();
+    }
+
+    private void ensureOpened() {
+        if (this.opened) {
+            return;
+        }
+        this.opened = true;
+
+        var oldest = LocalDate.now(ZoneOffset.UTC).minusDays(RETENTION_DAYS);
+        Try
+            .run(() -> Files.createDirectories(this.directory))
+            .andThen(() -> this.restoreCheckpoint(oldest))
+            .mapTry(ignored -> {
+                try (var files = Files.list(this.directory)) {
+                    return files.filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX)).toList();
+                }
+            })
+            .onFailure(err -> log.warn("Failed to list price history segments in '{}'", this.directory, err))
+            .getOrElse(List.of())
+            .forEach(path -> this.openSegment(path, oldest));
+    }
+
+    private void openSegment(Path path, LocalDate oldest) {
+        var name = path.getFileName().toString();
+        var day = Try
+            .of(() -> LocalDate.parse(name.substring(0, name.length() - SEGMENT_SUFFIX.length())))
+            .recover(DateTimeParseException.class, err -> null)
+            .get();
+        if (day == null) {
+            return;
+        }
+
+        if (day.isBefore(oldest)) {
+            Try
+                .run(() -> Files.deleteIfExists(path))
+                .onSuccess(ignored -> log.debug("Deleted expired price history segment '{}'", path))
+                .onFailure(err -> log.warn("Failed to delete expired price history segment '{}'", path, err));
+            return;
+        }
+
+        Try
+            .of(() -> HistorySegment.openReadOnly(path, day))
+            .onSuccess(segment -> this.segments.put(day, segment))
+            .onFailure(err -> log.warn("Skipping unreadable price history segment '{}'", path, err));
+    }
+
+    private static LocalDate day(long timestamp) {
+        return LocalDate.ofInstant(Instant.ofEpochMilli(timestamp), ZoneOffset.UTC);
+    }
+
+    private static final class Downsampler {
+
+        private final List<HistorySample> samples;
+        private final long from;
+        private final long bucketMillis;
+        private long bucket = Long.MIN_VALUE;
+        private @Nullable HistorySample pending;
+
+        Downsampler(List<HistorySample> samples, long from, long bucketMillis) {
+            this.samples = samples;
+            this.from = from;
+            this.bucketMillis = bucketMillis;
+        }
+
+        void accept(HistorySample sample) {
+            if (this.bucketMillis <= 0) {
+                this.samples.add(sample);
+                return;
+            }
+
+            long bucket = (sample.timestamp() - this.from) / this.bucketMillis;
+            if (bucket != this.bucket) {
+                this.finish();
+                this.bucket = bucket;
+            }
+            this.pending = sample;
+        }
+
+        void finish() {
+            if (this.pending == null) {
+                return;
+            }
+
+            var last = this.pending;
+            this.samples.add(new HistorySample(
+                this.from + this.bucket * this.bucketMillis,
+                last.buyOrderPrice(),
+                last.sellOfferPrice(),
+                last.quickBuyPrice(),
+                last.quickSellPrice(),
+                last.quickBuyMovingWeek(),
+                last.quickSellMovingWeek()
+            ));
+            this.pending = null;
+        }
+    }
+}
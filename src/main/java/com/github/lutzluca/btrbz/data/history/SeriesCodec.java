@@ -0,0 +1,354 @@
+package com.github.lutzluca.btrbz.data.history;
+
+import java.nio.ByteBuffer;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Bit-level encoding of one product's samples.
+ * <p>
+ * A sample does not store its timestamp but the number of updates since the previous sample of the block, an index
+ * into the update timeline of the segment. The first sample of a block stores its values verbatim. After that top of
+ * book prices are stored in tenths of a coin, and quick status prices in hundredths of a coin as the offset to the top
+ * of book price of their side, which moves far less than the price itself. A field costs a single bit when unchanged;
+ * otherwise its difference to the previous value is stored with a Rice code whose parameter adapts to the recent
+ * differences of that field. A price off its scale or missing is escaped and stored verbatim, so every value handed to
+ * the encoder is decoded exactly.
+ * <p>
+ * Quick status prices are averages with many decimals, which would escape on almost every sample. The recorder rounds
+ * them to the hundredth of a coin with {@link #roundQuickPrice} before encoding, so the stored history is lossy for
+ * these two fields only.
+ */
+final class SeriesCodec {
+
+    private static final long TICKS_PER_COIN = 10;
+    private static final long QUICK_TICKS_PER_COIN = 100;
+    // larger values would lose precision when scaled
+    private static final double MAX_SCALED = 1L << 52;
+    // the longest unary quotient before the value is written verbatim
+    private static final int MAX_QUOTIENT = 24;
+    private static final long MAX_UPDATE = 1L << 56;
+
+    private SeriesCodec() { }
+
+    /**
+     * @return the price rounded to the hundredth of a coin quick status prices are recorded with
+     */
+    static double roundQuickPrice(double price) {
+        if (!Double.isFinite(price) || Math.abs(price) * QUICK_TICKS_PER_COIN >= MAX_SCALED) {
+            return price;
+        }
+        return (double) Math.round(price * QUICK_TICKS_PER_COIN) / QUICK_TICKS_PER_COIN;
+    }
+
+    /**
+     * @return the price in ticks of the scale or {@link Long#MIN_VALUE} if it is missing or off the scale
+     */
+    private static long scaled(double price, long scale) {
+        if (!Double.isFinite(price) || Math.abs(price) * scale >= MAX_SCALED) {
+            return Long.MIN_VALUE;
+        }
+        long ticks = Math.round(price * scale);
+        return Double.compare((double) ticks / scale, price) == 0 ? ticks : Long.MIN_VALUE;
+    }
+
+    private static void writeGamma(BitOutput out, long value) {
+        int length = 64 - Long.numberOfLeadingZeros(value);
+        out.writeBits(0, length - 1);
+        out.writeBits(value, length);
+    }
+
+    private static long readGamma(BitInput in) {
+        int length = 1;
+        while (!in.readBit()) {
+            length++;
+        }
+        return length == 1 ? 1 : (1L << (length - 1)) | in.readBits(length - 1);
+    }
+
+    /**
+     * Adaptive Rice code of differences, with the parameter derived from the mean of the recent zigzag values.
+     */
+    private static final class RiceState {
+
+        private long sum = 4;
+        private int count = 1;
+
+        private int parameter() {
+            int k = 0;
+            while (((long) this.count << k) < this.sum && k < 62) {
+                k++;
+            }
+            return k;
+        }
+
+        void write(BitOutput out, long difference) {
+            long value = (difference << 1) ^ (difference >> 63);
+            int k = this.parameter();
+            long quotient = value >>> k;
+            // negative once the top bit is set and nothing is shifted out
+            if (quotient < 0 || quotient >= MAX_QUOTIENT) {
+                out.writeBits(-1L, MAX_QUOTIENT);
+                out.writeBits(value, 64);
+                this.update((long) MAX_QUOTIENT << k);
+                return;
+            }
+
+            out.writeBits(-1L, (int) quotient);
+            out.writeBit(false);
+            out.writeBits(value, k);
+            this.update(value);
+        }
+
+        long read(BitInput in) {
+            int k = this.parameter();
+            long quotient = 0;
+            while (quotient < MAX_QUOTIENT && in.readBit()) {
+                quotient++;
+            }
+
+            long value;
+            if (quotient == MAX_QUOTIENT) {
+                value = in.readBits(64);
+                this.update((long) MAX_QUOTIENT << k);
+            } else {
+                value = (quotient << k) | in.readBits(k);
+                this.update(value);
+            }
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        // an escaped value counts as the largest regular one, so the parameter grows without a single jump inflating it
+        private void update(long value) {
+            // capped so the sum cannot overflow before it is halved
+            this.sum += Long.compareUnsigned(value, MAX_UPDATE) < 0 ? value : MAX_UPDATE;
+            if (++this.count == 32) {
+                this.sum >>>= 1;
+                this.count >>>= 1;
+            }
+        }
+    }
+
+    /**
+     * The state of one price field: the previous value and the previous offset on the scale of the field.
+     */
+    private static final class PriceState {
+
+        private final long scale;
+        private final RiceState rice = new RiceState();
+        private boolean started = false;
+        private long previousBits;
+        private long previousOffset = 0;
+
+        PriceState(long scale) {
+            this.scale = scale;
+        }
+
+        /**
+         * @param reference the price the value is stored as an offset to, {@code 0} for none
+         */
+        void write(BitOutput out, double value, double reference) {
+            long bits = Double.doubleToLongBits(value);
+            if (!this.started) {
+                out.writeBits(bits, 64);
+                this.start(bits, reference);
+                return;
+            }
+            if (bits == this.previousBits) {
+                out.writeBit(false);
+                return;
+            }
+            this.previousBits = bits;
+
+            long ticks = scaled(value, this.scale);
+            if (ticks == Long.MIN_VALUE) {
+                // missing or off the scale, later values continue from the last offset on the scale
+                out.writeBits(0b11, 2);
+                out.writeBits(bits, 64);
+                return;
+            }
+
+            long offset = ticks - this.referenceTicks(reference);
+            out.writeBits(0b10, 2);
+            this.rice.write(out, offset - this.previousOffset);
+            this.previousOffset = offset;
+        }
+
+        double read(BitInput in, double reference) {
+            if (!this.started) {
+                this.start(in.readBits(64), reference);
+            } else if (in.readBit()) {
+                if (in.readBit()) {
+                    this.previousBits = in.readBits(64);
+                } else {
+                    this.previousOffset += this.rice.read(in);
+                    long ticks = this.previousOffset + this.referenceTicks(reference);
+                    this.previousBits = Double.doubleToLongBits((double) ticks / this.scale);
+                }
+            }
+            return Double.longBitsToDouble(this.previousBits);
+        }
+
+        // the first value of a block is stored verbatim and only sets the state
+        private void start(long bits, double reference) {
+            this.started = true;
+            this.previousBits = bits;
+            long ticks = scaled(Double.longBitsToDouble(bits), this.scale);
+            if (ticks != Long.MIN_VALUE) {
+                this.previousOffset = ticks - this.referenceTicks(reference);
+            }
+        }
+
+        private long referenceTicks(double reference) {
+            if (!Double.isFinite(reference) || Math.abs(reference) * this.scale >= MAX_SCALED) {
+                return 0;
+            }
+            return Math.round(reference * this.scale);
+        }
+    }
+
+    /**
+     * The state of one moving-week volume.
+     */
+    private static final class VolumeState {
+
+        private final RiceState rice = new RiceState();
+        private boolean started = false;
+        private long previous;
+
+        void write(BitOutput out, long value) {
+            if (!this.started) {
+                out.writeBits(value, 64);
+                this.started = true;
+            } else if (value == this.previous) {
+                out.writeBit(false);
+            } else {
+                out.writeBit(true);
+                this.rice.write(out, value - this.previous);
+            }
+            this.previous = value;
+        }
+
+        long read(BitInput in) {
+            if (!this.started) {
+                this.previous = in.readBits(64);
+                this.started = true;
+            } else if (in.readBit()) {
+                this.previous += this.rice.read(in);
+            }
+            return this.previous;
+        }
+    }
+
+    /**
+     * Appends samples of one product to an open block.
+     */
+    static final class Encoder {
+
+        private final BitOutput out = new BitOutput();
+        private final PriceState buyOrder = new PriceState(TICKS_PER_COIN);
+        private final PriceState sellOffer = new PriceState(TICKS_PER_COIN);
+        private final PriceState quickBuy = new PriceState(QUICK_TICKS_PER_COIN);
+        private final PriceState quickSell = new PriceState(QUICK_TICKS_PER_COIN);
+        private final VolumeState quickBuyMovingWeek = new VolumeState();
+        private final VolumeState quickSellMovingWeek = new VolumeState();
+        private int count = 0;
+        private int lastUpdate = -1;
+        private HistorySample first;
+        private HistorySample last;
+
+        /**
+         * @param sample a sample newer than the last appended one
+         * @param update the index of the sample's update in the segment timeline, greater than the last one
+         */
+        void append(HistorySample sample, int update) {
+            writeGamma(this.out, update - this.lastUpdate);
+            this.lastUpdate = update;
+
+            this.buyOrder.write(this.out, sample.buyOrderPrice(), 0);
+            this.sellOffer.write(this.out, sample.sellOfferPrice(), 0);
+            // an instant buy fills sell offers, an instant sell fills buy orders
+            this.quickBuy.write(this.out, sample.quickBuyPrice(), sample.sellOfferPrice());
+            this.quickSell.write(this.out, sample.quickSellPrice(), sample.buyOrderPrice());
+            this.quickBuyMovingWeek.write(this.out, sample.quickBuyMovingWeek());
+            this.quickSellMovingWeek.write(this.out, sample.quickSellMovingWeek());
+
+            if (this.count == 0) {
+                this.first = sample;
+            }
+            this.last = sample;
+            this.count++;
+        }
+
+        int count() {
+            return this.count;
+        }
+
+        HistorySample first() {
+            return this.first;
+        }
+
+        HistorySample last() {
+            return this.last;
+        }
+
+        long bitLength() {
+            return this.out.bitLength();
+        }
+
+        byte[] toByteArray() {
+            return this.out.toByteArray();
+        }
+    }
+
+    /**
+     * Reads the samples of a block back in order.
+     */
+    static final class Decoder {
+
+        private final BitInput in;
+        private final IntToLongFunction timeline;
+        private final PriceState buyOrder = new PriceState(TICKS_PER_COIN);
+        private final PriceState sellOffer = new PriceState(TICKS_PER_COIN);
+        private final PriceState quickBuy = new PriceState(QUICK_TICKS_PER_COIN);
+        private final PriceState quickSell = new PriceState(QUICK_TICKS_PER_COIN);
+        private final VolumeState quickBuyMovingWeek = new VolumeState();
+        private final VolumeState quickSellMovingWeek = new VolumeState();
+        private int remaining;
+        private int lastUpdate = -1;
+
+        /**
+         * @param timeline the timestamp of each update index of the segment the block belongs to
+         */
+        Decoder(ByteBuffer buffer, int offset, int count, IntToLongFunction timeline) {
+            this.in = new BitInput(buffer, offset);
+            this.timeline = timeline;
+            this.remaining = count;
+        }
+
+        boolean hasNext() {
+            return this.remaining > 0;
+        }
+
+        HistorySample next() {
+            this.lastUpdate += (int) readGamma(this.in);
+
+            double buyOrder = this.buyOrder.read(this.in, 0);
+            double sellOffer = this.sellOffer.read(this.in, 0);
+            double quickBuy = this.quickBuy.read(this.in, sellOffer);
+            double quickSell = this.quickSell.read(this.in, buyOrder);
+            long quickBuyMovingWeek = this.quickBuyMovingWeek.read(this.in);
+            long quickSellMovingWeek = this.quickSellMovingWeek.read(this.in);
+
+            this.remaining--;
+            return new HistorySample(
+                this.timeline.applyAsLong(this.lastUpdate),
+                buyOrder,
+                sellOffer,
+                quickBuy,
+                quickSell,
+                quickBuyMovingWeek,
+                quickSellMovingWeek
+            );
+        }
+    }
+}
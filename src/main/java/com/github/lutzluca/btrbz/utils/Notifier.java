@@ -17,6 +17,7 @@ import net.minecraft.sounds.SoundEvents;
 import com.github.lutzluca.btrbz.core.AlertManager.Alert;
 import com.github.lutzluca.btrbz.core.OrderProtectionManager.ValidationResult;
 import com.github.lutzluca.btrbz.core.commands.alert.AlertCommandParser.ResolvedAlertArgs;
+import com.github.lutzluca.btrbz.core.commands.alert.PriceExpression;
 import com.github.lutzluca.btrbz.core.config.ConfigManager;
 import com.github.lutzluca.btrbz.core.trackedorders.GroupKey;
 import com.github.lutzluca.btrbz.core.trackedorders.GroupStatus;
@@ -33,6 +34,7 @@ import com.github.lutzluca.btrbz.data.OrderModels.OrderType;
 import com.github.lutzluca.btrbz.data.OrderModels.TrackedOrder;
 import com.github.lutzluca.btrbz.data.ProductIdentity;
 import com.github.lutzluca.btrbz.data.IndexedProduct;
+import org.jetbrains.annotations.Nullable;
 
 @Slf4j
 public class Notifier {
@@ -274,7 +276,13 @@ public class Notifier {
             .append(Component.literal(" price of ").withStyle(ChatFormatting.GRAY))
             .append(productNameComponent(cmd.product(), bazaarData, ChatFormatting.GOLD))
             .append(Component.literal(" reaches ").withStyle(ChatFormatting.GRAY))
-            .append(coinComponent(cmd.price()));
+            .append(alertThresholdComponent(cmd.expression(), cmd.price()));
+        if (cmd.isDynamic()) {
+            msg
+                .append(Component.literal(" (currently ").withStyle(ChatFormatting.GRAY))
+                .append(coinComponent(cmd.price()))
+                .append(Component.literal(")").withStyle(ChatFormatting.GRAY));
+        }
 
         notifyPlayer(msg);
     }
@@ -291,7 +299,7 @@ public class Notifier {
             .append(Component.literal("Your alert for ").withStyle(ChatFormatting.GRAY))
             .append(productNameComponent(product, bazaarData, ChatFormatting.GOLD))
             .append(Component.literal(" at ").withStyle(ChatFormatting.GRAY))
-            .append(coinComponent(alert.price))
+            .append(alertThresholdComponent(alert.expression, alert.price))
             .append(Component.literal(" (" + alert.type.format() + ") ").withStyle(ChatFormatting.DARK_GRAY))
             .append(Component.literal("has been reached").withStyle(ChatFormatting.GREEN))
             .append(Component.literal(" and is ").withStyle(ChatFormatting.GRAY))
@@ -314,7 +322,7 @@ public class Notifier {
             .append(Component.literal("You already have an alert for ").withStyle(ChatFormatting.GRAY))
             .append(productNameComponent(args.product(), bazaarData, ChatFormatting.GOLD))
             .append(Component.literal(" at ").withStyle(ChatFormatting.GRAY))
-            .append(coinComponent(args.price()))
+            .append(alertThresholdComponent(args.expression(), args.price()))
             .append(Component
                 .literal(" (" + args.type().name().toLowerCase() + ")")
                 .withStyle(ChatFormatting.DARK_GRAY))
@@ -338,7 +346,7 @@ public class Notifier {
             .append(Component.literal("Your alert for ").withStyle(ChatFormatting.GRAY))
             .append(productNameComponent(alert.product, bazaarData, ChatFormatting.GOLD))
             .append(Component.literal(" at ").withStyle(ChatFormatting.GRAY))
-            .append(coinComponent(alert.price))
+            .append(alertThresholdComponent(alert.expression, alert.price))
             .append(Component
                 .literal(" has not been reached for " + durationText + ". ")
                 .withStyle(ChatFormatting.GRAY))
@@ -397,6 +405,14 @@ public class Notifier {
         return Component.literal(label).withStyle(orderTypeStyle(type));
     }
 
+    private static MutableComponent alertThresholdComponent(@Nullable PriceExpression expression, double price) {
+        if (expression == null) {
+            return coinComponent(price);
+        }
+
+        return Component.literal(expression.format()).withStyle(ChatFormatting.GOLD);
+    }
+
     private static MutableComponent coinComponent(double amount) {
         return Component
             .literal(Utils.formatDecimal(amount, 1, true) + " coins")
@@ -2,6 +2,7 @@ package com.github.lutzluca.btrbz.core;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.github.lutzluca.btrbz.core.AlertManager.Alert;
@@ -67,5 +68,65 @@ class AlertConfigSerializationTest {
             assertEquals(alert.price, reparsed.price);
             assertEquals(alert.remindedAfter, reparsed.remindedAfter);
         }
+
+        @Test
+        void roundTripsDynamicAlertExpression() {
+            var json = """
+                {
+                  "id": "0b7c1a3e-5d0f-4f5e-9a43-3b3f7e2f0c11",
+                  "createdAt": 1700000000000,
+                  "product": {
+                    "productId": "ENCHANTED_DIAMOND",
+                    "formattedName": "§aEnchanted Diamond"
+                  },
+                  "type": "SellOffer",
+                  "price": 123.4,
+                  "expression": "(insta + order) / 2 * 1.05"
+                }
+                """;
+
+            var alert = AlertConfigSerializationTest.this.gson.fromJson(json, Alert.class);
+            var serialized = AlertConfigSerializationTest.this.gson.toJsonTree(alert).getAsJsonObject();
+            var reparsed = AlertConfigSerializationTest.this.gson.fromJson(serialized, Alert.class);
+
+            assertTrue(alert.isDynamic());
+            assertEquals("(insta + order) / 2 * 1.05", serialized.get("expression").getAsString());
+            assertEquals(alert.expression, reparsed.expression);
+            assertEquals(alert.price, reparsed.price);
+        }
+
+        @Test
+        void skipsDynamicAlertsWithInvalidExpressions() {
+            var json = """
+                {
+                  "id": "0b7c1a3e-5d0f-4f5e-9a43-3b3f7e2f0c11",
+                  "createdAt": 1700000000000,
+                  "product": { "productId": "ENCHANTED_DIAMOND" },
+                  "type": "SellOffer",
+                  "price": 123.4,
+                  "expression": "order *"
+                }
+                """;
+
+            assertNull(AlertConfigSerializationTest.this.gson.fromJson(json, Alert.class));
+        }
+
+        @Test
+        void keepsFixedAlertsWithoutExpression() {
+            var json = """
+                {
+                  "id": "29f2d47e-f09f-4c68-901f-f41a547d4145",
+                  "createdAt": 1700000000000,
+                  "product": { "productId": "ENCHANTED_DIAMOND" },
+                  "type": "BuyOrder",
+                  "price": 10
+                }
+                """;
+
+            var alert = AlertConfigSerializationTest.this.gson.fromJson(json, Alert.class);
+
+            assertFalse(alert.isDynamic());
+            assertFalse(AlertConfigSerializationTest.this.gson.toJsonTree(alert).getAsJsonObject().has("expression"));
+        }
     }
 }
@@ -0,0 +1,355 @@
+package com.github.lutzluca.btrbz.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.lutzluca.btrbz.core.AlertManager.Alert;
+import com.github.lutzluca.btrbz.core.AlertManager.AlertHit;
+import com.github.lutzluca.btrbz.core.commands.alert.AlertCommandParser;
+import com.github.lutzluca.btrbz.core.commands.alert.AlertCommandParser.ParseException;
+import com.github.lutzluca.btrbz.core.commands.alert.AlertCommandParser.ResolvedAlertArgs;
+import com.github.lutzluca.btrbz.core.commands.alert.PriceExpression.AlertType;
+import com.github.lutzluca.btrbz.data.BazaarData;
+import com.github.lutzluca.btrbz.data.IndexedProduct;
+import com.github.lutzluca.btrbz.data.MarketColumns;
+import com.github.lutzluca.btrbz.data.MarketDelta;
+import com.github.lutzluca.btrbz.data.MarketUpdateHandler;
+import com.github.lutzluca.btrbz.data.ProductIdentity;
+import com.github.lutzluca.btrbz.utils.Utils;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+class AlertIndexTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+
+    @Nested
+    @DisplayName("thresholds")
+    class Thresholds {
+
+        @Test
+        void firesAlertsWhoseThresholdIsReachedInclusively() {
+            var data = new BazaarData();
+            var sellOfferAt = alert("A", AlertType.SellOffer, 12.0);
+            var instaSellBelow = alert("A", AlertType.InstaSell, 9.0);
+            var buyOrderAt = alert("A", AlertType.BuyOrder, 10.0);
+            var instaBuyAbove = alert("A", AlertType.InstaBuy, 13.0);
+            var alerts = List.of(
+                sellOfferAt,
+                alert("A", AlertType.SellOffer, 12.5),
+                instaSellBelow,
+                alert("A", AlertType.InstaSell, 11.0),
+                buyOrderAt,
+                alert("A", AlertType.BuyOrder, 9.0),
+                instaBuyAbove,
+                alert("A", AlertType.InstaBuy, 11.0)
+            );
+            var index = AlertIndex.build(alerts, data.handles());
+
+            var delta = update(data, market -> market.add("A", 10.0, 12.0));
+
+            assertEquals(
+                Set.of(sellOfferAt.id, instaSellBelow.id, buyOrderAt.id, instaBuyAbove.id),
+                reachedIds(priceHits(index, delta, true))
+            );
+        }
+
+        @Test
+        void ignoresSidesWithoutOrders() {
+            var data = new BazaarData();
+            var index = AlertIndex.build(
+                List.of(alert("A", AlertType.SellOffer, 0.0), alert("A", AlertType.InstaBuy, 1e12)),
+                data.handles()
+            );
+
+            var delta = update(data, market -> market.add("A", 10.0, Double.NaN));
+
+            assertTrue(priceHits(index, delta, true).isEmpty());
+        }
+
+        @Test
+        void reportsUnlistedProductsAsInvalid() {
+            var data = new BazaarData();
+            var missing = alert("MISSING", AlertType.BuyOrder, 1.0);
+            var index = AlertIndex.build(List.of(missing, alert("A", AlertType.BuyOrder, 1.0)), data.handles());
+
+            var delta = update(data, market -> market.add("A", 10.0, 12.0));
+
+            assertEquals(List.of(new AlertHit.InvalidProduct(missing)), priceHits(index, delta, true));
+        }
+
+        @Test
+        void onlyRepricesProductsWhoseTopOfBookChanged() {
+            var data = new BazaarData();
+            var a = alert("A", AlertType.BuyOrder, 20.0);
+            var b = alert("B", AlertType.BuyOrder, 30.0);
+            var index = AlertIndex.build(List.of(a, b), data.handles());
+
+            update(data, market -> market.add("A", 30.0, 32.0).add("B", 30.0, 32.0));
+            var delta = update(data, market -> market.add("A", 15.0, 32.0).add("B", 30.0, 32.0));
+
+            assertEquals(Set.of(a.id), reachedIds(priceHits(index, delta, false)));
+        }
+    }
+
+    @Nested
+    @DisplayName("dynamic alerts")
+    class DynamicAlerts {
+
+        @Test
+        void reevaluateTheirExpressionAgainstLivePrices() throws ParseException {
+            var data = new BazaarData();
+            // fires once the sell offer is at least 5% above the best buy order
+            var spread = dynamicAlert("A", AlertType.SellOffer, "insta + 5%");
+            var fixed = alert("A", AlertType.SellOffer, 105.0);
+            var index = AlertIndex.build(List.of(spread, fixed), data.handles());
+
+            var narrow = update(data, market -> market.add("A", 100.0, 104.0));
+            var raisedBuyOrder = update(data, market -> market.add("A", 110.0, 106.0));
+            var wide = update(data, market -> market.add("A", 110.0, 116.0));
+
+            assertTrue(priceHits(index, narrow, true).isEmpty());
+            assertEquals(Set.of(fixed.id), reachedIds(priceHits(index, raisedBuyOrder, false)));
+            assertEquals(Set.of(spread.id, fixed.id), reachedIds(priceHits(index, wide, false)));
+        }
+
+        @Test
+        void reevaluateVolumeReferencesWhenOnlyDeeperLevelsChange() throws ParseException {
+            var data = new BazaarData();
+            // fires once the sell offer is at least 5% above the average insta sell price of 128 items
+            var depth = dynamicAlert("A", AlertType.SellOffer, "insta@128 + 5%");
+            var index = AlertIndex.build(List.of(depth), data.handles());
+
+            var shallowDrop = update(data, market -> market.add("A", 100.0, 104.0).buyOrderLevel(99.0, 64));
+            var deepDrop = update(data, market -> market.add("A", 100.0, 104.0).buyOrderLevel(90.0, 64));
+
+            assertTrue(priceHits(index, shallowDrop, true).isEmpty());
+            assertEquals(Set.of(depth.id), reachedIds(priceHits(index, deepDrop, false)));
+        }
+
+        @Test
+        void neverFireWhileAReferencedPriceIsMissing() throws ParseException {
+            var data = new BazaarData();
+            var index = AlertIndex.build(
+                List.of(dynamicAlert("A", AlertType.BuyOrder, "insta * 2")),
+                data.handles()
+            );
+
+            var delta = update(data, market -> market.add("A", 10.0, Double.NaN));
+
+            assertTrue(priceHits(index, delta, true).isEmpty());
+        }
+    }
+
+    @Nested
+    @DisplayName("reminders")
+    class Reminders {
+
+        @Test
+        void remindsOnceTheFirstAlertIsDue() {
+            var data = new BazaarData();
+            var weekOld = alert("A", AlertType.BuyOrder, 1.0, NOW - Utils.WEEK_DURATION_MS);
+            var monthOld = alert("A", AlertType.BuyOrder, 1.0, NOW - Utils.MONTH_DURATION_MS - 1);
+            monthOld.remindedAfter = Utils.WEEK_DURATION_MS + 1;
+            var index = AlertIndex.build(List.of(weekOld, monthOld), data.handles());
+
+            var dueNow = new ArrayList<AlertHit>();
+            index.collectReminders(NOW, dueNow);
+            var dueLater = new ArrayList<AlertHit>();
+            index.collectReminders(NOW + 1, dueLater);
+
+            var monthReminder = new AlertHit.Outdated(
+                monthOld,
+                "over a month",
+                Utils.MONTH_DURATION_MS,
+                Utils.MONTH_DURATION_MS + 1
+            );
+            assertEquals(List.of(monthReminder), dueNow);
+            assertEquals(2, dueLater.size());
+        }
+
+        @Test
+        void skipsAlertsThatWereAlreadyReminded() {
+            var data = new BazaarData();
+            var reminded = alert("A", AlertType.BuyOrder, 1.0, NOW - 2 * Utils.MONTH_DURATION_MS);
+            reminded.remindedAfter = Utils.MONTH_DURATION_MS + 1;
+            var index = AlertIndex.build(List.of(reminded), data.handles());
+
+            var hits = new ArrayList<AlertHit>();
+            index.collectReminders(NOW, hits);
+
+            assertTrue(hits.isEmpty());
+        }
+    }
+
+    @Nested
+    @DisplayName("scale")
+    class Scale {
+
+        private static final int PRODUCTS = 500;
+        private static final int ALERTS = 10_000;
+
+        @Test
+        void matchesPerAlertEvaluationForTenThousandAlerts() {
+            var random = new Random(11);
+            var data = new BazaarData();
+            var types = AlertType.values();
+
+            var alerts = new ArrayList<Alert>(ALERTS);
+            for (int i = 0; i < ALERTS; i++) {
+                var type = types[random.nextInt(types.length)];
+                // whole coins so that thresholds regularly land exactly on a market price
+                double price = 90 + random.nextInt(40);
+                alerts.add(alert("P" + random.nextInt(PRODUCTS), type, price));
+            }
+            var index = AlertIndex.build(alerts, data.handles());
+            assertEquals(PRODUCTS, index.productCount());
+
+            var buyOrders = new double[PRODUCTS];
+            var sellOffers = new double[PRODUCTS];
+            for (int i = 0; i < PRODUCTS; i++) {
+                buyOrders[i] = 100 + random.nextInt(10);
+                sellOffers[i] = buyOrders[i] + random.nextInt(10);
+            }
+            var first = update(data, market -> market.addAll(buyOrders, sellOffers));
+
+            var firstHits = priceHits(index, first, true);
+            assertEquals(reachedIds(alerts, first, product -> true), reachedIds(firstHits));
+            assertTrue(firstHits.size() > ALERTS / 10, () -> "only " + firstHits.size() + " alerts fired");
+
+            var changed = new HashSet<String>();
+            for (int i = 0; i < 10; i++) {
+                int product = random.nextInt(PRODUCTS);
+                buyOrders[product] -= 5;
+                sellOffers[product] += 5;
+                changed.add("P" + product);
+            }
+            var second = update(data, market -> market.addAll(buyOrders, sellOffers));
+
+            assertEquals(
+                reachedIds(alerts, second, changed::contains),
+                reachedIds(priceHits(index, second, false))
+            );
+        }
+    }
+
+    private static Alert alert(String productId, AlertType type, double price) {
+        return alert(productId, type, price, NOW);
+    }
+
+    private static Alert alert(String productId, AlertType type, double price, long createdAt) {
+        return new Alert(new ResolvedAlertArgs(createdAt, new IndexedProduct(productId, productId), type, price));
+    }
+
+    private static Alert dynamicAlert(String productId, AlertType type, String expression) throws ParseException {
+        var args = new ResolvedAlertArgs(
+            NOW,
+            new IndexedProduct(productId, productId),
+            type,
+            0,
+            new AlertCommandParser().parsePriceExpression(expression)
+        );
+        return new Alert(args);
+    }
+
+    private static List<AlertHit> priceHits(AlertIndex index, MarketDelta delta, boolean all) {
+        var hits = new ArrayList<AlertHit>();
+        index.collectPriceHits(delta, all, hits);
+        return hits;
+    }
+
+    private static Set<UUID> reachedIds(List<AlertHit> hits) {
+        return hits
+            .stream()
+            .filter(AlertHit.PriceReached.class::isInstance)
+            .map(hit -> ((AlertHit.PriceReached) hit).alert().id)
+            .collect(Collectors.toSet());
+    }
+
+    /**
+     * Evaluates every alert on its own, the way alerts were checked before they were indexed.
+     */
+    private static Set<UUID> reachedIds(
+        List<Alert> alerts,
+        MarketDelta delta,
+        Predicate<String> productFilter
+    ) {
+        var snapshot = delta.snapshot();
+        return alerts
+            .stream()
+            .filter(alert -> productFilter.test(alert.productId()))
+            .filter(alert -> {
+                var identity = ProductIdentity.fromIndex(alert.product);
+                var price = switch (alert.type) {
+                    case BuyOrder, InstaSell -> snapshot.highestBuyOrderPrice(identity);
+                    case SellOffer, InstaBuy -> snapshot.lowestSellOfferPrice(identity);
+                };
+                return price.map(marketPrice -> switch (alert.type) {
+                    case SellOffer, InstaSell -> marketPrice >= alert.price;
+                    case BuyOrder, InstaBuy -> marketPrice <= alert.price;
+                }).orElse(false);
+            })
+            .map(alert -> alert.id)
+            .collect(Collectors.toSet());
+    }
+
+    private static MarketDelta update(BazaarData data, Consumer<MarketBuilder> products) {
+        var deltas = new ArrayList<MarketDelta>();
+        MarketUpdateHandler handler = delta -> {
+            deltas.add(delta);
+            return MarketUpdateHandler.NOTHING;
+        };
+        data.addUpdateHandler(handler);
+
+        var builder = new MarketBuilder(MarketColumns.builder(data.handles()));
+        products.accept(builder);
+        data.prepareUpdate(builder.columns.build()).run();
+
+        data.removeUpdateHandler(handler);
+        return deltas.getFirst();
+    }
+
+    private static final class MarketBuilder {
+
+        private final MarketColumns.Builder columns;
+
+        private MarketBuilder(MarketColumns.Builder columns) {
+            this.columns = columns;
+        }
+
+        MarketBuilder add(String productId, double buyOrder, double sellOffer) {
+            this.columns.product(productId);
+            this.columns.quickBuy(sellOffer, 100, 500, 3);
+            this.columns.quickSell(buyOrder, 100, 500, 3);
+            if (!Double.isNaN(buyOrder)) {
+                this.columns.buyOrderLevel(buyOrder, 64, 1);
+            }
+            if (!Double.isNaN(sellOffer)) {
+                this.columns.sellOfferLevel(sellOffer, 64, 1);
+            }
+            return this;
+        }
+
+        MarketBuilder buyOrderLevel(double pricePerUnit, long amount) {
+            this.columns.buyOrderLevel(pricePerUnit, amount, 1);
+            return this;
+        }
+
+        MarketBuilder addAll(double[] buyOrders, double[] sellOffers) {
+            for (int i = 0; i < buyOrders.length; i++) {
+                this.add("P" + i, buyOrders[i], sellOffers[i]);
+            }
+            return this;
+        }
+    }
+}
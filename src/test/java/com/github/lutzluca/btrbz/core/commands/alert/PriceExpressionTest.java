@@ -0,0 +1,166 @@
+package com.github.lutzluca.btrbz.core.commands.alert;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.lutzluca.btrbz.core.commands.alert.AlertCommandParser.ParseException;
+import com.github.lutzluca.btrbz.core.commands.alert.PriceExpression.Binary;
+import com.github.lutzluca.btrbz.core.commands.alert.PriceExpression.BinaryOperator;
+import com.github.lutzluca.btrbz.core.commands.alert.PriceExpression.Literal;
+import com.github.lutzluca.btrbz.core.commands.alert.PriceExpression.Reference;
+import com.github.lutzluca.btrbz.core.commands.alert.PriceExpression.ReferenceType;
+import com.github.lutzluca.btrbz.data.MarketColumns;
+import com.github.lutzluca.btrbz.data.ProductHandles;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+class PriceExpressionTest {
+
+    private static final double ORDER = 1_000.0;
+    private static final double INSTA = 1_100.0;
+
+    private final AlertCommandParser parser = new AlertCommandParser();
+
+    @Nested
+    @DisplayName("parsing")
+    class Parsing {
+
+        @Test
+        void appliesPercentagesRelativeToTheLeftOperand() throws ParseException {
+            assertEquals(950.0, evaluate("order - 5%"), 1e-9);
+            assertEquals(1_155.0, evaluate("insta + 5%"), 1e-9);
+            assertEquals(997.5, evaluate("(order + insta) / 2 - 5%"), 1e-9);
+        }
+
+        @Test
+        void treatsOtherPercentagesAsFractions() throws ParseException {
+            assertEquals(980.0, evaluate("order * 98%"), 1e-9);
+            assertEquals(900.0, evaluate("order - 5% * 2 * 1000"), 1e-9);
+        }
+
+        @Test
+        void keepsFactorsBelowOneDecimal() throws ParseException {
+            assertEquals(1_078.0, evaluate("insta * 0.98"), 1e-9);
+        }
+
+        @Test
+        void rejectsMalformedPercentages() {
+            assertThrows(ParseException.class, () -> PriceExpressionTest.this.parser.parsePriceExpression("order - %"));
+        }
+
+        @Test
+        void formatsIntoAnEquivalentExpression() throws ParseException {
+            for (var input : new String[] {
+                "order - 5%",
+                "(insta + order) / 2",
+                "order - (insta - 100)",
+                "order / (2 * insta) * 3",
+                "2.5m - order * 0.98",
+                "insta@64 / insta - 1"
+            }) {
+                var expression = PriceExpressionTest.this.parser.parsePriceExpression(input);
+                var reparsed = PriceExpressionTest.this.parser.parsePriceExpression(expression.format());
+
+                assertEquals(expression, reparsed, input);
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("compiled evaluation")
+    class CompiledEvaluation {
+
+        @Test
+        void matchesTreeEvaluationOnRandomExpressions() {
+            var random = new Random(3);
+            for (int i = 0; i < 2_000; i++) {
+                var expression = randomExpression(random, 5);
+                var compiled = expression.compile();
+                double order = random.nextInt(10_000) / 10.0;
+                double insta = random.nextInt(10_000) / 10.0;
+
+                assertEquals(
+                    treeEvaluate(expression, order, insta),
+                    compiled.evaluate(order, insta, new double[compiled.stackSize()]),
+                    expression::format
+                );
+            }
+        }
+
+        @Test
+        void reusesTheStackAcrossEvaluations() throws ParseException {
+            var first = compile("(order + insta) / 2");
+            var second = compile("order - (insta - (order - 1))");
+            var stack = new double[Math.max(first.stackSize(), second.stackSize())];
+
+            assertEquals(1_050.0, first.evaluate(ORDER, INSTA, stack));
+            assertEquals(899.0, second.evaluate(ORDER, INSTA, stack));
+            assertEquals(1_050.0, first.evaluate(ORDER, INSTA, stack));
+            assertEquals(4, second.stackSize());
+        }
+
+        @Test
+        void propagatesMissingPricesAsNaN() throws ParseException {
+            var compiled = compile("order * 0 + 5");
+
+            assertTrue(Double.isNaN(compiled.evaluate(Double.NaN, INSTA)));
+        }
+
+        @Test
+        void averagesInstaPricesOverTheBook() throws ParseException {
+            var builder = MarketColumns.builder(new ProductHandles());
+            builder.product("A");
+            builder.sellOfferLevel(1_100, 64, 1);
+            builder.sellOfferLevel(1_200, 64, 1);
+            var sellOffers = builder.build().sellOffers(0);
+            var compiled = compile("insta@128 - insta");
+
+            assertTrue(compiled.dependsOnDepth());
+            assertEquals(50, compiled.evaluate(ORDER, INSTA, sellOffers, new double[compiled.stackSize()]), 1e-9);
+            // a book without the volume and no book at all are missing prices
+            assertTrue(Double.isNaN(compile("insta@129").evaluate(ORDER, INSTA, sellOffers, new double[1])));
+            assertTrue(Double.isNaN(compiled.evaluate(ORDER, INSTA)));
+            assertFalse(compile("insta - 5%").dependsOnDepth());
+        }
+    }
+
+    private double evaluate(String expression) throws ParseException {
+        return this.compile(expression).evaluate(ORDER, INSTA);
+    }
+
+    private CompiledPriceExpression compile(String expression) throws ParseException {
+        return this.parser.parsePriceExpression(expression).compile();
+    }
+
+    private static PriceExpression randomExpression(Random random, int depth) {
+        if (depth == 0 || random.nextInt(3) == 0) {
+            return switch (random.nextInt(3)) {
+                case 0 -> new Reference(ReferenceType.Order);
+                case 1 -> new Reference(ReferenceType.Insta);
+                default -> new Literal(random.nextInt(1_000) / 100.0);
+            };
+        }
+
+        var ops = BinaryOperator.values();
+        return new Binary(
+            randomExpression(random, depth - 1),
+            ops[random.nextInt(ops.length)],
+            randomExpression(random, depth - 1)
+        );
+    }
+
+    private static double treeEvaluate(PriceExpression expression, double order, double insta) {
+        return switch (expression) {
+            case Literal literal -> literal.value();
+            case Reference reference -> reference.reference() == ReferenceType.Order ? order : insta;
+            case Binary binary -> binary.op().apply(
+                treeEvaluate(binary.left(), order, insta),
+                treeEvaluate(binary.right(), order, insta)
+            );
+        };
+    }
+}
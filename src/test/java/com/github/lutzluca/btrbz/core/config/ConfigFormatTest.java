@@ -0,0 +1,51 @@
+package com.github.lutzluca.btrbz.core.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.lutzluca.btrbz.data.BazaarPoller.FetchMode;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ConfigFormatTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void serializesLikeTheHandlerSaves() throws IOException {
+        var path = this.dir.resolve("btrbz.json");
+        var format = new ConfigFormat(path);
+        changeDefaults(format.handler().instance());
+
+        format.handler().save();
+
+        assertEquals(Files.readString(path), format.serialize());
+    }
+
+    @Test
+    void roundTripsThroughTheHandler() throws IOException {
+        var path = this.dir.resolve("btrbz.json");
+        var format = new ConfigFormat(path);
+        changeDefaults(format.handler().instance());
+        Files.writeString(path, format.serialize());
+
+        var reloaded = new ConfigFormat(path);
+        assertTrue(reloaded.handler().load());
+
+        var config = reloaded.handler().instance();
+        assertEquals(1.25, config.tax);
+        assertFalse(config.alert.enabled);
+        assertEquals(FetchMode.Streaming, config.bazaarData.fetchMode);
+    }
+
+    private static void changeDefaults(Config config) {
+        config.tax = 1.25;
+        config.alert.enabled = false;
+        config.bazaarData.fetchMode = FetchMode.Streaming;
+    }
+}
@@ -0,0 +1,99 @@
+package com.github.lutzluca.btrbz.core.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ConfigWriterTest {
+
+    @TempDir
+    Path dir;
+
+    private final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+
+    @AfterEach
+    void shutdown() {
+        this.executor.shutdownNow();
+    }
+
+    @Test
+    void coalescesSavesWithinTheWindowIntoOneWrite() throws Exception {
+        var path = this.dir.resolve("btrbz.json");
+        var writer = new ConfigWriter(path, Duration.ofMillis(50), this.executor);
+
+        writer.submit("first");
+        writer.submit("second");
+        writer.submit("third");
+
+        assertFalse(Files.exists(path));
+        this.awaitCompletedTasks(1);
+        assertEquals("third", Files.readString(path));
+        assertEquals(1, this.executor.getCompletedTaskCount());
+    }
+
+    @Test
+    void schedulesANewWriteForSavesAfterTheWindow() throws Exception {
+        var path = this.dir.resolve("btrbz.json");
+        var writer = new ConfigWriter(path, Duration.ofMillis(10), this.executor);
+
+        writer.submit("first");
+        this.awaitCompletedTasks(1);
+        writer.submit("second");
+        this.awaitCompletedTasks(2);
+
+        assertEquals("second", Files.readString(path));
+    }
+
+    @Test
+    void closeFlushesThePendingSave() throws IOException {
+        var path = this.dir.resolve("btrbz.json");
+        var writer = new ConfigWriter(path, Duration.ofHours(1), this.executor);
+
+        writer.submit("pending");
+        writer.close();
+
+        assertEquals("pending", Files.readString(path));
+        assertTrue(this.executor.isShutdown());
+    }
+
+    @Test
+    void writesOnTheCallingThreadAfterClose() throws IOException {
+        var path = this.dir.resolve("btrbz.json");
+        var writer = new ConfigWriter(path, Duration.ofHours(1), this.executor);
+
+        writer.close();
+        writer.submit("late");
+
+        assertEquals("late", Files.readString(path));
+    }
+
+    @Test
+    void leavesNoTemporaryFilesBehind() throws Exception {
+        var path = this.dir.resolve("btrbz.json");
+        var writer = new ConfigWriter(path, Duration.ofMillis(10), this.executor);
+
+        writer.submit("content");
+        writer.close();
+
+        try (var files = Files.list(this.dir)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    private void awaitCompletedTasks(long count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (this.executor.getCompletedTaskCount() < count && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+}
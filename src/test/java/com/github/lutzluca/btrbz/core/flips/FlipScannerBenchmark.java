@@ -0,0 +1,71 @@
+package com.github.lutzluca.btrbz.core.flips;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.lutzluca.btrbz.core.flips.FlipRanking.FlipMetric;
+import com.github.lutzluca.btrbz.data.MarketColumns;
+import com.github.lutzluca.btrbz.data.ProductHandles;
+import com.github.lutzluca.btrbz.test.Benchmark;
+import com.github.lutzluca.btrbz.test.Benchmarks;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Measures a full flip scan of a Bazaar sized snapshot with the default rankings.
+ * Run with {@code BTRBZ_BENCHMARK=true ./gradlew test --tests '*FlipScannerBenchmark'}.
+ */
+@Benchmark
+class FlipScannerBenchmark {
+
+    private static final int PRODUCTS = 1_500;
+    private static final int LEVELS_PER_SIDE = 30;
+    private static final int WARMUP_ROUNDS = 500;
+    private static final int MEASURED_ROUNDS = 500;
+
+    @Test
+    void fullScan() {
+        var columns = fullSizeMarket();
+        var rankings = List.of(
+            new FlipRanking("profit", FlipMetric.ProfitPerHour, 100_000, 0),
+            new FlipRanking("uncontested", FlipMetric.ProfitShare, 10_000, 0),
+            new FlipRanking("margin", FlipMetric.MarginPercent, 50_000, 0)
+        );
+        var scanner = new FlipScanner(() -> 1.125, () -> rankings, () -> 10);
+
+        var run = Benchmarks.measure(WARMUP_ROUNDS, MEASURED_ROUNDS, () -> scanner.scan(columns));
+
+        double median = run.medianNanos() / 1e6;
+        double p99 = run.p99Nanos() / 1e6;
+        Benchmarks.report(
+            "flip scan (%d products, %d levels, %d rankings): median %.3f ms, p99 %.3f ms",
+            PRODUCTS,
+            LEVELS_PER_SIDE,
+            rankings.size(),
+            median,
+            p99
+        );
+        assertTrue(median < 5, "a full scan should take a few milliseconds at most");
+    }
+
+    private static MarketColumns fullSizeMarket() {
+        var random = new Random(18);
+        var builder = MarketColumns.builder(new ProductHandles());
+        for (int product = 0; product < PRODUCTS; product++) {
+            builder.product("PRODUCT_" + product);
+            long volume = random.nextInt(1_000_000);
+            builder.quickBuy(0, 0, volume, 0);
+            builder.quickSell(0, 0, volume + random.nextInt(100_000), 0);
+
+            double bid = 10 + random.nextInt(100_000) / 10.0;
+            double ask = bid * (1 + random.nextDouble() * 0.1);
+            for (int level = 0; level < LEVELS_PER_SIDE; level++) {
+                builder.buyOrderLevel(bid - level * 0.1, 64L * (level + 1), 1 + level % 4);
+            }
+            for (int level = 0; level < LEVELS_PER_SIDE; level++) {
+                builder.sellOfferLevel(ask + level * 0.1, 64L * (level + 1), 1 + level % 4);
+            }
+        }
+        return builder.build();
+    }
+}
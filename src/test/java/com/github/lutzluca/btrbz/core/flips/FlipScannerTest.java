@@ -0,0 +1,168 @@
+package com.github.lutzluca.btrbz.core.flips;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.lutzluca.btrbz.core.flips.FlipRanking.FlipMetric;
+import com.github.lutzluca.btrbz.data.MarketColumns;
+import com.github.lutzluca.btrbz.data.ProductHandles;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+class FlipScannerTest {
+
+    private static final double TAX = 1.25;
+    private static final FlipRanking BY_PROFIT = new FlipRanking("profit", FlipMetric.ProfitPerHour, 0, 0);
+
+    @Nested
+    @DisplayName("candidates")
+    class Candidates {
+
+        @Test
+        void computesMarginAfterTaxVolumeAndCompetition() {
+            var builder = MarketColumns.builder(new ProductHandles());
+            builder.product("HAY_BLOCK");
+            builder.quickBuy(110, 0, 16_800, 0);
+            builder.quickSell(90, 0, 33_600, 0);
+            builder.buyOrderLevel(90, 100, 2);
+            builder.buyOrderLevel(89, 100, 3);
+            builder.buyOrderLevel(88, 100, 4);
+            builder.buyOrderLevel(87, 100, 50);
+            builder.sellOfferLevel(110, 100, 1);
+
+            var candidate = scan(builder.build(), 10, BY_PROFIT).get(0);
+
+            double margin = 109.9 * (1 - TAX / 100) - 90.1;
+            assertEquals("HAY_BLOCK", candidate.productId());
+            assertEquals(90.1, candidate.buyPrice(), 1e-9);
+            assertEquals(109.9, candidate.sellPrice(), 1e-9);
+            assertEquals(margin, candidate.margin(), 1e-9);
+            assertEquals(20, candidate.spread(), 1e-9);
+            // the slower side traded 16,800 items in a week, 100 per hour
+            assertEquals(16_800, candidate.weeklyVolume());
+            assertEquals(margin * 100, candidate.profitPerHour(), 1e-9);
+            // only the top three levels of each side count
+            assertEquals(2 + 3 + 4 + 1, candidate.competition());
+        }
+
+        @Test
+        void skipsProductsThatCannotBeFlippedAtAProfit() {
+            var builder = MarketColumns.builder(new ProductHandles());
+            builder.product("NO_SELL_OFFERS");
+            builder.buyOrderLevel(100, 10, 1);
+            builder.product("TAX_EATS_THE_SPREAD");
+            builder.buyOrderLevel(100, 10, 1);
+            builder.sellOfferLevel(101, 10, 1);
+            builder.product("FLIPPABLE");
+            builder.buyOrderLevel(100, 10, 1);
+            builder.sellOfferLevel(110, 10, 1);
+
+            var candidates = scan(builder.build(), 10, BY_PROFIT);
+
+            assertEquals(List.of("FLIPPABLE"), candidates.stream().map(FlipCandidate::productId).toList());
+        }
+    }
+
+    @Nested
+    @DisplayName("rankings")
+    class Rankings {
+
+        @Test
+        void keepsTheBestCandidatesOfEachRankingBestFirst() {
+            var builder = MarketColumns.builder(new ProductHandles());
+            // wide margins on thin products, thin margins on busy ones
+            for (int i = 1; i <= 5; i++) {
+                builder.product("PRODUCT_" + i);
+                builder.quickBuy(0, 0, 1_000L * (6 - i), 0);
+                builder.quickSell(0, 0, 1_000L * (6 - i), 0);
+                builder.buyOrderLevel(100, 10, i);
+                builder.sellOfferLevel(110 + 10 * i, 10, 1);
+            }
+
+            var byMargin = new FlipRanking("margin", FlipMetric.Margin, 0, 0);
+            var busy = new FlipRanking("busy", FlipMetric.Margin, 3_000, 0);
+            var quiet = new FlipRanking("quiet", FlipMetric.Spread, 0, 3);
+            var scan = scanner(3, byMargin, busy, quiet).scan(builder.build());
+
+            assertEquals(List.of("margin", "busy", "quiet"), List.copyOf(scan.rankings().keySet()));
+            assertEquals(List.of("PRODUCT_5", "PRODUCT_4", "PRODUCT_3"), ids(scan.ranking("margin").orElseThrow()));
+            assertEquals(List.of("PRODUCT_3", "PRODUCT_2", "PRODUCT_1"), ids(scan.ranking("busy").orElseThrow()));
+            // at most three competing orders: the buy order levels of products 1 and 2 plus one sell offer
+            assertEquals(List.of("PRODUCT_2", "PRODUCT_1"), ids(scan.ranking("quiet").orElseThrow()));
+        }
+
+        @Test
+        void breaksTiesByProductId() {
+            var builder = MarketColumns.builder(new ProductHandles());
+            for (var productId : List.of("C", "A", "D", "B")) {
+                builder.product(productId);
+                builder.buyOrderLevel(100, 10, 1);
+                builder.sellOfferLevel(120, 10, 1);
+            }
+
+            var candidates = scanner(3, new FlipRanking("margin", FlipMetric.Margin, 0, 0)).scan(builder.build());
+
+            assertEquals(List.of("A", "B", "C"), ids(candidates.ranking("margin").orElseThrow()));
+        }
+
+        @Test
+        void parallelScansMatchASequentialSort() {
+            var random = new Random(18);
+            var builder = MarketColumns.builder(new ProductHandles());
+            for (int i = 0; i < 2_000; i++) {
+                builder.product("PRODUCT_" + i);
+                long volume = random.nextInt(100) * 1_000L;
+                builder.quickBuy(0, 0, volume, 0);
+                builder.quickSell(0, 0, volume + random.nextInt(1_000), 0);
+                double bid = 10 + random.nextInt(1_000);
+                builder.buyOrderLevel(bid, 100, 1 + random.nextInt(5));
+                builder.sellOfferLevel(bid + random.nextInt(50) / 2.0, 100, 1 + random.nextInt(5));
+            }
+            var columns = builder.build();
+
+            var ranking = new FlipRanking("margin", FlipMetric.MarginPercent, 20_000, 6);
+            var expected = new ArrayList<FlipCandidate>();
+            for (int handle = 0; handle < columns.capacity(); handle++) {
+                if (columns.isPresent(handle)) {
+                    var candidate = FlipScanner.evaluate(columns, handle, 1 - TAX / 100);
+                    if (candidate != null && ranking.accepts(candidate)) {
+                        expected.add(candidate);
+                    }
+                }
+            }
+            expected.sort(Comparator
+                .comparingDouble(FlipCandidate::marginPercent)
+                .reversed()
+                .thenComparing(FlipCandidate::productId));
+
+            for (int parallelism : new int[] { 1, 4 }) {
+                var pool = new ForkJoinPool(parallelism);
+                try {
+                    var scanner = new FlipScanner(pool, () -> TAX, () -> List.of(ranking), () -> 25);
+                    assertEquals(expected.subList(0, 25), scanner.scan(columns).ranking("margin").orElseThrow());
+                } finally {
+                    pool.shutdown();
+                }
+            }
+            assertTrue(expected.size() > 25);
+        }
+    }
+
+    private static FlipScanner scanner(int topK, FlipRanking... rankings) {
+        return new FlipScanner(() -> TAX, () -> List.of(rankings), () -> topK);
+    }
+
+    private static List<FlipCandidate> scan(MarketColumns columns, int topK, FlipRanking ranking) {
+        return scanner(topK, ranking).scan(columns).ranking(ranking.name()).orElseThrow();
+    }
+
+    private static List<String> ids(List<FlipCandidate> candidates) {
+        return candidates.stream().map(FlipCandidate::productId).toList();
+    }
+}
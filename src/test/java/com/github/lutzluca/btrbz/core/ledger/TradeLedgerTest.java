@@ -0,0 +1,216 @@
+package com.github.lutzluca.btrbz.core.ledger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.lutzluca.btrbz.data.BazaarMessageDispatcher.BazaarMessage.InstaBuy;
+import com.github.lutzluca.btrbz.data.BazaarMessageDispatcher.BazaarMessage.InstaSell;
+import com.github.lutzluca.btrbz.data.BazaarMessageDispatcher.BazaarMessage.OrderFilled;
+import com.github.lutzluca.btrbz.data.BazaarMessageDispatcher.BazaarMessage.OrderFlipped;
+import com.github.lutzluca.btrbz.data.BazaarMessageDispatcher.BazaarMessage.OrderSetup;
+import com.github.lutzluca.btrbz.data.OrderModels.OrderType;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TradeLedgerTest {
+
+    private static final long DAY = 86_400_000L;
+    private static final double EPSILON = 1e-6;
+
+    @TempDir
+    Path dir;
+
+    private final AtomicLong now = new AtomicLong(20_000 * DAY + 1_000);
+
+    @Nested
+    @DisplayName("profit and loss")
+    class ProfitAndLoss {
+
+        @Test
+        void realizesProfitAgainstTheAverageCost() {
+            var ledger = TradeLedgerTest.this.loaded();
+            ledger.recordFill(new OrderFilled(OrderType.Buy, 10, "Hay Bale"), Optional.of(100.0));
+            ledger.recordInstaBuy(new InstaBuy(10, "Hay Bale", 1_200));
+            ledger.recordInstaSell(new InstaSell(5, "Hay Bale", 800));
+            ledger.close();
+
+            var totals = ledger.product("Hay Bale").orElseThrow();
+            assertEquals(2_200, totals.spent(), EPSILON);
+            assertEquals(10, totals.tax(), EPSILON);
+            assertEquals(790, totals.earned(), EPSILON);
+            // 5 units at an average cost of 110
+            assertEquals(240, totals.profit(), EPSILON);
+            assertEquals(3, totals.trades());
+        }
+
+        @Test
+        void salesWithoutObservedPurchasesOnlyCountAsEarnings() {
+            var ledger = TradeLedgerTest.this.loaded();
+            ledger.recordFill(new OrderFilled(OrderType.Buy, 4, "Enchanted Sugar"), Optional.of(1_000.0));
+            ledger.recordFill(new OrderFilled(OrderType.Sell, 8, "Enchanted Sugar"), Optional.of(1_500.0));
+            ledger.close();
+
+            var totals = ledger.total();
+            assertEquals(150, totals.tax(), EPSILON);
+            assertEquals(11_850, totals.earned(), EPSILON);
+            assertEquals(11_850.0 / 2 - 4_000, totals.profit(), EPSILON);
+        }
+
+        @Test
+        void leavesUnpricedFillsOutOfTheTotals() {
+            var ledger = TradeLedgerTest.this.loaded();
+            ledger.recordFill(new OrderFilled(OrderType.Buy, 64, "Hay Bale"), Optional.empty());
+            ledger.recordSetup(new OrderSetup(OrderType.Buy, 64, "Hay Bale", 640));
+            ledger.close();
+
+            assertEquals(1, ledger.unpricedFills());
+            assertEquals(2, ledger.size());
+            assertEquals(0, ledger.total().trades());
+        }
+
+        @Test
+        void groupsTradesByUtcDay() {
+            var ledger = TradeLedgerTest.this.loaded();
+            ledger.recordInstaBuy(new InstaBuy(1, "Booster Cookie", 5_000_000));
+            TradeLedgerTest.this.now.addAndGet(DAY);
+            ledger.recordInstaSell(new InstaSell(1, "Booster Cookie", 6_000_000));
+            ledger.close();
+
+            var yesterday = ledger.day(LocalDate.ofEpochDay(20_000));
+            assertEquals(5_000_000, yesterday.spent(), EPSILON);
+            assertEquals(0, yesterday.profit(), EPSILON);
+            assertEquals(1, ledger.today().trades());
+            assertEquals(925_000, ledger.today().profit(), EPSILON);
+            assertEquals(ledger.today(), ledger.day(LocalDate.ofEpochDay(20_001)));
+        }
+
+        @Test
+        void computesTheFlipReturnFromTheFlippedUnitsCost() {
+            var ledger = TradeLedgerTest.this.loaded();
+            ledger.recordFill(new OrderFilled(OrderType.Buy, 10, "Hay Bale"), Optional.of(100.0));
+            ledger.recordFlip(new OrderFlipped(10, "Hay Bale", 250));
+            ledger.recordFlip(new OrderFlipped(10, "Enchanted Sugar", 1_000));
+            ledger.close();
+
+            var flips = ledger.flips();
+            assertEquals(2, flips.flips());
+            assertEquals(1, flips.costedFlips());
+            assertEquals(0.25, flips.returnOnInvestment().orElseThrow(), EPSILON);
+        }
+
+        @Test
+        void ranksProductsByProfit() {
+            var ledger = TradeLedgerTest.this.loaded();
+            ledger.recordInstaBuy(new InstaBuy(1, "Hay Bale", 100));
+            ledger.recordInstaSell(new InstaSell(1, "Hay Bale", 50));
+            ledger.recordInstaBuy(new InstaBuy(1, "Booster Cookie", 100));
+            ledger.recordInstaSell(new InstaSell(1, "Booster Cookie", 500));
+            ledger.recordInstaBuy(new InstaBuy(1, "Enchanted Sugar", 100));
+            ledger.close();
+
+            var products = ledger.mostProfitable(2);
+            assertEquals(
+                List.of("Booster Cookie", "Enchanted Sugar"),
+                products.stream().map(TradeLedger.ProductTotals::productName).toList()
+            );
+        }
+    }
+
+    @Nested
+    @DisplayName("persistence")
+    class Persistence {
+
+        @Test
+        void reloadsTheSameTotals() {
+            var ledger = TradeLedgerTest.this.loaded();
+            ledger.recordSetup(new OrderSetup(OrderType.Sell, 3, "Booster Cookie", 18_000_000.25));
+            ledger.recordFill(new OrderFilled(OrderType.Buy, 3, "Booster Cookie"), Optional.of(5_123_456.7));
+            ledger.recordFill(new OrderFilled(OrderType.Sell, 3, "Booster Cookie"), Optional.of(6_000_000.05));
+            ledger.recordFill(new OrderFilled(OrderType.Sell, 3, "Hay Bale"), Optional.empty());
+            TradeLedgerTest.this.now.addAndGet(-DAY);
+            ledger.recordFlip(new OrderFlipped(3, "Booster Cookie", -1_000.5));
+            ledger.close();
+
+            var reloaded = TradeLedgerTest.this.loaded();
+            reloaded.close();
+
+            assertEquals(ledger.size(), reloaded.size());
+            assertEquals(ledger.total(), reloaded.total());
+            assertEquals(ledger.today(), reloaded.today());
+            assertEquals(ledger.flips(), reloaded.flips());
+            assertEquals(ledger.unpricedFills(), reloaded.unpricedFills());
+            assertEquals(ledger.mostProfitable(5), reloaded.mostProfitable(5));
+        }
+
+        @Test
+        void keepsTheCompleteRecordsOfACutOffFileAndAppendsAfterThem() throws IOException {
+            var ledger = TradeLedgerTest.this.loaded();
+            ledger.recordInstaBuy(new InstaBuy(2, "Hay Bale", 20));
+            ledger.close();
+            // the start of an insta buy record of a new product whose name never made it to disk
+            Files.write(TradeLedgerTest.this.path(), new byte[]{4, 2, 1, 10, 'E'}, StandardOpenOption.APPEND);
+
+            var recovered = TradeLedgerTest.this.loaded();
+            assertEquals(1, recovered.size());
+            recovered.recordInstaBuy(new InstaBuy(3, "Enchanted Sugar", 30));
+            recovered.close();
+
+            var reloaded = TradeLedgerTest.this.loaded();
+            reloaded.close();
+            assertEquals(2, reloaded.size());
+            assertEquals(50, reloaded.total().spent(), EPSILON);
+            assertEquals(30, reloaded.product("Enchanted Sugar").orElseThrow().spent(), EPSILON);
+        }
+
+        @Test
+        void createsTheMissingConfigFolderOnTheFirstAppend() {
+            var path = TradeLedgerTest.this.dir.resolve("config").resolve("btrbz").resolve("ledger.bin");
+            var ledger = TradeLedgerTest.this.loaded(path);
+            ledger.recordInstaBuy(new InstaBuy(1, "Hay Bale", 10));
+            ledger.close();
+
+            assertTrue(Files.exists(path));
+            var reloaded = TradeLedgerTest.this.loaded(path);
+            reloaded.close();
+            assertEquals(1, reloaded.size());
+        }
+
+        @Test
+        void movesUnreadableFilesAside() throws IOException {
+            Files.writeString(TradeLedgerTest.this.path(), "[]");
+
+            var ledger = TradeLedgerTest.this.loaded();
+            ledger.recordInstaBuy(new InstaBuy(1, "Hay Bale", 10));
+            ledger.close();
+
+            assertTrue(Files.exists(TradeLedgerTest.this.dir.resolve("ledger.bin.unreadable")));
+            var reloaded = TradeLedgerTest.this.loaded();
+            reloaded.close();
+            assertEquals(1, reloaded.size());
+        }
+    }
+
+    private Path path() {
+        return this.dir.resolve("ledger.bin");
+    }
+
+    private TradeLedger loaded() {
+        return this.loaded(this.path());
+    }
+
+    private TradeLedger loaded(Path path) {
+        var ledger = new TradeLedger(new LedgerStore(path), this.now::get, () -> 1.25);
+        ledger.load();
+        return ledger;
+    }
+}
@@ -0,0 +1,284 @@
+package com.github.lutzluca.btrbz.core.trackedorders;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.lutzluca.btrbz.data.BazaarData;
+import com.github.lutzluca.btrbz.data.OrderModels.OrderInfo.UnfilledOrderInfo;
+import com.github.lutzluca.btrbz.data.OrderModels.OrderStatus;
+import com.github.lutzluca.btrbz.data.OrderModels.OrderType;
+import com.github.lutzluca.btrbz.data.OrderModels.TrackedOrder;
+import com.github.lutzluca.btrbz.data.ProductIdentity;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TrackedOrderJournalTest {
+
+    @TempDir
+    Path dir;
+
+    @Nested
+    @DisplayName("replay")
+    class Replay {
+
+        @Test
+        void restoresTheLatestStateOfLiveOrders() {
+            var journal = TrackedOrderJournalTest.this.restored();
+            var kept = order(ProductIdentity.fromRuntime("Booster Cookie", "BOOSTER_COOKIE", "§6Booster Cookie"), 3);
+            var removed = order(ProductIdentity.fromName("Hay Bale"), 4);
+            var added = order(ProductIdentity.fromName("Enchanted Sugar"), 5);
+            journal.put(kept);
+            journal.put(removed);
+            kept.slot = 12;
+            kept.fillAmountSnapshot = 40;
+            journal.put(kept);
+            journal.remove(removed);
+            journal.put(added);
+            journal.close();
+
+            var orders = TrackedOrderJournalTest.this.restore();
+
+            assertEquals(2, orders.size());
+            assertSameOrder(kept, orders.getFirst());
+            assertSameOrder(added, orders.get(1));
+            assertInstanceOf(OrderStatus.Unknown.class, orders.getFirst().status);
+        }
+
+        @Test
+        void clearDropsEveryOrderBeforeIt() {
+            var journal = TrackedOrderJournalTest.this.restored();
+            journal.put(order(ProductIdentity.fromName("Hay Bale"), 0));
+            journal.clear();
+            var afterReset = order(ProductIdentity.fromName("Enchanted Sugar"), 1);
+            journal.put(afterReset);
+            journal.close();
+
+            var orders = TrackedOrderJournalTest.this.restore();
+
+            assertEquals(1, orders.size());
+            assertSameOrder(afterReset, orders.getFirst());
+        }
+
+        @Test
+        void startsEmptyWithoutAJournal() {
+            assertTrue(TrackedOrderJournalTest.this.restore().isEmpty());
+        }
+
+        @Test
+        void keepsTheCompleteRecordsOfACutOffJournal() throws IOException {
+            var journal = TrackedOrderJournalTest.this.restored();
+            var order = order(ProductIdentity.fromName("Hay Bale"), 0);
+            journal.put(order);
+            journal.close();
+            // the start of a put record whose order never made it to disk
+            Files.write(TrackedOrderJournalTest.this.path(), new byte[]{1, 0, 0, 0}, StandardOpenOption.APPEND);
+
+            var orders = TrackedOrderJournalTest.this.restore();
+
+            assertEquals(1, orders.size());
+            assertSameOrder(order, orders.getFirst());
+        }
+
+        @Test
+        void createsTheMissingConfigFolder() {
+            var path = TrackedOrderJournalTest.this.dir.resolve("config").resolve("btrbz").resolve("orders.journal");
+            var journal = new TrackedOrderJournal(path);
+            journal.restore().get();
+            var order = order(ProductIdentity.fromName("Hay Bale"), 0);
+            journal.put(order);
+            journal.close();
+
+            var restarted = new TrackedOrderJournal(path);
+            var orders = restarted.restore().get();
+            restarted.close();
+
+            assertEquals(1, orders.size());
+            assertSameOrder(order, orders.getFirst());
+        }
+
+        @Test
+        void rejectsUnknownFiles() throws IOException {
+            Files.writeString(TrackedOrderJournalTest.this.path(), "{\"orders\": []}");
+
+            var journal = new TrackedOrderJournal(TrackedOrderJournalTest.this.path());
+            assertTrue(journal.restore().isFailure());
+            journal.close();
+
+            assertTrue(TrackedOrderJournalTest.this.restore().isEmpty());
+        }
+
+        @Test
+        void movesAnUnreadableJournalAsideUntouched() throws IOException {
+            var journal = TrackedOrderJournalTest.this.restored();
+            journal.put(order(ProductIdentity.fromName("Hay Bale"), 0));
+            journal.close();
+            // a journal written by a future version
+            var bytes = Files.readAllBytes(TrackedOrderJournalTest.this.path());
+            bytes[7] = 2;
+            Files.write(TrackedOrderJournalTest.this.path(), bytes);
+
+            var failed = new TrackedOrderJournal(TrackedOrderJournalTest.this.path());
+            assertTrue(failed.restore().isFailure());
+            failed.close();
+
+            var aside = TrackedOrderJournalTest.this.dir.resolve("tracked-orders.journal.unreadable");
+            assertArrayEquals(bytes, Files.readAllBytes(aside));
+            assertTrue(TrackedOrderJournalTest.this.restore().isEmpty());
+        }
+    }
+
+    @Nested
+    @DisplayName("compaction")
+    class Compaction {
+
+        @Test
+        void boundsTheJournalOfARepeatedlyUpdatedOrder() throws IOException {
+            var journal = TrackedOrderJournalTest.this.restored();
+            var order = order(ProductIdentity.fromName("Hay Bale"), 0);
+            for (int update = 0; update < 1_000; update++) {
+                order.fillAmountSnapshot = update;
+                journal.put(order);
+                assertTrue(journal.size() < 64);
+            }
+            journal.close();
+            long journalSize = Files.size(TrackedOrderJournalTest.this.path());
+
+            var orders = TrackedOrderJournalTest.this.restore();
+            long compactedSize = Files.size(TrackedOrderJournalTest.this.path());
+
+            assertEquals(1, orders.size());
+            assertEquals(999, orders.getFirst().fillAmountSnapshot);
+            assertTrue(journalSize < 64 * compactedSize);
+        }
+
+        @Test
+        void restoringRewritesTheJournalCompacted() throws IOException {
+            var journal = TrackedOrderJournalTest.this.restored();
+            var order = order(ProductIdentity.fromName("Hay Bale"), 0);
+            for (int update = 0; update < 10; update++) {
+                order.slot = update;
+                journal.put(order);
+            }
+            journal.close();
+            long beforeRestore = Files.size(TrackedOrderJournalTest.this.path());
+
+            var restored = TrackedOrderJournalTest.this.restored();
+            restored.close();
+
+            assertEquals(1, restored.size());
+            assertTrue(Files.size(TrackedOrderJournalTest.this.path()) < beforeRestore);
+        }
+    }
+
+    @Nested
+    @DisplayName("tracked order manager")
+    class Manager {
+
+        @Test
+        void resumesTrackingTheJournaledOrdersAfterARestart() {
+            var manager = new TrackedOrderManager(new BazaarData());
+            var journal = new TrackedOrderJournal(TrackedOrderJournalTest.this.path());
+            manager.restoreOrders(journal);
+            var cookie = order(ProductIdentity.fromRuntime("Booster Cookie", "BOOSTER_COOKIE", null), 0);
+            var sugar = order(ProductIdentity.fromName("Enchanted Sugar"), 1);
+            manager.addTrackedOrder(cookie);
+            manager.addTrackedOrder(sugar);
+            manager.addTrackedOrder(order(ProductIdentity.fromName("Hay Bale"), 2));
+            manager.syncOrders(List.of(
+                info(cookie.product, 7),
+                info(sugar.product, 1)
+            ));
+            journal.close();
+
+            var restarted = new TrackedOrderManager(new BazaarData());
+            var added = new ArrayList<TrackedOrder>();
+            restarted.addOnOrderAddedListener(added::add);
+            var restartedJournal = new TrackedOrderJournal(TrackedOrderJournalTest.this.path());
+            restarted.restoreOrders(restartedJournal);
+            restartedJournal.close();
+
+            var orders = restarted.getTrackedOrders();
+            assertEquals(added, orders);
+            assertEquals(2, orders.size());
+            assertEquals("BOOSTER_COOKIE", orders.getFirst().product.bazaarProductId().orElseThrow());
+            assertEquals(7, orders.getFirst().slot);
+            assertEquals("Enchanted Sugar", orders.get(1).productName);
+        }
+
+        @Test
+        void restoringDoesNotJournalTheRestoredOrdersAgain() {
+            var journal = TrackedOrderJournalTest.this.restored();
+            journal.put(order(ProductIdentity.fromName("Hay Bale"), 0));
+            journal.put(order(ProductIdentity.fromName("Enchanted Sugar"), 1));
+            journal.close();
+
+            for (int restart = 0; restart < 3; restart++) {
+                var manager = new TrackedOrderManager(new BazaarData());
+                var restartedJournal = new TrackedOrderJournal(TrackedOrderJournalTest.this.path());
+                manager.restoreOrders(restartedJournal);
+                restartedJournal.close();
+
+                assertEquals(2, manager.getTrackedOrders().size());
+                assertEquals(2, restartedJournal.size());
+            }
+        }
+
+        @Test
+        void resetClearsTheJournal() {
+            var manager = new TrackedOrderManager(new BazaarData());
+            var journal = new TrackedOrderJournal(TrackedOrderJournalTest.this.path());
+            manager.restoreOrders(journal);
+            manager.addTrackedOrder(order(ProductIdentity.fromName("Hay Bale"), 0));
+            manager.resetTrackedOrders();
+            journal.close();
+
+            assertTrue(TrackedOrderJournalTest.this.restore().isEmpty());
+        }
+    }
+
+    private Path path() {
+        return this.dir.resolve("tracked-orders.journal");
+    }
+
+    private TrackedOrderJournal restored() {
+        var journal = new TrackedOrderJournal(this.path());
+        journal.restore().get();
+        return journal;
+    }
+
+    private List<TrackedOrder> restore() {
+        var journal = new TrackedOrderJournal(this.path());
+        var orders = journal.restore().getOrElse(List.of());
+        journal.close();
+        return orders;
+    }
+
+    private static TrackedOrder order(ProductIdentity product, int slot) {
+        return new TrackedOrder(info(product, slot));
+    }
+
+    private static UnfilledOrderInfo info(ProductIdentity product, int slot) {
+        return new UnfilledOrderInfo(product, product.strippedName(), OrderType.Buy, 64, 10.5, 0, 0, slot);
+    }
+
+    private static void assertSameOrder(TrackedOrder expected, TrackedOrder actual) {
+        assertEquals(expected.product, actual.product);
+        assertEquals(expected.productName, actual.productName);
+        assertEquals(expected.uiProductName, actual.uiProductName);
+        assertEquals(expected.type, actual.type);
+        assertEquals(expected.volume, actual.volume);
+        assertEquals(expected.pricePerUnit, actual.pricePerUnit);
+        assertEquals(expected.slot, actual.slot);
+        assertEquals(expected.fillAmountSnapshot, actual.fillAmountSnapshot);
+    }
+}
@@ -7,6 +7,7 @@ import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import com.github.lutzluca.btrbz.data.BazaarData;
 import com.github.lutzluca.btrbz.data.BazaarData.MarketSnapshot;
+import com.github.lutzluca.btrbz.data.BazaarMessageDispatcher.BazaarMessage.OrderFilled;
 import com.github.lutzluca.btrbz.data.OrderModels.OrderInfo;
 import com.github.lutzluca.btrbz.data.OrderModels.OrderStatus;
 import com.github.lutzluca.btrbz.data.OrderModels.OrderType;
@@ -14,8 +15,11 @@ import com.github.lutzluca.btrbz.data.OrderModels.TrackedOrder;
 import com.github.lutzluca.btrbz.data.OrderModels.TrackedOrderId;
 import com.github.lutzluca.btrbz.data.ProductIdentity;
 import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
@@ -98,6 +102,96 @@ class TrackedOrderManagerTest {
         }
     }
 
+    @Nested
+    @DisplayName("order sync")
+    class OrderSync {
+
+        @Test
+        void publishesOneChangeSetPerSync() {
+            var manager = new TrackedOrderManager(new BazaarData());
+            var kept = unfilledOrder(ProductIdentity.fromName("Kept"), "Kept", 10.0, 0);
+            var gone = unfilledOrder(ProductIdentity.fromName("Gone"), "Gone", 10.0, 1);
+            manager.syncOrders(List.of(kept, gone));
+
+            var changes = new ArrayList<TrackedOrderChanges>();
+            var added = new ArrayList<TrackedOrder>();
+            manager.addOnOrdersChangedListener(changes::add);
+            manager.addOnOrderAddedListener(added::add);
+            var first = unfilledOrder(ProductIdentity.fromName("New"), "New", 10.0, 2);
+            var second = unfilledOrder(ProductIdentity.fromName("New"), "New", 10.0, 3);
+            manager.syncOrders(List.of(kept, first, second));
+
+            assertEquals(1, changes.size());
+            var change = changes.getFirst();
+            assertEquals(List.of("Gone"), change.removed().stream().map(order -> order.uiProductName).toList());
+            assertEquals(List.of(2, 3), change.added().stream().map(order -> order.slot).toList());
+            assertEquals(change.added(), added);
+            assertTrue(change.updated().isEmpty());
+
+            manager.syncOrders(List.of(kept, first, second));
+            assertEquals(1, changes.size());
+        }
+
+        @Test
+        void matchesDuplicateOrdersInUiOrder() {
+            var manager = new TrackedOrderManager(new BazaarData());
+            var product = ProductIdentity.fromName("Duplicate Product");
+            manager.syncOrders(List.of(
+                unfilledOrder(product, 0, 0),
+                unfilledOrder(product, 0, 1),
+                unfilledOrder(product, 0, 2)
+            ));
+            var ids = manager.currentOrders().stream().map(TrackedOrderManager.TrackedOrderSnapshot::id).toList();
+
+            manager.syncOrders(List.of(unfilledOrder(product, 4, 7), unfilledOrder(product, 5, 8)));
+
+            var orders = manager.currentOrders();
+            assertEquals(List.of(ids.get(0), ids.get(1)), orders
+                .stream()
+                .map(TrackedOrderManager.TrackedOrderSnapshot::id)
+                .toList());
+            assertEquals(List.of(7, 8), orders.stream().map(TrackedOrderManager.TrackedOrderSnapshot::slot).toList());
+        }
+
+        @Test
+        void upgradesNameOnlyOrdersToTheParsedProductIdentity() {
+            var manager = new TrackedOrderManager(new BazaarData());
+            var nameOnly = ProductIdentity.fromName("Troubled Bubble");
+            manager.syncOrders(List.of(unfilledOrder(nameOnly, "Troubled Bubble", 10.0, 0)));
+            var updated = new ArrayList<TrackedOrder>();
+            manager.addOnOrderUpdatedListener(updated::add);
+
+            var runtime = ProductIdentity.fromRuntime("Troubled Bubble", "TROUBLED_BUBBLE", null);
+            manager.syncOrders(List.of(unfilledOrder(runtime, "Troubled Bubble", 10.0, 0)));
+
+            assertEquals(1, updated.size());
+            assertEquals(runtime, manager.currentOrders().getFirst().product());
+        }
+
+        @Test
+        void reconcilesLikeTheFirstMatchScan() {
+            var random = new Random(11);
+            var names = List.of("Enchanted Coal", "Enchanted Iron", "Booster Cookie");
+            for (int run = 0; run < 500; run++) {
+                var tracked = new ArrayList<TrackedOrder>();
+                var parsed = new ArrayList<OrderInfo.UnfilledOrderInfo>();
+                for (int i = random.nextInt(30); i > 0; i--) {
+                    tracked.add(new TrackedOrder(randomOrder(random, names, i)));
+                }
+                for (int i = random.nextInt(30); i > 0; i--) {
+                    parsed.add(randomOrder(random, names, i));
+                }
+
+                var expected = firstMatchScan(tracked, parsed);
+                var actual = TrackedOrderReconciler.reconcile(tracked, parsed);
+
+                assertEquals(expected.matched(), actual.matched());
+                assertEquals(expected.unmatched(), actual.unmatched());
+                assertEquals(expected.unclaimed(), actual.unclaimed());
+            }
+        }
+    }
+
     @Nested
     @DisplayName("tracked status")
     class TrackedStatus {
@@ -299,6 +393,128 @@ class TrackedOrderManagerTest {
         }
     }
 
+    @Nested
+    @DisplayName("delta evaluation")
+    class DeltaEvaluation {
+
+        private static final List<String> PRODUCTS = List.of("ENCHANTED_SUGAR", "BOOSTER_COOKIE", "HAY_BLOCK");
+        private static final List<Double> PRICES = List.of(10.0, 9.9, 9.8, 9.7);
+
+        @Test
+        void matchesTheFullEvaluationOverASnapshotSequence() {
+            var random = new Random(12);
+            var data = new BazaarData();
+            var config = new TrackedOrderManager.OrderManagerConfig();
+            config.enabled = false;
+            var manager = new TrackedOrderManager(data, () -> config);
+            data.addUpdateHandler(manager::prepareUpdate);
+            var snapshot = new AtomicReference<MarketSnapshot>();
+            data.addListener(snapshot::set);
+
+            var evaluator = new TrackedOrderStatusEvaluator();
+            var fullDetector = new SelfUndercutDetector();
+            var books = new LinkedHashMap<String, List<double[]>>();
+            PRODUCTS.forEach(productId -> books.put(productId, randomLevels(random)));
+            int statusChanges = 0;
+            int events = 0;
+
+            for (int poll = 0; poll < 400; poll++) {
+                if (random.nextInt(4) == 0) {
+                    manager.addTrackedOrder(new TrackedOrder(randomMarketOrder(random)));
+                }
+                var tracked = manager.getTrackedOrders();
+                if (!tracked.isEmpty() && random.nextInt(6) == 0) {
+                    var order = tracked.get(random.nextInt(tracked.size()));
+                    manager.removeMatching(new OrderFilled(order.type, order.volume, order.uiProductName));
+                }
+
+                var orders = manager.getTrackedOrders();
+                var before = orders.stream().map(order -> describe(order.status)).toList();
+                data.onUpdate(nextPoll(random, books));
+                var after = orders.stream().map(order -> describe(order.status)).toList();
+                for (int i = 0; i < orders.size(); i++) {
+                    statusChanges += before.get(i).equals(after.get(i)) ? 0 : 1;
+                }
+
+                // re-evaluating every order and group against the whole snapshot finds nothing left to change
+                var fullUpdates = evaluator
+                    .statusUpdates(evaluator.computeStatuses(orders, snapshot.get()))
+                    .map(update -> update.order().uiProductName + ": " + describe(update.curr()))
+                    .toList();
+                assertEquals(List.of(), fullUpdates);
+                events += fullDetector.resolve(orders, snapshot.get()).size();
+                assertEquals(
+                    getField(fullDetector, "state"),
+                    getField(getField(manager, "selfUndercutDetector"), "state")
+                );
+            }
+
+            assertTrue(statusChanges > 0);
+            assertTrue(events > 0);
+        }
+
+        /**
+         * Advances random walks of three books, each with a few levels at a small set of prices so tracked orders
+         * regularly sit at or next to the best level, and a product that is sometimes delisted.
+         */
+        private static Map<String, Product> nextPoll(Random random, Map<String, List<double[]>> books) {
+            var productId = PRODUCTS.get(random.nextInt(PRODUCTS.size()));
+            switch (random.nextInt(3)) {
+                case 0 -> books.put(productId, randomLevels(random));
+                case 1 -> books.get(productId).set(1, randomLevel(random, 1));
+                default -> { }
+            }
+
+            var products = new LinkedHashMap<String, Product>();
+            books.forEach((id, levels) -> {
+                var product = product(id);
+                var summaries = levels
+                    .stream()
+                    .map(level -> summary(product, level[0], 64, (long) level[1]))
+                    .toList();
+                setSummaries(product, summaries, summaries);
+                products.put(id, product);
+            });
+            if (random.nextInt(10) == 0) {
+                products.remove("HAY_BLOCK");
+            }
+            return products;
+        }
+
+        private static List<double[]> randomLevels(Random random) {
+            var levels = new ArrayList<double[]>();
+            for (int level = 0; level < 3; level++) {
+                levels.add(randomLevel(random, level));
+            }
+            return levels;
+        }
+
+        private static double[] randomLevel(Random random, int level) {
+            int offset = Math.min(level + random.nextInt(2), PRICES.size() - 1);
+            return new double[]{PRICES.get(offset), 1 + random.nextInt(2)};
+        }
+
+        private static OrderInfo.UnfilledOrderInfo randomMarketOrder(Random random) {
+            var productId = PRODUCTS.get(random.nextInt(PRODUCTS.size()));
+            return new OrderInfo.UnfilledOrderInfo(
+                ProductIdentity.fromRuntime(productId, productId, null),
+                productId,
+                random.nextBoolean() ? OrderType.Buy : OrderType.Sell,
+                64,
+                PRICES.get(random.nextInt(PRICES.size())),
+                0,
+                0,
+                0
+            );
+        }
+
+        private static String describe(OrderStatus status) {
+            return status instanceof OrderStatus.Undercut undercut
+                ? status + " " + undercut.amount
+                : status.toString();
+        }
+    }
+
     private static TrackedOrder trackedOrder(ProductIdentity product) {
         return trackedOrder(product, 10.0);
     }
@@ -333,6 +549,55 @@ class TrackedOrderManagerTest {
         );
     }
 
+    private static OrderInfo.UnfilledOrderInfo unfilledOrder(
+        ProductIdentity product,
+        String uiProductName,
+        double pricePerUnit,
+        int slot
+    ) {
+        return new OrderInfo.UnfilledOrderInfo(product, uiProductName, OrderType.Buy, 10, pricePerUnit, 0, 0, slot);
+    }
+
+    private static OrderInfo.UnfilledOrderInfo randomOrder(Random random, List<String> names, int slot) {
+        var name = names.get(random.nextInt(names.size()));
+        var uiName = random.nextBoolean() ? name : name.toUpperCase();
+        var product = random.nextInt(3) == 0
+            ? ProductIdentity.fromName(name)
+            : ProductIdentity.fromRuntime(name, name.replace(' ', '_').toUpperCase(), null);
+        return new OrderInfo.UnfilledOrderInfo(
+            product,
+            uiName,
+            random.nextBoolean() ? OrderType.Buy : OrderType.Sell,
+            random.nextBoolean() ? 64 : 160,
+            random.nextBoolean() ? 10.0 : 10.1,
+            0,
+            0,
+            slot
+        );
+    }
+
+    /**
+     * The reconciliation {@link TrackedOrderManager#syncOrders} used to do: each tracked order claims the first
+     * parsed order it matches.
+     */
+    static TrackedOrderReconciler.Reconciliation firstMatchScan(
+        List<TrackedOrder> tracked,
+        List<OrderInfo.UnfilledOrderInfo> parsed
+    ) {
+        var remaining = new ArrayList<>(parsed);
+        var matched = new LinkedHashMap<TrackedOrder, OrderInfo.UnfilledOrderInfo>();
+        var unmatched = new ArrayList<TrackedOrder>();
+        for (var order : tracked) {
+            remaining.stream().filter(order::matches).findFirst().ifPresentOrElse(
+                info -> {
+                    remaining.remove(info);
+                    matched.put(order, info);
+                }, () -> unmatched.add(order)
+            );
+        }
+        return new TrackedOrderReconciler.Reconciliation(matched, unmatched, remaining);
+    }
+
     private static MarketSnapshot snapshot(Map<String, Product> products) {
         var data = data(products);
         var snapshot = new AtomicReference<MarketSnapshot>();
@@ -367,6 +632,16 @@ class TrackedOrderManagerTest {
         setField(product, "buySummary", buySummary);
     }
 
+    private static Object getField(Object target, String name) {
+        try {
+            Field field = target.getClass().getDeclaredField(name);
+            field.setAccessible(true);
+            return field.get(target);
+        } catch (ReflectiveOperationException err) {
+            throw new AssertionError("Failed to get " + name + " of " + target.getClass().getName(), err);
+        }
+    }
+
     private static void setField(Object target, String name, Object value) {
         try {
             Field field = target.getClass().getDeclaredField(name);
@@ -0,0 +1,91 @@
+package com.github.lutzluca.btrbz.core.trackedorders;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.github.lutzluca.btrbz.data.OrderModels.OrderInfo.UnfilledOrderInfo;
+import com.github.lutzluca.btrbz.data.OrderModels.OrderType;
+import com.github.lutzluca.btrbz.data.OrderModels.TrackedOrder;
+import com.github.lutzluca.btrbz.data.ProductIdentity;
+import com.github.lutzluca.btrbz.test.Benchmark;
+import com.github.lutzluca.btrbz.test.Benchmarks;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compares the indexed order reconciliation against the first-match scan it replaced.
+ * Run with {@code BTRBZ_BENCHMARK=true ./gradlew test --tests '*TrackedOrderSyncBenchmark'}.
+ */
+@Benchmark
+class TrackedOrderSyncBenchmark {
+
+    private static final int ORDER_CAP = 28;
+    private static final int SYNTHETIC_ORDERS = 5_000;
+
+    @Test
+    void reconcileAtTheOrderCap() {
+        this.compare("order cap", ORDER_CAP, 14, 20_000);
+    }
+
+    @Test
+    void reconcileManyDuplicateOrders() {
+        this.compare("duplicates", SYNTHETIC_ORDERS, 4, 200);
+    }
+
+    @Test
+    void reconcileManyDistinctOrders() {
+        this.compare("distinct", SYNTHETIC_ORDERS, SYNTHETIC_ORDERS, 20);
+    }
+
+    /**
+     * Syncs against a UI listing where about a tenth of the tracked orders were filled and replaced by new ones.
+     */
+    private void compare(String name, int orders, int products, int rounds) {
+        var random = new Random(3);
+        var listed = new ArrayList<UnfilledOrderInfo>();
+        for (int i = 0; i < orders; i++) {
+            listed.add(order(random, products, i));
+        }
+        var tracked = new ArrayList<>(listed.stream().map(TrackedOrder::new).toList());
+        Collections.shuffle(tracked, random);
+        for (int i = 0; i < orders / 10 + 1; i++) {
+            listed.set(random.nextInt(orders), order(random, products, orders + i));
+        }
+
+        var indexed = TrackedOrderReconciler.reconcile(tracked, listed);
+        var scanned = TrackedOrderManagerTest.firstMatchScan(tracked, listed);
+        assertEquals(scanned, indexed);
+
+        var indexedRun = Benchmarks.measure(rounds, rounds, () -> TrackedOrderReconciler.reconcile(tracked, listed));
+        var scannedRun = Benchmarks.measure(
+            rounds,
+            rounds,
+            () -> TrackedOrderManagerTest.firstMatchScan(tracked, listed)
+        );
+        assertEquals(scannedRun.result(), indexedRun.result());
+        Benchmarks.report(
+            "order sync (%s, %d orders, %d removed, %d added): indexed %.1f us, first-match scan %.1f us",
+            name,
+            orders,
+            indexed.unmatched().size(),
+            indexed.unclaimed().size(),
+            indexedRun.meanNanos() / 1e3,
+            scannedRun.meanNanos() / 1e3
+        );
+    }
+
+    private static UnfilledOrderInfo order(Random random, int products, int slot) {
+        var productId = "PRODUCT_" + random.nextInt(products);
+        return new UnfilledOrderInfo(
+            ProductIdentity.fromRuntime(productId, productId, null),
+            productId,
+            random.nextBoolean() ? OrderType.Buy : OrderType.Sell,
+            64,
+            10.0 + random.nextInt(2) / 10.0,
+            0,
+            0,
+            slot
+        );
+    }
+}
@@ -0,0 +1,119 @@
+package com.github.lutzluca.btrbz.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import com.github.lutzluca.btrbz.test.Benchmark;
+import com.github.lutzluca.btrbz.test.Benchmarks;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import net.hypixel.api.HypixelAPI;
+import net.hypixel.api.http.HypixelHttpClient;
+import net.hypixel.api.http.HypixelHttpResponse;
+import net.hypixel.api.reply.skyblock.SkyBlockBazaarReply;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compares the streaming decoder against the Hypixel API path it replaced: {@link HypixelAPI#getSkyBlockBazaar()}
+ * reading the body into a string and binding it to {@link SkyBlockBazaarReply}, then copying the products into
+ * columns. Both start from the same reply bytes, the HTTP transport is left out.
+ * Run with {@code BTRBZ_BENCHMARK=true ./gradlew test --tests '*BazaarReplyDecoderBenchmark'}.
+ */
+@Benchmark
+class BazaarReplyDecoderBenchmark {
+
+    private static final int PRODUCT_COPIES = 500;
+    private static final int LEVELS_PER_SIDE = 30;
+    private static final int WARMUP_ROUNDS = 30;
+    private static final int MEASURED_ROUNDS = 50;
+
+    @Test
+    void streamingDecodeAgainstHypixelApi() throws IOException {
+        var body = fullSizeReply().getBytes(StandardCharsets.UTF_8);
+        var api = new HypixelAPI(new RecordedReplyClient(body));
+
+        var streaming = Benchmarks.measure(WARMUP_ROUNDS, MEASURED_ROUNDS, () -> {
+            var reader = new InputStreamReader(new ByteArrayInputStream(body), StandardCharsets.UTF_8);
+            var columns = BazaarReplyDecoder.decode(reader, new ProductHandles(), -1).columns();
+            assertNotNull(columns);
+            return columns.size();
+        });
+        var hypixelApi = Benchmarks.measure(WARMUP_ROUNDS, MEASURED_ROUNDS, () -> {
+            var reply = api.getSkyBlockBazaar().join();
+            return MarketColumns.fromProducts(new ProductHandles(), reply.getProducts(), 0).size();
+        });
+
+        assertEquals(streaming.result(), hypixelApi.result());
+        Benchmarks.report(
+            "bazaar decode (%d products, %d KiB): streaming %.2f ms / %d KiB, hypixel api %.2f ms / %d KiB",
+            streaming.result(),
+            body.length / 1024,
+            streaming.medianNanos() / 1e6,
+            streaming.allocatedBytes() / 1024,
+            hypixelApi.medianNanos() / 1e6,
+            hypixelApi.allocatedBytes() / 1024
+        );
+    }
+
+    /**
+     * Expands the recorded fixture to roughly the live market size by cloning its products under new ids and
+     * padding every book side to the full 30 levels Hypixel reports.
+     */
+    private static String fullSizeReply() {
+        var fixture = JsonParser.parseString(BazaarReplyDecoderTest.fixture()).getAsJsonObject();
+        var templates = fixture.getAsJsonObject("products");
+        var products = new JsonObject();
+
+        for (int copy = 0; copy < PRODUCT_COPIES; copy++) {
+            for (var entry : templates.entrySet()) {
+                var product = entry.getValue().deepCopy().getAsJsonObject();
+                var productId = entry.getKey() + "_" + copy;
+                product.addProperty("product_id", productId);
+                padLevels(product.getAsJsonArray("sell_summary"), -0.1);
+                padLevels(product.getAsJsonArray("buy_summary"), 0.1);
+                products.add(productId, product);
+            }
+        }
+
+        fixture.add("products", products);
+        return fixture.toString();
+    }
+
+    private static void padLevels(JsonArray levels, double step) {
+        double price = levels.isEmpty() ? 100.0 : levels.get(levels.size() - 1).getAsJsonObject().get("pricePerUnit").getAsDouble();
+        while (levels.size() < LEVELS_PER_SIDE) {
+            price += step;
+            var level = new JsonObject();
+            level.addProperty("amount", 64 * (levels.size() + 1));
+            level.addProperty("pricePerUnit", Math.round(price * 10) / 10.0);
+            level.addProperty("orders", 1 + levels.size() % 4);
+            levels.add(level);
+        }
+    }
+
+    /**
+     * Answers every request with the recorded body, decoded to a string the way the Apache transport does.
+     */
+    private record RecordedReplyClient(byte[] body) implements HypixelHttpClient {
+
+        @Override
+        public CompletableFuture<HypixelHttpResponse> makeRequest(String url) {
+            return CompletableFuture.completedFuture(
+                new HypixelHttpResponse(200, new String(this.body, StandardCharsets.UTF_8), null)
+            );
+        }
+
+        @Override
+        public CompletableFuture<HypixelHttpResponse> makeAuthenticatedRequest(String url) {
+            return this.makeRequest(url);
+        }
+
+        @Override
+        public void shutdown() { }
+    }
+}
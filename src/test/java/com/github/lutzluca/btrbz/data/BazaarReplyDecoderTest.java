@@ -0,0 +1,128 @@
+package com.github.lutzluca.btrbz.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import com.google.gson.Gson;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import net.hypixel.api.reply.skyblock.SkyBlockBazaarReply;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+class BazaarReplyDecoderTest {
+
+    static final String FIXTURE = "/bazaar/bazaar-reply.json";
+    static final long FIXTURE_LAST_UPDATED = 1760700000000L;
+
+    @Nested
+    @DisplayName("streaming decode")
+    class StreamingDecode {
+
+        @Test
+        void matchesHypixelModelConversion() throws IOException {
+            var json = fixture();
+            var decoded = BazaarReplyDecoder.decode(new StringReader(json), new ProductHandles(), -1);
+            var reply = new Gson().fromJson(json, SkyBlockBazaarReply.class);
+            var expected = MarketColumns.fromProducts(new ProductHandles(), reply.getProducts(), FIXTURE_LAST_UPDATED);
+
+            assertTrue(decoded.success());
+            assertEquals(FIXTURE_LAST_UPDATED, decoded.lastUpdated());
+            assertNotNull(decoded.columns());
+            assertSameMarket(expected, decoded.columns());
+        }
+
+        @Test
+        void skipsProductsWhenLastUpdatedIsKnown() throws IOException {
+            var decoded = BazaarReplyDecoder.decode(
+                new StringReader(fixture()),
+                new ProductHandles(),
+                FIXTURE_LAST_UPDATED
+            );
+
+            assertTrue(decoded.success());
+            assertEquals(FIXTURE_LAST_UPDATED, decoded.lastUpdated());
+            assertNull(decoded.columns());
+        }
+
+        @Test
+        void reportsUnsuccessfulReplies() throws IOException {
+            var decoded = BazaarReplyDecoder.decode(
+                new StringReader("{\"success\":false,\"cause\":\"Key throttle\"}"),
+                new ProductHandles(),
+                -1
+            );
+
+            assertFalse(decoded.success());
+            assertEquals("Key throttle", decoded.cause());
+            assertNull(decoded.columns());
+        }
+
+        @Test
+        void ignoresUnknownAndNullFields() throws IOException {
+            var decoded = BazaarReplyDecoder.decode(
+                new StringReader("""
+                    {"success":true,"lastUpdated":5,"extra":{"a":[1,2]},"products":{
+                      "A":{"sell_summary":null,"buy_summary":[{"amount":1,"pricePerUnit":2.5,"orders":1,"x":0}],"quick_status":null},
+                      "B":null
+                    }}
+                    """),
+                new ProductHandles(),
+                -1
+            );
+
+            var columns = decoded.columns();
+            assertNotNull(columns);
+            assertEquals(1, columns.size());
+            assertEquals(2.5, columns.bestSellOfferPrice(columns.handle("A")));
+            assertTrue(columns.buyOrders(columns.handle("A")).isEmpty());
+        }
+    }
+
+    static String fixture() {
+        try (var stream = BazaarReplyDecoderTest.class.getResourceAsStream(FIXTURE)) {
+            assertNotNull(stream, "Missing fixture " + FIXTURE);
+            return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException err) {
+            throw new UncheckedIOException(err);
+        }
+    }
+
+    static void assertSameMarket(MarketColumns expected, MarketColumns actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int handle = 0; handle < expected.handles().size(); handle++) {
+            if (!expected.isPresent(handle)) {
+                continue;
+            }
+
+            var productId = expected.productId(handle);
+            int other = actual.handle(productId);
+            assertTrue(other != ProductHandles.ABSENT, "Missing product " + productId);
+
+            assertEquals(expected.quickBuyPrice(handle), actual.quickBuyPrice(other), productId);
+            assertEquals(expected.quickSellPrice(handle), actual.quickSellPrice(other), productId);
+            assertEquals(expected.quickBuyVolume(handle), actual.quickBuyVolume(other), productId);
+            assertEquals(expected.quickSellVolume(handle), actual.quickSellVolume(other), productId);
+            assertEquals(expected.quickBuyMovingWeek(handle), actual.quickBuyMovingWeek(other), productId);
+            assertEquals(expected.quickSellMovingWeek(handle), actual.quickSellMovingWeek(other), productId);
+            assertEquals(expected.quickBuyOrders(handle), actual.quickBuyOrders(other), productId);
+            assertEquals(expected.quickSellOrders(handle), actual.quickSellOrders(other), productId);
+            assertSameSide(expected.buyOrders(handle), actual.buyOrders(other), productId);
+            assertSameSide(expected.sellOffers(handle), actual.sellOffers(other), productId);
+        }
+    }
+
+    private static void assertSameSide(OrderBookSide expected, OrderBookSide actual, String productId) {
+        assertEquals(expected.size(), actual.size(), productId);
+        for (int level = 0; level < expected.size(); level++) {
+            assertEquals(expected.pricePerUnit(level), actual.pricePerUnit(level), productId);
+            assertEquals(expected.amount(level), actual.amount(level), productId);
+            assertEquals(expected.orders(level), actual.orders(level), productId);
+        }
+    }
+}
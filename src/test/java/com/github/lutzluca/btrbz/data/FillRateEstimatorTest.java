@@ -0,0 +1,211 @@
+package com.github.lutzluca.btrbz.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.lutzluca.btrbz.data.FillRateEstimator.FillTimeEstimate;
+import com.github.lutzluca.btrbz.data.OrderModels.OrderType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+class FillRateEstimatorTest {
+
+    private static final long START = 1_700_000_000_000L;
+    private static final long POLL_MILLIS = 20_000;
+    private static final long WEEK_MINUTES = 7 * 24 * 60;
+    private static final ProductIdentity PRODUCT = ProductIdentity.fromRuntime("Hay Bale", "HAY_BLOCK", null);
+
+    @Nested
+    @DisplayName("observed rates")
+    class ObservedRates {
+
+        @Test
+        void followsRecentTradingInsteadOfTheWeeklyAverage() {
+            var data = new BazaarData();
+            // one item per minute over the week, ten per minute now
+            var market = new Market(WEEK_MINUTES);
+            for (int poll = 0; poll < 6 * 180; poll++) {
+                market.advance();
+                market.trade(10 * POLL_MILLIS / 60_000.0);
+                data.onUpdate(market.columns(data));
+            }
+
+            var estimate = estimate(data, 11.0, 100);
+
+            assertTrue(estimate.typicalMinutes() > 10 && estimate.typicalMinutes() < 12, estimate::toString);
+            assertTrue(estimate.fastMinutes() <= estimate.typicalMinutes());
+            assertTrue(estimate.typicalMinutes() <= estimate.slowMinutes());
+        }
+
+        @Test
+        void widensTheRangeForBurstyTrading() {
+            var data = new BazaarData();
+            var market = new Market(WEEK_MINUTES);
+            for (int poll = 0; poll < 6 * 180; poll++) {
+                market.advance();
+                // a burst of 150 items in every other 5 minute bucket, starting with the first
+                if (poll % 30 == 15) {
+                    market.trade(150);
+                }
+                data.onUpdate(market.columns(data));
+            }
+
+            var estimate = estimate(data, 11.0, 100);
+
+            assertTrue(estimate.fastMinutes() < estimate.typicalMinutes(), estimate::toString);
+            assertTrue(estimate.slowMinutes() > 2 * estimate.typicalMinutes(), estimate::toString);
+            assertTrue(Double.isFinite(estimate.slowMinutes()));
+        }
+
+        @Test
+        void countsBestLevelFillsTheMovingWeekMissed() {
+            var data = new BazaarData();
+            var market = new Market(0);
+            for (int poll = 0; poll < 6 * 180; poll++) {
+                market.advance();
+                if (poll % 3 == 0) {
+                    market.bestAskAmount = 1_000;
+                } else {
+                    market.bestAskAmount -= 10;
+                }
+                data.onUpdate(market.columns(data));
+            }
+
+            // 20 items a minute were taken from the best level
+            var estimate = estimate(data, 11.0, 100);
+
+            assertTrue(estimate.typicalMinutes() > 5 && estimate.typicalMinutes() < 7, estimate::toString);
+        }
+
+        @Test
+        void slowsDownWhileTheProductSitsUnchanged() {
+            var data = new BazaarData();
+            var market = new Market(WEEK_MINUTES);
+            // six buckets of ten items a minute
+            for (int poll = 0; poll <= 90; poll++) {
+                market.advance();
+                market.trade(10 * POLL_MILLIS / 60_000.0);
+                data.onUpdate(market.columns(data));
+            }
+            var before = estimate(data, 11.0, 100);
+
+            // half an hour in which only another product changes
+            for (int poll = 0; poll < 90; poll++) {
+                market.timestamp += POLL_MILLIS;
+                var builder = market.builder(data);
+                builder.product("ENCHANTED_HAY_BLOCK");
+                builder.quickBuy(1_000.0 + poll, 100, 1_000, 1);
+                builder.quickSell(900.0, 100, 1_000, 1);
+                data.onUpdate(builder.build());
+            }
+            var after = estimate(data, 11.0, 100);
+
+            assertTrue(after.typicalMinutes() > before.typicalMinutes(), () -> before + " -> " + after);
+        }
+    }
+
+    @Nested
+    @DisplayName("fallback")
+    class Fallback {
+
+        @Test
+        void usesTheWeeklyAverageUntilTheProductWasObserved() {
+            var data = new BazaarData();
+            data.onUpdate(new Market(2 * WEEK_MINUTES).columns(data));
+
+            var estimate = estimate(data, 11.0, 60);
+
+            assertEquals(new FillTimeEstimate(30, 30, 30), estimate);
+        }
+
+        @Test
+        void restartsTheObservationAfterAGap() {
+            var data = new BazaarData();
+            var market = new Market(WEEK_MINUTES);
+            data.onUpdate(market.columns(data));
+            market.timestamp += 60 * 60_000 - POLL_MILLIS;
+            market.advance();
+            // a day of trading while offline must not be read as the last minutes
+            market.trade(24 * 60 * 100);
+            data.onUpdate(market.columns(data));
+            market.advance();
+            data.onUpdate(market.columns(data));
+
+            var estimate = estimate(data, 11.0, 100);
+
+            double weeklyRate = (double) market.movingWeek() / WEEK_MINUTES;
+            assertEquals(100 / weeklyRate, estimate.typicalMinutes(), 1e-9);
+        }
+
+        @Test
+        void estimatesFilledOrdersAsImmediate() {
+            var data = new BazaarData();
+            data.onUpdate(new Market(WEEK_MINUTES).columns(data));
+
+            assertEquals(
+                FillTimeEstimate.IMMEDIATE,
+                data.getEstimatedFillTimeMinutes(PRODUCT, OrderType.Sell, 11.0, 0).orElseThrow()
+            );
+        }
+    }
+
+    @Test
+    void addsTheVolumeQueuedAtBetterPrices() {
+        var data = new BazaarData();
+        data.onUpdate(new Market(WEEK_MINUTES).columns(data));
+
+        // the order at 12.0 waits behind the 1,000 items offered at 11.0
+        assertEquals(1_100, estimate(data, 12.0, 100).typicalMinutes(), 1e-9);
+        assertEquals(100, estimate(data, 11.0, 100).typicalMinutes(), 1e-9);
+    }
+
+    private static FillTimeEstimate estimate(BazaarData data, double pricePerUnit, int remainingVolume) {
+        return data.getEstimatedFillTimeMinutes(PRODUCT, OrderType.Sell, pricePerUnit, remainingVolume).orElseThrow();
+    }
+
+    /**
+     * A product whose sell offers are filled by insta buys.
+     */
+    private static final class Market {
+
+        long timestamp = START;
+        long bestAskAmount = 1_000;
+        private double movingWeek;
+
+        Market(long movingWeek) {
+            this.movingWeek = movingWeek;
+        }
+
+        long movingWeek() {
+            return Math.round(this.movingWeek);
+        }
+
+        /**
+         * Moves to the next poll, during which the moving week loses what was traded a week ago at its average rate.
+         */
+        void advance() {
+            this.movingWeek -= this.movingWeek * (POLL_MILLIS / 60_000.0) / WEEK_MINUTES;
+            this.timestamp += POLL_MILLIS;
+        }
+
+        void trade(double volume) {
+            this.movingWeek += volume;
+        }
+
+        MarketColumns columns(BazaarData data) {
+            return this.builder(data).build();
+        }
+
+        MarketColumns.Builder builder(BazaarData data) {
+            var builder = MarketColumns.builder(data.handles()).lastUpdated(this.timestamp);
+            builder.product("HAY_BLOCK");
+            builder.quickBuy(11.0, this.bestAskAmount, this.movingWeek(), 10);
+            builder.quickSell(10.0, 2_000, this.movingWeek(), 10);
+            builder.sellOfferLevel(11.0, this.bestAskAmount, 10);
+            builder.sellOfferLevel(12.0, 5_000, 20);
+            builder.buyOrderLevel(10.0, 2_000, 10);
+            return builder;
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package com.github.lutzluca.btrbz.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import com.github.lutzluca.btrbz.data.OrderBookSide.CostPoint;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+class MarketColumnsTest {
+
+    @Nested
+    @DisplayName("product handles")
+    class Handles {
+
+        @Test
+        void keepsHandlesStableAcrossSnapshots() {
+            var handles = new ProductHandles();
+            var first = MarketColumns.builder(handles);
+            first.product("A");
+            first.product("B");
+            first.build();
+
+            var second = MarketColumns.builder(handles);
+            second.product("B");
+            var columns = second.build();
+
+            assertEquals(1, columns.handle("B"));
+            assertEquals(ProductHandles.ABSENT, columns.handle("A"));
+            assertEquals(ProductHandles.ABSENT, columns.handle("UNKNOWN"));
+            assertEquals(1, columns.size());
+        }
+
+        @Test
+        void growsBeyondInitialCapacity() {
+            var handles = new ProductHandles();
+            var builder = MarketColumns.builder(handles);
+            for (int i = 0; i < 200; i++) {
+                builder.product("P" + i);
+                builder.sellOfferLevel(i, 1, 1);
+            }
+
+            var columns = builder.build();
+
+            assertEquals(200, columns.size());
+            assertEquals(199.0, columns.bestSellOfferPrice(columns.handle("P199")));
+        }
+    }
+
+    @Nested
+    @DisplayName("book columns")
+    class Books {
+
+        @Test
+        void storesLevelsPerSideAndProduct() {
+            var builder = MarketColumns.builder(new ProductHandles());
+            builder.product("A");
+            builder.buyOrderLevel(10.0, 64, 2);
+            builder.buyOrderLevel(9.5, 10, 1);
+            builder.sellOfferLevel(11.0, 5, 1);
+            builder.product("B");
+            builder.sellOfferLevel(3.0, 1, 1);
+            var columns = builder.build();
+
+            int a = columns.handle("A");
+            int b = columns.handle("B");
+            var buyOrders = columns.buyOrders(a);
+
+            assertEquals(2, buyOrders.size());
+            assertEquals(9.5, buyOrders.pricePerUnit(1));
+            assertEquals(64, buyOrders.amount(0));
+            assertEquals(2, buyOrders.orders(0));
+            assertEquals(10.0, columns.bestBuyOrderPrice(a));
+            assertEquals(11.0, columns.bestSellOfferPrice(a));
+            assertTrue(Double.isNaN(columns.bestBuyOrderPrice(b)));
+            assertSame(OrderBookSide.EMPTY, columns.buyOrders(b));
+            assertSame(buyOrders, columns.buyOrders(a));
+        }
+
+        @Test
+        void rejectsLevelsOutsideTheSide() {
+            var builder = MarketColumns.builder(new ProductHandles());
+            builder.product("A");
+            builder.buyOrderLevel(10.0, 1, 1);
+            var side = builder.build().buyOrders(0);
+
+            assertThrows(IndexOutOfBoundsException.class, () -> side.pricePerUnit(1));
+        }
+
+        @Test
+        void rejectsDuplicateProducts() {
+            var builder = MarketColumns.builder(new ProductHandles());
+            builder.product("A");
+
+            assertThrows(IllegalStateException.class, () -> builder.product("A"));
+        }
+    }
+
+    @Nested
+    @DisplayName("cumulative depth")
+    class Depth {
+
+        @Test
+        void keepsRunningTotalsPerProduct() {
+            var builder = MarketColumns.builder(new ProductHandles());
+            builder.product("A");
+            builder.sellOfferLevel(11.0, 5, 1);
+            builder.sellOfferLevel(11.5, 20, 3);
+            builder.product("B");
+            builder.sellOfferLevel(3.0, 7, 2);
+            var columns = builder.build();
+
+            var a = columns.sellOffers(columns.handle("A"));
+            var b = columns.sellOffers(columns.handle("B"));
+
+            assertEquals(5, a.cumulativeAmount(0));
+            assertEquals(25, a.cumulativeAmount(1));
+            assertEquals(4, a.cumulativeOrders(1));
+            assertEquals(7, b.cumulativeAmount(0));
+            assertEquals(2, b.cumulativeOrders(0));
+        }
+
+        @Test
+        void findsTheVolumeAheadOnBothSides() {
+            var builder = MarketColumns.builder(new ProductHandles());
+            builder.product("A");
+            builder.buyOrderLevel(10.0, 64, 2);
+            builder.buyOrderLevel(9.5, 10, 1);
+            builder.buyOrderLevel(9.0, 100, 4);
+            builder.sellOfferLevel(11.0, 5, 1);
+            builder.sellOfferLevel(11.5, 20, 3);
+            var columns = builder.build();
+            var buyOrders = columns.buyOrders(0);
+            var sellOffers = columns.sellOffers(0);
+
+            assertEquals(0, buyOrders.levelsAhead(10.1, true));
+            assertEquals(1, buyOrders.levelsAhead(9.5, false));
+            assertEquals(2, buyOrders.levelsAhead(9.5, true));
+            assertEquals(74, buyOrders.amountAhead(9.2, false));
+            assertEquals(7, buyOrders.ordersAhead(1.0, false));
+            assertEquals(0, sellOffers.amountAhead(11.0, false));
+            assertEquals(5, sellOffers.amountAhead(11.0, true));
+            assertEquals(25, sellOffers.amountAhead(12.0, false));
+            assertEquals(0, OrderBookSide.EMPTY.amountAhead(5.0, true));
+        }
+
+        @Test
+        void matchesALinearScanOfTheBook() {
+            var random = new Random(16);
+            var builder = MarketColumns.builder(new ProductHandles());
+            builder.product("A");
+            double price = 100;
+            for (int level = 0; level < 30; level++) {
+                price -= 0.1 + random.nextInt(5) / 10.0;
+                builder.buyOrderLevel(Math.round(price * 10) / 10.0, 1 + random.nextInt(1_000), 1 + random.nextInt(5));
+            }
+            var side = builder.build().buyOrders(0);
+
+            for (int query = 0; query < 1_000; query++) {
+                double queried = Math.round((price - 1 + random.nextDouble() * (102 - price)) * 10) / 10.0;
+                boolean includeAtPrice = random.nextBoolean();
+
+                long items = 0;
+                long orders = 0;
+                for (int level = 0; level < side.size(); level++) {
+                    double levelPrice = side.pricePerUnit(level);
+                    if (!(levelPrice > queried || (levelPrice == queried && includeAtPrice))) {
+                        break;
+                    }
+                    items += side.amount(level);
+                    orders += side.orders(level);
+                }
+
+                assertEquals(items, side.amountAhead(queried, includeAtPrice));
+                assertEquals(orders, side.ordersAhead(queried, includeAtPrice));
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("instant trade cost")
+    class InstantTradeCost {
+
+        @Test
+        void walksTheSellOffersFromTheLowestPrice() {
+            var builder = MarketColumns.builder(new ProductHandles());
+            builder.product("A");
+            builder.sellOfferLevel(10.0, 100, 1);
+            builder.sellOfferLevel(12.0, 50, 1);
+            builder.sellOfferLevel(20.0, 10, 1);
+            var side = builder.build().sellOffers(0);
+
+            assertEquals(500, side.coinsFor(50), 1e-9);
+            assertEquals(1_000, side.coinsFor(100), 1e-9);
+            assertEquals(1_000 + 40 * 12.0, side.coinsFor(140), 1e-9);
+            assertEquals(1_800, side.coinsFor(160), 1e-9);
+            assertEquals(11.25, side.averagePrice(160), 1e-9);
+            assertTrue(Double.isNaN(side.coinsFor(161)));
+            assertEquals(0, side.coinsFor(0));
+        }
+
+        @Test
+        void answersHowManyItemsCoinsBuy() {
+            var builder = MarketColumns.builder(new ProductHandles());
+            builder.product("A");
+            builder.sellOfferLevel(10.0, 100, 1);
+            builder.sellOfferLevel(12.0, 50, 1);
+            var side = builder.build().sellOffers(0);
+
+            assertEquals(0, side.volumeFor(9.99));
+            assertEquals(100, side.volumeFor(1_000));
+            assertEquals(100, side.volumeFor(1_011.99));
+            assertEquals(101, side.volumeFor(1_012));
+            assertEquals(150, side.volumeFor(1e9));
+            assertEquals(0, OrderBookSide.EMPTY.volumeFor(1e9));
+            assertEquals(
+                List.of(new CostPoint(100, 1_000), new CostPoint(150, 1_600)),
+                side.costCurve()
+            );
+        }
+
+        @Test
+        void matchesWalkingTheBookLevelByLevel() {
+            var random = new Random(17);
+            var builder = MarketColumns.builder(new ProductHandles());
+            builder.product("A");
+            double price = 100;
+            for (int level = 0; level < 30; level++) {
+                price -= 0.1 + random.nextInt(5) / 10.0;
+                builder.buyOrderLevel(Math.round(price * 10) / 10.0, 1 + random.nextInt(1_000), 1);
+            }
+            var side = builder.build().buyOrders(0);
+
+            for (int query = 0; query < 1_000; query++) {
+                long volume = 1 + random.nextInt((int) side.totalAmount());
+                double coins = 0;
+                long remaining = volume;
+                for (int level = 0; remaining > 0; level++) {
+                    long taken = Math.min(remaining, side.amount(level));
+                    coins += taken * side.pricePerUnit(level);
+                    remaining -= taken;
+                }
+
+                assertEquals(coins, side.coinsFor(volume), 1e-6);
+                // the coins of a volume buy exactly that volume, one coin less may buy at most one item fewer
+                assertEquals(volume, side.volumeFor(coins + 1e-6));
+                assertTrue(side.volumeFor(coins - 1) >= volume - 1);
+            }
+        }
+    }
+}
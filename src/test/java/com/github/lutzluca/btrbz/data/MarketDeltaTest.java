@@ -0,0 +1,230 @@
+package com.github.lutzluca.btrbz.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import com.github.lutzluca.btrbz.data.MarketDelta.Change;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+class MarketDeltaTest {
+
+    @Nested
+    @DisplayName("change detection")
+    class ChangeDetection {
+
+        @Test
+        void identicalSnapshotsProduceAnEmptyDelta() {
+            var deltas = new ArrayList<MarketDelta>();
+            var data = dataWithDeltas(deltas);
+
+            data.onUpdate(market(data, book -> book.add("A", 10.0, 11.0, 64)));
+            data.onUpdate(market(data, book -> book.add("A", 10.0, 11.0, 64)));
+
+            assertEquals(1, deltas.get(0).size());
+            assertTrue(deltas.get(1).isEmpty());
+        }
+
+        @Test
+        void reportsTopOfBookChangesAsDepthChangesToo() {
+            var deltas = new ArrayList<MarketDelta>();
+            var data = dataWithDeltas(deltas);
+
+            data.onUpdate(market(data, book -> book.add("A", 10.0, 11.0, 64).add("B", 5.0, 6.0, 1)));
+            data.onUpdate(market(data, book -> book.add("A", 10.1, 11.0, 64).add("B", 5.0, 6.0, 1)));
+
+            var delta = deltas.get(1);
+            int a = data.handles().lookup("A");
+            assertEquals(1, delta.size());
+            assertEquals(a, delta.handle(0));
+            assertTrue(delta.changed(a, Change.TopOfBook));
+            assertTrue(delta.changed(a, Change.Depth));
+            assertFalse(delta.changed(a, Change.QuickStatus));
+            assertFalse(delta.contains(data.handles().lookup("B")));
+        }
+
+        @Test
+        void detectsDepthChangesBelowTheBestLevel() {
+            var deltas = new ArrayList<MarketDelta>();
+            var data = dataWithDeltas(deltas);
+
+            data.onUpdate(market(data, book -> book.add("A", 10.0, 11.0, 64)));
+            data.onUpdate(market(data, book -> book.add("A", 10.0, 11.0, 32)));
+
+            int a = data.handles().lookup("A");
+            assertTrue(deltas.get(1).changed(a, Change.Depth));
+            assertFalse(deltas.get(1).changed(a, Change.TopOfBook));
+        }
+
+        @Test
+        void detectsQuickStatusOnlyChanges() {
+            var deltas = new ArrayList<MarketDelta>();
+            var data = dataWithDeltas(deltas);
+
+            data.onUpdate(market(data, book -> book.add("A", 10.0, 11.0, 64)));
+            data.onUpdate(market(data, book -> book.add("A", 10.0, 11.0, 64).movingWeek(1_000)));
+
+            int a = data.handles().lookup("A");
+            assertTrue(deltas.get(1).changed(a, Change.QuickStatus));
+            assertFalse(deltas.get(1).changed(a, Change.Depth));
+        }
+
+        @Test
+        void reportsListedAndDelistedProductsAsFullyChanged() {
+            var deltas = new ArrayList<MarketDelta>();
+            var data = dataWithDeltas(deltas);
+
+            data.onUpdate(market(data, book -> book.add("A", 10.0, 11.0, 64)));
+            data.onUpdate(market(data, book -> book.add("B", 1.0, 2.0, 1)));
+
+            var delta = deltas.get(1);
+            var delisted = ProductIdentity.fromRuntime("A", "A", null);
+            assertEquals(2, delta.size());
+            for (var change : Change.values()) {
+                assertTrue(delta.changed(delisted, change));
+            }
+            assertTrue(delta.changed(data.handles().lookup("B"), Change.Listing));
+            assertFalse(delta.snapshot().contains(delisted));
+            assertTrue(delta.previous().contains(delisted));
+        }
+    }
+
+    @Nested
+    @DisplayName("listeners")
+    class Listeners {
+
+        @Test
+        void deliversSnapshotBeforeDelta() {
+            var data = new BazaarData();
+            var order = new ArrayList<String>();
+            data.addDeltaListener(delta -> order.add("delta"));
+            data.addListener(snapshot -> order.add("snapshot"));
+
+            data.onUpdate(MarketColumns.empty(data.handles()));
+
+            assertEquals(List.of("snapshot", "delta"), order);
+        }
+
+        @Test
+        void deltaReferencesThePublishedSnapshot() {
+            var deltas = new ArrayList<MarketDelta>();
+            var data = dataWithDeltas(deltas);
+            var snapshots = new ArrayList<BazaarData.MarketSnapshot>();
+            data.addListener(snapshots::add);
+
+            data.onUpdate(market(data, book -> book.add("A", 10.0, 11.0, 64)));
+
+            assertSame(snapshots.getFirst(), deltas.getFirst().snapshot());
+        }
+
+        @Test
+        void removedDeltaListenersAreNotCalled() {
+            var data = new BazaarData();
+            var deltas = new ArrayList<MarketDelta>();
+            Consumer<MarketDelta> listener = deltas::add;
+            data.addDeltaListener(listener);
+            data.removeDeltaListener(listener);
+
+            data.onUpdate(MarketColumns.empty(data.handles()));
+
+            assertTrue(deltas.isEmpty());
+        }
+    }
+
+    @Nested
+    @DisplayName("update handlers")
+    class UpdateHandlers {
+
+        @Test
+        void preparesBeforePublishingAndAppliesAfterListeners() {
+            var data = new BazaarData();
+            var product = ProductIdentity.fromRuntime("A", "A", null);
+            var order = new ArrayList<String>();
+            data.addListener(snapshot -> order.add("snapshot"));
+            data.addUpdateHandler(delta -> {
+                order.add("prepare " + data.contains(product));
+                return () -> order.add("apply " + data.contains(product));
+            });
+
+            var publish = data.prepareUpdate(market(data, book -> book.add("A", 10.0, 11.0, 64)));
+
+            assertFalse(data.contains(product));
+            publish.run();
+            assertEquals(List.of("prepare false", "snapshot", "apply true"), order);
+        }
+
+        @Test
+        void chainsDeltasOfUpdatesPreparedBeforePublishing() {
+            var data = new BazaarData();
+            var deltas = new ArrayList<MarketDelta>();
+            data.addUpdateHandler(delta -> {
+                deltas.add(delta);
+                return MarketUpdateHandler.NOTHING;
+            });
+
+            data.prepareUpdate(market(data, book -> book.add("A", 10.0, 11.0, 64)));
+            data.prepareUpdate(market(data, book -> book.add("A", 10.0, 11.0, 64)));
+
+            assertSame(deltas.get(0).snapshot(), deltas.get(1).previous());
+            assertTrue(deltas.get(1).isEmpty());
+        }
+
+        @Test
+        void failingHandlersDoNotBlockOthers() {
+            var data = new BazaarData();
+            var applied = new ArrayList<String>();
+            data.addUpdateHandler(delta -> {
+                throw new IllegalStateException("prepare failed");
+            });
+            data.addUpdateHandler(delta -> () -> {
+                throw new IllegalStateException("apply failed");
+            });
+            data.addUpdateHandler(delta -> () -> applied.add("applied"));
+
+            data.onUpdate(MarketColumns.empty(data.handles()));
+
+            assertEquals(List.of("applied"), applied);
+        }
+    }
+
+    private static BazaarData dataWithDeltas(List<MarketDelta> deltas) {
+        var data = new BazaarData();
+        data.addDeltaListener(deltas::add);
+        return data;
+    }
+
+    private static MarketColumns market(BazaarData data, Consumer<MarketBuilder> products) {
+        var builder = new MarketBuilder(MarketColumns.builder(data.handles()));
+        products.accept(builder);
+        return builder.columns.build();
+    }
+
+    private static final class MarketBuilder {
+
+        private final MarketColumns.Builder columns;
+
+        private MarketBuilder(MarketColumns.Builder columns) {
+            this.columns = columns;
+        }
+
+        MarketBuilder add(String productId, double buyOrder, double sellOffer, long secondLevelAmount) {
+            this.columns.product(productId);
+            this.columns.quickBuy(20.0, 100, 500, 3);
+            this.columns.quickSell(1.0, 100, 500, 3);
+            this.columns.buyOrderLevel(buyOrder, 64, 1);
+            this.columns.buyOrderLevel(buyOrder - 1, secondLevelAmount, 2);
+            this.columns.sellOfferLevel(sellOffer, 64, 1);
+            return this;
+        }
+
+        MarketBuilder movingWeek(long movingWeek) {
+            this.columns.quickBuy(20.0, 100, movingWeek, 3);
+            return this;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.github.lutzluca.btrbz.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MarketSnapshotStoreTest {
+
+    private static final long LAST_UPDATED = 1_700_000_000_000L;
+    // a restart a while later still starts with the cached prices
+    private static final long RESTORED_AT = LAST_UPDATED + 2 * 60 * 60_000L;
+
+    @TempDir
+    Path dir;
+
+    @Nested
+    @DisplayName("file format")
+    class FileFormat {
+
+        @Test
+        void roundTripsEveryColumn() {
+            var store = MarketSnapshotStoreTest.this.store();
+            var columns = sampleColumns(new ProductHandles());
+
+            store.save(columns);
+            var loaded = store.load(new ProductHandles()).get();
+
+            assertEquals(columns.lastUpdated(), loaded.lastUpdated());
+            assertEquals(columns.size(), loaded.size());
+            for (var productId : List.of("ENCHANTED_DIAMOND", "BOOSTER_COOKIE")) {
+                int expected = columns.handle(productId);
+                int actual = loaded.handle(productId);
+
+                assertEquals(columns.quickBuyPrice(expected), loaded.quickBuyPrice(actual));
+                assertEquals(columns.quickSellMovingWeek(expected), loaded.quickSellMovingWeek(actual));
+                assertEquals(columns.quickBuyOrders(expected), loaded.quickBuyOrders(actual));
+                assertSidesEqual(columns.buyOrders(expected), loaded.buyOrders(actual));
+                assertSidesEqual(columns.sellOffers(expected), loaded.sellOffers(actual));
+            }
+            assertEquals(ProductHandles.ABSENT, loaded.handles().lookup("DELISTED"));
+        }
+
+        @Test
+        void rejectsTruncatedFiles() throws IOException {
+            var path = MarketSnapshotStoreTest.this.dir.resolve("market-snapshot.bin");
+            var bytes = MarketSnapshotStore.encode(sampleColumns(new ProductHandles()));
+            Files.write(path, Arrays.copyOf(bytes, bytes.length / 2));
+
+            assertTrue(MarketSnapshotStoreTest.this.store().load(new ProductHandles()).isFailure());
+        }
+
+        @Test
+        void rejectsUnknownFiles() throws IOException {
+            Files.writeString(MarketSnapshotStoreTest.this.dir.resolve("market-snapshot.bin"), "{\"products\": {}}");
+
+            assertTrue(MarketSnapshotStoreTest.this.store().load(new ProductHandles()).isFailure());
+        }
+    }
+
+    @Nested
+    @DisplayName("warm start")
+    class WarmStart {
+
+        @Test
+        void restoredSnapshotIsStaleUntilTheFirstPoll() {
+            var store = MarketSnapshotStoreTest.this.store();
+            store.save(sampleColumns(new ProductHandles()));
+
+            var data = new BazaarData();
+            var product = ProductIdentity.fromRuntime("Booster Cookie", "BOOSTER_COOKIE", null);
+            data.restoreSnapshot(store, RESTORED_AT);
+
+            assertTrue(data.isStale());
+            assertEquals(2_500_000.0, data.lowestSellOfferPrice(product).orElseThrow());
+
+            data.onUpdate(sampleColumns(data.handles()));
+
+            assertFalse(data.isStale());
+        }
+
+        @Test
+        void firstPollAfterRestoreStillReportsEveryProduct() {
+            var store = MarketSnapshotStoreTest.this.store();
+            store.save(sampleColumns(new ProductHandles()));
+
+            var data = new BazaarData();
+            var deltas = new ArrayList<MarketDelta>();
+            data.addUpdateHandler(delta -> {
+                deltas.add(delta);
+                return MarketUpdateHandler.NOTHING;
+            });
+            data.restoreSnapshot(store, RESTORED_AT);
+
+            assertTrue(deltas.isEmpty());
+            data.onUpdate(sampleColumns(data.handles()));
+            assertEquals(2, deltas.getFirst().size());
+        }
+
+        @Test
+        void persistsPolledUpdates() {
+            var store = MarketSnapshotStoreTest.this.store();
+            var data = new BazaarData();
+            data.restoreSnapshot(store, RESTORED_AT);
+            data.onUpdate(sampleColumns(data.handles()));
+
+            var restored = new BazaarData();
+            var product = ProductIdentity.fromRuntime("Enchanted Diamond", "ENCHANTED_DIAMOND", null);
+            restored.restoreSnapshot(store, RESTORED_AT);
+
+            assertTrue(restored.isStale());
+            assertEquals(165.1, restored.highestBuyOrderPrice(product).orElseThrow());
+        }
+
+        @Test
+        void skipsSnapshotsOlderThanSixHours() throws IOException {
+            var store = MarketSnapshotStoreTest.this.store();
+            store.save(sampleColumns(new ProductHandles()));
+
+            var data = new BazaarData();
+            var product = ProductIdentity.fromRuntime("Booster Cookie", "BOOSTER_COOKIE", null);
+            data.restoreSnapshot(store, LAST_UPDATED + 7 * 60 * 60_000L);
+
+            assertFalse(data.isStale());
+            assertTrue(data.lowestSellOfferPrice(product).isEmpty());
+
+            // polls are still persisted for the next start
+            Files.delete(MarketSnapshotStoreTest.this.dir.resolve("market-snapshot.bin"));
+            data.onUpdate(sampleColumns(data.handles()));
+            var restored = new BazaarData();
+            restored.restoreSnapshot(store, RESTORED_AT);
+            assertTrue(restored.isStale());
+        }
+
+        @Test
+        void startsEmptyWithoutASnapshotFile() {
+            var data = new BazaarData();
+            data.restoreSnapshot(MarketSnapshotStoreTest.this.store(), RESTORED_AT);
+
+            assertFalse(data.isStale());
+            assertEquals(0, data.handles().size());
+        }
+    }
+
+    private MarketSnapshotStore store() {
+        return new MarketSnapshotStore(this.dir.resolve("market-snapshot.bin"), Runnable::run);
+    }
+
+    private static MarketColumns sampleColumns(ProductHandles handles) {
+        // interned but not listed, must not be written
+        handles.intern("DELISTED");
+        var builder = MarketColumns.builder(handles).lastUpdated(LAST_UPDATED);
+
+        builder.product("ENCHANTED_DIAMOND");
+        builder.quickBuy(170.4, 1_200_000, 48_000_000, 312);
+        builder.quickSell(165.1, 900_000, 51_000_000, 280);
+        builder.buyOrderLevel(165.1, 71_680, 3);
+        builder.buyOrderLevel(165.0, 160, 1);
+        builder.sellOfferLevel(170.4, 4_096_000_000L, 12);
+
+        builder.product("BOOSTER_COOKIE");
+        builder.quickBuy(2_500_000.0, 40, 90_000, 15);
+        builder.quickSell(2_400_000.0, 25, 80_000, 9);
+        builder.sellOfferLevel(2_500_000.0, 40, 15);
+        return builder.build();
+    }
+
+    private static void assertSidesEqual(OrderBookSide expected, OrderBookSide actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int level = 0; level < expected.size(); level++) {
+            assertEquals(expected.pricePerUnit(level), actual.pricePerUnit(level));
+            assertEquals(expected.amount(level), actual.amount(level));
+            assertEquals(expected.orders(level), actual.orders(level));
+        }
+    }
+}
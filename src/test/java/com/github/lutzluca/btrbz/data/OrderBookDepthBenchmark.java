@@ -0,0 +1,92 @@
+package com.github.lutzluca.btrbz.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.github.lutzluca.btrbz.data.BazaarData.OrderQueueInfo;
+import com.github.lutzluca.btrbz.test.Benchmark;
+import com.github.lutzluca.btrbz.test.Benchmarks;
+import java.util.Optional;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compares the binary searched queue position against the linear scan over the book levels it replaced.
+ * Run with {@code BTRBZ_BENCHMARK=true ./gradlew test --tests '*OrderBookDepthBenchmark'}.
+ */
+@Benchmark
+class OrderBookDepthBenchmark {
+
+    private static final int PRODUCTS = 1_500;
+    private static final int LEVELS_PER_SIDE = 30;
+    private static final int QUERIES = 2_000_000;
+    private static final int WARMUP_ROUNDS = 10;
+    private static final int MEASURED_ROUNDS = 10;
+
+    @Test
+    void binarySearchAgainstLinearScan() {
+        var columns = fullSizeMarket();
+        var random = new Random(16);
+        var handles = new int[QUERIES];
+        var prices = new double[QUERIES];
+        for (int query = 0; query < QUERIES; query++) {
+            handles[query] = random.nextInt(PRODUCTS);
+            prices[query] = Math.round((97 + random.nextDouble() * 4) * 10) / 10.0;
+        }
+
+        var linear = Benchmarks.measure(WARMUP_ROUNDS, MEASURED_ROUNDS, () -> {
+            long items = 0;
+            for (int query = 0; query < QUERIES; query++) {
+                items += linearQueuePosition(columns.buyOrders(handles[query]), prices[query])
+                    .map(queueInfo -> (long) queueInfo.itemsAhead + queueInfo.ordersAhead)
+                    .orElse(0L);
+            }
+            return items;
+        });
+        var binary = Benchmarks.measure(WARMUP_ROUNDS, MEASURED_ROUNDS, () -> {
+            long items = 0;
+            for (int query = 0; query < QUERIES; query++) {
+                var levels = columns.buyOrders(handles[query]);
+                int levelsAhead = levels.levelsAhead(prices[query], false);
+                if (levelsAhead > 0) {
+                    items += levels.cumulativeAmount(levelsAhead - 1) + levels.cumulativeOrders(levelsAhead - 1);
+                }
+            }
+            return items;
+        });
+
+        assertEquals(linear.result(), binary.result());
+        Benchmarks.report(
+            "queue position (%d products, %d levels): linear %.1f ns / %d B, binary search %.1f ns / %d B per query",
+            PRODUCTS,
+            LEVELS_PER_SIDE,
+            linear.meanNanos() / QUERIES,
+            linear.allocatedBytes() / QUERIES,
+            binary.meanNanos() / QUERIES,
+            binary.allocatedBytes() / QUERIES
+        );
+    }
+
+    // the loop calculateQueuePosition used before the running totals
+    private static Optional<OrderQueueInfo> linearQueuePosition(OrderBookSide levels, double pricePerUnit) {
+        var queueInfo = new OrderQueueInfo(0, 0);
+        for (int level = 0; level < levels.size(); level++) {
+            if (!(levels.pricePerUnit(level) > pricePerUnit)) {
+                break;
+            }
+            queueInfo.ordersAhead += (int) levels.orders(level);
+            queueInfo.itemsAhead += (int) levels.amount(level);
+        }
+        return queueInfo.ordersAhead > 0 ? Optional.of(queueInfo) : Optional.empty();
+    }
+
+    private static MarketColumns fullSizeMarket() {
+        var builder = MarketColumns.builder(new ProductHandles());
+        for (int product = 0; product < PRODUCTS; product++) {
+            builder.product("PRODUCT_" + product);
+            for (int level = 0; level < LEVELS_PER_SIDE; level++) {
+                builder.buyOrderLevel(Math.round((100 - level * 0.1) * 10) / 10.0, 64L * (level + 1), 1 + level % 4);
+            }
+        }
+        return builder.build();
+    }
+}
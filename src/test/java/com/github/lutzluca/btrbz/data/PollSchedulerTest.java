@@ -0,0 +1,308 @@
+package com.github.lutzluca.btrbz.data;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.LongSupplier;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+class PollSchedulerTest {
+
+    private static final long PERIOD_MS = 20_000;
+    private static final long SIMULATED_MS = 6 * 60 * 60 * 1000L;
+
+    @Nested
+    @DisplayName("schedule")
+    class Schedule {
+
+        @Test
+        void backsOffExponentiallyOnUnchangedData() {
+            var clock = new TestClock(0);
+            var scheduler = new PollScheduler(clock);
+            scheduler.onRequestSent();
+            scheduler.onChanged(-500);
+
+            var delays = new long[8];
+            for (int i = 0; i < delays.length; i++) {
+                scheduler.onRequestSent();
+                delays[i] = scheduler.onUnchanged();
+            }
+
+            assertArrayEquals(new long[] { 100, 200, 400, 800, 1600, PERIOD_MS, 100, 200 }, delays);
+        }
+
+        @Test
+        void fallsBackToTheLearnedPeriodAfterAFewUnchangedReplies() {
+            var clock = new TestClock(0);
+            var scheduler = new PollScheduler(clock);
+            for (int i = 0; i < 4; i++) {
+                clock.now = i * 12_000L + 400;
+                scheduler.onRequestSent();
+                scheduler.onChanged(i * 12_000L);
+            }
+
+            var delays = new long[12];
+            for (int i = 0; i < delays.length; i++) {
+                scheduler.onRequestSent();
+                delays[i] = scheduler.onUnchanged();
+            }
+
+            // a stalled API gets a few short retries per period instead of one request every few seconds
+            assertArrayEquals(
+                new long[] { 100, 200, 400, 800, 1600, 12_000, 100, 200, 400, 800, 1600, 12_000 },
+                delays
+            );
+        }
+
+        @Test
+        void learnsThePublishPeriod() {
+            var clock = new TestClock(0);
+            var scheduler = new PollScheduler(clock);
+            for (int i = 0; i < 6; i++) {
+                clock.now = i * 12_000L + 400;
+                scheduler.onRequestSent();
+                scheduler.onChanged(i * 12_000L);
+            }
+
+            assertEquals(12_000, scheduler.period());
+        }
+
+        @Test
+        void ignoresOccasionalMissedUpdatesWhenLearningThePeriod() {
+            var clock = new TestClock(0);
+            var scheduler = new PollScheduler(clock);
+            long[] updates = { 0, 20_000, 40_000, 80_000, 100_000, 120_000 };
+            for (long update : updates) {
+                clock.now = update + 400;
+                scheduler.onRequestSent();
+                scheduler.onChanged(update);
+            }
+
+            assertEquals(20_000, scheduler.period());
+        }
+
+        @Test
+        void schedulesJustBeforeTheEarliestObservedVisibility() {
+            var clock = new TestClock(0);
+            var scheduler = new PollScheduler(clock);
+            scheduler.onRequestSent();
+            scheduler.onChanged(-20_000);
+
+            // the update at 0 was not visible at 300 but was at 400
+            clock.now = 300;
+            scheduler.onRequestSent();
+            scheduler.onUnchanged();
+            clock.now = 400;
+            scheduler.onRequestSent();
+            clock.now = 550;
+            long delay = scheduler.onChanged(0);
+
+            assertEquals(20_000 + 400 - 50 - 550, delay);
+        }
+
+        @Test
+        void doesNotLearnFromAnUpdateFirstSeenAfterFallingBack() {
+            var clock = new TestClock(0);
+            var scheduler = new PollScheduler(clock);
+            scheduler.onRequestSent();
+            scheduler.onChanged(-20_000);
+            clock.now = 300;
+            scheduler.onRequestSent();
+            scheduler.onUnchanged();
+            clock.now = 400;
+            scheduler.onRequestSent();
+            scheduler.onChanged(0);
+            assertEquals(350, scheduler.sendOffset());
+
+            // the update at 20_000 is missed by every short retry and first seen a whole period later
+            long delay = 0;
+            for (int i = 0; delay < PERIOD_MS; i++) {
+                clock.now = 20_350 + i * 2_000L;
+                scheduler.onRequestSent();
+                delay = scheduler.onUnchanged();
+            }
+            clock.now += delay;
+            scheduler.onRequestSent();
+            scheduler.onChanged(20_000);
+
+            // only an upper bound of when the update became visible, probed earlier from there
+            long upperBound = clock.now - 20_000;
+            assertEquals(upperBound - 250, scheduler.sendOffset());
+        }
+
+        @Test
+        void isIndependentOfClockSkew() {
+            var local = simulate(new Random(7), 0, true);
+            var skewed = simulate(new Random(7), 3_700, true);
+
+            assertEquals(local.latencies(), skewed.latencies());
+            assertEquals(local.requests(), skewed.requests());
+        }
+    }
+
+    @Nested
+    @DisplayName("stand-in bazaar api")
+    class StandInApi {
+
+        @Test
+        void deliversUpdatesFasterThanFixedIntervalPolling() {
+            var predictive = simulate(new Random(42), -2_500, true);
+            var fixed = simulate(new Random(42), -2_500, false);
+
+            assertTrue(
+                predictive.percentile(0.5) < 600,
+                () -> "median latency " + predictive.percentile(0.5)
+            );
+            assertTrue(
+                predictive.percentile(0.95) < 1_500,
+                () -> "p95 latency " + predictive.percentile(0.95)
+            );
+            assertTrue(
+                predictive.mean() * 4 < fixed.mean(),
+                () -> "predictive " + predictive.mean() + "ms, fixed " + fixed.mean() + "ms"
+            );
+        }
+
+        @Test
+        void keepsRequestsPerUpdateBounded() {
+            var predictive = simulate(new Random(42), -2_500, true);
+
+            assertTrue(
+                predictive.requestsPerUpdate() < 4.0,
+                () -> "requests per update " + predictive.requestsPerUpdate()
+            );
+            assertTrue(
+                predictive.missedUpdates() <= predictive.latencies().size() / 100,
+                () -> "missed " + predictive.missedUpdates() + " updates"
+            );
+        }
+    }
+
+    /**
+     * Runs a poller against a stand-in API for {@link #SIMULATED_MS} of simulated time.
+     *
+     * @param serverSkewMs how far the server clock (and thus {@code lastUpdated}) runs ahead of the local clock
+     * @param predictive   {@code true} to use {@link PollScheduler}, {@code false} for the previous fixed 20s
+     *                     interval with 250ms unchanged retries
+     */
+    private static SimulationResult simulate(Random random, long serverSkewMs, boolean predictive) {
+        var api = new StandInBazaarApi(random, serverSkewMs);
+        var clock = new TestClock(api.visibleAt(0));
+        var scheduler = new PollScheduler(clock);
+
+        List<Long> latencies = new ArrayList<>();
+        int requests = 0;
+        int unchangedRetries = 0;
+        int lastSeen = -1;
+        int missed = 0;
+
+        while (clock.now < SIMULATED_MS) {
+            requests++;
+            scheduler.onRequestSent();
+            int update = api.latestVisible(clock.now);
+            clock.now += 80 + random.nextInt(170);
+
+            long delay;
+            if (update != lastSeen) {
+                if (lastSeen != -1) {
+                    missed += update - lastSeen - 1;
+                    latencies.add(clock.now - api.visibleAt(update));
+                }
+                lastSeen = update;
+                unchangedRetries = 0;
+                delay = predictive
+                    ? scheduler.onChanged(api.lastUpdated(update))
+                    : PERIOD_MS + 200 + random.nextInt(200);
+            } else if (predictive) {
+                delay = scheduler.onUnchanged();
+            } else {
+                delay = ++unchangedRetries <= 5 ? 250 : PERIOD_MS + 200 + random.nextInt(200);
+                if (unchangedRetries > 5) {
+                    unchangedRetries = 0;
+                }
+            }
+            clock.now += delay;
+        }
+
+        return new SimulationResult(latencies, requests, missed);
+    }
+
+    /**
+     * Publishes roughly every {@link #PERIOD_MS} with some jitter; each publish only becomes visible to requests a
+     * few hundred milliseconds later, as the API's caches catch up.
+     */
+    private static final class StandInBazaarApi {
+
+        private final long[] publishedAt;
+        private final long[] visibleAt;
+        private final long serverSkewMs;
+
+        StandInBazaarApi(Random random, long serverSkewMs) {
+            int updates = (int) (SIMULATED_MS / PERIOD_MS) + 8;
+            this.publishedAt = new long[updates];
+            this.visibleAt = new long[updates];
+            this.serverSkewMs = serverSkewMs;
+
+            long base = 1_000;
+            for (int i = 0; i < updates; i++) {
+                this.publishedAt[i] = base + i * PERIOD_MS + random.nextInt(301) - 150;
+                this.visibleAt[i] = this.publishedAt[i] + 300 + random.nextInt(600);
+            }
+        }
+
+        long lastUpdated(int update) {
+            return this.publishedAt[update] + this.serverSkewMs;
+        }
+
+        long visibleAt(int update) {
+            return this.visibleAt[update];
+        }
+
+        int latestVisible(long now) {
+            int latest = -1;
+            for (int i = 0; i < this.visibleAt.length && this.publishedAt[i] <= now; i++) {
+                if (this.visibleAt[i] <= now) {
+                    latest = i;
+                }
+            }
+            return latest;
+        }
+    }
+
+    private record SimulationResult(List<Long> latencies, int requests, int missedUpdates) {
+
+        double mean() {
+            return this.latencies.stream().mapToLong(Long::longValue).average().orElse(Double.NaN);
+        }
+
+        long percentile(double p) {
+            var sorted = this.latencies.stream().mapToLong(Long::longValue).toArray();
+            Arrays.sort(sorted);
+            return sorted[(int) Math.min(sorted.length - 1, Math.floor(p * sorted.length))];
+        }
+
+        double requestsPerUpdate() {
+            return (double) this.requests / this.latencies.size();
+        }
+    }
+
+    private static final class TestClock implements LongSupplier {
+
+        long now;
+
+        TestClock(long now) {
+            this.now = now;
+        }
+
+        @Override
+        public long getAsLong() {
+            return this.now;
+        }
+    }
+}
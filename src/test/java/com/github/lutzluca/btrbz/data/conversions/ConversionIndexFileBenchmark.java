@@ -0,0 +1,140 @@
+package com.github.lutzluca.btrbz.data.conversions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.lutzluca.btrbz.test.Benchmark;
+import com.github.lutzluca.btrbz.test.Benchmarks;
+import com.github.lutzluca.btrbz.test.Benchmarks.Round;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Compares the startup load of the local conversion index cache as pretty-printed JSON and as the binary file. Both
+ * loads build the lookups the way {@link ConversionLoader#loadSync()} does and end with a product lookup by id and by
+ * name, which is what the first tooltips after startup do.
+ * Run with {@code BTRBZ_BENCHMARK=true ./gradlew test --tests '*ConversionIndexFileBenchmark'}.
+ */
+@Benchmark
+class ConversionIndexFileBenchmark {
+
+    private static final int PRODUCTS = 3_000;
+    private static final int WARMUP_ROUNDS = 200;
+    private static final int MEASURED_ROUNDS = 200;
+    private static final int RETAINED_COPIES = 20;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void startupLoad() throws IOException {
+        var index = fullSizeIndex();
+        var json = this.dir.resolve("conversion-index.json");
+        var binary = this.dir.resolve("conversion-index.bin");
+        Files.writeString(json, ConversionLoader.GSON.toJson(ConversionLoader.IndexSnapshot.fromIndex(index)));
+        Files.write(binary, ConversionIndexFile.encode(index));
+
+        double jsonMillis = medianMillis(() -> loadJson(json));
+        double binaryMillis = medianMillis(() -> loadBinary(binary));
+        // names and ids are answered from the file, so everything else is building the prefix search
+        double readMillis = medianMillis(() -> lookUp(ConversionIndexFile.read(binary)));
+        long jsonBytes = retainedBytes(() -> loadJson(json));
+        long binaryBytes = retainedBytes(() -> loadBinary(binary));
+
+        Benchmarks.report(
+            "conversion index load (%d products): json %.3f ms, %d KiB file, ~%d KiB heap;"
+                + " binary %.3f ms (%.3f ms without the prefix search), %d KiB file, ~%d KiB heap",
+            PRODUCTS,
+            jsonMillis,
+            Files.size(json) / 1024,
+            jsonBytes / 1024,
+            binaryMillis,
+            readMillis,
+            Files.size(binary) / 1024,
+            binaryBytes / 1024
+        );
+        assertTrue(binaryMillis < jsonMillis, "the binary file should load faster than JSON");
+    }
+
+    private static ConversionIndex loadJson(Path path) throws IOException {
+        var snapshot = ConversionLoader.GSON.fromJson(
+            Files.readString(path, StandardCharsets.UTF_8),
+            ConversionLoader.IndexSnapshot.class
+        );
+        return lookUp(snapshot.toIndex().buildLookups());
+    }
+
+    private static ConversionIndex loadBinary(Path path) throws IOException {
+        return lookUp(ConversionIndexFile.read(path).buildLookups());
+    }
+
+    private static ConversionIndex lookUp(ConversionIndex index) {
+        index.product("PRODUCT_1500").orElseThrow();
+        index.uniqueProductByName("Enchanted Product 1501").orElseThrow();
+        return index;
+    }
+
+    private static double medianMillis(Round<ConversionIndex, IOException> load) throws IOException {
+        return Benchmarks.measure(WARMUP_ROUNDS, MEASURED_ROUNDS, load).medianNanos() / 1e6;
+    }
+
+    /**
+     * @return the heap a loaded index keeps reachable, averaged over a few copies
+     */
+    private static long retainedBytes(Round<ConversionIndex, IOException> load) throws IOException {
+        var copies = new ConversionIndex[RETAINED_COPIES];
+        long before = usedHeap();
+        for (int copy = 0; copy < RETAINED_COPIES; copy++) {
+            copies[copy] = load.run();
+        }
+        long after = usedHeap();
+        assertEquals(PRODUCTS, copies[RETAINED_COPIES - 1].size());
+        return Math.max(0, after - before) / RETAINED_COPIES;
+    }
+
+    private static long usedHeap() {
+        var runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static ConversionIndex fullSizeIndex() {
+        var products = new LinkedHashMap<String, ConversionProductEntry>();
+        var hashes = new HashMap<String, String>();
+        var missing = new HashSet<String>();
+        for (int i = 0; i < PRODUCTS; i++) {
+            var productId = "PRODUCT_" + i;
+            if (i % 4 == 0) {
+                products.put(productId, new ConversionProductEntry("Product " + i, new ProductNameSource.Derived()));
+            } else {
+                products.put(
+                    productId,
+                    new ConversionProductEntry("§9Enchanted Product " + i, new ProductNameSource.Neu("ITEM_" + i))
+                );
+                hashes.put(productId, NeuArchiveReader.gitBlobHash(productId.getBytes(StandardCharsets.UTF_8)));
+            }
+            if (i % 500 == 0) {
+                missing.add("MISSING_" + i);
+            }
+        }
+
+        return new ConversionIndex(
+            ConversionIndex.SCHEMA_VERSION,
+            RemoteNeuConversionIndexBuilder.BUILDER_VERSION,
+            "2026-01-01T00:00:00Z",
+            "0123abcd",
+            products,
+            missing,
+            hashes
+        );
+    }
+}
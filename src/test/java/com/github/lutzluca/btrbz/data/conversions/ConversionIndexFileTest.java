@@ -0,0 +1,199 @@
+package com.github.lutzluca.btrbz.data.conversions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.lutzluca.btrbz.data.IndexedProduct;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ConversionIndexFileTest {
+
+    @TempDir
+    Path dir;
+
+    @Nested
+    @DisplayName("file format")
+    class FileFormat {
+
+        @Test
+        void roundTripsEveryField() throws IOException {
+            var index = sampleIndex();
+
+            var loaded = ConversionIndexFileTest.this.writeAndRead(index);
+
+            assertEquals(index.schemaVersion(), loaded.schemaVersion());
+            assertEquals(index.builderVersion(), loaded.builderVersion());
+            assertEquals(index.generatedAt(), loaded.generatedAt());
+            assertEquals(index.neuCommit(), loaded.neuCommit());
+            assertEquals(index.products(), loaded.products());
+            assertEquals(index.missingProductIds(), loaded.missingProductIds());
+            assertEquals(index.sourceHashes(), loaded.sourceHashes());
+        }
+
+        @Test
+        void sortsProductsById() throws IOException {
+            var loaded = ConversionIndexFileTest.this.writeAndRead(sampleIndex());
+
+            assertEquals(List.of("ENCHANTED_BREAD", "ENCHANTED_DIAMOND", "ESSENCE_WITHER"), loaded.productIds());
+            assertEquals(loaded.productIds(), List.copyOf(loaded.products().keySet()));
+        }
+
+        @Test
+        void rejectsTruncatedFiles() throws IOException {
+            var path = ConversionIndexFileTest.this.dir.resolve("conversion-index.bin");
+            var bytes = ConversionIndexFile.encode(sampleIndex());
+            Files.write(path, Arrays.copyOf(bytes, bytes.length - 4));
+
+            assertThrows(IOException.class, () -> ConversionIndexFile.read(path));
+        }
+
+        @Test
+        void rejectsRecordsWithoutARequiredString() throws IOException {
+            var path = ConversionIndexFileTest.this.dir.resolve("conversion-index.bin");
+            var bytes = ConversionIndexFile.encode(sampleIndex());
+            int missingStart = 40 + 3 * 20;
+            int namesStart = missingStart + 4;
+            // the product id of the first record, the name of the second, the missing product id, the name of the
+            // first name table entry and the record of the second
+            for (int offset : new int[] {40, 40 + 20 + 4, missingStart, namesStart, namesStart + 8 + 4}) {
+                var damaged = ByteBuffer.wrap(bytes.clone()).putInt(offset, -1).array();
+                Files.write(path, damaged);
+
+                assertThrows(IOException.class, () -> ConversionIndexFile.read(path), "offset " + offset);
+            }
+        }
+
+        @Test
+        void rejectsUnknownFiles() throws IOException {
+            var path = ConversionIndexFileTest.this.dir.resolve("conversion-index.bin");
+            Files.writeString(path, "{ \"schemaVersion\": 1 }");
+
+            assertThrows(IOException.class, () -> ConversionIndexFile.read(path));
+        }
+    }
+
+    @Nested
+    @DisplayName("lookups")
+    class Lookups {
+
+        @Test
+        void resolvesProductsByIdAndName() throws IOException {
+            var loaded = ConversionIndexFileTest.this.writeAndRead(sampleIndex());
+
+            assertEquals(3, loaded.size());
+            assertEquals("§aEnchanted Bread", loaded.product("ENCHANTED_BREAD").orElseThrow().formattedName());
+            assertTrue(loaded.product("ENCHANTED_BREAK").isEmpty());
+            assertTrue(loaded.product("").isEmpty());
+            assertEquals(
+                "ESSENCE_WITHER",
+                loaded.uniqueProductByName("Wither Essence").orElseThrow().productId()
+            );
+            assertEquals(new ConversionSourceCounts(2, 1), loaded.sourceCounts());
+        }
+
+        @Test
+        void resolvesNamesFromTheFile() throws IOException {
+            var products = new LinkedHashMap<>(sampleIndex().products());
+            products.put(
+                "ESSENCE_WITHER_2",
+                new ConversionProductEntry("§dWither Essence", new ProductNameSource.Derived())
+            );
+            var loaded = ConversionIndexFileTest.this.writeAndRead(new ConversionIndex(
+                ConversionIndex.SCHEMA_VERSION,
+                "2026-01-01T00:00:00Z",
+                null,
+                products
+            ));
+
+            assertTrue(loaded.hasAmbiguousName("wither essence"));
+            assertTrue(loaded.uniqueProductByName("Wither Essence").isEmpty());
+            assertEquals("ENCHANTED_BREAD", loaded.uniqueProductByName("ENCHANTED bread").orElseThrow().productId());
+            assertTrue(loaded.uniqueProductByName("Enchanted").isEmpty());
+            assertNull(getField(loaded, "products"));
+            assertNull(getField(loaded, "normalizedNameIndex"));
+        }
+
+        @Test
+        void buildsOnlyThePrefixSearchUpFront() throws IOException {
+            var loaded = ConversionIndexFileTest.this.writeAndRead(sampleIndex());
+            assertNull(getField(loaded, "completions"));
+
+            assertSame(loaded, loaded.buildLookups());
+
+            assertNotNull(getField(loaded, "completions"));
+            assertNull(getField(loaded, "products"));
+            assertNull(getField(loaded, "normalizedNameIndex"));
+            assertEquals(
+                List.of("ENCHANTED_BREAD"),
+                loaded.completions().complete("bread", 10).stream().map(IndexedProduct::productId).toList()
+            );
+            assertEquals("ESSENCE_WITHER", loaded.uniqueProductByName("Wither Essence").orElseThrow().productId());
+        }
+
+        @Test
+        void reportsEveryProductAsChangedAgainstAnEmptyIndex() throws IOException {
+            var loaded = ConversionIndexFileTest.this.writeAndRead(sampleIndex());
+
+            var changes = ConversionChangeSet.between(ConversionIndex.empty(), loaded);
+
+            assertEquals(Set.copyOf(loaded.productIds()), changes.productIds());
+            assertTrue(ConversionChangeSet.between(loaded, sampleIndex()).isEmpty());
+        }
+    }
+
+    private static Object getField(Object target, String name) {
+        try {
+            Field field = target.getClass().getDeclaredField(name);
+            field.setAccessible(true);
+            return field.get(target);
+        } catch (ReflectiveOperationException err) {
+            throw new AssertionError("Failed to get " + name + " of " + target.getClass().getName(), err);
+        }
+    }
+
+    private ConversionIndex writeAndRead(ConversionIndex index) throws IOException {
+        var path = this.dir.resolve("conversion-index.bin");
+        Files.write(path, ConversionIndexFile.encode(index));
+        return ConversionIndexFile.read(path);
+    }
+
+    private static ConversionIndex sampleIndex() {
+        var products = new LinkedHashMap<String, ConversionProductEntry>();
+        products.put(
+            "ENCHANTED_DIAMOND",
+            new ConversionProductEntry("§aEnchanted Diamond", new ProductNameSource.Neu("ENCHANTED_DIAMOND"))
+        );
+        products.put("ESSENCE_WITHER", new ConversionProductEntry("Wither Essence", new ProductNameSource.Derived()));
+        products.put(
+            "ENCHANTED_BREAD",
+            new ConversionProductEntry("§aEnchanted Bread", new ProductNameSource.Neu("ENCHANTED_BREAD"))
+        );
+
+        return new ConversionIndex(
+            ConversionIndex.SCHEMA_VERSION,
+            RemoteNeuConversionIndexBuilder.BUILDER_VERSION,
+            "2026-01-01T00:00:00Z",
+            "0123abcd",
+            products,
+            Set.of("BAZAAR_COOKIE"),
+            Map.of("ENCHANTED_DIAMOND", "b6fc4c620b67d95f953a5c1c1230aaab5db5a1b0")
+        );
+    }
+}
@@ -1,6 +1,9 @@
 package com.github.lutzluca.btrbz.data.conversions;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.Map;
 import org.junit.jupiter.api.DisplayName;
@@ -33,4 +36,38 @@ class ConversionIndexServiceTest {
             assertEquals("Custom Fallback", index.product("ENCHANTMENT_HECATOMB_10").orElseThrow().strippedName());
         }
     }
+
+    @Nested
+    @DisplayName("readiness")
+    class Readiness {
+
+        @Test
+        void resolvesRuntimeIdentitiesBeforeTheIndexIsLoaded() {
+            var service = new ConversionIndexService();
+
+            var byId = service.resolveProduct("REDSTONE", "§fRedstone");
+            var byName = service.resolveProductName("Redstone");
+
+            assertFalse(service.isReady());
+            assertEquals(ConversionStatus.Readiness.NotLoaded, service.status().readiness());
+            assertEquals("Redstone", byId.strippedName());
+            assertEquals("REDSTONE", byId.bazaarProductId().orElseThrow());
+            assertNull(byId.formattedName());
+            assertTrue(byName.bazaarProductId().isEmpty());
+        }
+
+        @Test
+        void isReadyOnceAnIndexWasApplied() {
+            var service = new ConversionIndexService(new ConversionIndex(
+                ConversionIndex.SCHEMA_VERSION,
+                "now",
+                null,
+                Map.of("REDSTONE", new ConversionProductEntry("§fRedstone", new ProductNameSource.Neu("REDSTONE")))
+            ));
+
+            assertTrue(service.isReady());
+            assertEquals(ConversionStatus.Readiness.Ready, service.status().readiness());
+            assertEquals("§fRedstone", service.resolveProductName("Redstone").formattedName());
+        }
+    }
 }
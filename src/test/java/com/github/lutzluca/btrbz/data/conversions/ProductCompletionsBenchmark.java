@@ -0,0 +1,82 @@
+package com.github.lutzluca.btrbz.data.conversions;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.lutzluca.btrbz.data.IndexedProduct;
+import com.github.lutzluca.btrbz.test.Benchmark;
+import com.github.lutzluca.btrbz.test.Benchmarks;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Measures product completion queries as typed into a command argument, one character at a time, against a Bazaar
+ * sized product list. Queries ask for the 100 suggestions the command argument does; the last typed query starts in
+ * the middle of a word and so takes the substring scan.
+ * Run with {@code BTRBZ_BENCHMARK=true ./gradlew test --tests '*ProductCompletionsBenchmark'}.
+ */
+@Benchmark
+class ProductCompletionsBenchmark {
+
+    private static final int PRODUCTS = 3_000;
+    private static final int WARMUP_ROUNDS = 2_000;
+    private static final int MEASURED_ROUNDS = 2_000;
+    private static final int BUILD_ROUNDS = 20;
+    private static final List<String> WORDS = List.of(
+        "enchanted", "diamond", "block", "ultimate", "wise", "essence", "wither", "shard", "cactus", "golden",
+        "carrot", "raw", "fish", "mithril", "gemstone", "fine", "flawed", "ruby", "booster", "cookie"
+    );
+
+    @Test
+    void typedQueries() {
+        var products = fullSizeProducts();
+        var firstBuild = Benchmarks.measure(0, 1, () -> ProductCompletions.of(products));
+        var completions = firstBuild.result();
+        var builds = Benchmarks.measure(0, BUILD_ROUNDS, () -> ProductCompletions.of(products));
+
+        var queries = new ArrayList<String>();
+        for (var typed : List.of("enchanted dia", "wise", "ENCHANTMENT_ULT", "gem", "ithril")) {
+            for (int length = 1; length <= typed.length(); length++) {
+                queries.add(typed.substring(0, length));
+            }
+        }
+
+        var next = new int[1];
+        var run = Benchmarks.measure(
+            WARMUP_ROUNDS,
+            MEASURED_ROUNDS,
+            () -> completions.complete(queries.get(next[0]++ % queries.size()), 100)
+        );
+
+        Benchmarks.report(
+            "product completions (%d products): first build %.2f ms, build median %.2f ms,"
+                + " query median %.1f us, p99 %.1f us",
+            PRODUCTS,
+            firstBuild.medianNanos() / 1e6,
+            builds.medianNanos() / 1e6,
+            run.medianNanos() / 1e3,
+            run.p99Nanos() / 1e3
+        );
+        assertTrue(run.medianNanos() < 1e6, "a completion query should take well under a millisecond");
+    }
+
+    private static List<IndexedProduct> fullSizeProducts() {
+        var random = new Random(25);
+        var products = new ArrayList<IndexedProduct>();
+        for (int product = 0; product < PRODUCTS; product++) {
+            var name = new StringBuilder();
+            int words = 1 + random.nextInt(3);
+            for (int word = 0; word < words; word++) {
+                var text = WORDS.get(random.nextInt(WORDS.size()));
+                name.append(word > 0 ? " " : "");
+                name.append(Character.toUpperCase(text.charAt(0))).append(text.substring(1));
+            }
+            name.append(' ').append(product);
+            var productId = (random.nextInt(4) == 0 ? "ENCHANTMENT_" : "")
+                + name.toString().toUpperCase().replace(' ', '_');
+            products.add(new IndexedProduct(productId, "§a" + name));
+        }
+        return products;
+    }
+}
@@ -0,0 +1,102 @@
+package com.github.lutzluca.btrbz.data.conversions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.lutzluca.btrbz.data.IndexedProduct;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+class ProductCompletionsTest {
+
+    private static final ProductCompletions COMPLETIONS = ProductCompletions.of(List.of(
+        new IndexedProduct("ENCHANTED_DIAMOND", "§aEnchanted Diamond"),
+        new IndexedProduct("ENCHANTED_DIAMOND_BLOCK", "§9Enchanted Diamond Block"),
+        new IndexedProduct("DIAMOND", "Diamond"),
+        new IndexedProduct("ENCHANTMENT_ULTIMATE_WISE_5", "§d§lUltimate Wise V"),
+        new IndexedProduct("ENCHANTMENT_TURBO_CACTUS_5", "Turbo-Cacti V"),
+        new IndexedProduct("REDSTONE", "Redstone")
+    ));
+
+    @Nested
+    @DisplayName("prefix queries")
+    class PrefixQueries {
+
+        @Test
+        void findsNamesStartingWithThePrefixInNameOrder() {
+            assertEquals(
+                List.of("ENCHANTED_DIAMOND", "ENCHANTED_DIAMOND_BLOCK"),
+                ids(COMPLETIONS.withNamePrefix("Enchanted D", 10))
+            );
+            assertEquals(List.of("DIAMOND"), ids(COMPLETIONS.withNamePrefix("dia", 10)));
+            assertTrue(COMPLETIONS.withNamePrefix("diamonds", 10).isEmpty());
+        }
+
+        @Test
+        void findsLaterWordsOfANameOncePerProduct() {
+            assertEquals(
+                List.of("DIAMOND", "ENCHANTED_DIAMOND", "ENCHANTED_DIAMOND_BLOCK"),
+                ids(COMPLETIONS.withWordPrefix("diamond", 10))
+            );
+            assertEquals(List.of("ENCHANTMENT_TURBO_CACTUS_5"), ids(COMPLETIONS.withWordPrefix("cac", 10)));
+            assertEquals(List.of("ENCHANTMENT_ULTIMATE_WISE_5"), ids(COMPLETIONS.withWordPrefix("wise v", 10)));
+        }
+
+        @Test
+        void stopsAtTheLimit() {
+            assertEquals(1, COMPLETIONS.withWordPrefix("diamond", 1).size());
+            assertEquals(2, COMPLETIONS.complete("", 2).size());
+        }
+    }
+
+    @Nested
+    @DisplayName("ranked completion")
+    class RankedCompletion {
+
+        @Test
+        void ranksExactMatchesThenNamePrefixesThenLaterWords() {
+            assertEquals(
+                List.of("DIAMOND", "ENCHANTED_DIAMOND", "ENCHANTED_DIAMOND_BLOCK"),
+                ids(COMPLETIONS.complete("diamond", 10))
+            );
+            assertEquals(
+                List.of("ENCHANTED_DIAMOND", "ENCHANTED_DIAMOND_BLOCK"),
+                ids(COMPLETIONS.complete("enchanted dia", 10))
+            );
+        }
+
+        @Test
+        void completesProductIds() {
+            assertEquals(List.of("ENCHANTMENT_ULTIMATE_WISE_5"), ids(COMPLETIONS.complete("enchantment_ult", 10)));
+            assertEquals(List.of("ENCHANTMENT_TURBO_CACTUS_5"), ids(COMPLETIONS.complete("TURBO_CACTUS", 10)));
+            assertEquals(List.of("REDSTONE"), ids(COMPLETIONS.complete("REDSTONE", 10)));
+        }
+
+        @Test
+        void fallsBackToTextInsideWords() {
+            assertEquals(
+                List.of("DIAMOND", "ENCHANTED_DIAMOND", "ENCHANTED_DIAMOND_BLOCK"),
+                ids(COMPLETIONS.complete("amond", 10))
+            );
+            assertEquals(List.of("ENCHANTED_DIAMOND_BLOCK"), ids(COMPLETIONS.complete("ond_bl", 10)));
+            assertEquals(List.of("REDSTONE"), ids(COMPLETIONS.complete("stone", 10)));
+        }
+
+        @Test
+        void skipsTextInsideWordsOnceAWordStartsWithTheInput() {
+            // "enchanted" and "enchantment" contain a c as well
+            assertEquals(List.of("ENCHANTMENT_TURBO_CACTUS_5"), ids(COMPLETIONS.complete("c", 10)));
+        }
+
+        @Test
+        void ignoresFormattingAndCase() {
+            assertEquals(List.of("ENCHANTMENT_ULTIMATE_WISE_5"), ids(COMPLETIONS.complete("§dULTIMATE w", 10)));
+        }
+    }
+
+    private static List<String> ids(List<IndexedProduct> products) {
+        return products.stream().map(IndexedProduct::productId).toList();
+    }
+}
@@ -2,12 +2,35 @@ package com.github.lutzluca.btrbz.data.conversions;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import com.github.lutzluca.btrbz.data.conversions.RemoteNeuConversionIndexBuilder.NeuEntries;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
@@ -253,6 +276,414 @@ class RemoteNeuConversionIndexBuilderTest {
         }
     }
 
+    @Nested
+    @DisplayName("NEU archive streaming")
+    class ArchiveStreaming {
+
+        private static final String ROOT = "NotEnoughUpdates-REPO-abc/";
+        private static final String STOCKS = """
+            [
+              { "stock": "STOCK_PRODUCT", "id": "STOCK_ITEM" },
+              { "stock": "UNLISTED_PRODUCT", "id": "UNLISTED_ITEM" }
+            ]
+            """;
+
+        private HttpServer server;
+        private byte[] archive;
+        private int status;
+
+        @BeforeEach
+        void startServer() throws IOException {
+            this.status = 200;
+            this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+            this.server.createContext("/", exchange -> {
+                exchange.sendResponseHeaders(this.status, this.status == 200 ? this.archive.length : -1);
+                try (var body = exchange.getResponseBody()) {
+                    if (this.status == 200) {
+                        body.write(this.archive);
+                    }
+                }
+            });
+            this.server.start();
+        }
+
+        @AfterEach
+        void stopServer() {
+            this.server.stop(0);
+        }
+
+        @Test
+        void resolvesDirectStockAndAliasedItems() throws ConversionRefreshException {
+            this.archive = zip(
+                ROOT + "constants/bazaarstocks.json", STOCKS,
+                ROOT + "items/DIRECT_PRODUCT.json", item("§aDirect Product"),
+                ROOT + "items/STOCK_ITEM.json", item("§9Stock Item"),
+                ROOT + "items/INK_SACK-3.json", item("§fCocoa Beans")
+            );
+
+            var entries = this.fetch("DIRECT_PRODUCT", "STOCK_PRODUCT", "INK_SACK:3", "ENCHANTMENT_CHAMPION_10");
+
+            assertEquals("§aDirect Product", entries.get("DIRECT_PRODUCT").formattedName());
+            assertEquals(new ProductNameSource.Neu("STOCK_ITEM"), entries.get("STOCK_PRODUCT").source());
+            assertEquals("Cocoa Beans", entries.get("INK_SACK:3").strippedName());
+            assertTrue(entries.get("ENCHANTMENT_CHAMPION_10").source() instanceof ProductNameSource.Derived);
+        }
+
+        @Test
+        void recordsTheGitHashOfEachSourceItem() throws ConversionRefreshException {
+            this.archive = zip(
+                ROOT + "constants/bazaarstocks.json", STOCKS,
+                ROOT + "items/STOCK_ITEM.json", item("§9Stock Item")
+            );
+            var uri = URI.create("http://localhost:" + this.server.getAddress().getPort() + "/abc.zip");
+
+            var productIds = Set.of("STOCK_PRODUCT", "ENCHANTMENT_X_1");
+            var entries = RemoteNeuConversionIndexBuilder.fetchNeuEntries(uri, productIds);
+
+            var content = item("§9Stock Item").getBytes(StandardCharsets.UTF_8);
+            assertEquals(Map.of("STOCK_PRODUCT", NeuArchiveReader.gitBlobHash(content)), entries.sourceHashes());
+            // the blob hash of "hello" as printed by git hash-object
+            assertEquals(
+                "b6fc4c620b67d95f953a5c1c1230aaab5db5a1b0",
+                NeuArchiveReader.gitBlobHash("hello".getBytes(StandardCharsets.UTF_8))
+            );
+        }
+
+        @Test
+        void parallelBuildMatchesASequentialBuild() throws ConversionRefreshException {
+            var fixture = new ArrayList<String>();
+            var stocks = new StringBuilder("[");
+            var productIds = new HashSet<String>();
+            for (int i = 0; i < 3_000; i++) {
+                var productId = "PRODUCT_" + i;
+                productIds.add(productId);
+                switch (i % 5) {
+                    case 0 -> fixture.addAll(List.of(ROOT + "items/" + productId + ".json", item("§aProduct " + i)));
+                    case 1 -> {
+                        stocks.append(stocks.length() > 1 ? "," : "");
+                        stocks.append("{ \"stock\": \"%s\", \"id\": \"ITEM_%d\" }".formatted(productId, i));
+                        fixture.addAll(List.of(ROOT + "items/ITEM_" + i + ".json", item("§9Item " + i)));
+                    }
+                    case 2 -> fixture.addAll(List.of(
+                        ROOT + "items/" + productId + ".json",
+                        "{ \"displayname\": \"§fEnchanted Book\", \"lore\": [\"§9Book " + i + "\"] }"
+                    ));
+                    case 3 -> fixture.addAll(List.of(ROOT + "items/" + productId + ".json", item("")));
+                    default -> productIds.add("ENCHANTMENT_FIXTURE_" + i);
+                }
+            }
+            fixture.addAll(0, List.of(ROOT + "constants/bazaarstocks.json", stocks.append("]").toString()));
+            this.archive = zip(fixture.toArray(String[]::new));
+
+            var uri = URI.create("http://localhost:" + this.server.getAddress().getPort() + "/abc.zip");
+            var archive = RemoteNeuConversionIndexBuilder.downloadArchive(uri, productIds);
+            var sortedIds = List.copyOf(new TreeSet<>(productIds));
+            var resolved = sortedIds
+                .stream()
+                .map(productId -> RemoteNeuConversionIndexBuilder.resolveProduct(archive, productId))
+                .toList();
+            var sequential = RemoteNeuConversionIndexBuilder.neuEntries(uri, sortedIds, resolved);
+
+            NeuEntries parallel;
+            var pool = new ForkJoinPool(4);
+            try {
+                parallel = RemoteNeuConversionIndexBuilder.fetchNeuEntries(uri, productIds, pool);
+            } finally {
+                pool.shutdown();
+            }
+
+            var expected = persisted(productIds, sequential);
+            assertEquals(expected, persisted(productIds, parallel));
+            assertTrue(expected.contains("Book 2") && expected.contains("Fixture IV"));
+        }
+
+        private static String persisted(Set<String> productIds, NeuEntries entries) {
+            var missing = new HashSet<>(productIds);
+            missing.removeAll(entries.products().keySet());
+            var index = new ConversionIndex(
+                ConversionIndex.SCHEMA_VERSION,
+                RemoteNeuConversionIndexBuilder.BUILDER_VERSION,
+                "now",
+                "abc",
+                entries.products(),
+                missing,
+                entries.sourceHashes()
+            );
+            return ConversionLoader.GSON.toJson(ConversionLoader.IndexSnapshot.fromIndex(index));
+        }
+
+        @Test
+        void namesEnchantedBooksFromTheirLore() throws ConversionRefreshException {
+            var book = """
+                { "displayname": "§fEnchanted Book", "lore": ["§9Quick Bite I", "", "Combinable in Anvil"] }
+                """;
+            this.archive = zip(
+                ROOT + "constants/bazaarstocks.json", "[]",
+                ROOT + "items/ENCHANTMENT_QUICK_BITE_1.json", book
+            );
+
+            var entries = this.fetch("ENCHANTMENT_QUICK_BITE_1");
+
+            assertEquals("§fQuick Bite I", entries.get("ENCHANTMENT_QUICK_BITE_1").formattedName());
+        }
+
+        @Test
+        void skipsItemsNoProductResolvesTo() throws ConversionRefreshException {
+            this.archive = zip(
+                ROOT + "constants/bazaarstocks.json", STOCKS,
+                ROOT + "items/UNLISTED_ITEM.json", "not json",
+                ROOT + "items/DIRECT_PRODUCT.json", item("§aDirect Product")
+            );
+
+            var entries = this.fetch("DIRECT_PRODUCT");
+
+            assertEquals(Set.of("DIRECT_PRODUCT"), entries.keySet());
+        }
+
+        @Test
+        void readsItemsThatPrecedeTheStockList() throws ConversionRefreshException {
+            this.archive = zip(
+                ROOT + "items/STOCK_ITEM.json", item("§9Stock Item"),
+                ROOT + "constants/bazaarstocks.json", STOCKS
+            );
+
+            var entries = this.fetch("STOCK_PRODUCT");
+
+            assertEquals("Stock Item", entries.get("STOCK_PRODUCT").strippedName());
+        }
+
+        @Test
+        void readsOnlyTheTopLevelItemsDirectory() throws ConversionRefreshException {
+            this.archive = zip(
+                ROOT + "constants/bazaarstocks.json", "[]",
+                ROOT + "items/DIRECT_PRODUCT.json", item("§aDirect Product"),
+                ROOT + "xitems/DIRECT_PRODUCT.json", item("§cDecoy"),
+                ROOT + "backup/items/DIRECT_PRODUCT.json", item("§cNested Decoy")
+            );
+
+            assertEquals("Direct Product", this.fetch("DIRECT_PRODUCT").get("DIRECT_PRODUCT").strippedName());
+            assertEquals("FOO", NeuArchiveReader.itemId("items/FOO.json"));
+            assertEquals("FOO", NeuArchiveReader.itemId("repo-x/items/FOO.json"));
+            assertNull(NeuArchiveReader.itemId("repo-x/xitems/FOO.json"));
+            assertNull(NeuArchiveReader.itemId("repo-x/backup/items/FOO.json"));
+            assertNull(NeuArchiveReader.itemId("repo-x/items/nested/FOO.json"));
+        }
+
+        @Test
+        void reportsBrokenArchivesAsNeuZipFailures() {
+            this.archive = zip(ROOT + "items/DIRECT_PRODUCT.json", item("§aDirect Product"));
+            var missingStocks = assertThrows(ConversionRefreshException.class, () -> this.fetch("DIRECT_PRODUCT"));
+
+            this.archive = zip(
+                ROOT + "constants/bazaarstocks.json", "[]",
+                ROOT + "items/DIRECT_PRODUCT.json", "{ \"displayname\": [] }"
+            );
+            var invalidItem = assertThrows(ConversionRefreshException.class, () -> this.fetch("DIRECT_PRODUCT"));
+
+            this.status = 404;
+            var httpError = assertThrows(ConversionRefreshException.class, () -> this.fetch("DIRECT_PRODUCT"));
+
+            assertEquals(ConversionRefreshException.Phase.NeuZip, missingStocks.phase());
+            assertEquals(ConversionRefreshException.Phase.NeuZip, invalidItem.phase());
+            assertEquals(ConversionRefreshException.Phase.NeuZip, httpError.phase());
+        }
+
+        private Map<String, ConversionProductEntry> fetch(String... productIds) throws ConversionRefreshException {
+            var uri = URI.create("http://localhost:" + this.server.getAddress().getPort() + "/abc.zip");
+            return RemoteNeuConversionIndexBuilder.fetchNeuEntries(uri, Set.of(productIds)).products();
+        }
+
+
+        private static byte[] zip(String... namesAndContents) {
+            var bytes = new ByteArrayOutputStream();
+            try (var zip = new ZipOutputStream(bytes, StandardCharsets.UTF_8)) {
+                for (int i = 0; i < namesAndContents.length; i += 2) {
+                    zip.putNextEntry(new ZipEntry(namesAndContents[i]));
+                    zip.write(namesAndContents[i + 1].getBytes(StandardCharsets.UTF_8));
+                    zip.closeEntry();
+                }
+            } catch (IOException err) {
+                throw new UncheckedIOException(err);
+            }
+            return bytes.toByteArray();
+        }
+    }
+
+    @Nested
+    @DisplayName("incremental refresh")
+    class IncrementalRefresh {
+
+        private HttpServer server;
+        private final Map<String, String> files = new LinkedHashMap<>();
+        private final List<String> requested = new CopyOnWriteArrayList<>();
+        private boolean truncated;
+
+        @BeforeEach
+        void startServer() throws IOException {
+            this.truncated = false;
+            this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+            this.server.createContext("/tree/", exchange -> this.respond(exchange, this.treeListing()));
+            this.server.createContext("/raw/", exchange -> {
+                var path = exchange.getRequestURI().getPath().substring("/raw/new/".length());
+                this.requested.add(path);
+                this.respond(exchange, this.files.get(path));
+            });
+            this.server.start();
+        }
+
+        @AfterEach
+        void stopServer() {
+            this.server.stop(0);
+        }
+
+        @Test
+        void fetchesOnlyChangedAndNewItems() throws IOException {
+            this.files.put("constants/bazaarstocks.json", "[]");
+            this.files.put("items/KEPT.json", item("§aKept"));
+            this.files.put("items/RENAMED.json", item("§9Renamed Now"));
+            this.files.put("items/ADDED.json", item("§fAdded"));
+            var current = indexWithHashes(Map.of(
+                "KEPT", neuEntry("§aKept", "KEPT"),
+                "RENAMED", neuEntry("§9Renamed", "RENAMED"),
+                "ENCHANTMENT_CHAMPION_10", new ConversionProductEntry("Champion X", new ProductNameSource.Derived())
+            ), Map.of(
+                "KEPT", hash(item("§aKept")),
+                "RENAMED", hash(item("§9Renamed"))
+            ));
+
+            var entries = this.patch(current, "KEPT", "RENAMED", "ADDED", "ENCHANTMENT_CHAMPION_10").orElseThrow();
+
+            // the item files are requested concurrently, in no particular order
+            assertEquals(3, this.requested.size());
+            assertEquals("constants/bazaarstocks.json", this.requested.getFirst());
+            assertEquals(
+                Set.of("items/ADDED.json", "items/RENAMED.json"),
+                Set.copyOf(this.requested.subList(1, this.requested.size()))
+            );
+            assertSame(current.products().get("KEPT"), entries.products().get("KEPT"));
+            assertEquals("Renamed Now", entries.products().get("RENAMED").strippedName());
+            assertEquals("Added", entries.products().get("ADDED").strippedName());
+            assertEquals("Champion X", entries.products().get("ENCHANTMENT_CHAMPION_10").strippedName());
+            assertEquals(hash(item("§9Renamed Now")), entries.sourceHashes().get("RENAMED"));
+            assertEquals(Set.of("KEPT", "RENAMED", "ADDED"), entries.sourceHashes().keySet());
+        }
+
+        @Test
+        void followsProductsToAnotherStockItem() throws IOException {
+            this.files.put("constants/bazaarstocks.json", "[{ \"stock\": \"STOCK\", \"id\": \"NEW_ITEM\" }]");
+            this.files.put("items/OLD_ITEM.json", item("§fOld Item"));
+            this.files.put("items/NEW_ITEM.json", item("§fNew Item"));
+            var current = indexWithHashes(
+                Map.of("STOCK", neuEntry("§fOld Item", "OLD_ITEM")),
+                Map.of("STOCK", hash(item("§fOld Item")))
+            );
+
+            var entries = this.patch(current, "STOCK").orElseThrow();
+
+            assertEquals(new ProductNameSource.Neu("NEW_ITEM"), entries.products().get("STOCK").source());
+            assertEquals(List.of("constants/bazaarstocks.json", "items/NEW_ITEM.json"), this.requested);
+        }
+
+        @Test
+        void leavesTruncatedListingsToTheFullArchive() throws IOException {
+            this.truncated = true;
+            this.files.put("items/KEPT.json", item("§aKept"));
+            var current = indexWithHashes(
+                Map.of("KEPT", neuEntry("§aKept", "KEPT")),
+                Map.of("KEPT", hash(item("§aKept")))
+            );
+
+            assertTrue(this.patch(current, "KEPT").isEmpty());
+            assertTrue(this.requested.isEmpty());
+        }
+
+        @Test
+        void reportsChangedProductsBetweenIndexes() {
+            var previous = indexWithHashes(Map.of(
+                "KEPT", neuEntry("§aKept", "KEPT"),
+                "RENAMED", neuEntry("§9Renamed", "RENAMED"),
+                "REMOVED", neuEntry("§fRemoved", "REMOVED")
+            ), Map.of());
+            var next = indexWithHashes(Map.of(
+                "KEPT", neuEntry("§aKept", "KEPT"),
+                "RENAMED", neuEntry("§9Renamed Now", "RENAMED"),
+                "ADDED", neuEntry("§fAdded", "ADDED")
+            ), Map.of());
+
+            var changes = ConversionChangeSet.between(previous, next);
+
+            assertEquals(Set.of("RENAMED", "REMOVED", "ADDED"), changes.productIds());
+            assertTrue(ConversionChangeSet.between(next, next).isEmpty());
+        }
+
+        private Optional<RemoteNeuConversionIndexBuilder.NeuEntries> patch(
+            ConversionIndex current,
+            String... productIds
+        ) throws IOException {
+            var base = "http://localhost:" + this.server.getAddress().getPort();
+            var repo = new RemoteNeuConversionIndexBuilder.NeuRepository(
+                URI.create(base + "/commit"),
+                base + "/tree/%s",
+                base + "/raw/%s/%s",
+                base + "/zip/%s.zip"
+            );
+            return RemoteNeuConversionIndexBuilder.patchEntries(current, "new", Set.of(productIds), repo);
+        }
+
+        private String treeListing() {
+            var tree = new StringBuilder();
+            this.files.forEach((path, content) -> {
+                if (!tree.isEmpty()) {
+                    tree.append(',');
+                }
+                tree.append("{ \"path\": \"%s\", \"type\": \"blob\", \"sha\": \"%s\" }"
+                    .formatted(path, hash(content)));
+            });
+            return "{ \"sha\": \"new\", \"truncated\": " + this.truncated + ", \"tree\": [" + tree + "] }";
+        }
+
+        private void respond(HttpExchange exchange, String body) throws IOException {
+            if (body == null) {
+                exchange.sendResponseHeaders(404, -1);
+                exchange.close();
+                return;
+            }
+
+            var bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (var out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+
+        private static ConversionProductEntry neuEntry(String formattedName, String neuId) {
+            return new ConversionProductEntry(formattedName, new ProductNameSource.Neu(neuId));
+        }
+
+        private static String hash(String content) {
+            return NeuArchiveReader.gitBlobHash(content.getBytes(StandardCharsets.UTF_8));
+        }
+
+        private static ConversionIndex indexWithHashes(
+            Map<String, ConversionProductEntry> products,
+            Map<String, String> sourceHashes
+        ) {
+            return new ConversionIndex(
+                ConversionIndex.SCHEMA_VERSION,
+                RemoteNeuConversionIndexBuilder.BUILDER_VERSION,
+                "now",
+                "old",
+                products,
+                Set.of(),
+                sourceHashes
+            );
+        }
+    }
+
+    private static String item(String displayName) {
+        return "{ \"displayname\": \"" + displayName + "\", \"lore\": [] }";
+    }
+
     private static ConversionIndex indexWithNeuCommit(
         String neuCommit,
         Map<String, ConversionProductEntry> products
@@ -0,0 +1,77 @@
+package com.github.lutzluca.btrbz.data.conversions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.github.lutzluca.btrbz.data.ProductIdentity;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+class ResolutionCacheTest {
+
+    private static final ProductIdentity REDSTONE = ProductIdentity.fromRuntime("Redstone", "REDSTONE", null);
+    private static final ProductIdentity COAL = ProductIdentity.fromRuntime("Coal", "COAL", null);
+    private static final ProductIdentity SUGAR = ProductIdentity.fromRuntime("Sugar", "SUGAR_CANE", null);
+
+    @Nested
+    @DisplayName("lookups")
+    class Lookups {
+
+        @Test
+        void returnsEntriesOfTheSameRevisionOnly() {
+            var cache = new ResolutionCache<String>(4);
+            cache.put("redstone", 1, REDSTONE);
+
+            assertEquals(REDSTONE, cache.get("redstone", 1));
+            assertNull(cache.get("redstone", 2));
+            assertNull(cache.get("coal", 1));
+        }
+
+        @Test
+        void countsHitsAndMisses() {
+            var cache = new ResolutionCache<String>(4);
+            cache.get("redstone", 1);
+            cache.put("redstone", 1, REDSTONE);
+            cache.get("redstone", 1);
+            cache.get("redstone", 1);
+
+            var stats = cache.stats();
+
+            assertEquals(2, stats.hits());
+            assertEquals(1, stats.misses());
+            assertEquals(1, stats.size());
+            assertEquals(2 / 3.0, stats.hitRate(), 1e-9);
+        }
+    }
+
+    @Nested
+    @DisplayName("eviction")
+    class Eviction {
+
+        @Test
+        void dropsTheLeastRecentlyUsedEntry() {
+            var cache = new ResolutionCache<String>(2);
+            cache.put("redstone", 1, REDSTONE);
+            cache.put("coal", 1, COAL);
+            cache.get("redstone", 1);
+            cache.put("sugar", 1, SUGAR);
+
+            assertEquals(REDSTONE, cache.get("redstone", 1));
+            assertNull(cache.get("coal", 1));
+            assertEquals(SUGAR, cache.get("sugar", 1));
+            assertEquals(2, cache.stats().size());
+        }
+
+        @Test
+        void clearDropsEveryEntryButKeepsTheCounters() {
+            var cache = new ResolutionCache<String>(2);
+            cache.put("redstone", 1, REDSTONE);
+            cache.get("redstone", 1);
+
+            assertEquals(1, cache.clear());
+            assertEquals(0, cache.stats().size());
+            assertEquals(1, cache.stats().hits());
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.github.lutzluca.btrbz.data.history;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.github.lutzluca.btrbz.data.BazaarData;
+import com.github.lutzluca.btrbz.data.MarketColumns;
+import com.github.lutzluca.btrbz.test.Benchmark;
+import com.github.lutzluca.btrbz.test.Benchmarks;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Records a simulated day of the whole Bazaar and reports the segment size and the latency of single product queries.
+ * Run with {@code BTRBZ_BENCHMARK=true ./gradlew test --tests '*PriceHistoryBenchmark'}.
+ */
+@Benchmark
+class PriceHistoryBenchmark {
+
+    private static final int PRODUCTS = 1_500;
+    private static final long POLL = 20_000L;
+    private static final int POLLS = (int) (24 * 60 * 60 * 1000L / POLL);
+    private static final int QUERIES = 2_000;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void recordOneDayOfTheWholeBazaar() {
+        var random = new Random(42);
+        var data = new BazaarData();
+        var history = new PriceHistory(this.dir);
+        data.addUpdateHandler(history);
+
+        var buyOrders = new double[PRODUCTS];
+        var sellOffers = new double[PRODUCTS];
+        var movingWeeks = new long[PRODUCTS];
+        for (int i = 0; i < PRODUCTS; i++) {
+            buyOrders[i] = Math.round(10 + random.nextDouble() * 100_000) / 10.0;
+            sellOffers[i] = buyOrders[i] * 1.05;
+            movingWeeks[i] = random.nextInt(50_000_000);
+        }
+
+        long start = LocalDate.now(ZoneOffset.UTC).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+        long recordNanos = 0;
+        for (int poll = 0; poll < POLLS; poll++) {
+            var builder = MarketColumns.builder(data.handles()).lastUpdated(start + poll * POLL + random.nextInt(500));
+            for (int i = 0; i < PRODUCTS; i++) {
+                // most products sit idle between polls, quick status prices are averages off the 0.1 coin tick
+                if (random.nextInt(12) == 0) {
+                    buyOrders[i] = Math.max(0.1, drift(buyOrders[i], random));
+                    sellOffers[i] = Math.max(buyOrders[i], drift(sellOffers[i], random));
+                }
+                if (random.nextInt(6) == 0) {
+                    movingWeeks[i] += random.nextInt(2_001) - 1_000;
+                }
+
+                builder.product("PRODUCT_" + i);
+                builder.quickBuy(sellOffers[i] * 1.0037, 1_000, movingWeeks[i], 20);
+                builder.quickSell(buyOrders[i] * 0.9963, 1_000, movingWeeks[i], 20);
+                builder.buyOrderLevel(buyOrders[i], 640, 3);
+                builder.sellOfferLevel(sellOffers[i], 640, 3);
+            }
+
+            var columns = builder.build();
+            long begin = System.nanoTime();
+            data.onUpdate(columns);
+            recordNanos += System.nanoTime() - begin;
+        }
+
+        long size = history.sizeOnDisk();
+        long end = start + POLLS * POLL;
+        var samples = new int[1];
+        var queries = Benchmarks.measure(0, QUERIES, () -> {
+            samples[0] += history.query("PRODUCT_" + random.nextInt(PRODUCTS), start, end, 0).join().size();
+            return samples[0];
+        });
+
+        assertEquals(samples[0] / QUERIES, history.query("PRODUCT_0", start, end, 0).join().size(), POLLS / 10);
+        history.close();
+        Benchmarks.report(
+            "price history (%d products, %d polls): %.2f MiB on disk, %.3f ms per update, %.3f ms per day query"
+                + " (%d samples)",
+            PRODUCTS,
+            POLLS,
+            size / 1024.0 / 1024.0,
+            recordNanos / 1e6 / POLLS,
+            queries.meanNanos() / 1e6,
+            samples[0] / QUERIES
+        );
+    }
+
+    private static double drift(double price, Random random) {
+        return Math.round(price * (1 + random.nextGaussian() * 0.002) * 10) / 10.0;
+    }
+}
@@ -0,0 +1,344 @@
+package com.github.lutzluca.btrbz.data.history;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.lutzluca.btrbz.data.BazaarData;
+import com.github.lutzluca.btrbz.data.MarketColumns;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PriceHistoryTest {
+
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+    private static final long POLL = 20_000L;
+    private static final long START = LocalDate
+        .now(ZoneOffset.UTC)
+        .atStartOfDay(ZoneOffset.UTC)
+        .toInstant()
+        .toEpochMilli();
+
+    @TempDir
+    Path dir;
+
+    private final BazaarData data = new BazaarData();
+
+    @Nested
+    @DisplayName("recording")
+    class Recording {
+
+        @Test
+        void recordsOnlyProductsWhoseRecordedFieldsChanged() {
+            var history = PriceHistoryTest.this.history();
+            PriceHistoryTest.this.poll(START, market -> {
+                market.product("A", 10.0, 11.0, 1_000);
+                market.product("B", 5.0, 6.0, 1_000);
+            });
+            PriceHistoryTest.this.poll(START + POLL, market -> {
+                market.product("A", 10.1, 11.0, 1_000);
+                market.product("B", 5.0, 6.0, 1_000);
+            });
+
+            assertEquals(2, history.query("A", START, START + DAY, 0).join().size());
+            assertEquals(1, history.query("B", START, START + DAY, 0).join().size());
+            assertEquals(10.1, history.query("A", START + 1, START + DAY, 0).join().getFirst().buyOrderPrice());
+        }
+
+        @Test
+        void ignoresChangesBelowTheTopOfBook() {
+            var history = PriceHistoryTest.this.history();
+            PriceHistoryTest.this.poll(
+                START,
+                market -> market.product("A", 10.0, 11.0, 1_000).buyOrderLevel(9.0, 5, 1)
+            );
+            PriceHistoryTest.this.poll(
+                START + POLL,
+                market -> market.product("A", 10.0, 11.0, 1_000).buyOrderLevel(9.0, 6, 1)
+            );
+
+            assertEquals(1, history.query("A", START, START + DAY, 0).join().size());
+        }
+
+        @Test
+        void holdsBackVolumeChangesUntilTheIntervalPassed() {
+            var history = PriceHistoryTest.this.history();
+            PriceHistoryTest.this.poll(START, market -> {
+                market.product("A", 10.0, 11.0, 1_000);
+                market.product("B", 5.0, 6.0, 1_000);
+            });
+            int polls = (int) (PriceHistory.VOLUME_INTERVAL_MILLIS / POLL);
+            for (int i = 1; i <= polls; i++) {
+                // only B changes after the volume of A did, so A is recorded without being part of the update
+                double price = 5.0 + i;
+                PriceHistoryTest.this.poll(START + i * POLL, market -> {
+                    market.product("A", 10.0, 11.0, 2_000);
+                    market.product("B", price, price + 1, 1_000);
+                });
+            }
+
+            var samples = history.query("A", START, START + DAY, 0).join();
+
+            assertEquals(2, samples.size());
+            assertEquals(START + PriceHistory.VOLUME_INTERVAL_MILLIS, samples.get(1).timestamp());
+            assertEquals(2_000, samples.get(1).quickBuyMovingWeek());
+        }
+
+        @Test
+        void recordsPriceChangesRightAway() {
+            var history = PriceHistoryTest.this.history();
+            PriceHistoryTest.this.poll(START, market -> market.product("A", 10.0, 11.0, 1_000));
+            PriceHistoryTest.this.poll(START + POLL, market -> market.product("A", 10.0, 11.0, 2_000));
+            PriceHistoryTest.this.poll(START + 2 * POLL, market -> market.product("A", 10.1, 11.0, 2_000));
+
+            var samples = history.query("A", START, START + DAY, 0).join();
+
+            assertEquals(List.of(START, START + 2 * POLL), samples.stream().map(HistorySample::timestamp).toList());
+            assertEquals(2_000, samples.get(1).quickBuyMovingWeek());
+        }
+
+        @Test
+        void keepsSamplesAcrossFullBlocks() {
+            var history = PriceHistoryTest.this.history();
+            int polls = PriceHistory.BLOCK_SAMPLES * 2 + 7;
+            for (int i = 0; i < polls; i++) {
+                double price = 100 + i;
+                PriceHistoryTest.this.poll(START + i * POLL, market -> market.product("A", price, price + 1, 1_000));
+            }
+
+            var samples = history.query("A", START, START + DAY, 0).join();
+
+            assertEquals(polls, samples.size());
+            for (int i = 0; i < polls; i++) {
+                assertEquals(START + i * POLL, samples.get(i).timestamp());
+                assertEquals(100.0 + i, samples.get(i).buyOrderPrice());
+            }
+            assertTrue(history.sizeOnDisk() > 0);
+        }
+    }
+
+    @Nested
+    @DisplayName("queries")
+    class Queries {
+
+        @Test
+        void downsamplesToTheLastSampleOfEachBucket() {
+            var history = PriceHistoryTest.this.history();
+            for (int i = 0; i < 10; i++) {
+                double price = 100 + i;
+                PriceHistoryTest.this.poll(START + i * POLL, market -> market.product("A", price, price + 1, 1_000));
+            }
+
+            var samples = history.query("A", START, START + DAY, 3 * POLL).join();
+
+            assertEquals(List.of(START, START + 3 * POLL, START + 6 * POLL, START + 9 * POLL), samples
+                .stream()
+                .map(HistorySample::timestamp)
+                .toList());
+            assertEquals(List.of(102.0, 105.0, 108.0, 109.0), samples
+                .stream()
+                .map(HistorySample::buyOrderPrice)
+                .toList());
+        }
+
+        @Test
+        void limitsSamplesToTheRange() {
+            var history = PriceHistoryTest.this.history();
+            for (int i = 0; i < 10; i++) {
+                double price = 100 + i;
+                PriceHistoryTest.this.poll(START + i * POLL, market -> market.product("A", price, price + 1, 1_000));
+            }
+
+            var samples = history.query("A", START + 2 * POLL, START + 4 * POLL, 0).join();
+
+            assertEquals(3, samples.size());
+            assertEquals(102.0, samples.getFirst().buyOrderPrice());
+            assertTrue(history.query("UNKNOWN", START, START + DAY, 0).join().isEmpty());
+            assertTrue(history.query("A", START + DAY, START, 0).join().isEmpty());
+        }
+
+        @Test
+        void spansSegmentsOfSeveralDays() {
+            var history = PriceHistoryTest.this.history();
+            long yesterday = START - DAY / 2;
+            PriceHistoryTest.this.poll(yesterday, market -> market.product("A", 10.0, 11.0, 1_000));
+            PriceHistoryTest.this.poll(START + POLL, market -> market.product("A", 12.0, 13.0, 1_000));
+
+            var samples = history.query("A", yesterday, START + DAY, 0).join();
+
+            assertEquals(List.of(10.0, 12.0), samples.stream().map(HistorySample::buyOrderPrice).toList());
+            try (var files = Files.list(PriceHistoryTest.this.dir)) {
+                assertEquals(2, files.count());
+            } catch (IOException err) {
+                throw new AssertionError(err);
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("persistence")
+    class Persistence {
+
+        @Test
+        void reopensClosedHistory() {
+            var history = PriceHistoryTest.this.history();
+            PriceHistoryTest.this.poll(START, market -> market.product("A", 10.0, 11.0, 1_000));
+            PriceHistoryTest.this.poll(START + POLL, market -> market.product("A", 10.5, 11.0, 2_000));
+            history.close();
+
+            var reopened = new PriceHistory(PriceHistoryTest.this.dir);
+            var samples = reopened.query("A", START, START + DAY, 0).join();
+
+            assertEquals(2, samples.size());
+            assertEquals(2_000, samples.get(1).quickBuyMovingWeek());
+        }
+
+        @Test
+        void appendsToTheSegmentOfTheCurrentDayAfterRestart() {
+            var first = PriceHistoryTest.this.history();
+            PriceHistoryTest.this.poll(START, market -> market.product("A", 10.0, 11.0, 1_000));
+            first.close();
+            PriceHistoryTest.this.data.removeUpdateHandler(first);
+
+            var second = PriceHistoryTest.this.history();
+            PriceHistoryTest.this.poll(START + POLL, market -> market.product("A", 10.5, 11.0, 1_000));
+            second.close();
+
+            var reopened = new PriceHistory(PriceHistoryTest.this.dir);
+            assertEquals(2, reopened.query("A", START, START + DAY, 0).join().size());
+        }
+
+        @Test
+        void restoresTheCheckpointedOpenBlocksAfterACrash() {
+            var crashed = PriceHistoryTest.this.history();
+            int checkpointed = (int) (PriceHistory.CHECKPOINT_INTERVAL_MILLIS / POLL) + 1;
+            for (int i = 0; i <= checkpointed; i++) {
+                double price = 100 + i;
+                PriceHistoryTest.this.poll(START + i * POLL, market -> market.product("A", price, price + 1, 1_000));
+            }
+            // waits for the writes without closing the history
+            assertEquals(checkpointed + 1, crashed.query("A", START, START + DAY, 0).join().size());
+
+            var restarted = new PriceHistory(PriceHistoryTest.this.dir);
+            var samples = restarted.query("A", START, START + DAY, 0).join();
+            restarted.close();
+
+            assertEquals(checkpointed, samples.size());
+            assertEquals(100.0 + checkpointed - 1, samples.getLast().buyOrderPrice());
+        }
+
+        @Test
+        void keepsSegmentsWithinRetention() {
+            var history = PriceHistoryTest.this.history();
+            long oldest = START - (PriceHistory.RETENTION_DAYS - 1) * DAY;
+            PriceHistoryTest.this.poll(oldest, market -> market.product("A", 10.0, 11.0, 1_000));
+            history.close();
+
+            var reopened = new PriceHistory(PriceHistoryTest.this.dir);
+            assertEquals(1, reopened.query("A", oldest, START + DAY, 0).join().size());
+            reopened.close();
+        }
+
+        @Test
+        void dropsUpdatesAfterClose() {
+            var history = PriceHistoryTest.this.history();
+            PriceHistoryTest.this.poll(START, market -> market.product("A", 10.0, 11.0, 1_000));
+            history.close();
+            PriceHistoryTest.this.poll(START + POLL, market -> market.product("A", 10.5, 11.0, 1_000));
+
+            assertTrue(history.query("A", START, START + DAY, 0).isCompletedExceptionally());
+            var reopened = new PriceHistory(PriceHistoryTest.this.dir);
+            assertEquals(1, reopened.query("A", START, START + DAY, 0).join().size());
+        }
+
+        @Test
+        void replacesUnreadableSegments() throws IOException {
+            Files.createDirectories(PriceHistoryTest.this.dir);
+            var today = PriceHistoryTest.this.dir.resolve(LocalDate.now(ZoneOffset.UTC) + ".seg");
+            Files.writeString(today, "not a segment");
+
+            var history = PriceHistoryTest.this.history();
+            PriceHistoryTest.this.poll(START, market -> market.product("A", 10.0, 11.0, 1_000));
+
+            assertEquals(1, history.query("A", START, START + DAY, 0).join().size());
+        }
+
+        @Test
+        void cutsSegmentsBackToTheLastRecordThatFits() throws IOException {
+            var path = PriceHistoryTest.this.dir.resolve("damaged.seg");
+            var day = LocalDate.now(ZoneOffset.UTC);
+            int committed;
+            try (var segment = HistorySegment.openWritable(path, day)) {
+                segment.addUpdate(START);
+                segment.append("A", 1, START, START, new byte[] { 1, 2 });
+                segment.addUpdate(START + POLL);
+                segment.append("B", 1, START + POLL, START + POLL, new byte[] { 3, 4 });
+                committed = segment.size();
+            }
+            // the byte length of the last block now points past the committed length
+            try (var channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, 1_000), committed - 2 - Integer.BYTES);
+            }
+
+            try (var segment = HistorySegment.openReadOnly(path, day)) {
+                assertEquals(START, segment.lastTimestamp("A"));
+                assertEquals(Long.MIN_VALUE, segment.lastTimestamp("B"));
+            }
+            try (var segment = HistorySegment.openWritable(path, day)) {
+                assertTrue(segment.size() < committed);
+                segment.append("B", 1, START + POLL, START + POLL, new byte[] { 3, 4 });
+            }
+            try (var segment = HistorySegment.openReadOnly(path, day)) {
+                assertEquals(START + POLL, segment.lastTimestamp("B"));
+            }
+        }
+
+        @Test
+        void deletesSegmentsPastRetention() throws IOException {
+            var expired = PriceHistoryTest.this.dir.resolve(
+                LocalDate.now(ZoneOffset.UTC).minusDays(PriceHistory.RETENTION_DAYS + 1) + ".seg"
+            );
+            Files.writeString(expired, "expired");
+
+            PriceHistoryTest.this.history().query("A", START, START + DAY, 0).join();
+
+            assertFalse(Files.exists(expired));
+        }
+    }
+
+    private PriceHistory history() {
+        var history = new PriceHistory(this.dir);
+        this.data.addUpdateHandler(history);
+        return history;
+    }
+
+    private void poll(long timestamp, Consumer<Market> products) {
+        var builder = MarketColumns.builder(this.data.handles()).lastUpdated(timestamp);
+        products.accept(new Market(builder));
+        this.data.onUpdate(builder.build());
+    }
+
+    private record Market(MarketColumns.Builder builder) {
+
+        MarketColumns.Builder product(String productId, double buyOrder, double sellOffer, long movingWeek) {
+            this.builder.product(productId);
+            this.builder.quickBuy(sellOffer, 100, movingWeek, 10);
+            this.builder.quickSell(buyOrder, 100, movingWeek, 10);
+            this.builder.buyOrderLevel(buyOrder, 64, 1);
+            this.builder.sellOfferLevel(sellOffer, 64, 1);
+            return this.builder;
+        }
+    }
+}
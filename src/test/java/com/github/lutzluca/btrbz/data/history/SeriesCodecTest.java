@@ -0,0 +1,185 @@
+package com.github.lutzluca.btrbz.data.history;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class SeriesCodecTest {
+
+    @Test
+    void roundTripsRandomSeries() {
+        var random = new Random(7);
+        for (int run = 0; run < 200; run++) {
+            var samples = new ArrayList<HistorySample>();
+            long timestamp = 1_700_000_000_000L + random.nextInt(1_000_000);
+            var previous = sample(timestamp, random);
+            samples.add(previous);
+            int count = 1 + random.nextInt(300);
+            for (int i = 0; i < count; i++) {
+                timestamp += switch (random.nextInt(4)) {
+                    case 0 -> 20_000;
+                    case 1 -> 19_500 + random.nextInt(1_000);
+                    case 2 -> 20_000L * (1 + random.nextInt(90));
+                    default -> 1 + random.nextInt(Integer.MAX_VALUE);
+                };
+                previous = random.nextBoolean() ? sample(timestamp, random) : withTimestamp(previous, timestamp);
+                samples.add(previous);
+            }
+
+            assertEquals(samples, roundTrip(samples));
+        }
+    }
+
+    @Test
+    void roundTripsMissingAndExtremeValues() {
+        var samples = List.of(
+            new HistorySample(1_000L, Double.NaN, 0.1, -0.0, Double.MAX_VALUE, 0, Long.MAX_VALUE),
+            new HistorySample(21_000L, 4.2, Double.NaN, 0.0, Double.MIN_VALUE, Long.MAX_VALUE, 0),
+            new HistorySample(41_000L, 4.2, Double.NaN, Double.POSITIVE_INFINITY, 1e-300, -5, Long.MIN_VALUE),
+            new HistorySample(61_000L, 4.25, 1.0 / 3, 1.0, 2.0, 0, 0),
+            new HistorySample(81_000L, -0.0, Double.MAX_VALUE, 1.0, 2.0, 0, 0),
+            new HistorySample(101_000L, 4.3, -12.7, 1.0, 2.0, 0, 0)
+        );
+
+        assertEquals(samples, roundTrip(samples));
+    }
+
+    @Test
+    void unchangedSamplesOfConsecutiveUpdatesCostOneBitPerField() {
+        var head = new SeriesCodec.Encoder();
+        var encoder = new SeriesCodec.Encoder();
+        for (int i = 0; i < 181; i++) {
+            var sample = new HistorySample(20_000L * i, 165.1, 170.4, 170.43, 165.07, 48_000_000, 51_000_000);
+            if (i < 1) {
+                head.append(sample, i);
+            }
+            encoder.append(sample, i);
+        }
+
+        assertEquals(head.bitLength() + 180 * 7, encoder.bitLength());
+        assertEquals((encoder.bitLength() + 7) / 8, encoder.toByteArray().length);
+    }
+
+    @Test
+    void quickPricesFollowingTheTopOfBookCostFewBits() {
+        var random = new Random(3);
+        var following = new SeriesCodec.Encoder();
+        var independent = new SeriesCodec.Encoder();
+        long buyOrderTicks = 1_651;
+        for (int i = 0; i < 180; i++) {
+            buyOrderTicks += random.nextInt(201) - 100;
+            double buyOrder = buyOrderTicks / 10.0;
+            double sellOffer = (buyOrderTicks + 53) / 10.0;
+            following.append(new HistorySample(
+                i,
+                buyOrder,
+                sellOffer,
+                SeriesCodec.roundQuickPrice(sellOffer + 0.03),
+                SeriesCodec.roundQuickPrice(buyOrder - 0.04),
+                0,
+                0
+            ), i);
+            independent.append(new HistorySample(
+                i,
+                buyOrder,
+                sellOffer,
+                SeriesCodec.roundQuickPrice(random.nextInt(1_000_000) / 100.0),
+                SeriesCodec.roundQuickPrice(random.nextInt(1_000_000) / 100.0),
+                0,
+                0
+            ), i);
+        }
+
+        // an unchanged offset to the top of book costs about as much as an unchanged price
+        assertTrue(following.bitLength() < independent.bitLength() / 2);
+    }
+
+    @Test
+    void outliersDoNotInflateTheFollowingDifferences() {
+        var steady = new SeriesCodec.Encoder();
+        var jumping = new SeriesCodec.Encoder();
+        for (int i = 0; i < 180; i++) {
+            long movingWeek = 1_000_000 + i * 37L;
+            steady.append(new HistorySample(i, 1, 2, 3, 4, movingWeek, 0), i);
+            jumping.append(new HistorySample(i, 1, 2, 3, 4, i == 90 ? Long.MAX_VALUE : movingWeek, 0), i);
+        }
+
+        // the jump and its way back are escaped, after which the code settles within a few samples
+        assertTrue(jumping.bitLength() < steady.bitLength() + 2 * (24 + 64) + 64);
+    }
+
+    @Test
+    void roundsQuickPricesToTheHundredth() {
+        assertEquals(170.43, SeriesCodec.roundQuickPrice(170.4271));
+        assertEquals(0.01, SeriesCodec.roundQuickPrice(0.0051));
+        assertTrue(Double.isNaN(SeriesCodec.roundQuickPrice(Double.NaN)));
+        assertEquals(Double.MAX_VALUE, SeriesCodec.roundQuickPrice(Double.MAX_VALUE));
+    }
+
+    @Test
+    void encoderTracksTheBlockRange() {
+        var encoder = new SeriesCodec.Encoder();
+        assertEquals(0, encoder.count());
+
+        encoder.append(new HistorySample(5L, 1, 2, 3, 4, 5, 6), 0);
+        encoder.append(new HistorySample(9L, 1, 2, 3, 4, 5, 6), 3);
+
+        assertEquals(2, encoder.count());
+        assertEquals(5L, encoder.first().timestamp());
+        assertEquals(9L, encoder.last().timestamp());
+        assertTrue(encoder.first().sameValues(encoder.last()));
+        assertFalse(encoder.first().sameValues(new HistorySample(5L, 1, 2, 3, 4, 5, 7)));
+    }
+
+    private static List<HistorySample> roundTrip(List<HistorySample> samples) {
+        // every other update of the timeline belongs to another product
+        var timeline = new long[samples.size() * 2];
+        var encoder = new SeriesCodec.Encoder();
+        for (int i = 0; i < samples.size(); i++) {
+            timeline[2 * i + 1] = samples.get(i).timestamp();
+            encoder.append(samples.get(i), 2 * i + 1);
+        }
+
+        var decoder = new SeriesCodec.Decoder(
+            ByteBuffer.wrap(encoder.toByteArray()),
+            0,
+            encoder.count(),
+            update -> timeline[update]
+        );
+        var decoded = new ArrayList<HistorySample>();
+        while (decoder.hasNext()) {
+            decoded.add(decoder.next());
+        }
+        return decoded;
+    }
+
+    private static HistorySample sample(long timestamp, Random random) {
+        return new HistorySample(
+            timestamp,
+            random.nextInt(5) == 0 ? Double.NaN : random.nextInt(1_000_000) / 10.0,
+            random.nextInt(5) == 0 ? Double.NaN : random.nextInt(1_000_000) / 10.0,
+            random.nextDouble() * 100_000,
+            random.nextDouble() * 100_000,
+            random.nextInt(3) == 0 ? random.nextLong() : random.nextInt(100_000_000),
+            random.nextInt(100_000_000)
+        );
+    }
+
+    private static HistorySample withTimestamp(HistorySample sample, long timestamp) {
+        return new HistorySample(
+            timestamp,
+            sample.buyOrderPrice(),
+            sample.sellOfferPrice(),
+            sample.quickBuyPrice(),
+            sample.quickSellPrice(),
+            sample.quickBuyMovingWeek(),
+            sample.quickSellMovingWeek()
+        );
+    }
+}
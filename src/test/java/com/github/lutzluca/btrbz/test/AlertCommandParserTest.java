@@ -115,12 +115,13 @@ class AlertCommandParserTest {
         }
 
         @Test
-        void numberRounding() throws ParseException {
+        void numbersKeepTheirPrecision() throws ParseException {
+            // only the resolved price of a fixed alert is rounded, to keep factors such as 0.98 intact
             assertEquals(
-                new Literal(120_123_123.4),
+                new Literal(120_123_123.3791),
                 AlertCommandParserTest.this.parser.parse("ITEM buy-order 120_123_123.3791").expr()
             );
-            assertEquals(new Literal(100.5), AlertCommandParserTest.this.parser.parse("ITEM buy-order 100.45").expr());
+            assertEquals(new Literal(100.45), AlertCommandParserTest.this.parser.parse("ITEM buy-order 100.45").expr());
         }
 
         @Test
@@ -136,6 +137,19 @@ class AlertCommandParserTest {
             assertEquals(expected, cmd.expr());
         }
 
+        @Test
+        void instaIdentifierAveragedOverAVolume() throws ParseException {
+            AlertCommand cmd = AlertCommandParserTest.this.parser.parse("ITEM insta-buy insta@2.5k - 5%");
+
+            PriceExpression expected = new Binary(
+                new Reference(ReferenceType.Insta, 2_500),
+                BinaryOperator.Multiply,
+                new Literal(0.95)
+            );
+
+            assertEquals(expected, cmd.expr());
+        }
+
         @Test
         void expressionStartingWithIdentifier() throws ParseException {
             AlertCommand cmd = AlertCommandParserTest.this.parser.parse("ITEM buy-order order");
@@ -160,5 +174,16 @@ class AlertCommandParserTest {
                 () -> AlertCommandParserTest.this.parser.parse("ITEM sell 100k")
             );
         }
+
+        @Test
+        void volumesAreOnlyAcceptedAsWholeItemsOfInstaPrices() {
+            for (var expression : new String[] {"order@100", "insta@", "insta@0", "insta@1.5", "insta@-5"}) {
+                assertThrows(
+                    ParseException.class,
+                    () -> AlertCommandParserTest.this.parser.parse("ITEM buy-order " + expression),
+                    expression
+                );
+            }
+        }
     }
 }
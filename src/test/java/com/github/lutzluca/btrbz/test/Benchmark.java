@@ -0,0 +1,16 @@
+package com.github.lutzluca.btrbz.test;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+/**
+ * Marks a benchmark class. Benchmarks take a while and report their numbers rather than assert them, so they only run
+ * with {@code BTRBZ_BENCHMARK=true}, e.g. {@code BTRBZ_BENCHMARK=true ./gradlew test --tests '*Benchmark'}.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@EnabledIfEnvironmentVariable(named = "BTRBZ_BENCHMARK", matches = "true")
+public @interface Benchmark { }
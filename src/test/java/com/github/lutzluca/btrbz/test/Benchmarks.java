@@ -0,0 +1,71 @@
+package com.github.lutzluca.btrbz.test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ * The measuring loop shared by the {@link Benchmark} classes.
+ */
+public final class Benchmarks {
+
+    private Benchmarks() { }
+
+    /**
+     * Runs the round {@code warmupRounds} times so the JIT settles, then times each of {@code measuredRounds} further
+     * rounds and counts the bytes they allocate on the calling thread.
+     */
+    public static <T, E extends Exception> Run<T> measure(int warmupRounds, int measuredRounds, Round<T, E> round)
+        throws E {
+        T result = null;
+        for (int i = 0; i < warmupRounds; i++) {
+            result = round.run();
+        }
+
+        var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+        var nanos = new long[measuredRounds];
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < measuredRounds; i++) {
+            long start = System.nanoTime();
+            result = round.run();
+            nanos[i] = System.nanoTime() - start;
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        Arrays.sort(nanos);
+        return new Run<>(result, nanos, allocated / Math.max(1, measuredRounds));
+    }
+
+    /**
+     * Prints one result line; the format takes no trailing line break.
+     */
+    public static void report(String format, Object... args) {
+        System.out.printf(format + "%n", args);
+    }
+
+    @FunctionalInterface
+    public interface Round<T, E extends Exception> {
+
+        T run() throws E;
+    }
+
+    /**
+     * @param result         what the last round returned
+     * @param nanos          the time each measured round took, sorted
+     * @param allocatedBytes the bytes allocated per measured round
+     */
+    public record Run<T>(T result, long[] nanos, long allocatedBytes) {
+
+        public double medianNanos() {
+            return this.nanos[this.nanos.length / 2];
+        }
+
+        public double p99Nanos() {
+            return this.nanos[this.nanos.length * 99 / 100];
+        }
+
+        public double meanNanos() {
+            return (double) Arrays.stream(this.nanos).sum() / this.nanos.length;
+        }
+    }
+}